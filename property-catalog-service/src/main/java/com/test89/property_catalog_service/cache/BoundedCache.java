@@ -0,0 +1,122 @@
+package com.test89.property_catalog_service.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Least-recently-used map bounded by entry count and time-to-live, with the counters needed for metrics.
+ * <p>
+ * Every operation is synchronized on the cache; values are small (id lists, DTOs), so critical sections stay
+ * short. Puts carry the generation read before the value was computed and are dropped if an invalidation
+ * happened in between, so a result computed from data that changed meanwhile is never stored.
+ */
+public class BoundedCache<K, V> {
+
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private long generation;
+    private long hits;
+    private long misses;
+    private long puts;
+    private long evictions;
+    private long invalidations;
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    public BoundedCache(int maxEntries, Duration ttl) {
+        if (maxEntries < 1 || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Cache size and time-to-live must be positive");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt() >= 0) {
+            entries.remove(key);
+            evictions++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value();
+    }
+
+    /**
+     * Read before computing a value to put, see {@link #put(Object, Object, long)}.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void put(K key, V value, long generation) {
+        if (generation != this.generation) {
+            return; // Invalidated while the value was being computed
+        }
+        puts++;
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        if (entries.remove(key) != null) {
+            invalidations++;
+        }
+    }
+
+    public synchronized void invalidateIf(Predicate<K> predicate) {
+        generation++;
+        Iterator<K> keys = entries.keySet().iterator();
+        while (keys.hasNext()) {
+            if (predicate.test(keys.next())) {
+                keys.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long hitCount() {
+        return hits;
+    }
+
+    public synchronized long missCount() {
+        return misses;
+    }
+
+    public synchronized long putCount() {
+        return puts;
+    }
+
+    // Entries dropped for size or age
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    // Entries dropped because the data behind them changed
+    public synchronized long invalidationCount() {
+        return invalidations;
+    }
+}
@@ -0,0 +1,54 @@
+package com.test89.property_catalog_service.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+/**
+ * Publishes a BoundedCache under the standard cache.* meters, plus cache.invalidations.
+ */
+public class BoundedCacheMetrics extends CacheMeterBinder<BoundedCache<?, ?>> {
+
+    public BoundedCacheMetrics(BoundedCache<?, ?> cache, String cacheName) {
+        super(cache, cacheName, Tags.empty());
+    }
+
+    @Override
+    protected Long size() {
+        BoundedCache<?, ?> cache = getCache();
+        return cache == null ? null : (long) cache.size();
+    }
+
+    @Override
+    protected long hitCount() {
+        BoundedCache<?, ?> cache = getCache();
+        return cache == null ? 0 : cache.hitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        BoundedCache<?, ?> cache = getCache();
+        return cache == null ? null : cache.missCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        BoundedCache<?, ?> cache = getCache();
+        return cache == null ? null : cache.evictionCount();
+    }
+
+    @Override
+    protected long putCount() {
+        BoundedCache<?, ?> cache = getCache();
+        return cache == null ? 0 : cache.putCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("cache.invalidations", getCache(), BoundedCache::invalidationCount)
+                .tags(getTagsWithCacheName())
+                .description("The number of entries removed because the underlying data changed")
+                .register(registry);
+    }
+}
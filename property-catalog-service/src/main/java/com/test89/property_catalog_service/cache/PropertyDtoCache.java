@@ -0,0 +1,67 @@
+package com.test89.property_catalog_service.cache;
+
+import com.test89.property_catalog_service.dto.PropertyDto;
+import com.test89.property_catalog_service.event.PropertyChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Property DTOs by id, used to hydrate search result pages. Cached DTOs are shared between requests and must
+ * be treated as read-only.
+ */
+@Component
+public class PropertyDtoCache implements MeterBinder {
+
+    private final BoundedCache<Long, PropertyDto> properties;
+
+    public PropertyDtoCache(@Value("${app.property-cache.max-entries:50000}") int maxEntries,
+                            @Value("${app.property-cache.ttl:10m}") Duration ttl) {
+        this.properties = new BoundedCache<>(maxEntries, ttl);
+    }
+
+    /**
+     * DTOs of the given properties, loading the missing ones in one call. Ids that no longer exist are absent.
+     */
+    public Map<Long, PropertyDto> getAll(Collection<Long> ids, Function<List<Long>, List<PropertyDto>> loader) {
+        long generation = properties.generation();
+        Map<Long, PropertyDto> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            PropertyDto property = properties.get(id);
+            if (property != null) {
+                found.put(id, property);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (PropertyDto property : loader.apply(missing)) {
+                found.put(property.getId(), property);
+                properties.put(property.getId(), property, generation);
+            }
+        }
+        return found;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        properties.invalidate(event.getPropertyId());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new BoundedCacheMetrics(properties, "property-dtos").bindTo(registry);
+    }
+}
@@ -0,0 +1,67 @@
+package com.test89.property_catalog_service.cache;
+
+import com.test89.property_catalog_service.dto.ReservationDto;
+import com.test89.property_catalog_service.event.PropertyChangedEvent;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Monthly reservation calendars by (property, month), with the property's owner for the permission check.
+ * Any reservation change drops the months its stay touches; a property change drops all of the property's months.
+ * Cached DTOs are shared between requests and must be treated as read-only.
+ */
+@Component
+public class ReservationCalendarCache implements MeterBinder {
+
+    private final BoundedCache<Key, Month> months;
+
+    public ReservationCalendarCache(@Value("${app.calendar-cache.max-entries:10000}") int maxEntries,
+                                    @Value("${app.calendar-cache.ttl:5m}") Duration ttl) {
+        this.months = new BoundedCache<>(maxEntries, ttl);
+    }
+
+    public record Key(Long propertyId, YearMonth month) {
+    }
+
+    public record Month(Long ownerId, List<ReservationDto> reservations) {
+    }
+
+    public long generation() {
+        return months.generation();
+    }
+
+    public Month get(Key key) {
+        return months.get(key);
+    }
+
+    public void put(Key key, Month month, long generation) {
+        months.put(key, month, generation);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationChanged(ReservationChangedEvent event) {
+        YearMonth from = YearMonth.from(event.getCheckInDate());
+        YearMonth to = YearMonth.from(event.getCheckOutDate());
+        months.invalidateIf(key -> Objects.equals(key.propertyId(), event.getPropertyId())
+                && !key.month().isBefore(from) && !key.month().isAfter(to));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        months.invalidateIf(key -> Objects.equals(key.propertyId(), event.getPropertyId()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new BoundedCacheMetrics(months, "reservation-calendars").bindTo(registry);
+    }
+}
@@ -0,0 +1,144 @@
+package com.test89.property_catalog_service.cache;
+
+import com.test89.property_catalog_service.event.PropertyChangedEvent;
+import com.test89.property_catalog_service.event.RatePlanChangedEvent;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import com.test89.property_catalog_service.index.ListingSnapshot;
+import com.test89.property_catalog_service.pricing.PricingEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Ordered id lists of recent searches, keyed by the normalized filter set and sort.
+ * <p>
+ * Entries are invalidated by city: a property change drops the searches filtered on its old or new city and
+ * every search without a city filter. A reservation being created or cancelled only drops date searches for
+ * its property's city whose dates overlap the stay, and a rate plan change only drops searches for its city
+ * ordered by total price. Pages are hydrated through {@link PropertyDtoCache}.
+ */
+@Component
+public class SearchResultCache implements MeterBinder {
+
+    private final ListingSnapshot listingSnapshot;
+    private final BoundedCache<Key, Result> results;
+
+    public SearchResultCache(ListingSnapshot listingSnapshot,
+                             @Value("${app.search-cache.max-entries:10000}") int maxEntries,
+                             @Value("${app.search-cache.ttl:60s}") Duration ttl) {
+        this.listingSnapshot = listingSnapshot;
+        this.results = new BoundedCache<>(maxEntries, ttl);
+    }
+
+    /**
+     * Normalized filter set: the city is lower-cased (the filters compare it case-insensitively), keywords are
+     * trimmed and lower-cased, and prices drop trailing zeros so 100 and 100.00 share an entry.
+     */
+    public record Key(String query, BigDecimal minPrice, BigDecimal maxPrice, Integer bedrooms, Integer bathrooms,
+                      String city, Integer guests, LocalDate checkInDate, LocalDate checkOutDate,
+                      Integer minStayDays, Integer maxStayDays, Sort sort) {
+
+        public static Key basic(String query, BigDecimal minPrice, BigDecimal maxPrice, Integer bedrooms,
+                                Integer bathrooms, String city, Integer maxGuests, Sort sort) {
+            return new Key(query == null ? null : query.trim().toLowerCase(Locale.ROOT),
+                    normalize(minPrice), normalize(maxPrice), bedrooms, bathrooms, normalize(city), maxGuests,
+                    null, null, null, null, sort);
+        }
+
+        public static Key available(LocalDate checkInDate, LocalDate checkOutDate, BigDecimal minPrice,
+                                    BigDecimal maxPrice, Integer bedrooms, Integer bathrooms, String city,
+                                    Integer guestCount, Integer minStayDays, Integer maxStayDays, Sort sort) {
+            return new Key(null, normalize(minPrice), normalize(maxPrice), bedrooms, bathrooms, normalize(city),
+                    guestCount, checkInDate, checkOutDate, minStayDays, maxStayDays, sort);
+        }
+
+        private boolean coversAnyCity(Set<String> cities) {
+            return city == null || cities.contains(city);
+        }
+
+        private boolean overlaps(LocalDate from, LocalDate to) {
+            return checkInDate != null && !checkInDate.isAfter(to) && !checkOutDate.isBefore(from);
+        }
+
+        private static BigDecimal normalize(BigDecimal price) {
+            return price == null ? null : price.stripTrailingZeros();
+        }
+
+        private static String normalize(String city) {
+            return city == null ? null : city.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * The leading ids of the result in order, and the size of the whole result.
+     */
+    public record Result(List<Long> ids, long total) {
+
+        public boolean covers(Pageable pageable) {
+            return ids.size() >= total || ids.size() >= pageable.getOffset() + pageable.getPageSize();
+        }
+    }
+
+    public long generation() {
+        return results.generation();
+    }
+
+    public Result get(Key key) {
+        return results.get(key);
+    }
+
+    public void put(Key key, Result result, long generation) {
+        results.put(key, result, generation);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        Set<String> cities = new HashSet<>();
+        if (event.getPreviousCity() != null) {
+            cities.add(Key.normalize(event.getPreviousCity()));
+        }
+        if (!event.isDeleted() && event.getProperty().getAddress() != null
+                && event.getProperty().getAddress().getCity() != null) {
+            cities.add(Key.normalize(event.getProperty().getAddress().getCity()));
+        }
+        results.invalidateIf(key -> key.coversAnyCity(cities));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationChanged(ReservationChangedEvent event) {
+        if (event.isActive() == event.wasActive()) {
+            return; // The nights the reservation blocks did not change
+        }
+
+        // Without the snapshot the property's city is unknown, so every overlapping date search is dropped
+        ListingSnapshot.Listing listing = listingSnapshot.isReady() ? listingSnapshot.get(event.getPropertyId()) : null;
+        Set<String> cities = listing == null || listing.city() == null ? Set.of() : Set.of(Key.normalize(listing.city()));
+        results.invalidateIf(key -> key.overlaps(event.getCheckInDate(), event.getCheckOutDate())
+                && (listing == null || key.coversAnyCity(cities)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatePlanChanged(RatePlanChangedEvent event) {
+        ListingSnapshot.Listing listing = listingSnapshot.isReady() ? listingSnapshot.get(event.getPropertyId()) : null;
+        Set<String> cities = listing == null || listing.city() == null ? Set.of() : Set.of(Key.normalize(listing.city()));
+        results.invalidateIf(key -> key.sort().getOrderFor(PricingEngine.TOTAL_PRICE_SORT) != null
+                && (listing == null || key.coversAnyCity(cities)));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new BoundedCacheMetrics(results, "search-results").bindTo(registry);
+    }
+}
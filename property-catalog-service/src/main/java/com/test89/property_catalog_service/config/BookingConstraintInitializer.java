@@ -0,0 +1,55 @@
+package com.test89.property_catalog_service.config;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the database-side guard against double bookings on PostgreSQL: an exclusion constraint that rejects two
+ * active reservations of the same property whose [check-in, check-out] ranges overlap. Hibernate's schema update
+ * cannot express it, so it is installed here once the tables exist. Other databases (H2 in tests) rely on the
+ * property_nights primary key instead.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingConstraintInitializer implements CommandLineRunner {
+
+    public static final String OVERLAP_CONSTRAINT = "reservations_no_overlap";
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingConstraintInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) {
+        try {
+            String database = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            if (!"PostgreSQL".equals(database)) {
+                return;
+            }
+
+            Integer existing = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM pg_constraint WHERE conname = ?", Integer.class, OVERLAP_CONSTRAINT);
+            if (existing != null && existing > 0) {
+                return;
+            }
+
+            // Imported BLOCKED rows are left out: feeds may overlap each other or a stay booked here
+            // btree_gist lets the GiST index combine the scalar property_id equality with the range overlap
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS btree_gist");
+            jdbcTemplate.execute("ALTER TABLE reservations ADD CONSTRAINT " + OVERLAP_CONSTRAINT +
+                    " EXCLUDE USING gist (property_id WITH =, daterange(check_in_date, check_out_date, '[]') WITH &&)" +
+                    " WHERE (status IN ('PENDING', 'CONFIRMED'))");
+            logger.info("Installed exclusion constraint {} on reservations", OVERLAP_CONSTRAINT);
+        } catch (DataAccessException e) {
+            // Existing overlapping reservations or a missing extension privilege; bookings stay guarded by the nights table
+            logger.warn("Could not install exclusion constraint {}: {}", OVERLAP_CONSTRAINT, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.test89.property_catalog_service.config;
+
+import com.test89.property_catalog_service.hold.BookingHolds;
+import com.test89.property_catalog_service.index.AmenityIndex;
+import com.test89.property_catalog_service.index.AvailabilityIndex;
+import com.test89.property_catalog_service.index.ClusterIndex;
+import com.test89.property_catalog_service.index.GeoIndex;
+import com.test89.property_catalog_service.index.ListingSnapshot;
+import com.test89.property_catalog_service.index.ReservationIntervalIndex;
+import com.test89.property_catalog_service.index.TextIndex;
+import com.test89.property_catalog_service.service.PropertyNightService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class IndexInitializer implements CommandLineRunner {
+
+    private final AvailabilityIndex availabilityIndex;
+    private final ReservationIntervalIndex reservationIntervalIndex;
+    private final AmenityIndex amenityIndex;
+    private final GeoIndex geoIndex;
+    private final ClusterIndex clusterIndex;
+    private final ListingSnapshot listingSnapshot;
+    private final TextIndex textIndex;
+    private final PropertyNightService propertyNightService;
+    private final BookingHolds bookingHolds;
+
+    @Value("${app.indexes.build-on-startup:true}")
+    private boolean buildOnStartup;
+
+    @Override
+    public void run(String... args) {
+        // The occupancy table is the database-side source for availability, so always populate it
+        propertyNightService.backfillIfEmpty();
+        // Unpaid holds must keep expiring across restarts
+        bookingHolds.reload();
+
+        if (!buildOnStartup) {
+            return; // Searches fall back to the database queries until the indexes are built
+        }
+
+        availabilityIndex.rebuild();
+        reservationIntervalIndex.rebuild();
+        amenityIndex.rebuild();
+        geoIndex.rebuild();
+        clusterIndex.rebuild();
+        listingSnapshot.rebuild();
+        textIndex.rebuild();
+    }
+}
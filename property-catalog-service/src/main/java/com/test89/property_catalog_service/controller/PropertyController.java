@@ -1,10 +1,25 @@
 package com.test89.property_catalog_service.controller;
 
+import com.test89.property_catalog_service.dto.AmenityMatch;
 import com.test89.property_catalog_service.dto.AvailabilityResponseDto;
+import com.test89.property_catalog_service.dto.CalendarImportDto;
+import com.test89.property_catalog_service.dto.CalendarImportRequestDto;
+import com.test89.property_catalog_service.dto.CursorPageDto;
+import com.test89.property_catalog_service.dto.FlexibleAvailabilityDto;
+import com.test89.property_catalog_service.dto.MapClusterDto;
+import com.test89.property_catalog_service.dto.OccupancyDto;
+import com.test89.property_catalog_service.dto.PriceQuoteDto;
+import com.test89.property_catalog_service.dto.PriceQuoteRequestDto;
+import com.test89.property_catalog_service.dto.PropertyDistanceDto;
 import com.test89.property_catalog_service.dto.PropertyDto;
+import com.test89.property_catalog_service.dto.RatePlanDto;
 import com.test89.property_catalog_service.dto.ReservationDto;
-import com.test89.property_catalog_service.entity.Reservation;
+import com.test89.property_catalog_service.dto.SearchFacetsDto;
+import com.test89.property_catalog_service.service.CalendarFeedService;
+import com.test89.property_catalog_service.service.CalendarImportService;
+import com.test89.property_catalog_service.service.PropertyNightService;
 import com.test89.property_catalog_service.service.PropertyService;
+import com.test89.property_catalog_service.service.RatePlanService;
 import com.test89.property_catalog_service.service.ReservationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,17 +29,21 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
@@ -34,6 +53,14 @@ public class PropertyController {
 
     private final PropertyService propertyService;
     private final ReservationService reservationService;
+    private final PropertyNightService propertyNightService;
+    private final RatePlanService ratePlanService;
+    private final CalendarFeedService calendarFeedService;
+    private final CalendarImportService calendarImportService;
+
+    private static final String CURSOR_DESCRIPTION = "Continuation token from the previous slice's nextCursor; "
+            + "pass it empty for the first slice. Page numbers are ignored in this mode.";
+    private static final MediaType TEXT_CALENDAR = new MediaType("text", "calendar", StandardCharsets.UTF_8);
 
     @Operation(summary = "Get all available properties")
     @GetMapping("/public")
@@ -41,9 +68,20 @@ public class PropertyController {
         return ResponseEntity.ok(propertyService.getAvailableProperties(pageable));
     }
 
+    @Operation(summary = "Get all available properties, one cursor slice at a time")
+    @GetMapping(value = "/public", params = "cursor")
+    public ResponseEntity<CursorPageDto<PropertyDto>> scrollAvailableProperties(
+            @RequestParam @Parameter(description = CURSOR_DESCRIPTION) String cursor,
+            Pageable pageable) {
+        return ResponseEntity.ok(propertyService.scrollAvailableProperties(cursor, pageable));
+    }
+
     @Operation(summary = "Basic search for properties by criteria")
     @GetMapping("/public/search")
     public ResponseEntity<Page<PropertyDto>> searchProperties(
+            @RequestParam(required = false)
+            @Parameter(description = "Keywords matched against title, description, type, amenities and address; "
+                    + "results are then ranked by relevance") String q,
             @RequestParam(required = false, defaultValue = "0") BigDecimal minPrice,
             @RequestParam(required = false, defaultValue = "1000000000") BigDecimal maxPrice,
             @RequestParam(required = false) Integer bedrooms,
@@ -52,10 +90,27 @@ public class PropertyController {
             @RequestParam(required = false) Integer maxGuests,
             Pageable pageable) {
         return ResponseEntity.ok(propertyService.searchProperties(
-                minPrice, maxPrice, bedrooms, bathrooms, city, maxGuests, pageable));
+                q, minPrice, maxPrice, bedrooms, bathrooms, city, maxGuests, pageable));
+    }
+
+    @Operation(summary = "Basic search for properties by criteria, one cursor slice at a time")
+    @GetMapping(value = "/public/search", params = {"cursor", "!q"})
+    public ResponseEntity<CursorPageDto<PropertyDto>> scrollProperties(
+            @RequestParam(required = false, defaultValue = "0") BigDecimal minPrice,
+            @RequestParam(required = false, defaultValue = "1000000000") BigDecimal maxPrice,
+            @RequestParam(required = false) Integer bedrooms,
+            @RequestParam(required = false) Integer bathrooms,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Integer maxGuests,
+            @RequestParam @Parameter(description = CURSOR_DESCRIPTION) String cursor,
+            Pageable pageable) {
+        return ResponseEntity.ok(propertyService.scrollProperties(
+                minPrice, maxPrice, bedrooms, bathrooms, city, maxGuests, cursor, pageable));
     }
 
-    @Operation(summary = "Advanced search for properties with date availability")
+    @Operation(summary = "Advanced search for properties with date availability",
+            description = "Besides property attributes, results can be sorted by the full price of the stay "
+                    + "with sort=totalPrice,asc or sort=totalPrice,desc")
     @GetMapping("/public/search/available")
     public ResponseEntity<Page<PropertyDto>> searchAvailableProperties(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkInDate,
@@ -74,17 +129,141 @@ public class PropertyController {
                 city, guestCount, minStayDays, maxStayDays, pageable));
     }
 
+    @Operation(summary = "Advanced search for properties with date availability, one cursor slice at a time")
+    @GetMapping(value = "/public/search/available", params = "cursor")
+    public ResponseEntity<CursorPageDto<PropertyDto>> scrollAvailableProperties(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkInDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOutDate,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer bedrooms,
+            @RequestParam(required = false) Integer bathrooms,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Integer guestCount,
+            @RequestParam(required = false) Integer minStayDays,
+            @RequestParam(required = false) Integer maxStayDays,
+            @RequestParam @Parameter(description = CURSOR_DESCRIPTION) String cursor,
+            Pageable pageable) {
+        return ResponseEntity.ok(propertyService.scrollAvailableProperties(
+                checkInDate, checkOutDate, minPrice, maxPrice, bedrooms, bathrooms,
+                city, guestCount, minStayDays, maxStayDays, cursor, pageable));
+    }
+
+    @Operation(summary = "Flexible-date search for any stay of a given length within a date window")
+    @GetMapping("/public/search/flexible")
+    public ResponseEntity<Page<FlexibleAvailabilityDto>> searchFlexibleDates(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate earliestCheckIn,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate latestCheckOut,
+            @RequestParam @Parameter(description = "Length of the stay in nights") int nights,
+            @RequestParam(defaultValue = "false")
+            @Parameter(description = "Return every feasible check-in date instead of only the earliest") boolean allCheckInDates,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer bedrooms,
+            @RequestParam(required = false) Integer bathrooms,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Integer guestCount,
+            Pageable pageable) {
+        return ResponseEntity.ok(propertyService.searchFlexibleDates(
+                earliestCheckIn, latestCheckOut, nights, allCheckInDates,
+                minPrice, maxPrice, bedrooms, bathrooms, city, guestCount, pageable));
+    }
+
+    @Operation(summary = "Facet counts per city, type, bedrooms, price range and amenity for a basic search")
+    @GetMapping("/public/search/facets")
+    public ResponseEntity<SearchFacetsDto> getSearchFacets(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer bedrooms,
+            @RequestParam(required = false) Integer bathrooms,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Integer maxGuests) {
+        return ResponseEntity.ok(propertyService.getSearchFacets(
+                q, minPrice, maxPrice, bedrooms, bathrooms, city, maxGuests));
+    }
+
+    @Operation(summary = "Facet counts per city, type, bedrooms, price range and amenity for a date availability search")
+    @GetMapping("/public/search/available/facets")
+    public ResponseEntity<SearchFacetsDto> getAvailableSearchFacets(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkInDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOutDate,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer bedrooms,
+            @RequestParam(required = false) Integer bathrooms,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Integer guestCount,
+            @RequestParam(required = false) Integer minStayDays,
+            @RequestParam(required = false) Integer maxStayDays) {
+        return ResponseEntity.ok(propertyService.getAvailableSearchFacets(
+                checkInDate, checkOutDate, minPrice, maxPrice, bedrooms, bathrooms,
+                city, guestCount, minStayDays, maxStayDays));
+    }
+
     @Operation(summary = "Search for properties with specific amenities")
     @GetMapping("/public/search/amenities")
     public ResponseEntity<Page<PropertyDto>> searchPropertiesWithAmenities(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkInDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOutDate,
             @RequestParam(required = false) Set<String> amenities,
+            @RequestParam(required = false, defaultValue = "ANY")
+            @Parameter(description = "ANY: at least one of the amenities, ALL: every amenity") AmenityMatch amenityMatch,
             @RequestParam(required = false) Boolean petsAllowed,
             @RequestParam(required = false) Integer maxGuests,
             Pageable pageable) {
         return ResponseEntity.ok(propertyService.searchPropertiesWithAmenities(
-                checkInDate, checkOutDate, amenities, petsAllowed, maxGuests, pageable));
+                checkInDate, checkOutDate, amenities, amenityMatch, petsAllowed, maxGuests, pageable));
+    }
+
+    @Operation(summary = "Search for properties within a radius of a point, nearest first by default")
+    @GetMapping("/public/search/nearby")
+    public ResponseEntity<Page<PropertyDistanceDto>> searchNearby(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "10") @Parameter(description = "Radius in kilometres") double radiusKm,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkInDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOutDate,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer bedrooms,
+            @RequestParam(required = false) Integer bathrooms,
+            @RequestParam(required = false) Integer guestCount,
+            Pageable pageable) {
+        return ResponseEntity.ok(propertyService.searchNearby(
+                latitude, longitude, radiusKm, checkInDate, checkOutDate,
+                minPrice, maxPrice, bedrooms, bathrooms, guestCount, pageable));
+    }
+
+    @Operation(summary = "Search for properties inside a map bounding box")
+    @GetMapping("/public/search/bbox")
+    public ResponseEntity<Page<PropertyDistanceDto>> searchInBoundingBox(
+            @RequestParam double south,
+            @RequestParam @Parameter(description = "West edge; greater than east when the box crosses the antimeridian") double west,
+            @RequestParam double north,
+            @RequestParam double east,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkInDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOutDate,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer bedrooms,
+            @RequestParam(required = false) Integer bathrooms,
+            @RequestParam(required = false) Integer guestCount,
+            Pageable pageable) {
+        return ResponseEntity.ok(propertyService.searchInBoundingBox(
+                south, west, north, east, checkInDate, checkOutDate,
+                minPrice, maxPrice, bedrooms, bathrooms, guestCount, pageable));
+    }
+
+    @Operation(summary = "Marker clusters of available properties for a map viewport")
+    @GetMapping("/public/search/clusters")
+    public ResponseEntity<List<MapClusterDto>> getMapClusters(
+            @RequestParam double south,
+            @RequestParam @Parameter(description = "West edge; greater than east when the box crosses the antimeridian") double west,
+            @RequestParam double north,
+            @RequestParam double east,
+            @RequestParam @Parameter(description = "Map zoom level (0-20)") int zoom) {
+        return ResponseEntity.ok(propertyService.getMapClusters(south, west, north, east, zoom));
     }
 
     @Operation(summary = "Get properties by type")
@@ -94,6 +273,15 @@ public class PropertyController {
         return ResponseEntity.ok(propertyService.getPropertiesByType(type, pageable));
     }
 
+    @Operation(summary = "Get properties by type, one cursor slice at a time")
+    @GetMapping(value = "/public/type/{type}", params = "cursor")
+    public ResponseEntity<CursorPageDto<PropertyDto>> scrollPropertiesByType(
+            @PathVariable String type,
+            @RequestParam @Parameter(description = CURSOR_DESCRIPTION) String cursor,
+            Pageable pageable) {
+        return ResponseEntity.ok(propertyService.scrollPropertiesByType(type, cursor, pageable));
+    }
+
     @Operation(summary = "Get property details by ID")
     @GetMapping("/public/{id}")
     public ResponseEntity<PropertyDto> getPropertyById(@PathVariable Long id) {
@@ -157,8 +345,26 @@ public class PropertyController {
         return ResponseEntity.ok(response);
     }
 
-    @PreAuthorize("hasRole('ADMIN') or @propertySecurity.isOwner(#propertyId, authentication.name)")
-    @Operation(summary = "Get a property's monthly reservation calendar (Only for property owners or admins)")
+    // Only busy dates, like the availability check; no guest details
+    @Operation(summary = "Get a property's active stays as an iCalendar feed",
+            description = "Send the ETag back in If-None-Match; an unchanged feed answers 304 without a body")
+    @GetMapping(value = "/{propertyId}/calendar.ics", produces = "text/calendar")
+    public ResponseEntity<StreamingResponseBody> getCalendarFeed(@PathVariable Long propertyId, WebRequest request) {
+        String etag = calendarFeedService.etag(propertyId);
+        if (request.checkNotModified(etag)) {
+            return null; // 304 already prepared
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(TEXT_CALENDAR)
+                .body(out -> calendarFeedService.writeFeed(propertyId, out));
+    }
+
+    // Owner or admin; checked by the service against the cached calendar's owner
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "Get a property's monthly reservation calendar (Only for property owners or admins)",
+            description = "Active reservations whose stay touches the month, including stays crossing its boundaries")
     @GetMapping("/{propertyId}/calendar")
     public ResponseEntity<List<ReservationDto>> getPropertyMonthlyCalendar(
             @PathVariable Long propertyId,
@@ -166,15 +372,73 @@ public class PropertyController {
             @RequestParam @Parameter(description = "Month (1-12)") int month,
             Authentication authentication) {
 
-        // Get the reservations for the specified month
-        List<Reservation> reservations = reservationService.getMonthlyReservations(
-                propertyId, year, month, authentication.getName());
+        return ResponseEntity.ok(reservationService.getMonthlyCalendar(
+                propertyId, year, month, authentication.getName()));
+    }
+
+    @PreAuthorize("hasRole('ADMIN') or @propertySecurity.isOwner(#propertyId, authentication.name)")
+    @Operation(summary = "Get a property's occupancy for a date range (Only for property owners or admins)")
+    @GetMapping("/{propertyId}/occupancy")
+    public ResponseEntity<OccupancyDto> getPropertyOccupancy(
+            @PathVariable Long propertyId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "First night") LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "Last night") LocalDate to) {
+        return ResponseEntity.ok(propertyNightService.getOccupancy(propertyId, from, to));
+    }
+
+    @Operation(summary = "Get a property's weekend, seasonal and length-of-stay pricing rules")
+    @GetMapping("/public/{propertyId}/rates")
+    public ResponseEntity<RatePlanDto> getRatePlan(@PathVariable Long propertyId) {
+        return ResponseEntity.ok(ratePlanService.getRatePlan(propertyId));
+    }
+
+    @PreAuthorize("hasRole('ADMIN') or @propertySecurity.isOwner(#propertyId, authentication.name)")
+    @Operation(summary = "Replace a property's pricing rules (Only for property owners or admins)")
+    @PutMapping("/{propertyId}/rates")
+    public ResponseEntity<RatePlanDto> updateRatePlan(
+            @PathVariable Long propertyId,
+            @Valid @RequestBody RatePlanDto ratePlanDto) {
+        return ResponseEntity.ok(ratePlanService.updateRatePlan(propertyId, ratePlanDto));
+    }
+
+    @Operation(summary = "Price one stay at up to 500 properties",
+            description = "Full price breakdown per property, with the same fees a reservation is charged and "
+                    + "whether the stay can be booked; results come back in request order")
+    @PostMapping("/public/quotes")
+    public ResponseEntity<List<PriceQuoteDto>> quoteStays(@Valid @RequestBody PriceQuoteRequestDto request) {
+        return ResponseEntity.ok(ratePlanService.quoteStays(request));
+    }
 
-        // Use the reservationService to convert to DTOs
-        List<ReservationDto> reservationDtos = reservations.stream()
-                .map(reservation -> reservationService.getReservationById(reservation.getId(), authentication.getName()))
-                .collect(Collectors.toList());
+    @PreAuthorize("hasRole('ADMIN') or @propertySecurity.isOwner(#propertyId, authentication.name)")
+    @Operation(summary = "List the calendars imported from other channels (Only for property owners or admins)")
+    @GetMapping("/{propertyId}/calendar-imports")
+    public ResponseEntity<List<CalendarImportDto>> getCalendarImports(@PathVariable Long propertyId) {
+        return ResponseEntity.ok(calendarImportService.getImports(propertyId));
+    }
 
-        return ResponseEntity.ok(reservationDtos);
+    @PreAuthorize("hasRole('ADMIN') or @propertySecurity.isOwner(#propertyId, authentication.name)")
+    @Operation(summary = "Import another channel's iCalendar feed (Only for property owners or admins)",
+            description = "Stays listed in the feed block the property's dates here; the feed is synced periodically")
+    @PostMapping("/{propertyId}/calendar-imports")
+    public ResponseEntity<CalendarImportDto> createCalendarImport(
+            @PathVariable Long propertyId,
+            @Valid @RequestBody CalendarImportRequestDto request) {
+        return new ResponseEntity<>(calendarImportService.createImport(propertyId, request), HttpStatus.CREATED);
+    }
+
+    @PreAuthorize("hasRole('ADMIN') or @propertySecurity.isOwner(#propertyId, authentication.name)")
+    @Operation(summary = "Sync an imported calendar now (Only for property owners or admins)")
+    @PostMapping("/{propertyId}/calendar-imports/{importId}/sync")
+    public ResponseEntity<CalendarImportDto> syncCalendarImport(
+            @PathVariable Long propertyId, @PathVariable Long importId) {
+        return ResponseEntity.ok(calendarImportService.syncNow(propertyId, importId));
+    }
+
+    @PreAuthorize("hasRole('ADMIN') or @propertySecurity.isOwner(#propertyId, authentication.name)")
+    @Operation(summary = "Stop importing a calendar and release its dates (Only for property owners or admins)")
+    @DeleteMapping("/{propertyId}/calendar-imports/{importId}")
+    public ResponseEntity<Void> deleteCalendarImport(@PathVariable Long propertyId, @PathVariable Long importId) {
+        calendarImportService.deleteImport(propertyId, importId);
+        return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,10 @@
 package com.test89.property_catalog_service.controller;
 
+import com.test89.property_catalog_service.dto.AvailabilityBatchRequestDto;
+import com.test89.property_catalog_service.dto.AvailabilityCheckResultDto;
 import com.test89.property_catalog_service.dto.ReservationCreateDto;
 import com.test89.property_catalog_service.dto.ReservationDto;
+import com.test89.property_catalog_service.service.IdempotencyService;
 import com.test89.property_catalog_service.service.ReservationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -24,6 +27,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
 
 @RestController
 @RequestMapping("${api.prefix}/reservations")
@@ -31,7 +36,11 @@ import java.time.LocalDate;
 @Tag(name = "Reservation Management", description = "APIs for managing rental property reservations")
 public class ReservationController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final ReservationService reservationService;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping
     @PreAuthorize("isAuthenticated()")
@@ -43,15 +52,20 @@ public class ReservationController {
                             schema = @Schema(implementation = ReservationDto.class))),
             @ApiResponse(responseCode = "400", description = "Invalid reservation details"),
             @ApiResponse(responseCode = "403", description = "Unauthorized access"),
-            @ApiResponse(responseCode = "404", description = "Property not found")
+            @ApiResponse(responseCode = "404", description = "Property not found"),
+            @ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is still in progress")
     })
     public ResponseEntity<ReservationDto> createReservation(
             @Parameter(description = "Reservation creation details", required = true)
             @Valid @RequestBody ReservationCreateDto createDto,
+            @Parameter(description = "Client-chosen key; a retry with the same key returns the original reservation")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
         String username = authentication.getName();
-        ReservationDto createdReservation = reservationService.createReservation(createDto, username);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdReservation);
+        IdempotencyService.Outcome<ReservationDto> outcome = idempotencyService.execute(
+                idempotencyKey, username, "POST /reservations", createDto, ReservationDto.class,
+                () -> reservationService.createReservation(createDto, username));
+        return replayAware(ResponseEntity.status(HttpStatus.CREATED), outcome);
     }
 
     @GetMapping("/{id}")
@@ -162,7 +176,8 @@ public class ReservationController {
                     content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = ReservationDto.class))),
             @ApiResponse(responseCode = "403", description = "Unauthorized access"),
-            @ApiResponse(responseCode = "404", description = "Reservation not found")
+            @ApiResponse(responseCode = "404", description = "Reservation not found"),
+            @ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is still in progress")
     })
     public ResponseEntity<ReservationDto> recordPayment(
             @Parameter(description = "Reservation ID", example = "123", required = true)
@@ -171,10 +186,15 @@ public class ReservationController {
             @RequestParam String paymentMethod,
             @Parameter(description = "Payment reference", example = "TX123456789")
             @RequestParam(required = false) String paymentReference,
+            @Parameter(description = "Client-chosen key; a retry with the same key returns the original result")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
         String username = authentication.getName();
-        ReservationDto updatedReservation = reservationService.recordPayment(id, paymentMethod, paymentReference, username);
-        return ResponseEntity.ok(updatedReservation);
+        IdempotencyService.Outcome<ReservationDto> outcome = idempotencyService.execute(
+                idempotencyKey, username, "POST /reservations/{id}/payment",
+                Arrays.asList(id, paymentMethod, paymentReference), ReservationDto.class,
+                () -> reservationService.recordPayment(id, paymentMethod, paymentReference, username));
+        return replayAware(ResponseEntity.ok(), outcome);
     }
 
     @GetMapping("/property/{propertyId}")
@@ -220,6 +240,19 @@ public class ReservationController {
         return ResponseEntity.ok(isAvailable);
     }
 
+    @PostMapping("/availability/batch")
+    @Operation(summary = "Check availability in bulk",
+            description = "Check up to 500 (property, check-in, check-out) tuples at once; results come back in request order with the reason for each")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Availability checked successfully"),
+            @ApiResponse(responseCode = "400", description = "Empty or oversized batch, or a tuple with missing fields")
+    })
+    public ResponseEntity<List<AvailabilityCheckResultDto>> checkAvailabilityBatch(
+            @Parameter(description = "Availability checks", required = true)
+            @Valid @RequestBody AvailabilityBatchRequestDto request) {
+        return ResponseEntity.ok(reservationService.checkAvailabilityBatch(request.getChecks()));
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
     @Operation(summary = "Cancel a reservation",
@@ -237,4 +270,13 @@ public class ReservationController {
         reservationService.cancelReservation(id, username);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    // Replays carry a marker header so clients can tell a retry apart from a fresh execution
+    private static <T> ResponseEntity<T> replayAware(ResponseEntity.BodyBuilder response,
+                                                     IdempotencyService.Outcome<T> outcome) {
+        if (outcome.replayed()) {
+            response.header(REPLAYED_HEADER, "true");
+        }
+        return response.body(outcome.response());
+    }
+}
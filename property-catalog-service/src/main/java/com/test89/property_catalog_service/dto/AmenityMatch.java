@@ -0,0 +1,9 @@
+package com.test89.property_catalog_service.dto;
+
+/**
+ * How a set of requested amenities is matched against a property's amenities.
+ */
+public enum AmenityMatch {
+    ANY, // The property has at least one of the requested amenities
+    ALL  // The property has every requested amenity
+}
@@ -0,0 +1,20 @@
+package com.test89.property_catalog_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityBatchRequestDto {
+
+    @NotEmpty(message = "At least one availability check is required")
+    @Size(max = 500, message = "At most 500 availability checks can be sent at once")
+    private List<@Valid AvailabilityCheckDto> checks;
+}
@@ -0,0 +1,25 @@
+package com.test89.property_catalog_service.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityCheckDto {
+
+    @NotNull(message = "Property ID is required")
+    private Long propertyId;
+
+    @NotNull(message = "Check-in date is required")
+    private LocalDate checkInDate;
+
+    @NotNull(message = "Check-out date is required")
+    private LocalDate checkOutDate;
+}
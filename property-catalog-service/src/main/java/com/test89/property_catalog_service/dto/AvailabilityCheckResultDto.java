@@ -0,0 +1,18 @@
+package com.test89.property_catalog_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityCheckResultDto {
+    private Long propertyId;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private boolean available;
+    private AvailabilityReason reason;
+}
@@ -0,0 +1,15 @@
+package com.test89.property_catalog_service.dto;
+
+/**
+ * Why a batch availability check came out the way it did, in the order the rules are applied.
+ */
+public enum AvailabilityReason {
+    INVALID_DATES, // Check-in not before check-out, or in the past
+    PROPERTY_NOT_FOUND,
+    PROPERTY_UNAVAILABLE, // The property's status is not "Available"
+    BELOW_MIN_STAY,
+    ABOVE_MAX_STAY,
+    CONFLICT, // An active reservation overlaps the stay
+    TOO_MANY_GUESTS, // More guests than the property allows; only checked by price quotes that pass a guest count
+    AVAILABLE
+}
@@ -0,0 +1,22 @@
+package com.test89.property_catalog_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalendarImportDto {
+    private Long id;
+    private Long propertyId;
+    private String url;
+    private Integer blockCount; // Stays currently blocked from this feed
+    private LocalDateTime lastSyncedAt;
+    private LocalDateTime nextSyncAt;
+    private String lastError; // Null after a successful sync
+}
@@ -0,0 +1,19 @@
+package com.test89.property_catalog_service.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalendarImportRequestDto {
+
+    @NotBlank(message = "Calendar URL is required")
+    @Size(max = 2000, message = "Calendar URL must be at most 2000 characters")
+    private String url;
+}
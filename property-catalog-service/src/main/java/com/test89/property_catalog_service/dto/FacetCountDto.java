@@ -0,0 +1,13 @@
+package com.test89.property_catalog_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetCountDto {
+    private String value; // Facet value or bucket label, e.g. "Paris", "3", "100-150"
+    private long count;
+}
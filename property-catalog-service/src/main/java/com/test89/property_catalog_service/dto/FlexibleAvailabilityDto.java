@@ -0,0 +1,16 @@
+package com.test89.property_catalog_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlexibleAvailabilityDto {
+    private PropertyDto property;
+    private List<LocalDate> checkInDates; // Feasible check-in dates in ascending order; only the earliest unless all were requested
+}
@@ -0,0 +1,15 @@
+package com.test89.property_catalog_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MapClusterDto {
+    private Double latitude; // Centroid of the clustered properties
+    private Double longitude;
+    private int count;
+    private Long propertyId; // Only set for single-property clusters
+}
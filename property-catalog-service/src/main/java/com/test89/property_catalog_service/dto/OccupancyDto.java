@@ -0,0 +1,22 @@
+package com.test89.property_catalog_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupancyDto {
+    private Long propertyId;
+    private LocalDate from;
+    private LocalDate to;
+    private long totalNights;
+    private long occupiedNights;
+    private BigDecimal occupancyRate; // occupiedNights / totalNights, 0..1
+}
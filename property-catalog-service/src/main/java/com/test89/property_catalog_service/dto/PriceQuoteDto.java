@@ -0,0 +1,33 @@
+package com.test89.property_catalog_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Price breakdown of one stay, as it would be charged by a reservation. The amounts are null when the property
+ * does not exist.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceQuoteDto {
+    private Long propertyId;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private boolean available;
+    private AvailabilityReason reason;
+    private Integer nights;
+    private BigDecimal pricePerDay; // Average nightly rate after the length-of-stay discount
+    private BigDecimal nightlySubtotal; // Nightly rates before the discount
+    private BigDecimal discount;
+    private BigDecimal cleaningFee;
+    private BigDecimal serviceFee;
+    private BigDecimal taxAmount;
+    private BigDecimal totalPrice;
+}
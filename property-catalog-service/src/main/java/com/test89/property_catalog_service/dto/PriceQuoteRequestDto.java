@@ -0,0 +1,33 @@
+package com.test89.property_catalog_service.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceQuoteRequestDto {
+
+    @NotEmpty(message = "At least one property ID is required")
+    @Size(max = 500, message = "At most 500 properties can be quoted at once")
+    private List<@NotNull Long> propertyIds;
+
+    @NotNull(message = "Check-in date is required")
+    private LocalDate checkInDate;
+
+    @NotNull(message = "Check-out date is required")
+    private LocalDate checkOutDate;
+
+    @Positive(message = "Guest count must be positive")
+    private Integer guestCount;
+}
@@ -0,0 +1,13 @@
+package com.test89.property_catalog_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PropertyDistanceDto {
+    private PropertyDto property;
+    private Double distanceKm; // From the search centre, or the box centre for bounding-box searches
+}
@@ -0,0 +1,69 @@
+package com.test89.property_catalog_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatePlanDto {
+    private Long propertyId;
+
+    @Positive(message = "Weekend price must be positive")
+    private BigDecimal weekendPricePerDay;
+
+    @Valid
+    @Builder.Default
+    private List<Season> seasons = new ArrayList<>();
+
+    @Valid
+    @Builder.Default
+    private List<Discount> stayDiscounts = new ArrayList<>();
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Season {
+        @NotNull(message = "Season start date is required")
+        private LocalDate startDate;
+
+        @NotNull(message = "Season end date is required")
+        private LocalDate endDate; // Last night, inclusive
+
+        @NotNull(message = "Season price per day is required")
+        @Positive(message = "Season price per day must be positive")
+        private BigDecimal pricePerDay;
+
+        @Positive(message = "Season weekend price must be positive")
+        private BigDecimal weekendPricePerDay;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Discount {
+        @NotNull(message = "Minimum nights is required")
+        @Min(value = 2, message = "Length-of-stay discounts start at 2 nights")
+        private Integer minNights;
+
+        @NotNull(message = "Discount percentage is required")
+        @Positive(message = "Discount percentage must be positive")
+        @DecimalMax(value = "100", inclusive = false, message = "Discount percentage must be below 100")
+        private BigDecimal percentOff;
+    }
+}
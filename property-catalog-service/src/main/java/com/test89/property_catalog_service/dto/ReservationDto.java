@@ -60,4 +60,17 @@ public class ReservationDto {
 
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
-}
\ No newline at end of file
+
+    // Calendar projection: the reservation's own columns and its guest; the property summary is filled in after
+    public ReservationDto(Long id, LocalDate checkInDate, LocalDate checkOutDate, Integer numberOfDays,
+                          BigDecimal pricePerDay, BigDecimal totalPrice, BigDecimal cleaningFee, BigDecimal serviceFee,
+                          BigDecimal taxAmount, Integer guestCount, String status, String specialRequests,
+                          String cancellationReason, Boolean isPaid, LocalDateTime paymentDate, String paymentMethod,
+                          String paymentReference, LocalDateTime createdAt, LocalDateTime updatedAt,
+                          Long userId, String username, String firstName, String lastName) {
+        this(id, null, new UserSummaryDto(userId, username, firstName, lastName), checkInDate, checkOutDate,
+                numberOfDays, pricePerDay, totalPrice, cleaningFee, serviceFee, taxAmount, guestCount, status,
+                specialRequests, cancellationReason, isPaid, paymentDate, paymentMethod, paymentReference,
+                createdAt, updatedAt);
+    }
+}
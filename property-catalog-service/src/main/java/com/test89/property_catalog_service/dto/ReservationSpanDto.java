@@ -0,0 +1,21 @@
+package com.test89.property_catalog_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Lightweight projection of a reservation's date range, used to build the in-memory indexes
+ * without loading full Reservation entities.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationSpanDto {
+    private Long reservationId;
+    private Long propertyId;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+}
@@ -0,0 +1,19 @@
+package com.test89.property_catalog_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchFacetsDto {
+    private long total; // Properties matching every filter
+    private List<FacetCountDto> cities;
+    private List<FacetCountDto> types;
+    private List<FacetCountDto> bedrooms; // "0" to "5+"
+    private List<FacetCountDto> priceRanges; // Price per day, lower bound inclusive, upper bound exclusive
+    private List<FacetCountDto> amenities;
+}
@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import java.util.HashSet;
 import java.util.Set;
@@ -32,5 +33,12 @@ public class UserDto {
 
     private Set<String> roles = new HashSet<>();
     private boolean enabled;
+
+    @Pattern(regexp = "DIGEST|IMMEDIATE|NONE", message = "Owner notifications must be DIGEST, IMMEDIATE or NONE")
+    private String ownerNotifications;
+
+    @Pattern(regexp = "[a-zA-Z]{2,3}([-_][a-zA-Z0-9]{2,8})*",
+            message = "Preferred locale must be a language tag such as fr or fr-CA")
+    private String preferredLocale;
     private String token;
 }
@@ -0,0 +1,59 @@
+package com.test89.property_catalog_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An iCalendar feed from another channel whose events block the property's dates here. CalendarImportService
+ * fetches it periodically and keeps one BLOCKED reservation per distinct stay it lists.
+ */
+@Entity
+@Table(name = "calendar_imports", indexes = {
+        @Index(name = "idx_calendar_imports_next_sync", columnList = "nextSyncAt"),
+        @Index(name = "idx_calendar_imports_property", columnList = "propertyId")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalendarImport {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long propertyId;
+
+    @Column(nullable = false, length = 2000)
+    private String url;
+
+    private String feedHash; // SHA-256 of the feed as last applied; an identical fetch changes nothing
+    private String etag; // The server's ETag for that fetch, sent back as If-None-Match
+
+    @Column(nullable = false)
+    private Integer blockCount;
+
+    @Column(nullable = false)
+    private Integer failures; // Consecutive failed syncs, for the backoff
+
+    @Column(nullable = false)
+    private LocalDateTime nextSyncAt; // Also pushed forward while a worker is syncing the feed
+
+    private LocalDateTime lastSyncedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        createdAt = LocalDateTime.now();
+    }
+}
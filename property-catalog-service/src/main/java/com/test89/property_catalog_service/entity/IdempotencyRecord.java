@@ -0,0 +1,50 @@
+package com.test89.property_catalog_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * The stored response of a request made with an Idempotency-Key, replayed when the client retries it.
+ * The key is scoped to the user and endpoint, so two users cannot collide on the same client-chosen value.
+ * The row is inserted before the request runs, as a claim with no response yet, so only one instance runs it.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_created", columnList = "createdAt")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord implements Persistable<String> {
+
+    @Id
+    @Column(name = "scoped_key", length = 255)
+    private String scopedKey; // username, endpoint and client key
+
+    @Column(nullable = false, length = 64)
+    private String requestHash; // SHA-256 of the request, to reject a key reused for a different request
+
+    @Column(length = 65535)
+    private String responseBody; // JSON; null while the claiming request is still running
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt; // When the key was claimed
+
+    @Override
+    public String getId() {
+        return scopedKey;
+    }
+
+    // Records are written once; a concurrent insert of the same key fails on the primary key instead of merging
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,43 @@
+package com.test89.property_catalog_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * One stay of an imported feed as of its last sync, keyed by a hash of its dates, with the BLOCKED reservation
+ * that holds them. The rows of a feed are the snapshot the next fetch is diffed against.
+ */
+@Entity
+@Table(name = "imported_blocks", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_imported_blocks_import_hash", columnNames = {"importId", "contentHash"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportedBlock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long importId;
+
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private Long reservationId;
+
+    @Column(nullable = false)
+    private LocalDate startDate;
+
+    @Column(nullable = false)
+    private LocalDate endDate; // Exclusive, like a check-out date
+}
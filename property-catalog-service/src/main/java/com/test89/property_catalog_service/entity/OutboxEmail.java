@@ -0,0 +1,61 @@
+package com.test89.property_catalog_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An email written in the same transaction as the change it reports, and sent later by EmailOutboxDispatcher.
+ * PENDING rows are retried with backoff until they are SENT or, after too many failures, DEAD.
+ */
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_status_next_attempt", columnList = "status, nextAttemptAt")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEmail {
+
+    public static final String PENDING = "PENDING";
+    public static final String SENT = "SENT";
+    public static final String DEAD = "DEAD";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(nullable = false, length = 65535)
+    private String htmlBody;
+
+    @Column(nullable = false)
+    private String status; // PENDING, SENT, DEAD
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt; // Also pushed forward while a dispatcher is sending the row
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+
+    @PrePersist
+    public void prePersist() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,49 @@
+package com.test89.property_catalog_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A reservation change waiting to go out in its property owner's next digest email. Written in the same
+ * transaction as the change, and deleted in the transaction that queues the digest.
+ */
+@Entity
+@Table(name = "owner_digest_entries", indexes = {
+        @Index(name = "idx_owner_digest_entries_owner_occurred", columnList = "ownerId, occurredAt")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OwnerDigestEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long ownerId;
+
+    @Column(nullable = false)
+    private Long propertyId;
+
+    @Column(nullable = false)
+    private Long reservationId;
+
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+
+    private String previousStatus; // null for a new booking
+
+    @Column(nullable = false)
+    private String status;
+
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+}
@@ -14,7 +14,11 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
-@Table(name = "properties")
+@Table(name = "properties", indexes = {
+        @Index(name = "idx_properties_coordinates", columnList = "latitude, longitude"),
+        @Index(name = "idx_properties_status", columnList = "status, id"),
+        @Index(name = "idx_properties_type", columnList = "type, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -0,0 +1,48 @@
+package com.test89.property_catalog_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDate;
+
+/**
+ * One row per night occupied by an active (PENDING/CONFIRMED) reservation or an imported BLOCKED one.
+ * Imported blocks may overlap each other or an existing stay; a shared night belongs to whichever claimed it first.
+ * The (property_id, night) primary key makes a double booking impossible at the database level.
+ */
+@Entity
+@Table(name = "property_nights", indexes = {
+        @Index(name = "idx_property_nights_reservation", columnList = "reservation_id")
+})
+@IdClass(PropertyNightId.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PropertyNight implements Persistable<PropertyNightId> {
+
+    @Id
+    @Column(name = "property_id")
+    private Long propertyId;
+
+    @Id
+    private LocalDate night; // The night starting on this date
+
+    @Column(name = "reservation_id", nullable = false)
+    private Long reservationId;
+
+    @Override
+    public PropertyNightId getId() {
+        return new PropertyNightId(propertyId, night);
+    }
+
+    // Rows are only ever inserted or bulk-deleted, so skip the select-before-insert merge
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,16 @@
+package com.test89.property_catalog_service.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PropertyNightId implements Serializable {
+    private Long propertyId;
+    private LocalDate night;
+}
@@ -0,0 +1,41 @@
+package com.test89.property_catalog_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pricing rules on top of a property's flat pricePerDay: a weekend rate, seasonal rates and length-of-stay
+ * discounts. Properties without a plan are priced at pricePerDay every night.
+ */
+@Entity
+@Table(name = "property_rate_plans")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PropertyRatePlan {
+
+    @Id
+    private Long propertyId;
+
+    private BigDecimal weekendPricePerDay; // Friday and Saturday nights; null to use pricePerDay
+
+    @ElementCollection
+    @CollectionTable(name = "property_seasonal_rates", joinColumns = @JoinColumn(name = "property_id"))
+    @OrderColumn(name = "position")
+    @Builder.Default
+    private List<SeasonalRate> seasons = new ArrayList<>();
+
+    @ElementCollection
+    @CollectionTable(name = "property_stay_discounts", joinColumns = @JoinColumn(name = "property_id"))
+    @OrderColumn(name = "position")
+    @Builder.Default
+    private List<StayDiscount> stayDiscounts = new ArrayList<>();
+}
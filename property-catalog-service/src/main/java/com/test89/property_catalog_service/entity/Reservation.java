@@ -12,7 +12,12 @@ import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 
 @Entity
-@Table(name = "reservations")
+@Table(name = "reservations", indexes = {
+        @Index(name = "idx_reservations_property_dates", columnList = "property_id, checkInDate, checkOutDate"),
+        @Index(name = "idx_reservations_status_hold", columnList = "status, holdExpiresAt"),
+        @Index(name = "idx_reservations_status_id", columnList = "status, id"),
+        @Index(name = "idx_reservations_property_updated", columnList = "property_id, updatedAt")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -54,7 +59,7 @@ public class Reservation {
     private Integer guestCount; // Number of guests for this reservation
 
     @Column(nullable = false)
-    private String status; // PENDING, CONFIRMED, CANCELLED, COMPLETED, etc.
+    private String status; // One of ReservationStatus
 
     private String specialRequests; // Any special requests from the guest
     private String cancellationReason; // Reason if cancelled
@@ -64,10 +69,16 @@ public class Reservation {
     private LocalDateTime paymentDate;
     private String paymentMethod;
     private String paymentReference;
+    private LocalDateTime holdExpiresAt; // An unpaid PENDING reservation is expired after this time
 
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Bumped by every update, including the conditional ones in ReservationRepository; existing rows start at 0
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private Long version;
+
     @PrePersist
     public void prePersist() {
         createdAt = LocalDateTime.now();
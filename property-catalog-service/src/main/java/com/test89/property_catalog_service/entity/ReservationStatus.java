@@ -0,0 +1,48 @@
+package com.test89.property_catalog_service.entity;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reservation statuses and the transitions allowed between them. CANCELLED and COMPLETED are final; an EXPIRED
+ * hold can be reopened as PENDING, which starts a new hold. BLOCKED rows are dates booked on another channel,
+ * written and cancelled only by CalendarImportService, so no transition leads into or out of them here.
+ */
+public final class ReservationStatus {
+
+    public static final String PENDING = "PENDING";
+    public static final String CONFIRMED = "CONFIRMED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String CANCELLED = "CANCELLED";
+    public static final String EXPIRED = "EXPIRED";
+    public static final String BLOCKED = "BLOCKED";
+
+    private static final Map<String, Set<String>> TRANSITIONS = Map.of(
+            PENDING, Set.of(CONFIRMED, CANCELLED, EXPIRED),
+            CONFIRMED, Set.of(PENDING, COMPLETED, CANCELLED),
+            EXPIRED, Set.of(PENDING),
+            CANCELLED, Set.of(),
+            COMPLETED, Set.of(),
+            BLOCKED, Set.of());
+
+    private ReservationStatus() {
+    }
+
+    // Map.of rejects null lookups; a missing status is just not a known one
+    public static boolean isKnown(String status) {
+        return status != null && TRANSITIONS.containsKey(status);
+    }
+
+    public static boolean canTransition(String from, String to) {
+        return isKnown(from) && to != null && TRANSITIONS.get(from).contains(to);
+    }
+
+    public static void checkTransition(String from, String to) {
+        if (!isKnown(to)) {
+            throw new IllegalArgumentException("Unknown reservation status: " + to);
+        }
+        if (!canTransition(from, to)) {
+            throw new IllegalStateException("A " + from + " reservation cannot be moved to " + to);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.test89.property_catalog_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Embeddable
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeasonalRate {
+
+    @Column(nullable = false)
+    private LocalDate startDate; // First night of the season
+
+    @Column(nullable = false)
+    private LocalDate endDate; // Last night of the season
+
+    @Column(nullable = false)
+    private BigDecimal pricePerDay;
+
+    private BigDecimal weekendPricePerDay; // null to use the season's pricePerDay on weekends too
+}
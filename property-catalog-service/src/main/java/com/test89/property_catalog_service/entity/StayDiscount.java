@@ -0,0 +1,24 @@
+package com.test89.property_catalog_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Embeddable
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StayDiscount {
+
+    @Column(nullable = false)
+    private Integer minNights; // Applies to stays of at least this many nights
+
+    @Column(nullable = false)
+    private BigDecimal percentOff; // e.g. 10.00 for 10% off the nightly total
+}
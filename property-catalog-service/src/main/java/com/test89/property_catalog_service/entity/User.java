@@ -10,6 +10,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 @Entity
@@ -19,6 +20,11 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
+
+    public static final String NOTIFY_DIGEST = "DIGEST";
+    public static final String NOTIFY_IMMEDIATE = "IMMEDIATE";
+    public static final String NOTIFY_NONE = "NONE";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -48,9 +54,20 @@ public class User {
     private List<Reservation> reservations = new ArrayList<>();
 
     private boolean enabled = true;
+
+    // How reservation activity on the user's own properties is emailed; null means DIGEST
+    private String ownerNotifications;
+
+    // Language tag the user's emails are rendered in, e.g. "fr" or "fr-CA"; null means the default templates
+    private String preferredLocale;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    public Locale locale() {
+        return preferredLocale != null ? Locale.forLanguageTag(preferredLocale) : null;
+    }
+
     @PrePersist
     public void prePersist() {
         createdAt = LocalDateTime.now();
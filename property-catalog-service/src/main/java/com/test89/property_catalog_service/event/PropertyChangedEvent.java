@@ -0,0 +1,26 @@
+package com.test89.property_catalog_service.event;
+
+import com.test89.property_catalog_service.dto.PropertyDto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by PropertyService after a property is created, updated or deleted.
+ * Carries a snapshot of the saved property so listeners don't need to reload it after commit.
+ */
+@Getter
+@AllArgsConstructor
+public class PropertyChangedEvent {
+
+    private final Long propertyId;
+    private final PropertyDto property; // null when the property was deleted
+    private final String previousCity; // City before the change; null for newly created properties
+
+    public PropertyChangedEvent(Long propertyId, PropertyDto property) {
+        this(propertyId, property, null);
+    }
+
+    public boolean isDeleted() {
+        return property == null;
+    }
+}
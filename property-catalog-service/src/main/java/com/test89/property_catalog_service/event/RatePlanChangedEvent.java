@@ -0,0 +1,14 @@
+package com.test89.property_catalog_service.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by RatePlanService when a property's pricing rules are replaced.
+ */
+@Getter
+@AllArgsConstructor
+public class RatePlanChangedEvent {
+
+    private final Long propertyId;
+}
@@ -0,0 +1,34 @@
+package com.test89.property_catalog_service.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Published by ReservationService whenever a reservation is created or its status changes.
+ * Listeners that maintain derived state (indexes, caches) should react after the transaction commits.
+ */
+@Getter
+@AllArgsConstructor
+public class ReservationChangedEvent {
+
+    // Statuses that block the property's calendar, including dates imported from other channels
+    public static final Set<String> ACTIVE_STATUSES = Set.of("PENDING", "CONFIRMED", "BLOCKED");
+
+    private final Long reservationId;
+    private final Long propertyId;
+    private final LocalDate checkInDate;
+    private final LocalDate checkOutDate;
+    private final String previousStatus; // null when the reservation was just created
+    private final String status;
+
+    public boolean isActive() {
+        return ACTIVE_STATUSES.contains(status);
+    }
+
+    public boolean wasActive() {
+        return previousStatus != null && ACTIVE_STATUSES.contains(previousStatus);
+    }
+}
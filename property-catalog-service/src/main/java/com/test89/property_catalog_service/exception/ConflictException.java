@@ -0,0 +1,10 @@
+package com.test89.property_catalog_service.exception;
+
+/**
+ * The request clashes with one that is still being processed. Answered with 409 so the client can retry later.
+ */
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.test89.property_catalog_service.exception;
+
+/**
+ * The request cannot be served yet, e.g. an in-memory index is still being built at startup. Answered with 503
+ * and a Retry-After header.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,149 @@
+package com.test89.property_catalog_service.hold;
+
+import com.test89.property_catalog_service.dto.ReservationSpanDto;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import com.test89.property_catalog_service.repository.ReservationRepository;
+import com.test89.property_catalog_service.service.PropertyNightService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Payment holds on new reservations. A PENDING reservation that is still unpaid when its hold runs out is
+ * flipped to EXPIRED and its nights are released.
+ * <p>
+ * Deadlines live in a {@link HierarchicalTimingWheel}, so a tick only touches the holds that are due, however
+ * many are outstanding. Due holds are expired in batches with one conditional UPDATE each. The batch is read
+ * with row locks first, so holds paid or cancelled since they were filed, or expired by another instance, are
+ * left out and every other row is flipped by this UPDATE. The wheel is refilled from the database on startup.
+ */
+@Component
+public class BookingHolds implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingHolds.class);
+
+    private static final int EXPIRY_BATCH_SIZE = 500;
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+    private final ReservationRepository reservationRepository;
+    private final PropertyNightService propertyNightService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final HierarchicalTimingWheel wheel;
+
+    public BookingHolds(ReservationRepository reservationRepository,
+                        PropertyNightService propertyNightService,
+                        ApplicationEventPublisher eventPublisher,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${app.booking-holds.ttl:15m}") Duration ttl,
+                        @Value("${app.booking-holds.tick:PT1S}") Duration tick) {
+        this.reservationRepository = reservationRepository;
+        this.propertyNightService = propertyNightService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.ttl = ttl;
+        this.wheel = new HierarchicalTimingWheel(tick.toMillis(), System.currentTimeMillis());
+    }
+
+    /**
+     * When a hold placed now runs out.
+     */
+    public LocalDateTime newDeadline() {
+        return LocalDateTime.now().plus(ttl);
+    }
+
+    public void track(Long reservationId, LocalDateTime holdExpiresAt) {
+        synchronized (wheel) {
+            wheel.add(reservationId, toMillis(holdExpiresAt));
+        }
+    }
+
+    /**
+     * Refill the wheel with the holds that are still outstanding. Holds already tracked are filed twice, which
+     * is harmless: the second expiry finds the reservation no longer PENDING.
+     */
+    @Transactional(readOnly = true)
+    public void reload() {
+        long count = 0;
+        try (Stream<Object[]> holds = reservationRepository.streamOutstandingHolds()) {
+            for (Object[] hold : (Iterable<Object[]>) holds::iterator) {
+                track((Long) hold[0], (LocalDateTime) hold[1]);
+                count++;
+            }
+        }
+        if (count > 0) {
+            logger.info("Tracking {} outstanding booking holds", count);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.booking-holds.tick:PT1S}")
+    public void expireDueHolds() {
+        List<Long> due = new ArrayList<>();
+        synchronized (wheel) {
+            wheel.advance(System.currentTimeMillis(), due::add);
+        }
+
+        for (int from = 0; from < due.size(); from += EXPIRY_BATCH_SIZE) {
+            List<Long> batch = due.subList(from, Math.min(from + EXPIRY_BATCH_SIZE, due.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> expire(batch, LocalDateTime.now()));
+            } catch (RuntimeException e) {
+                logger.warn("Failed to expire {} booking holds, retrying in {}: {}", batch.size(), RETRY_DELAY, e.getMessage());
+                LocalDateTime retryAt = LocalDateTime.now().plus(RETRY_DELAY);
+                batch.forEach(id -> track(id, retryAt));
+            }
+        }
+    }
+
+    private void expire(List<Long> ids, LocalDateTime now) {
+        List<ReservationSpanDto> lapsed = reservationRepository.findLapsedHolds(ids, now);
+        if (lapsed.isEmpty()) {
+            return;
+        }
+
+        // The rows are locked, so the UPDATE flips all of them; anything else would release nights it does not own
+        int expired = reservationRepository.expireHolds(
+                lapsed.stream().map(ReservationSpanDto::getReservationId).toList(), now);
+        if (expired != lapsed.size()) {
+            throw new IllegalStateException("Expired " + expired + " of " + lapsed.size() + " locked booking holds");
+        }
+
+        propertyNightService.releaseAll(lapsed);
+        for (ReservationSpanDto span : lapsed) {
+            eventPublisher.publishEvent(new ReservationChangedEvent(span.getReservationId(), span.getPropertyId(),
+                    span.getCheckInDate(), span.getCheckOutDate(), "PENDING", "EXPIRED"));
+        }
+        logger.info("Expired {} unpaid booking holds", lapsed.size());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("booking.holds.outstanding", wheel, tracked -> {
+                    synchronized (tracked) {
+                        return tracked.size();
+                    }
+                })
+                .description("Holds waiting in the expiry wheel, including ones since paid or cancelled")
+                .register(registry);
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,171 @@
+package com.test89.property_catalog_service.hold;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Hierarchical timing wheel of (id, deadline) pairs. Adding is O(1) and advancing costs O(1) per tick plus
+ * the entries that expire or move down a level, however many entries are outstanding.
+ * <p>
+ * Each of the four levels has 64 slots; a level-L slot spans 64^L ticks. An entry is filed in the lowest level
+ * whose range covers its deadline and cascades into lower levels when its slot comes round, so it reaches level 0
+ * exactly at its deadline tick. Deadlines beyond the top level wait in an overflow bucket that is re-filed each
+ * time the top level wraps. Entries cannot be removed; callers re-check whether an expired id still applies.
+ * <p>
+ * Not thread-safe; callers synchronize.
+ */
+public class HierarchicalTimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    // Past this many ticks of lag, re-filing everything is cheaper than stepping through each tick
+    private static final long MAX_STEPPED_TICKS = (long) SLOTS * SLOTS;
+
+    private final long tickMillis;
+    private final Bucket[][] levels = new Bucket[LEVELS][SLOTS];
+    private Bucket overflow = new Bucket();
+    private long currentTick;
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+        for (Bucket[] level : levels) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                level[slot] = new Bucket();
+            }
+        }
+    }
+
+    /**
+     * File an id to expire once the wheel has advanced past its deadline; past deadlines expire on the next advance.
+     */
+    public void add(long id, long deadlineMillis) {
+        long deadlineTick = Math.max(-Math.floorDiv(-deadlineMillis, tickMillis), currentTick + 1);
+        place(id, deadlineTick);
+        size++;
+    }
+
+    /**
+     * Move the wheel to the given time, passing every id whose deadline has been reached to the consumer.
+     */
+    public void advance(long nowMillis, LongConsumer expired) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        if (targetTick - currentTick > MAX_STEPPED_TICKS) {
+            refileAll(targetTick, expired);
+            return;
+        }
+
+        while (currentTick < targetTick) {
+            long tick = ++currentTick;
+            if ((tick & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+                Bucket waiting = overflow;
+                overflow = new Bucket();
+                waiting.forEach(this::place);
+            }
+            // Cascade from the top so an entry can drop several levels within the same tick
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(levels[level][(int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK]);
+                }
+            }
+
+            Bucket due = levels[0][(int) tick & SLOT_MASK];
+            size -= due.size;
+            due.forEach((id, deadlineTick) -> expired.accept(id));
+            due.clear();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void place(long id, long deadlineTick) {
+        long delta = deadlineTick - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta >>> (SLOT_BITS * (level + 1)) == 0) {
+                levels[level][(int) (deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK].add(id, deadlineTick);
+                return;
+            }
+        }
+        overflow.add(id, deadlineTick);
+    }
+
+    // Entries of a level-L slot always land in lower levels, never back in the slot being emptied
+    private void cascade(Bucket bucket) {
+        bucket.forEach(this::place);
+        bucket.clear();
+    }
+
+    // After a long pause (GC, suspended host) expire what is due and re-file the rest relative to now
+    private void refileAll(long targetTick, LongConsumer expired) {
+        Bucket all = new Bucket();
+        for (Bucket[] level : levels) {
+            for (Bucket bucket : level) {
+                bucket.forEach(all::add);
+                bucket.clear();
+            }
+        }
+        overflow.forEach(all::add);
+        overflow = new Bucket();
+
+        currentTick = targetTick;
+        all.forEach((id, deadlineTick) -> {
+            if (deadlineTick <= targetTick) {
+                size--;
+                expired.accept(id);
+            } else {
+                place(id, deadlineTick);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface EntryConsumer {
+        void accept(long id, long deadlineTick);
+    }
+
+    // Growable parallel arrays, to keep millions of entries free of per-entry objects
+    private static final class Bucket {
+
+        private static final int INITIAL_CAPACITY = 8;
+        private static final int RETAINED_CAPACITY = 1024;
+
+        private long[] ids = new long[0];
+        private long[] deadlineTicks = new long[0];
+        private int size;
+
+        void add(long id, long deadlineTick) {
+            if (size == ids.length) {
+                int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                deadlineTicks = Arrays.copyOf(deadlineTicks, capacity);
+            }
+            ids[size] = id;
+            deadlineTicks[size] = deadlineTick;
+            size++;
+        }
+
+        void forEach(EntryConsumer consumer) {
+            for (int i = 0; i < size; i++) {
+                consumer.accept(ids[i], deadlineTicks[i]);
+            }
+        }
+
+        void clear() {
+            size = 0;
+            if (ids.length > RETAINED_CAPACITY) {
+                // Let a burst's arrays go rather than pinning them in an idle slot
+                ids = new long[0];
+                deadlineTicks = new long[0];
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.test89.property_catalog_service.ical;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Opens calendar feeds for import: http and https URLs, plus file URLs when enabled (local stand-ins for tests
+ * and development; off by default so owners cannot point an import at the server's files). HTTP fetches send the
+ * previous ETag so an unchanged feed costs a 304, and every body is cut off at the configured size.
+ * <p>
+ * Feed URLs come from property owners, so the server must not become their way into the internal network: every
+ * host, including each redirect target, is resolved and refused if any of its addresses is loopback, link-local,
+ * private or otherwise not public (unless private addresses are allowed for development). Redirects are followed
+ * here, one validated hop at a time, never by the HTTP client. Errors only say what the owner needs to fix, not
+ * how the connection failed, so an import cannot be used to probe which ports answer.
+ */
+@Component
+public class IcsFeedFetcher {
+
+    private static final int MAX_REDIRECTS = 5;
+
+    private final HttpClient httpClient;
+    private final Duration timeout;
+    private final long maxBytes;
+    private final boolean allowFileUrls;
+    private final boolean allowPrivateAddresses;
+
+    public IcsFeedFetcher(@Value("${app.calendar-import.timeout:10s}") Duration timeout,
+                          @Value("${app.calendar-import.max-feed-bytes:5000000}") long maxBytes,
+                          @Value("${app.calendar-import.allow-file-urls:false}") boolean allowFileUrls,
+                          @Value("${app.calendar-import.allow-private-addresses:false}") boolean allowPrivateAddresses) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.timeout = timeout;
+        this.maxBytes = maxBytes;
+        this.allowFileUrls = allowFileUrls;
+        this.allowPrivateAddresses = allowPrivateAddresses;
+    }
+
+    /**
+     * A fetch failure whose message is meant for the import's owner, unlike the transport's own exceptions.
+     */
+    public static class FeedException extends IOException {
+
+        public FeedException(String message) {
+            super(message);
+        }
+
+        public FeedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * The feed's body, or a null body when the server answered 304 to the previous ETag. The caller closes it.
+     */
+    public record Fetched(InputStream body, String etag) {
+
+        public boolean notModified() {
+            return body == null;
+        }
+    }
+
+    /**
+     * Check that the URL is one this fetcher would open, resolving its host.
+     */
+    public URI validate(String url) {
+        URI uri;
+        try {
+            uri = URI.create(url.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid calendar URL: " + url);
+        }
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (allowFileUrls && scheme.equals("file")) {
+            return uri;
+        }
+        validateHttp(uri);
+        return uri;
+    }
+
+    public Fetched fetch(String url, String etag) throws IOException {
+        URI uri;
+        try {
+            uri = validate(url);
+        } catch (IllegalArgumentException e) {
+            throw new FeedException(e.getMessage());
+        }
+        if ("file".equalsIgnoreCase(uri.getScheme())) {
+            return new Fetched(new Limited(Files.newInputStream(Path.of(uri)), maxBytes), null);
+        }
+
+        for (int redirects = 0; ; redirects++) {
+            HttpResponse<InputStream> response = send(uri, etag);
+            int status = response.statusCode();
+            if (status == 304) {
+                response.body().close();
+                return new Fetched(null, etag);
+            }
+            if (status >= 200 && status < 300) {
+                return new Fetched(new Limited(response.body(), maxBytes),
+                        response.headers().firstValue("ETag").orElse(null));
+            }
+            response.body().close();
+
+            String location = response.headers().firstValue("Location").orElse(null);
+            if (!isRedirect(status) || location == null) {
+                throw new FeedException("Calendar server answered HTTP " + status);
+            }
+            if (redirects == MAX_REDIRECTS) {
+                throw new FeedException("Calendar URL redirects more than " + MAX_REDIRECTS + " times");
+            }
+            try {
+                uri = uri.resolve(location);
+                validateHttp(uri);
+            } catch (IllegalArgumentException e) {
+                throw new FeedException("Calendar URL redirects to a disallowed address: " + e.getMessage());
+            }
+        }
+    }
+
+    private HttpResponse<InputStream> send(URI uri, String etag) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Accept", "text/calendar, */*;q=0.5")
+                .GET();
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        try {
+            return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FeedException("Interrupted while fetching the calendar", e);
+        } catch (IOException e) {
+            // Refused, reset and timed-out connections all look the same to the owner
+            throw new FeedException("Calendar server could not be reached", e);
+        }
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == 301 || status == 302 || status == 303 || status == 307 || status == 308;
+    }
+
+    private void validateHttp(URI uri) {
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!(scheme.equals("http") || scheme.equals("https")) || uri.getHost() == null) {
+            throw new IllegalArgumentException("Calendar URL must be an http or https address");
+        }
+        if (allowPrivateAddresses) {
+            return;
+        }
+        InetAddress[] addresses;
+        try {
+            addresses = InetAddress.getAllByName(uri.getHost());
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Calendar host could not be resolved: " + uri.getHost());
+        }
+        for (InetAddress address : addresses) {
+            if (!isPublic(address)) {
+                throw new IllegalArgumentException("Calendar URL must point to a public address");
+            }
+        }
+    }
+
+    // Not loopback, link-local (cloud metadata), private, shared (100.64/10), unique local (fc00::/7) or wildcard
+    static boolean isPublic(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet6Address) {
+            return (bytes[0] & 0xfe) != 0xfc;
+        }
+        int first = bytes[0] & 0xff;
+        int second = bytes[1] & 0xff;
+        return first != 0 && !(first == 100 && second >= 64 && second < 128);
+    }
+
+    // Fails the read once more than the allowed number of bytes has come through
+    private static final class Limited extends FilterInputStream {
+
+        private final long maxBytes;
+        private long read;
+
+        Limited(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) throws IOException {
+            read += n;
+            if (read > maxBytes) {
+                throw new FeedException("Calendar feed is larger than " + maxBytes + " bytes");
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.test89.property_catalog_service.ical;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the events of an iCalendar (RFC 5545) feed one VEVENT at a time, unfolding continuation lines as it goes,
+ * so a feed of any length is parsed without being held in memory.
+ * <p>
+ * Only what blocks dates is kept: each event becomes the days from its start up to, not including, its end, taken
+ * from the date part of DTSTART and DTEND as written (time zones are not converted). Cancelled and transparent
+ * events are skipped. A feed that is not a calendar, is cut short, or has an unreadable date is rejected with an
+ * IllegalArgumentException, so a broken fetch never looks like a calendar with fewer bookings.
+ */
+public class IcsReader {
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final Pattern DAYS_OR_WEEKS = Pattern.compile("P(\\d+)([DW])");
+
+    private final BufferedReader in;
+    private String pending; // Next physical line, read ahead to find continuations
+    private boolean started;
+    private boolean finished;
+
+    public IcsReader(Reader in) {
+        this.in = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in);
+    }
+
+    /**
+     * @param uid the event's UID, or null if it has none
+     * @param end exclusive, like a check-out date
+     */
+    public record Event(String uid, LocalDate start, LocalDate end) {
+    }
+
+    /**
+     * The next event that blocks dates, or null once the calendar has ended.
+     */
+    public Event next() throws IOException {
+        String uid = null;
+        String start = null;
+        String end = null;
+        String duration = null;
+        boolean inEvent = false;
+        boolean skip = false;
+
+        String line;
+        while ((line = nextLine()) != null) {
+            if (!started) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (!line.equalsIgnoreCase("BEGIN:VCALENDAR")) {
+                    throw new IllegalArgumentException("Not an iCalendar feed");
+                }
+                started = true;
+                continue;
+            }
+
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String name = line.substring(0, colon);
+            int semicolon = name.indexOf(';');
+            if (semicolon >= 0) {
+                name = name.substring(0, semicolon);
+            }
+            name = name.toUpperCase();
+            String value = line.substring(colon + 1).trim();
+
+            if (name.equals("BEGIN") && value.equalsIgnoreCase("VEVENT")) {
+                inEvent = true;
+                uid = start = end = duration = null;
+                skip = false;
+            } else if (name.equals("END") && value.equalsIgnoreCase("VCALENDAR")) {
+                finished = true;
+                return null;
+            } else if (!inEvent) {
+                continue;
+            } else if (name.equals("END") && value.equalsIgnoreCase("VEVENT")) {
+                inEvent = false;
+                if (skip) {
+                    continue;
+                }
+                if (start == null) {
+                    throw new IllegalArgumentException("Calendar event without DTSTART");
+                }
+                return event(uid, start, end, duration);
+            } else {
+                switch (name) {
+                    case "UID" -> uid = value;
+                    case "DTSTART" -> start = value;
+                    case "DTEND" -> end = value;
+                    case "DURATION" -> duration = value;
+                    case "STATUS" -> skip |= value.equalsIgnoreCase("CANCELLED");
+                    case "TRANSP" -> skip |= value.equalsIgnoreCase("TRANSPARENT");
+                    default -> {
+                        // Not needed to block dates
+                    }
+                }
+            }
+        }
+
+        if (!finished) {
+            throw new IllegalArgumentException(started ? "Calendar feed ended before END:VCALENDAR" : "Empty calendar feed");
+        }
+        return null;
+    }
+
+    private static Event event(String uid, String startValue, String endValue, String duration) {
+        LocalDate start = date(startValue);
+        LocalDate end = null;
+        if (endValue != null) {
+            end = date(endValue);
+        } else if (duration != null) {
+            Matcher matcher = DAYS_OR_WEEKS.matcher(duration);
+            if (matcher.matches()) {
+                long amount = Long.parseLong(matcher.group(1));
+                end = start.plusDays(matcher.group(2).equals("W") ? amount * 7 : amount);
+            }
+        }
+        // A missing, empty or shorter-than-a-day event still blocks its start date
+        if (end == null || !end.isAfter(start)) {
+            end = start.plusDays(1);
+        }
+        return new Event(uid, start, end);
+    }
+
+    // The date part of a DATE or DATE-TIME value: 20261028 or 20261028T140000Z
+    private static LocalDate date(String value) {
+        try {
+            return LocalDate.parse(value.length() > 8 ? value.substring(0, 8) : value, DATE);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date in calendar feed: " + value);
+        }
+    }
+
+    // One logical line: a physical line plus any continuation lines, which start with a space or tab
+    private String nextLine() throws IOException {
+        String line = pending != null ? pending : in.readLine();
+        pending = null;
+        if (line == null) {
+            return null;
+        }
+        StringBuilder unfolded = null;
+        String next;
+        while ((next = in.readLine()) != null) {
+            if (next.isEmpty() || (next.charAt(0) != ' ' && next.charAt(0) != '\t')) {
+                pending = next;
+                break;
+            }
+            if (unfolded == null) {
+                unfolded = new StringBuilder(line);
+            }
+            unfolded.append(next, 1, next.length());
+        }
+        return unfolded != null ? unfolded.toString() : line;
+    }
+}
@@ -0,0 +1,82 @@
+package com.test89.property_catalog_service.ical;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes an iCalendar (RFC 5545) feed of all-day events one VEVENT at a time, so a feed of any length is streamed
+ * without being held in memory. Output is deterministic for the same input, which lets callers use a strong ETag.
+ * Text values are escaped but not folded, so long titles produce long lines, which readers accept.
+ */
+public class IcsWriter {
+
+    private static final String CRLF = "\r\n";
+    private static final DateTimeFormatter DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    private final Writer out;
+    private final String stamp;
+
+    /**
+     * @param stamp DTSTAMP of every event, in local time; the feed's last modification rather than the time of
+     *              the request
+     */
+    public IcsWriter(Writer out, LocalDateTime stamp) {
+        this.out = out;
+        this.stamp = TIMESTAMP.format(stamp.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC));
+    }
+
+    public void begin(String productId, String calendarName) throws IOException {
+        line("BEGIN:VCALENDAR");
+        line("VERSION:2.0");
+        line("PRODID:" + productId);
+        line("CALSCALE:GREGORIAN");
+        line("METHOD:PUBLISH");
+        line("X-WR-CALNAME:" + escape(calendarName));
+    }
+
+    /**
+     * An all-day event covering start through the day before end, as for a stay's nights.
+     */
+    public void event(String uid, LocalDate start, LocalDate end, String summary) throws IOException {
+        line("BEGIN:VEVENT");
+        line("UID:" + uid);
+        line("DTSTAMP:" + stamp);
+        line("DTSTART;VALUE=DATE:" + DATE.format(start));
+        line("DTEND;VALUE=DATE:" + DATE.format(end));
+        line("SUMMARY:" + escape(summary));
+        line("TRANSP:OPAQUE");
+        line("END:VEVENT");
+    }
+
+    public void end() throws IOException {
+        line("END:VCALENDAR");
+        out.flush();
+    }
+
+    static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\', ';', ',' -> escaped.append('\\').append(c);
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> {
+                    // Dropped; a CRLF becomes a single escaped newline
+                }
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private void line(String line) throws IOException {
+        out.write(line);
+        out.write(CRLF);
+    }
+}
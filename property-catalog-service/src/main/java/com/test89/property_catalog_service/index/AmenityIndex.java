@@ -0,0 +1,155 @@
+package com.test89.property_catalog_service.index;
+
+import com.test89.property_catalog_service.dto.AmenityMatch;
+import com.test89.property_catalog_service.event.PropertyChangedEvent;
+import com.test89.property_catalog_service.repository.PropertyRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index from amenity to the bitset of property ids offering it.
+ * <p>
+ * Amenities are matched case-insensitively. Posting bitsets are replaced copy-on-write so readers
+ * never observe a bitset that is being modified.
+ */
+@Component
+@RequiredArgsConstructor
+public class AmenityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AmenityIndex.class);
+
+    private final PropertyRepository propertyRepository;
+
+    private final Object writeLock = new Object();
+    private volatile Map<String, BitSet> postings;
+
+    public boolean isReady() {
+        return postings != null;
+    }
+
+    public static Set<String> normalize(Collection<String> amenities) {
+        if (amenities == null) {
+            return Set.of();
+        }
+        return amenities.stream()
+                .filter(amenity -> amenity != null && !amenity.isBlank())
+                .map(amenity -> amenity.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Keep only the candidates matching the requested (normalized) amenities, preserving the input order.
+     */
+    public List<Long> filter(Collection<Long> candidateIds, Set<String> amenities, AmenityMatch match) {
+        BitSet matching = matching(amenities, match);
+        List<Long> result = new ArrayList<>();
+        for (Long id : candidateIds) {
+            if (matching.get(Math.toIntExact(id))) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    BitSet matching(Set<String> amenities, AmenityMatch match) {
+        Map<String, BitSet> current = postings;
+        if (current == null) {
+            throw new IllegalStateException("Amenity index has not been built yet");
+        }
+
+        BitSet result = null;
+        for (String amenity : amenities) {
+            BitSet posting = current.get(amenity);
+            if (posting == null) {
+                if (match == AmenityMatch.ALL) {
+                    return new BitSet(); // Nobody has an amenity that is not in the dictionary
+                }
+                continue;
+            }
+            if (result == null) {
+                result = (BitSet) posting.clone();
+            } else if (match == AmenityMatch.ALL) {
+                result.and(posting);
+            } else {
+                result.or(posting);
+            }
+        }
+        return result == null ? new BitSet() : result;
+    }
+
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        // The query runs under the lock, so a change committed before it is in the results and one committed
+        // after it waits for the build and is applied to the fresh postings
+        synchronized (writeLock) {
+            long start = System.currentTimeMillis();
+            try (Stream<Object[]> pairs = propertyRepository.streamPropertyAmenities()) {
+                rebuildFrom(pairs);
+            }
+            logger.info("Amenity index rebuilt with {} amenities in {} ms",
+                    postings.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    void rebuildFrom(Stream<Object[]> propertyAmenityPairs) {
+        synchronized (writeLock) {
+            Map<String, BitSet> fresh = new HashMap<>();
+            propertyAmenityPairs.forEach(pair -> {
+                String amenity = (String) pair[1];
+                if (amenity != null && !amenity.isBlank()) {
+                    fresh.computeIfAbsent(amenity.trim().toLowerCase(Locale.ROOT), key -> new BitSet())
+                            .set(Math.toIntExact((Long) pair[0]));
+                }
+            });
+            postings = new ConcurrentHashMap<>(fresh);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        synchronized (writeLock) {
+            Map<String, BitSet> current = postings;
+            if (current == null) {
+                return; // Startup build will pick the change up
+            }
+
+            int bit = Math.toIntExact(event.getPropertyId());
+            Set<String> amenities = event.isDeleted() ? Set.of() : normalize(event.getProperty().getAmenities());
+
+            // Clear the property from postings it no longer belongs to
+            current.replaceAll((amenity, posting) -> {
+                if (!posting.get(bit) || amenities.contains(amenity)) {
+                    return posting;
+                }
+                BitSet copy = (BitSet) posting.clone();
+                copy.clear(bit);
+                return copy;
+            });
+
+            for (String amenity : amenities) {
+                BitSet posting = current.get(amenity);
+                if (posting == null || !posting.get(bit)) {
+                    BitSet copy = posting == null ? new BitSet() : (BitSet) posting.clone();
+                    copy.set(bit);
+                    current.put(amenity, copy);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.test89.property_catalog_service.index;
+
+import com.test89.property_catalog_service.dto.ReservationSpanDto;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import com.test89.property_catalog_service.repository.ReservationRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+import java.util.stream.Stream;
+
+/**
+ * In-memory occupancy index holding one day-bitset per property over a rolling horizon.
+ * <p>
+ * A reservation occupies every calendar day from check-in through check-out inclusive, which matches the
+ * overlap predicate used by PropertyRepository (a stay ending on day X conflicts with one starting on day X).
+ * Properties without active reservations have no bitset and are treated as free.
+ * <p>
+ * Reads are lock-free: each property's bitset is replaced copy-on-write and the whole state is swapped on rebuild.
+ */
+@Component
+@RequiredArgsConstructor
+public class AvailabilityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityIndex.class);
+
+    // Roughly two years ahead, rounded up to whole 64-day words
+    static final int HORIZON_DAYS = 768;
+    private static final int WORDS = HORIZON_DAYS >>> 6;
+
+    private final ReservationRepository reservationRepository;
+
+    private final Object writeLock = new Object();
+    private volatile State state;
+
+    /**
+     * Immutable origin plus the per-property bitsets; the map itself is mutated only under writeLock.
+     */
+    private record State(long originDay, Map<Long, long[]> occupancy) {
+    }
+
+    public boolean isReady() {
+        return state != null;
+    }
+
+    /**
+     * Whether both dates fall inside the indexed horizon; callers fall back to the database otherwise.
+     */
+    public boolean covers(LocalDate from, LocalDate to) {
+        State current = state;
+        if (current == null || from == null || to == null || to.isBefore(from)) {
+            return false;
+        }
+        return from.toEpochDay() >= current.originDay()
+                && to.toEpochDay() < current.originDay() + HORIZON_DAYS;
+    }
+
+    public boolean isAvailable(Long propertyId, LocalDate from, LocalDate to) {
+        State current = requireCovered(from, to);
+        long[] mask = rangeMask(current, from, to);
+        return isFree(current.occupancy().get(propertyId), mask);
+    }
+
+    /**
+     * Predicate over property ids with no occupied day in [from, to], for scans over many properties.
+     */
+    public LongPredicate availableBetween(LocalDate from, LocalDate to) {
+        State current = requireCovered(from, to);
+        long[] mask = rangeMask(current, from, to);
+        Map<Long, long[]> occupancy = current.occupancy();
+        return id -> isFree(occupancy.get(id), mask);
+    }
+
+    /**
+     * Occupied days of a property in [from, to], bit i standing for day from + i.
+     */
+    public BitSet occupiedDays(Long propertyId, LocalDate from, LocalDate to) {
+        State current = requireCovered(from, to);
+        long[] bits = current.occupancy().get(propertyId);
+        if (bits == null) {
+            return new BitSet();
+        }
+        int first = (int) (from.toEpochDay() - current.originDay());
+        int last = (int) (to.toEpochDay() - current.originDay());
+        return BitSet.valueOf(bits).get(first, last + 1);
+    }
+
+    /**
+     * Keep only the candidates with no occupied day in [from, to], preserving the input order.
+     */
+    public List<Long> filterAvailable(Collection<Long> candidateIds, LocalDate from, LocalDate to) {
+        State current = requireCovered(from, to);
+        long[] mask = rangeMask(current, from, to);
+        Map<Long, long[]> occupancy = current.occupancy();
+
+        List<Long> available = new ArrayList<>(candidateIds.size());
+        for (Long id : candidateIds) {
+            if (isFree(occupancy.get(id), mask)) {
+                available.add(id);
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Rebuild the whole index from the database, starting the horizon at today.
+     */
+    @Transactional(readOnly = true)
+    @Scheduled(cron = "${app.availability-index.rebuild-cron:0 5 0 * * *}")
+    public void rebuild() {
+        LocalDate origin = LocalDate.now();
+        synchronized (writeLock) {
+            long start = System.currentTimeMillis();
+            try (Stream<ReservationSpanDto> spans = reservationRepository.streamActiveSpans(origin)) {
+                rebuildFrom(origin, spans);
+            }
+            logger.info("Availability index rebuilt for {} properties in {} ms",
+                    state.occupancy().size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    void rebuildFrom(LocalDate origin, Stream<ReservationSpanDto> spans) {
+        State fresh = new State(origin.toEpochDay(), new ConcurrentHashMap<>());
+        spans.forEach(span -> fresh.occupancy().compute(span.getPropertyId(),
+                (id, bits) -> mark(fresh, bits == null ? new long[WORDS] : bits, span)));
+        state = fresh;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationChanged(ReservationChangedEvent event) {
+        // Checked under the lock: a change committed while the startup rebuild streams waits for it and is
+        // applied to the fresh state, while one that gets the lock first is seen by the rebuild's query
+        synchronized (writeLock) {
+            if (state == null) {
+                return; // Startup rebuild will pick the change up
+            }
+            if (event.isActive()) {
+                markOccupied(event.getPropertyId(), event.getCheckInDate(), event.getCheckOutDate());
+            } else if (event.wasActive()) {
+                reloadProperty(event.getPropertyId());
+            }
+        }
+    }
+
+    void markOccupied(Long propertyId, LocalDate checkInDate, LocalDate checkOutDate) {
+        synchronized (writeLock) {
+            State current = state;
+            ReservationSpanDto span = new ReservationSpanDto(null, propertyId, checkInDate, checkOutDate);
+            current.occupancy().compute(propertyId,
+                    (id, bits) -> mark(current, bits == null ? new long[WORDS] : bits.clone(), span));
+        }
+    }
+
+    /**
+     * Bits cannot be cleared individually when stays share a day, so recompute the property from the database.
+     */
+    void reloadProperty(Long propertyId) {
+        synchronized (writeLock) {
+            State current = state;
+            long[] bits = new long[WORDS];
+            List<ReservationSpanDto> spans = reservationRepository.findActiveSpansByProperty(
+                    propertyId, LocalDate.ofEpochDay(current.originDay()));
+            for (ReservationSpanDto span : spans) {
+                mark(current, bits, span);
+            }
+            if (spans.isEmpty()) {
+                current.occupancy().remove(propertyId);
+            } else {
+                current.occupancy().put(propertyId, bits);
+            }
+        }
+    }
+
+    private State requireCovered(LocalDate from, LocalDate to) {
+        if (!covers(from, to)) {
+            throw new IllegalStateException("Dates " + from + " - " + to + " are outside the availability index");
+        }
+        return state;
+    }
+
+    private static long[] mark(State state, long[] bits, ReservationSpanDto span) {
+        long first = Math.max(span.getCheckInDate().toEpochDay() - state.originDay(), 0);
+        long last = Math.min(span.getCheckOutDate().toEpochDay() - state.originDay(), HORIZON_DAYS - 1);
+        if (first <= last) {
+            setRange(bits, (int) first, (int) last);
+        }
+        return bits;
+    }
+
+    private static long[] rangeMask(State state, LocalDate from, LocalDate to) {
+        long[] mask = new long[WORDS];
+        setRange(mask, (int) (from.toEpochDay() - state.originDay()), (int) (to.toEpochDay() - state.originDay()));
+        return mask;
+    }
+
+    private static void setRange(long[] bits, int first, int last) {
+        int firstWord = first >>> 6;
+        int lastWord = last >>> 6;
+        for (int word = firstWord; word <= lastWord; word++) {
+            long wordMask = -1L;
+            if (word == firstWord) {
+                wordMask &= -1L << (first & 63);
+            }
+            if (word == lastWord) {
+                wordMask &= -1L >>> (63 - (last & 63));
+            }
+            bits[word] |= wordMask;
+        }
+    }
+
+    private static boolean isFree(long[] bits, long[] mask) {
+        if (bits == null) {
+            return true;
+        }
+        for (int word = 0; word < WORDS; word++) {
+            if ((bits[word] & mask[word]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
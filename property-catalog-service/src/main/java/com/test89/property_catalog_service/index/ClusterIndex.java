@@ -0,0 +1,440 @@
+package com.test89.property_catalog_service.index;
+
+import com.test89.property_catalog_service.dto.AddressDto;
+import com.test89.property_catalog_service.dto.MapClusterDto;
+import com.test89.property_catalog_service.event.PropertyChangedEvent;
+import com.test89.property_catalog_service.repository.PropertyRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Point quadtree over the Web Mercator coordinates of Available properties, used to answer map
+ * marker clustering requests.
+ * <p>
+ * Every node keeps the count and coordinate sums of its subtree, so the clusters of a zoom level are
+ * simply the nodes at depth zoom + {@value #CLUSTER_DEPTH_OFFSET} (cells of a quarter tile) that intersect
+ * the viewport; no per-zoom precomputation has to be invalidated. Leaves hold up to {@value #LEAF_SIZE} points.
+ * Updates copy the path from the root to the changed leaf and publish a new root, so queries never lock.
+ * Until the startup build has finished, clusters are computed from a bounding-box query against the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class ClusterIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterIndex.class);
+
+    public static final int MAX_ZOOM = 20;
+    static final int CLUSTER_DEPTH_OFFSET = 2;
+    static final int MAX_VIEWPORT_CELLS = 1 << 14;
+
+    private static final int LEAF_SIZE = 64;
+    private static final int COORDINATE_BITS = 30;
+    private static final int MAX_DEPTH = MAX_ZOOM + CLUSTER_DEPTH_OFFSET;
+    private static final double SCALE = 1 << COORDINATE_BITS;
+    private static final double MAX_MERCATOR_LATITUDE = 85.05112878;
+
+    private final PropertyRepository propertyRepository;
+
+    private final Object writeLock = new Object();
+    private volatile Node root;
+    private volatile Map<Long, Long> positions;
+
+    /**
+     * Immutable quadtree node covering cell (cellX, cellY) at its depth. Leaves carry their points,
+     * inner nodes up to four children indexed by quadrant.
+     */
+    private static final class Node {
+
+        final int depth;
+        final int cellX;
+        final int cellY;
+        final int count;
+        final long sumX;
+        final long sumY;
+        final long sumIds; // Equals the property id when count == 1
+
+        final Node[] children;
+        final long[] ids;
+        final int[] xs;
+        final int[] ys;
+
+        private Node(int depth, int cellX, int cellY, Node[] children, long[] ids, int[] xs, int[] ys) {
+            this.depth = depth;
+            this.cellX = cellX;
+            this.cellY = cellY;
+            this.children = children;
+            this.ids = ids;
+            this.xs = xs;
+            this.ys = ys;
+
+            int count = 0;
+            long sumX = 0;
+            long sumY = 0;
+            long sumIds = 0;
+            if (children != null) {
+                for (Node child : children) {
+                    if (child != null) {
+                        count += child.count;
+                        sumX += child.sumX;
+                        sumY += child.sumY;
+                        sumIds += child.sumIds;
+                    }
+                }
+            } else {
+                for (int i = 0; i < ids.length; i++) {
+                    sumX += xs[i];
+                    sumY += ys[i];
+                    sumIds += ids[i];
+                }
+                count = ids.length;
+            }
+            this.count = count;
+            this.sumX = sumX;
+            this.sumY = sumY;
+            this.sumIds = sumIds;
+        }
+
+        static Node leaf(int depth, int cellX, int cellY, long[] ids, int[] xs, int[] ys) {
+            return new Node(depth, cellX, cellY, null, ids, xs, ys);
+        }
+
+        static Node inner(int depth, int cellX, int cellY, Node[] children) {
+            return new Node(depth, cellX, cellY, children, null, null, null);
+        }
+
+        boolean isLeaf() {
+            return children == null;
+        }
+    }
+
+    public boolean isReady() {
+        return root != null;
+    }
+
+    /**
+     * Clusters of the viewport at the given zoom level. A viewport whose west edge is east of its east edge
+     * crosses the antimeridian.
+     */
+    public List<MapClusterDto> clusters(double south, double west, double north, double east, int zoom) {
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("Zoom must be between 0 and " + MAX_ZOOM);
+        }
+        if (west > east) {
+            List<MapClusterDto> clusters = clusters(south, west, north, 180, zoom);
+            clusters.addAll(clusters(south, -180, north, east, zoom));
+            return clusters;
+        }
+
+        int depth = zoom + CLUSTER_DEPTH_OFFSET;
+        int minX = toX(west);
+        int maxX = toX(east);
+        int minY = toY(north); // Mercator y grows southwards
+        int maxY = toY(south);
+
+        int shift = COORDINATE_BITS - depth;
+        long cells = (long) ((maxX >>> shift) - (minX >>> shift) + 1) * ((maxY >>> shift) - (minY >>> shift) + 1);
+        if (cells > MAX_VIEWPORT_CELLS) {
+            throw new IllegalArgumentException("Viewport is too large for zoom level " + zoom);
+        }
+
+        Node current = root;
+        if (current == null) {
+            try (Stream<Object[]> rows = propertyRepository.streamAvailableCoordinatesInBox(south, west, north, east)) {
+                current = build(rows);
+            }
+        }
+
+        List<MapClusterDto> clusters = new ArrayList<>();
+        if (current != null) {
+            collect(current, depth, minX, maxX, minY, maxY, clusters);
+        }
+        return clusters;
+    }
+
+    private static void collect(Node node, int depth, int minX, int maxX, int minY, int maxY,
+                                List<MapClusterDto> clusters) {
+        int shift = COORDINATE_BITS - node.depth;
+        if (node.cellX < minX >>> shift || node.cellX > maxX >>> shift
+                || node.cellY < minY >>> shift || node.cellY > maxY >>> shift) {
+            return;
+        }
+
+        if (node.depth == depth) {
+            clusters.add(toCluster(node.count, node.sumX, node.sumY, node.sumIds));
+        } else if (!node.isLeaf()) {
+            for (Node child : node.children) {
+                if (child != null) {
+                    collect(child, depth, minX, maxX, minY, maxY, clusters);
+                }
+            }
+        } else {
+            // A shallow leaf: group its points into the cells of the requested depth
+            int cellShift = COORDINATE_BITS - depth;
+            Map<Long, long[]> cells = new HashMap<>();
+            for (int i = 0; i < node.ids.length; i++) {
+                int cellX = node.xs[i] >>> cellShift;
+                int cellY = node.ys[i] >>> cellShift;
+                if (cellX < minX >>> cellShift || cellX > maxX >>> cellShift
+                        || cellY < minY >>> cellShift || cellY > maxY >>> cellShift) {
+                    continue;
+                }
+                long[] sums = cells.computeIfAbsent(((long) cellX << 32) | cellY, key -> new long[4]);
+                sums[0]++;
+                sums[1] += node.xs[i];
+                sums[2] += node.ys[i];
+                sums[3] += node.ids[i];
+            }
+            for (long[] sums : cells.values()) {
+                clusters.add(toCluster((int) sums[0], sums[1], sums[2], sums[3]));
+            }
+        }
+    }
+
+    private static MapClusterDto toCluster(int count, long sumX, long sumY, long sumIds) {
+        double x = sumX / (double) count / SCALE;
+        double y = sumY / (double) count / SCALE;
+        double latitude = Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+        double longitude = x * 360 - 180;
+        return new MapClusterDto(latitude, longitude, count, count == 1 ? sumIds : null);
+    }
+
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        // The query runs under the lock, so a change committed before it is in the results and one committed
+        // after it waits for the build and is applied to the fresh tree
+        synchronized (writeLock) {
+            long start = System.currentTimeMillis();
+            try (Stream<Object[]> rows = propertyRepository.streamAvailableCoordinates()) {
+                rebuildFrom(rows);
+            }
+            logger.info("Cluster index rebuilt for {} properties in {} ms",
+                    positions.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    void rebuildFrom(Stream<Object[]> idLatLonRows) {
+        synchronized (writeLock) {
+            Node fresh = build(idLatLonRows);
+            Map<Long, Long> freshPositions = new HashMap<>();
+            if (fresh != null) {
+                addPositions(fresh, freshPositions);
+            }
+            positions = freshPositions;
+            root = fresh != null ? fresh : Node.inner(0, 0, 0, new Node[4]);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        synchronized (writeLock) {
+            Node current = root;
+            if (current == null) {
+                return; // Startup build will pick the change up
+            }
+
+            Long id = event.getPropertyId();
+            Long previous = positions.remove(id);
+            if (previous != null) {
+                current = remove(current, id, (int) (previous >>> 32), (int) (long) previous);
+            }
+
+            AddressDto address = event.isDeleted() ? null : event.getProperty().getAddress();
+            if (address != null && address.getLatitude() != null && address.getLongitude() != null
+                    && "Available".equals(event.getProperty().getStatus())) {
+                int x = toX(address.getLongitude());
+                int y = toY(address.getLatitude());
+                current = insert(current, 0, 0, 0, id, x, y);
+                positions.put(id, ((long) x << 32) | y);
+            }
+
+            root = current != null ? current : Node.inner(0, 0, 0, new Node[4]);
+        }
+    }
+
+    private static Node build(Stream<Object[]> idLatLonRows) {
+        List<Object[]> rows = idLatLonRows.toList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        long[] ids = new long[rows.size()];
+        int[] xs = new int[rows.size()];
+        int[] ys = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            ids[i] = (Long) row[0];
+            ys[i] = toY((Double) row[1]);
+            xs[i] = toX((Double) row[2]);
+        }
+        return build(0, 0, 0, ids, xs, ys, 0, ids.length,
+                new long[ids.length], new int[ids.length], new int[ids.length]);
+    }
+
+    /**
+     * Build the subtree for points [from, to), partitioning them by quadrant in place (via the scratch arrays).
+     */
+    private static Node build(int depth, int cellX, int cellY, long[] ids, int[] xs, int[] ys, int from, int to,
+                              long[] scratchIds, int[] scratchXs, int[] scratchYs) {
+        if (to - from <= LEAF_SIZE || depth == MAX_DEPTH) {
+            return Node.leaf(depth, cellX, cellY,
+                    Arrays.copyOfRange(ids, from, to), Arrays.copyOfRange(xs, from, to), Arrays.copyOfRange(ys, from, to));
+        }
+
+        int[] starts = new int[5];
+        for (int i = from; i < to; i++) {
+            starts[quadrant(xs[i], ys[i], depth) + 1]++;
+        }
+        starts[0] = from;
+        for (int q = 1; q <= 4; q++) {
+            starts[q] += starts[q - 1];
+        }
+        int[] next = Arrays.copyOf(starts, 4);
+        for (int i = from; i < to; i++) {
+            int position = next[quadrant(xs[i], ys[i], depth)]++;
+            scratchIds[position] = ids[i];
+            scratchXs[position] = xs[i];
+            scratchYs[position] = ys[i];
+        }
+        System.arraycopy(scratchIds, from, ids, from, to - from);
+        System.arraycopy(scratchXs, from, xs, from, to - from);
+        System.arraycopy(scratchYs, from, ys, from, to - from);
+
+        Node[] children = new Node[4];
+        for (int q = 0; q < 4; q++) {
+            if (starts[q + 1] > starts[q]) {
+                children[q] = build(depth + 1, childX(cellX, q), childY(cellY, q), ids, xs, ys,
+                        starts[q], starts[q + 1], scratchIds, scratchXs, scratchYs);
+            }
+        }
+        return Node.inner(depth, cellX, cellY, children);
+    }
+
+    private static Node insert(Node node, int depth, int cellX, int cellY, long id, int x, int y) {
+        if (node == null) {
+            return Node.leaf(depth, cellX, cellY, new long[]{id}, new int[]{x}, new int[]{y});
+        }
+        if (node.isLeaf()) {
+            int size = node.ids.length;
+            long[] ids = Arrays.copyOf(node.ids, size + 1);
+            int[] xs = Arrays.copyOf(node.xs, size + 1);
+            int[] ys = Arrays.copyOf(node.ys, size + 1);
+            ids[size] = id;
+            xs[size] = x;
+            ys[size] = y;
+            return build(depth, cellX, cellY, ids, xs, ys, 0, ids.length,
+                    new long[ids.length], new int[ids.length], new int[ids.length]);
+        }
+
+        int q = quadrant(x, y, depth);
+        Node[] children = node.children.clone();
+        children[q] = insert(children[q], depth + 1, childX(cellX, q), childY(cellY, q), id, x, y);
+        return Node.inner(depth, cellX, cellY, children);
+    }
+
+    private static Node remove(Node node, long id, int x, int y) {
+        if (node == null) {
+            return null;
+        }
+        if (node.isLeaf()) {
+            for (int i = 0; i < node.ids.length; i++) {
+                if (node.ids[i] == id) {
+                    if (node.ids.length == 1) {
+                        return null;
+                    }
+                    int last = node.ids.length - 1;
+                    long[] ids = Arrays.copyOf(node.ids, last);
+                    int[] xs = Arrays.copyOf(node.xs, last);
+                    int[] ys = Arrays.copyOf(node.ys, last);
+                    if (i < last) {
+                        ids[i] = node.ids[last];
+                        xs[i] = node.xs[last];
+                        ys[i] = node.ys[last];
+                    }
+                    return Node.leaf(node.depth, node.cellX, node.cellY, ids, xs, ys);
+                }
+            }
+            return node;
+        }
+
+        int q = quadrant(x, y, node.depth);
+        Node child = remove(node.children[q], id, x, y);
+        if (child == node.children[q]) {
+            return node;
+        }
+        Node[] children = node.children.clone();
+        children[q] = child;
+        Node updated = Node.inner(node.depth, node.cellX, node.cellY, children);
+        if (updated.count == 0 && node.depth > 0) {
+            return null;
+        }
+        return updated.count <= LEAF_SIZE / 2 && node.depth > 0 ? collapse(updated) : updated;
+    }
+
+    // Merge a sparse subtree back into a single leaf
+    private static Node collapse(Node node) {
+        Map<Long, Long> points = new HashMap<>();
+        addPositions(node, points);
+        long[] ids = new long[points.size()];
+        int[] xs = new int[points.size()];
+        int[] ys = new int[points.size()];
+        int i = 0;
+        for (Map.Entry<Long, Long> point : points.entrySet()) {
+            ids[i] = point.getKey();
+            xs[i] = (int) (point.getValue() >>> 32);
+            ys[i] = (int) (long) point.getValue();
+            i++;
+        }
+        return Node.leaf(node.depth, node.cellX, node.cellY, ids, xs, ys);
+    }
+
+    private static void addPositions(Node node, Map<Long, Long> positions) {
+        if (node.isLeaf()) {
+            for (int i = 0; i < node.ids.length; i++) {
+                positions.put(node.ids[i], ((long) node.xs[i] << 32) | node.ys[i]);
+            }
+            return;
+        }
+        for (Node child : node.children) {
+            if (child != null) {
+                addPositions(child, positions);
+            }
+        }
+    }
+
+    private static int quadrant(int x, int y, int depth) {
+        int bit = COORDINATE_BITS - 1 - depth;
+        return ((x >>> bit) & 1) | (((y >>> bit) & 1) << 1);
+    }
+
+    private static int childX(int cellX, int quadrant) {
+        return (cellX << 1) | (quadrant & 1);
+    }
+
+    private static int childY(int cellY, int quadrant) {
+        return (cellY << 1) | (quadrant >>> 1);
+    }
+
+    private static int toX(double longitude) {
+        return quantize((longitude + 180) / 360);
+    }
+
+    private static int toY(double latitude) {
+        double clamped = Math.max(-MAX_MERCATOR_LATITUDE, Math.min(MAX_MERCATOR_LATITUDE, latitude));
+        double sin = Math.sin(Math.toRadians(clamped));
+        return quantize(0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI));
+    }
+
+    private static int quantize(double unit) {
+        return (int) Math.min(SCALE - 1, Math.max(0, Math.floor(unit * SCALE)));
+    }
+}
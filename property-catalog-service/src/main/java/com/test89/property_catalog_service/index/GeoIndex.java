@@ -0,0 +1,265 @@
+package com.test89.property_catalog_service.index;
+
+import com.test89.property_catalog_service.dto.AddressDto;
+import com.test89.property_catalog_service.event.PropertyChangedEvent;
+import com.test89.property_catalog_service.repository.PropertyRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory spatial index over property coordinates, bucketing properties into fixed-size lat/lon grid cells.
+ * <p>
+ * Radius and bounding-box queries visit only the cells overlapping the query area and then filter exactly,
+ * returning each matching property with its great-circle distance in kilometres from a reference point.
+ * Cells are replaced copy-on-write, so queries never lock. Until the startup build has finished,
+ * lookups run a bounding-box query against the database instead.
+ */
+@Component
+@RequiredArgsConstructor
+public class GeoIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeoIndex.class);
+
+    static final double CELL_DEGREES = 0.1; // ~11 km of latitude
+    private static final int LAT_CELLS = (int) Math.ceil(180 / CELL_DEGREES);
+    private static final int LON_CELLS = (int) Math.ceil(360 / CELL_DEGREES);
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final PropertyRepository propertyRepository;
+
+    private final Object writeLock = new Object();
+    private volatile Map<Long, Cell> cells;
+    private volatile Map<Long, Long> cellOfProperty;
+
+    /**
+     * Properties of one grid cell as parallel arrays.
+     */
+    private record Cell(long[] ids, double[] latitudes, double[] longitudes) {
+
+        static final Cell EMPTY = new Cell(new long[0], new double[0], new double[0]);
+
+        Cell with(long id, double latitude, double longitude) {
+            int size = ids.length;
+            long[] newIds = Arrays.copyOf(ids, size + 1);
+            double[] newLatitudes = Arrays.copyOf(latitudes, size + 1);
+            double[] newLongitudes = Arrays.copyOf(longitudes, size + 1);
+            newIds[size] = id;
+            newLatitudes[size] = latitude;
+            newLongitudes[size] = longitude;
+            return new Cell(newIds, newLatitudes, newLongitudes);
+        }
+
+        Cell without(long id) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    int last = ids.length - 1;
+                    long[] newIds = Arrays.copyOf(ids, last);
+                    double[] newLatitudes = Arrays.copyOf(latitudes, last);
+                    double[] newLongitudes = Arrays.copyOf(longitudes, last);
+                    if (i < last) {
+                        newIds[i] = ids[last];
+                        newLatitudes[i] = latitudes[last];
+                        newLongitudes[i] = longitudes[last];
+                    }
+                    return new Cell(newIds, newLatitudes, newLongitudes);
+                }
+            }
+            return this;
+        }
+    }
+
+    public boolean isReady() {
+        return cells != null;
+    }
+
+    /**
+     * Properties within radiusKm of the centre, mapped to their distance from it.
+     */
+    public Map<Long, Double> withinRadius(double latitude, double longitude, double radiusKm) {
+        double latDelta = Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
+        double south = Math.max(-90, latitude - latDelta);
+        double north = Math.min(90, latitude + latDelta);
+
+        // Circles reaching a pole cover every longitude
+        double west = -180;
+        double east = 180;
+        double ratio = Math.sin(Math.min(Math.PI / 2, radiusKm / EARTH_RADIUS_KM)) / Math.cos(Math.toRadians(latitude));
+        if (north < 90 && south > -90 && ratio < 1) {
+            double lonDelta = Math.toDegrees(Math.asin(ratio));
+            west = normalizeLongitude(longitude - lonDelta);
+            east = normalizeLongitude(longitude + lonDelta);
+        }
+
+        Map<Long, Double> result = new HashMap<>();
+        scanBox(south, west, north, east, (id, lat, lon) -> {
+            double distance = distanceKm(latitude, longitude, lat, lon);
+            if (distance <= radiusKm) {
+                result.put(id, distance);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Properties inside the box, mapped to their distance from the box centre.
+     * A box whose west edge is east of its east edge crosses the antimeridian.
+     */
+    public Map<Long, Double> withinBox(double south, double west, double north, double east) {
+        double centreLatitude = (south + north) / 2;
+        double centreLongitude = west <= east ? (west + east) / 2 : normalizeLongitude((west + east + 360) / 2);
+
+        Map<Long, Double> result = new HashMap<>();
+        scanBox(south, west, north, east, (id, lat, lon) ->
+                result.put(id, distanceKm(centreLatitude, centreLongitude, lat, lon)));
+        return result;
+    }
+
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    @FunctionalInterface
+    private interface PointVisitor {
+        void visit(long id, double latitude, double longitude);
+    }
+
+    private void scanBox(double south, double west, double north, double east, PointVisitor visitor) {
+        if (west > east) {
+            scanBox(south, west, north, 180, visitor);
+            scanBox(south, -180, north, east, visitor);
+            return;
+        }
+
+        Map<Long, Cell> current = cells;
+        if (current == null) {
+            try (Stream<Object[]> rows = propertyRepository.streamCoordinatesInBox(south, west, north, east)) {
+                rows.forEach(row -> visitor.visit((Long) row[0], (Double) row[1], (Double) row[2]));
+            }
+            return;
+        }
+
+        int firstLat = latCell(south);
+        int lastLat = latCell(north);
+        int firstLon = lonCell(west);
+        int lastLon = lonCell(east);
+        long cellsInBox = (long) (lastLat - firstLat + 1) * (lastLon - firstLon + 1);
+
+        if (cellsInBox > current.size()) {
+            // Wide boxes: cheaper to walk the occupied cells than every cell in the box
+            current.forEach((key, cell) -> {
+                int lat = (int) (key >> 32);
+                int lon = (int) (long) key;
+                if (lat >= firstLat && lat <= lastLat && lon >= firstLon && lon <= lastLon) {
+                    visitCell(cell, south, west, north, east, visitor);
+                }
+            });
+            return;
+        }
+
+        for (int lat = firstLat; lat <= lastLat; lat++) {
+            for (int lon = firstLon; lon <= lastLon; lon++) {
+                Cell cell = current.get(cellKey(lat, lon));
+                if (cell != null) {
+                    visitCell(cell, south, west, north, east, visitor);
+                }
+            }
+        }
+    }
+
+    private static void visitCell(Cell cell, double south, double west, double north, double east,
+                                  PointVisitor visitor) {
+        for (int i = 0; i < cell.ids().length; i++) {
+            double lat = cell.latitudes()[i];
+            double lon = cell.longitudes()[i];
+            if (lat >= south && lat <= north && lon >= west && lon <= east) {
+                visitor.visit(cell.ids()[i], lat, lon);
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        // The query runs under the lock, so a change committed before it is in the results and one committed
+        // after it waits for the build and is applied to the fresh cells
+        synchronized (writeLock) {
+            long start = System.currentTimeMillis();
+            try (Stream<Object[]> rows = propertyRepository.streamCoordinates()) {
+                rebuildFrom(rows);
+            }
+            logger.info("Geo index rebuilt for {} properties in {} ms",
+                    cellOfProperty.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    void rebuildFrom(Stream<Object[]> idLatLonRows) {
+        synchronized (writeLock) {
+            Map<Long, Cell> freshCells = new ConcurrentHashMap<>();
+            Map<Long, Long> freshCellOf = new ConcurrentHashMap<>();
+            idLatLonRows.forEach(row -> add(freshCells, freshCellOf, (Long) row[0], (Double) row[1], (Double) row[2]));
+            cellOfProperty = freshCellOf;
+            cells = freshCells;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        synchronized (writeLock) {
+            Map<Long, Cell> current = cells;
+            if (current == null) {
+                return; // Startup build will pick the change up
+            }
+
+            Long id = event.getPropertyId();
+            Long previousCell = cellOfProperty.remove(id);
+            if (previousCell != null) {
+                current.computeIfPresent(previousCell, (key, cell) -> {
+                    Cell remaining = cell.without(id);
+                    return remaining.ids().length == 0 ? null : remaining;
+                });
+            }
+
+            AddressDto address = event.isDeleted() ? null : event.getProperty().getAddress();
+            if (address != null && address.getLatitude() != null && address.getLongitude() != null) {
+                add(current, cellOfProperty, id, address.getLatitude(), address.getLongitude());
+            }
+        }
+    }
+
+    private static void add(Map<Long, Cell> cells, Map<Long, Long> cellOf, Long id, double latitude, double longitude) {
+        long key = cellKey(latCell(latitude), lonCell(longitude));
+        cells.compute(key, (k, cell) -> (cell == null ? Cell.EMPTY : cell).with(id, latitude, longitude));
+        cellOf.put(id, key);
+    }
+
+    private static int latCell(double latitude) {
+        return Math.min(LAT_CELLS - 1, Math.max(0, (int) Math.floor((latitude + 90) / CELL_DEGREES)));
+    }
+
+    private static int lonCell(double longitude) {
+        return Math.min(LON_CELLS - 1, Math.max(0, (int) Math.floor((longitude + 180) / CELL_DEGREES)));
+    }
+
+    private static long cellKey(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+
+    private static double normalizeLongitude(double longitude) {
+        double normalized = ((longitude + 180) % 360 + 360) % 360 - 180;
+        return normalized == -180 && longitude > 0 ? 180 : normalized;
+    }
+}
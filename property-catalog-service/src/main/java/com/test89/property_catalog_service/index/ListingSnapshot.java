@@ -0,0 +1,153 @@
+package com.test89.property_catalog_service.index;
+
+import com.test89.property_catalog_service.dto.PropertyDto;
+import com.test89.property_catalog_service.event.PropertyChangedEvent;
+import com.test89.property_catalog_service.repository.PropertyRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * In-memory copy of the filterable attributes of every property, so result sets produced by the other
+ * indexes can be filtered, and facet counts computed, without a round trip to the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class ListingSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingSnapshot.class);
+
+    private final PropertyRepository propertyRepository;
+
+    private final Object writeLock = new Object();
+    private volatile Map<Long, Listing> listings;
+
+    public record Listing(long id, String status, String type, BigDecimal pricePerDay,
+                          Integer bedrooms, Integer bathrooms, Integer maxGuests, String city,
+                          Integer minStayDays, Integer maxStayDays, Set<String> amenities) {
+
+        static Listing of(PropertyDto property) {
+            return new Listing(property.getId(), property.getStatus(), property.getType(), property.getPricePerDay(),
+                    property.getBedrooms(), property.getBathrooms(), property.getMaxGuests(),
+                    property.getAddress() != null ? property.getAddress().getCity() : null,
+                    property.getMinStayDays(), property.getMaxStayDays(),
+                    AmenityIndex.normalize(property.getAmenities()));
+        }
+
+        /**
+         * Same predicate as PropertyRepository.findByBasicFilters, with null bounds meaning "no limit".
+         */
+        public boolean matchesBasicFilters(BigDecimal minPrice, BigDecimal maxPrice, Integer bedrooms,
+                                           Integer bathrooms, String city, Integer maxGuests) {
+            return (minPrice == null || (pricePerDay != null && pricePerDay.compareTo(minPrice) >= 0))
+                    && (maxPrice == null || (pricePerDay != null && pricePerDay.compareTo(maxPrice) <= 0))
+                    && atLeast(this.bedrooms, bedrooms)
+                    && atLeast(this.bathrooms, bathrooms)
+                    && atLeast(this.maxGuests, maxGuests)
+                    && (city == null || city.equalsIgnoreCase(this.city));
+        }
+
+        /**
+         * Same stay-length predicate as PropertyRepository.findAvailableCandidateIds.
+         */
+        public boolean allowsStay(Integer minStayDays, Integer maxStayDays, int stayDuration) {
+            return (minStayDays == null || (this.minStayDays != null && this.minStayDays <= stayDuration))
+                    && (maxStayDays == null || this.maxStayDays == null || this.maxStayDays >= stayDuration);
+        }
+
+        private static boolean atLeast(Integer value, Integer minimum) {
+            return minimum == null || (value != null && value >= minimum);
+        }
+    }
+
+    public boolean isReady() {
+        return listings != null;
+    }
+
+    public Listing get(long propertyId) {
+        Map<Long, Listing> current = listings;
+        if (current == null) {
+            throw new IllegalStateException("Listing snapshot has not been built yet");
+        }
+        return current.get(propertyId);
+    }
+
+    /**
+     * Visit every listing, reading them from the database while the snapshot has not been built yet.
+     * Must be called inside a transaction for the database path.
+     */
+    public void forEach(Consumer<Listing> action) {
+        Map<Long, Listing> current = listings;
+        if (current != null) {
+            current.values().forEach(action);
+            return;
+        }
+        streamFromDatabase(action);
+    }
+
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (writeLock) {
+            Map<Long, Listing> fresh = new ConcurrentHashMap<>();
+            streamFromDatabase(listing -> fresh.put(listing.id(), listing));
+            listings = fresh;
+        }
+        logger.info("Listing snapshot rebuilt for {} properties in {} ms",
+                listings.size(), System.currentTimeMillis() - start);
+    }
+
+    private void streamFromDatabase(Consumer<Listing> action) {
+        Map<Long, Set<String>> amenities = new HashMap<>();
+        try (Stream<Object[]> pairs = propertyRepository.streamPropertyAmenities()) {
+            pairs.forEach(pair -> {
+                String amenity = (String) pair[1];
+                if (amenity != null && !amenity.isBlank()) {
+                    amenities.computeIfAbsent((Long) pair[0], id -> new HashSet<>())
+                            .add(amenity.trim().toLowerCase(Locale.ROOT));
+                }
+            });
+        }
+        try (Stream<Object[]> rows = propertyRepository.streamListingAttributes()) {
+            rows.forEach(row -> action.accept(new Listing((Long) row[0], (String) row[1], (String) row[2],
+                    (BigDecimal) row[3], (Integer) row[4], (Integer) row[5], (Integer) row[6], (String) row[7],
+                    (Integer) row[8], (Integer) row[9], amenities.getOrDefault((Long) row[0], Set.of()))));
+        }
+    }
+
+    void rebuildFrom(Stream<Listing> rows) {
+        synchronized (writeLock) {
+            Map<Long, Listing> fresh = new ConcurrentHashMap<>();
+            rows.forEach(listing -> fresh.put(listing.id(), listing));
+            listings = fresh;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        synchronized (writeLock) {
+            Map<Long, Listing> current = listings;
+            if (current == null) {
+                return; // Startup build will pick the change up
+            }
+            if (event.isDeleted()) {
+                current.remove(event.getPropertyId());
+            } else {
+                current.put(event.getPropertyId(), Listing.of(event.getProperty()));
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.test89.property_catalog_service.index;
+
+import com.test89.property_catalog_service.dto.ReservationSpanDto;
+import com.test89.property_catalog_service.entity.Reservation;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import com.test89.property_catalog_service.repository.ReservationRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Per-property sorted interval arrays of active (PENDING/CONFIRMED) reservations.
+ * <p>
+ * Answers "does [from, to] overlap an active stay" and "which stay is the first conflict" in O(log n)
+ * using the same closed-interval semantics as ReservationRepository.findOverlappingReservations.
+ * Until the startup build has finished, lookups are delegated to the database.
+ * <p>
+ * The index only hears about changes committed on this node, so it is a filter, not the source of truth: a
+ * conflict it reports is confirmed against the database before anyone is turned away, and a stay cancelled
+ * elsewhere is dropped on the spot. A stay booked on another node can still be missed until the nightly
+ * rebuild; bookings are protected from that by the property_nights key, not by this index.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReservationIntervalIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationIntervalIndex.class);
+
+    private final ReservationRepository reservationRepository;
+
+    private volatile Map<Long, Intervals> intervals;
+
+    public boolean isReady() {
+        return intervals != null;
+    }
+
+    /**
+     * Whether [from, to] overlaps an active stay. Conflicts found in the index are confirmed against the database,
+     * and the property's intervals are reloaded when the database no longer has them.
+     */
+    public boolean hasOverlap(Long propertyId, LocalDate from, LocalDate to) {
+        if (findFirstConflict(propertyId, from, to).isEmpty()) {
+            return false;
+        }
+        if (!isReady()) {
+            return true; // Already answered by the database
+        }
+        if (!reservationRepository.findOverlappingReservations(propertyId, from, to).isEmpty()) {
+            return true;
+        }
+        refresh(propertyId);
+        return false;
+    }
+
+    /**
+     * The earliest-starting active reservation overlapping [from, to], if any.
+     */
+    public Optional<ReservationSpanDto> findFirstConflict(Long propertyId, LocalDate from, LocalDate to) {
+        Map<Long, Intervals> current = intervals;
+        if (current == null) {
+            return reservationRepository.findOverlappingReservations(propertyId, from, to).stream()
+                    .min(Comparator.comparing(Reservation::getCheckInDate))
+                    .map(r -> new ReservationSpanDto(r.getId(), propertyId, r.getCheckInDate(), r.getCheckOutDate()));
+        }
+
+        Intervals forProperty = current.get(propertyId);
+        if (forProperty == null) {
+            return Optional.empty();
+        }
+        int index = forProperty.firstConflict((int) from.toEpochDay(), (int) to.toEpochDay());
+        return index < 0 ? Optional.empty() : Optional.of(forProperty.span(propertyId, index));
+    }
+
+    @Transactional(readOnly = true)
+    @Scheduled(cron = "${app.availability-index.rebuild-cron:0 5 0 * * *}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        try (Stream<ReservationSpanDto> spans = reservationRepository.streamActiveSpans(LocalDate.now())) {
+            rebuildFrom(spans);
+        }
+        logger.info("Reservation interval index rebuilt for {} properties in {} ms",
+                intervals.size(), System.currentTimeMillis() - start);
+    }
+
+    synchronized void rebuildFrom(Stream<ReservationSpanDto> spans) {
+        Map<Long, List<ReservationSpanDto>> byProperty = new HashMap<>();
+        spans.forEach(span -> byProperty.computeIfAbsent(span.getPropertyId(), id -> new ArrayList<>()).add(span));
+
+        Map<Long, Intervals> fresh = new ConcurrentHashMap<>(Math.max(16, byProperty.size() * 2));
+        byProperty.forEach((propertyId, list) -> fresh.put(propertyId, Intervals.of(list)));
+        intervals = fresh;
+    }
+
+    /**
+     * Reload one property's intervals from the database, for when the index was found to disagree with it
+     * (a stay changed on another node).
+     */
+    public synchronized void refresh(Long propertyId) {
+        Map<Long, Intervals> current = intervals;
+        if (current == null) {
+            return;
+        }
+        List<ReservationSpanDto> spans = reservationRepository.findActiveSpansByProperty(propertyId, LocalDate.now());
+        if (spans.isEmpty()) {
+            current.remove(propertyId);
+        } else {
+            current.put(propertyId, Intervals.of(new ArrayList<>(spans)));
+        }
+        logger.debug("Reservation intervals of property {} reloaded after a stale conflict", propertyId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onReservationChanged(ReservationChangedEvent event) {
+        Map<Long, Intervals> current = intervals;
+        if (current == null) {
+            return; // Startup build will pick the change up
+        }
+        if (event.isActive()) {
+            current.compute(event.getPropertyId(), (id, existing) -> (existing == null ? Intervals.EMPTY : existing)
+                    .with(event.getReservationId(), event.getCheckInDate(), event.getCheckOutDate()));
+        } else {
+            current.computeIfPresent(event.getPropertyId(), (id, existing) -> {
+                Intervals remaining = existing.without(event.getReservationId());
+                return remaining.isEmpty() ? null : remaining;
+            });
+        }
+    }
+
+    /**
+     * Immutable intervals of one property sorted by start day, with a running maximum of end days so that
+     * the first interval reaching a given day can be found by binary search even when stays overlap.
+     */
+    private static final class Intervals {
+
+        static final Intervals EMPTY = new Intervals(new long[0], new int[0], new int[0]);
+
+        private final long[] reservationIds;
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] maxEnds;
+
+        private Intervals(long[] reservationIds, int[] starts, int[] ends) {
+            this.reservationIds = reservationIds;
+            this.starts = starts;
+            this.ends = ends;
+            this.maxEnds = new int[ends.length];
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < ends.length; i++) {
+                max = Math.max(max, ends[i]);
+                maxEnds[i] = max;
+            }
+        }
+
+        static Intervals of(List<ReservationSpanDto> spans) {
+            spans.sort(Comparator.comparing(ReservationSpanDto::getCheckInDate));
+            long[] ids = new long[spans.size()];
+            int[] starts = new int[spans.size()];
+            int[] ends = new int[spans.size()];
+            for (int i = 0; i < spans.size(); i++) {
+                ReservationSpanDto span = spans.get(i);
+                ids[i] = span.getReservationId();
+                starts[i] = (int) span.getCheckInDate().toEpochDay();
+                ends[i] = (int) span.getCheckOutDate().toEpochDay();
+            }
+            return new Intervals(ids, starts, ends);
+        }
+
+        boolean isEmpty() {
+            return reservationIds.length == 0;
+        }
+
+        int firstConflict(int from, int to) {
+            // Only intervals starting on or before 'to' can overlap
+            int candidates = upperBound(starts, to);
+            // First interval whose running max end reaches 'from' is the first one that itself ends on or after it
+            int low = 0;
+            int high = candidates;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (maxEnds[mid] >= from) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low < candidates ? low : -1;
+        }
+
+        ReservationSpanDto span(Long propertyId, int index) {
+            return new ReservationSpanDto(reservationIds[index], propertyId,
+                    LocalDate.ofEpochDay(starts[index]), LocalDate.ofEpochDay(ends[index]));
+        }
+
+        Intervals with(Long reservationId, LocalDate checkInDate, LocalDate checkOutDate) {
+            Intervals base = without(reservationId);
+            int start = (int) checkInDate.toEpochDay();
+            int position = upperBound(base.starts, start);
+            return new Intervals(
+                    insert(base.reservationIds, position, reservationId),
+                    insert(base.starts, position, start),
+                    insert(base.ends, position, (int) checkOutDate.toEpochDay()));
+        }
+
+        Intervals without(Long reservationId) {
+            for (int i = 0; i < reservationIds.length; i++) {
+                if (reservationIds[i] == reservationId) {
+                    return reservationIds.length == 1 ? EMPTY
+                            : new Intervals(remove(reservationIds, i), remove(starts, i), remove(ends, i));
+                }
+            }
+            return this;
+        }
+
+        private static int upperBound(int[] values, int key) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] <= key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static int[] insert(int[] values, int position, int value) {
+            int[] result = Arrays.copyOf(values, values.length + 1);
+            System.arraycopy(values, position, result, position + 1, values.length - position);
+            result[position] = value;
+            return result;
+        }
+
+        private static long[] insert(long[] values, int position, long value) {
+            long[] result = Arrays.copyOf(values, values.length + 1);
+            System.arraycopy(values, position, result, position + 1, values.length - position);
+            result[position] = value;
+            return result;
+        }
+
+        private static int[] remove(int[] values, int position) {
+            int[] result = new int[values.length - 1];
+            System.arraycopy(values, 0, result, 0, position);
+            System.arraycopy(values, position + 1, result, position, values.length - position - 1);
+            return result;
+        }
+
+        private static long[] remove(long[] values, int position) {
+            long[] result = new long[values.length - 1];
+            System.arraycopy(values, 0, result, 0, position);
+            System.arraycopy(values, position + 1, result, position, values.length - position - 1);
+            return result;
+        }
+    }
+}
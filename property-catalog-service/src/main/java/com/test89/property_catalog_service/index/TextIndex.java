@@ -0,0 +1,437 @@
+package com.test89.property_catalog_service.index;
+
+import com.test89.property_catalog_service.dto.AddressDto;
+import com.test89.property_catalog_service.dto.PropertyDto;
+import com.test89.property_catalog_service.event.PropertyChangedEvent;
+import com.test89.property_catalog_service.repository.PropertyRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongPredicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over the searchable text of properties, ranked with BM25.
+ * <p>
+ * Title, type, amenities and address fields are indexed with per-field boosts into a single term-frequency
+ * vector per document. Every query token must match (AND); the last token also matches as a prefix, and a token
+ * missing from the dictionary matches terms within one or two edits sharing its first letter.
+ * <p>
+ * Documents are addressed by dense ordinals. An update tombstones the old ordinal and appends the new version,
+ * so postings only ever grow at the end and readers never lock; the nightly rebuild drops the tombstones.
+ */
+@Component
+@RequiredArgsConstructor
+public class TextIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TextIndex.class);
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final float TITLE_BOOST = 3f;
+    private static final float TYPE_BOOST = 2f;
+    private static final float AMENITY_BOOST = 2f;
+    private static final float CITY_BOOST = 2f;
+    private static final float REGION_BOOST = 1.5f;
+
+    private static final float PREFIX_WEIGHT = 0.8f;
+    private static final float TYPO_WEIGHT = 0.6f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final int MIN_TYPO_LENGTH = 4;
+    private static final int MAX_QUERY_TOKENS = 8;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+            "of", "on", "or", "the", "to", "with");
+
+    private final PropertyRepository propertyRepository;
+
+    private final Object writeLock = new Object();
+    private volatile Segment segment;
+
+    /**
+     * Searchable fields of one property.
+     */
+    record Document(long id, String title, String description, String type, Collection<String> amenities,
+                    String street, String city, String state, String postalCode, String country) {
+
+        static Document of(PropertyDto property) {
+            AddressDto address = property.getAddress() != null ? property.getAddress() : new AddressDto();
+            return new Document(property.getId(), property.getTitle(), property.getDescription(), property.getType(),
+                    property.getAmenities(), address.getStreet(), address.getCity(), address.getState(),
+                    address.getPostalCode(), address.getCountry());
+        }
+
+        Map<String, Float> termFrequencies() {
+            Map<String, Float> frequencies = new HashMap<>();
+            addField(frequencies, title, TITLE_BOOST);
+            addField(frequencies, description, 1f);
+            addField(frequencies, type, TYPE_BOOST);
+            if (amenities != null) {
+                amenities.forEach(amenity -> addField(frequencies, amenity, AMENITY_BOOST));
+            }
+            addField(frequencies, street, 1f);
+            addField(frequencies, city, CITY_BOOST);
+            addField(frequencies, state, REGION_BOOST);
+            addField(frequencies, postalCode, 1f);
+            addField(frequencies, country, REGION_BOOST);
+            return frequencies;
+        }
+
+        private static void addField(Map<String, Float> frequencies, String text, float boost) {
+            for (String token : tokenize(text)) {
+                frequencies.merge(token, boost, Float::sum);
+            }
+        }
+    }
+
+    /**
+     * Best-ranked matches (at most the requested limit) plus the total number of matches.
+     */
+    public record Hits(List<Long> ids, int total) {
+    }
+
+    /**
+     * Postings of one term in ordinal order. Appends write past {@code size} into the shared arrays and publish
+     * a new record, so a reader holding an older record never sees a half-written entry.
+     */
+    private record Postings(int[] ordinals, float[] frequencies, int size) {
+
+        static final Postings EMPTY = new Postings(new int[0], new float[0], 0);
+
+        Postings append(int ordinal, float frequency) {
+            int[] ords = ordinals;
+            float[] freqs = frequencies;
+            if (size == ords.length) {
+                int capacity = Math.max(4, size * 2);
+                ords = Arrays.copyOf(ords, capacity);
+                freqs = Arrays.copyOf(freqs, capacity);
+            }
+            ords[size] = ordinal;
+            freqs[size] = frequency;
+            return new Postings(ords, freqs, size + 1);
+        }
+    }
+
+    /**
+     * Dictionary, postings and per-ordinal document data. Mutated only under writeLock.
+     */
+    private static final class Segment {
+
+        final ConcurrentSkipListMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+        final Map<Long, Integer> ordinals = new ConcurrentHashMap<>();
+        volatile long[] ids = new long[1024]; // 0 once the document was removed or replaced
+        volatile float[] lengths = new float[1024];
+        volatile int documentCount; // Ordinals handed out so far, including tombstones
+        volatile int liveDocuments;
+        volatile double totalLength;
+
+        void add(Document document, Map<String, Postings> into) {
+            int ordinal = documentCount;
+            if (ordinal == ids.length) {
+                lengths = Arrays.copyOf(lengths, ordinal * 2);
+                ids = Arrays.copyOf(ids, ordinal * 2);
+            }
+
+            Map<String, Float> frequencies = document.termFrequencies();
+            float length = 0;
+            for (float frequency : frequencies.values()) {
+                length += frequency;
+            }
+            lengths[ordinal] = length;
+            ids[ordinal] = document.id();
+            ordinals.put(document.id(), ordinal);
+            totalLength += length;
+            liveDocuments++;
+
+            frequencies.forEach((term, frequency) ->
+                    into.compute(term, (key, postings) -> (postings == null ? Postings.EMPTY : postings)
+                            .append(ordinal, frequency)));
+            documentCount = ordinal + 1;
+        }
+
+        void remove(long id) {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal != null) {
+                totalLength -= lengths[ordinal];
+                liveDocuments--;
+                ids[ordinal] = 0;
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return segment != null;
+    }
+
+    /**
+     * Rank the properties matching every token of the query, returning the best {@code limit} of those
+     * accepted by the filter.
+     */
+    public Hits search(String query, LongPredicate filter, int limit) {
+        Segment current = segment;
+        if (current == null) {
+            throw new IllegalStateException("Text index has not been built yet");
+        }
+
+        List<String> tokens = tokenize(query);
+        if (tokens.size() > MAX_QUERY_TOKENS) {
+            tokens = tokens.subList(0, MAX_QUERY_TOKENS);
+        }
+        if (tokens.isEmpty()) {
+            return new Hits(List.of(), 0);
+        }
+
+        int documentCount = current.documentCount;
+        long[] ids = current.ids;
+        float[] lengths = current.lengths;
+        int liveDocuments = Math.max(1, current.liveDocuments);
+        float averageLength = (float) Math.max(1, current.totalLength / liveDocuments);
+
+        float[] scores = new float[documentCount];
+        float[] best = new float[documentCount];
+        int[] matchedTokens = new int[documentCount];
+        int[] touched = new int[0];
+        int touchedCount = 0;
+
+        for (int t = 0; t < tokens.size(); t++) {
+            touchedCount = 0;
+            for (Map.Entry<String, Float> alternative : expand(current, tokens.get(t), t == tokens.size() - 1).entrySet()) {
+                Postings postings = current.terms.get(alternative.getKey());
+                if (postings == null) {
+                    continue;
+                }
+                float idf = (float) Math.log(1 + (liveDocuments - postings.size() + 0.5) / (postings.size() + 0.5));
+                float weight = alternative.getValue() * Math.max(idf, 0.01f);
+                for (int i = 0; i < postings.size(); i++) {
+                    int ordinal = postings.ordinals()[i];
+                    if (ordinal >= documentCount || matchedTokens[ordinal] != t) {
+                        continue; // Added after this search started, or missed an earlier token
+                    }
+                    float frequency = postings.frequencies()[i];
+                    float norm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+                    float score = weight * frequency * (K1 + 1) / (frequency + norm);
+                    if (best[ordinal] == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, Math.max(64, touchedCount * 2));
+                        }
+                        touched[touchedCount++] = ordinal;
+                    }
+                    best[ordinal] = Math.max(best[ordinal], score);
+                }
+            }
+            // Credit each document with its best-scoring alternative for this token
+            for (int i = 0; i < touchedCount; i++) {
+                int ordinal = touched[i];
+                scores[ordinal] += best[ordinal];
+                best[ordinal] = 0;
+                matchedTokens[ordinal] = t + 1;
+            }
+        }
+
+        // Documents touched by the last token matched every token; keep the top 'limit' in a min-heap
+        PriorityQueue<Long> top = new PriorityQueue<>();
+        int total = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int ordinal = touched[i];
+            long id = ids[ordinal];
+            if (id == 0 || (filter != null && !filter.test(id))) {
+                continue;
+            }
+            total++;
+            // Positive float bits order like the floats; lower ordinals win ties
+            long key = ((long) Float.floatToIntBits(scores[ordinal]) << 32) | (Integer.MAX_VALUE - ordinal);
+            if (top.size() < limit) {
+                top.add(key);
+            } else if (limit > 0 && key > top.peek()) {
+                top.poll();
+                top.add(key);
+            }
+        }
+
+        Long[] ranked = top.toArray(new Long[0]);
+        Arrays.sort(ranked, (a, b) -> Long.compare(b, a));
+        List<Long> result = new ArrayList<>(ranked.length);
+        for (Long key : ranked) {
+            result.add(ids[Integer.MAX_VALUE - (int) (key & 0xffffffffL)]);
+        }
+        return new Hits(result, total);
+    }
+
+    /**
+     * Ids of every property matching all tokens of the query, in no particular order.
+     */
+    public Set<Long> matchingIds(String query) {
+        Set<Long> matches = new HashSet<>();
+        search(query, matches::add, 0);
+        return matches;
+    }
+
+    /**
+     * Dictionary terms a query token stands for, with the weight of each kind of match.
+     */
+    private static Map<String, Float> expand(Segment segment, String token, boolean last) {
+        Map<String, Float> alternatives = new LinkedHashMap<>();
+        if (segment.terms.containsKey(token)) {
+            alternatives.put(token, 1f);
+        }
+
+        if (last && token.length() >= MIN_PREFIX_LENGTH) {
+            for (String term : segment.terms.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+                if (alternatives.size() > MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                alternatives.put(term, PREFIX_WEIGHT);
+            }
+        }
+
+        if (alternatives.isEmpty() && token.length() >= MIN_TYPO_LENGTH) {
+            int maxEdits = token.length() >= 8 ? 2 : 1;
+            String first = token.substring(0, 1);
+            for (String term : segment.terms.subMap(first, true, first + Character.MAX_VALUE, false).keySet()) {
+                if (Math.abs(term.length() - token.length()) <= maxEdits && withinEdits(token, term, maxEdits)) {
+                    alternatives.put(term, TYPO_WEIGHT);
+                }
+            }
+        }
+        return alternatives;
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein plus adjacent transpositions) of at most maxEdits.
+     */
+    static boolean withinEdits(String a, String b, int maxEdits) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        int[] beforePrevious = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxEdits) {
+                return false;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()] <= maxEdits;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = text.toLowerCase(Locale.ROOT);
+        if (!isAscii(folded)) {
+            // Strip accents so "café" and "cafe" index the same term
+            folded = MARKS.matcher(Normalizer.normalize(folded, Normalizer.Form.NFD)).replaceAll("");
+        }
+
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = folded.substring(start, i);
+                if (!STOP_WORDS.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Transactional(readOnly = true)
+    @Scheduled(cron = "${app.text-index.rebuild-cron:0 15 0 * * *}")
+    public void rebuild() {
+        // Both queries run under the lock, so a change committed before them is in the results and one committed
+        // after them waits for the build and is applied to the fresh segment rather than the one it replaces
+        synchronized (writeLock) {
+            long start = System.currentTimeMillis();
+
+            Map<Long, List<String>> amenities = new HashMap<>();
+            try (Stream<Object[]> pairs = propertyRepository.streamPropertyAmenities()) {
+                pairs.forEach(pair -> amenities.computeIfAbsent((Long) pair[0], id -> new ArrayList<>()).add((String) pair[1]));
+            }
+            try (Stream<Object[]> rows = propertyRepository.streamTextFields()) {
+                rebuildFrom(rows.map(row -> new Document((Long) row[0], (String) row[1], (String) row[2], (String) row[3],
+                        amenities.get((Long) row[0]), (String) row[4], (String) row[5], (String) row[6],
+                        (String) row[7], (String) row[8])));
+            }
+            logger.info("Text index rebuilt for {} properties with {} terms in {} ms",
+                    segment.liveDocuments, segment.terms.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    void rebuildFrom(Stream<Document> documents) {
+        synchronized (writeLock) {
+            Segment fresh = new Segment();
+            Map<String, Postings> staging = new HashMap<>();
+            documents.forEach(document -> fresh.add(document, staging));
+            fresh.terms.putAll(staging);
+            segment = fresh;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        synchronized (writeLock) {
+            Segment current = segment;
+            if (current == null) {
+                return; // Startup build will pick the change up
+            }
+            current.remove(event.getPropertyId());
+            if (!event.isDeleted()) {
+                current.add(Document.of(event.getProperty()), current.terms);
+            }
+        }
+    }
+}
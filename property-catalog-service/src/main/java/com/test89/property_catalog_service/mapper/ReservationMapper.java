@@ -20,38 +20,7 @@ public class ReservationMapper {
             return null;
         }
 
-        // Map property to PropertySummaryDto
-        PropertySummaryDto propertySummaryDto = null;
-        if (reservation.getProperty() != null) {
-            Property property = reservation.getProperty();
-
-            // Get the first image URL if available
-            String imageUrl = null;
-            if (property.getImageUrls() != null && !property.getImageUrls().isEmpty()) {
-                imageUrl = property.getImageUrls().iterator().next();
-            }
-
-            AddressDto addressDto = null;
-            if (property.getAddress() != null) {
-                addressDto = AddressDto.builder()
-                        .street(property.getAddress().getStreet())
-                        .city(property.getAddress().getCity())
-                        .state(property.getAddress().getState())
-                        .postalCode(property.getAddress().getPostalCode())
-                        .country(property.getAddress().getCountry())
-                        .build();
-            }
-
-            propertySummaryDto = PropertySummaryDto.builder()
-                    .id(property.getId())
-                    .title(property.getTitle())
-                    .type(property.getType())
-                    .pricePerDay(property.getPricePerDay())
-                    .maxGuests(property.getMaxGuests())
-                    .address(addressDto)
-                    .imageUrl(imageUrl)
-                    .build();
-        }
+        PropertySummaryDto propertySummaryDto = toSummary(reservation.getProperty());
 
         // Map user to UserSummaryDto
         UserSummaryDto userSummaryDto = null;
@@ -90,6 +59,39 @@ public class ReservationMapper {
                 .build();
     }
 
+    public PropertySummaryDto toSummary(Property property) {
+        if (property == null) {
+            return null;
+        }
+
+        // Get the first image URL if available
+        String imageUrl = null;
+        if (property.getImageUrls() != null && !property.getImageUrls().isEmpty()) {
+            imageUrl = property.getImageUrls().iterator().next();
+        }
+
+        AddressDto addressDto = null;
+        if (property.getAddress() != null) {
+            addressDto = AddressDto.builder()
+                    .street(property.getAddress().getStreet())
+                    .city(property.getAddress().getCity())
+                    .state(property.getAddress().getState())
+                    .postalCode(property.getAddress().getPostalCode())
+                    .country(property.getAddress().getCountry())
+                    .build();
+        }
+
+        return PropertySummaryDto.builder()
+                .id(property.getId())
+                .title(property.getTitle())
+                .type(property.getType())
+                .pricePerDay(property.getPricePerDay())
+                .maxGuests(property.getMaxGuests())
+                .address(addressDto)
+                .imageUrl(imageUrl)
+                .build();
+    }
+
     public List<ReservationDto> toDtoList(List<Reservation> reservations) {
         return reservations.stream()
                 .map(this::toDto)
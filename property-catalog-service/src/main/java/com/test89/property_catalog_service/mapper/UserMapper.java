@@ -37,6 +37,9 @@ public class UserMapper {
                 .phoneNumber(user.getPhoneNumber())
                 .roles(user.getRoles())
                 .enabled(user.isEnabled())
+                .ownerNotifications(user.getOwnerNotifications() != null ?
+                        user.getOwnerNotifications() : User.NOTIFY_DIGEST)
+                .preferredLocale(user.getPreferredLocale())
                 .token(token)
                 .build();
     }
@@ -0,0 +1,168 @@
+package com.test89.property_catalog_service.pricing;
+
+import com.test89.property_catalog_service.cache.BoundedCache;
+import com.test89.property_catalog_service.cache.BoundedCacheMetrics;
+import com.test89.property_catalog_service.entity.Property;
+import com.test89.property_catalog_service.entity.PropertyRatePlan;
+import com.test89.property_catalog_service.event.PropertyChangedEvent;
+import com.test89.property_catalog_service.event.RatePlanChangedEvent;
+import com.test89.property_catalog_service.repository.PropertyRatePlanRepository;
+import com.test89.property_catalog_service.repository.PropertyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Quotes stays from each property's {@link RateCalendar}. Calendars are compiled from the property and its rate
+ * plan on first use and kept in a bounded LRU, invalidated when either changes. Bulk lookups compile all their
+ * misses from a fixed number of queries.
+ */
+@Component
+public class PricingEngine implements MeterBinder {
+
+    // Seasons may be set up to two years ahead; see RatePlanService
+    public static final int MAX_CALENDAR_DAYS = 2 * 366 + 1;
+
+    // Sort property accepted by date searches, ordering by the full price of the stay
+    public static final String TOTAL_PRICE_SORT = "totalPrice";
+
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private final PropertyRatePlanRepository propertyRatePlanRepository;
+    private final PropertyRepository propertyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BoundedCache<Long, RateCalendar> calendars;
+
+    public PricingEngine(PropertyRatePlanRepository propertyRatePlanRepository,
+                         PropertyRepository propertyRepository,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${app.pricing.max-calendars:50000}") int maxCalendars,
+                         @Value("${app.pricing.calendar-ttl:1h}") Duration ttl) {
+        this.propertyRatePlanRepository = propertyRatePlanRepository;
+        this.propertyRepository = propertyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.calendars = new BoundedCache<>(maxCalendars, ttl);
+    }
+
+    public Quote quote(Property property, LocalDate checkInDate, LocalDate checkOutDate) {
+        return calendar(property).quote(checkInDate, checkOutDate);
+    }
+
+    public RateCalendar calendar(Property property) {
+        return calendars(List.of(property)).get(property.getId());
+    }
+
+    /**
+     * Calendars of the given properties, compiling the missing ones with two queries for their rate plans.
+     */
+    public Map<Long, RateCalendar> calendars(Collection<Property> properties) {
+        long generation = calendars.generation();
+        Map<Long, RateCalendar> found = new HashMap<>();
+        List<Property> missing = new ArrayList<>();
+        for (Property property : properties) {
+            RateCalendar calendar = calendars.get(property.getId());
+            if (calendar != null) {
+                found.put(property.getId(), calendar);
+            } else {
+                missing.add(property);
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += LOAD_CHUNK_SIZE) {
+            List<Property> chunk = missing.subList(from, Math.min(from + LOAD_CHUNK_SIZE, missing.size()));
+            // Joins the caller's transaction if there is one
+            Map<Long, RateCalendar> compiled = transactionTemplate.execute(status -> {
+                Map<Long, PropertyRatePlan> plans = loadPlans(chunk.stream().map(Property::getId).toList());
+                return chunk.stream().collect(Collectors.toMap(Property::getId,
+                        property -> compile(property, plans.get(property.getId())), (a, b) -> a));
+            });
+            compiled.forEach((id, calendar) -> {
+                found.put(id, calendar);
+                calendars.put(id, calendar, generation);
+            });
+        }
+        return found;
+    }
+
+    /**
+     * Calendars by property id, loading the properties that are not cached yet. Unknown ids are absent.
+     */
+    public Map<Long, RateCalendar> calendarsById(Collection<Long> propertyIds) {
+        Map<Long, RateCalendar> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : propertyIds) {
+            RateCalendar calendar = calendars.get(id);
+            if (calendar != null) {
+                found.put(id, calendar);
+            } else {
+                missing.add(id);
+            }
+        }
+        for (int from = 0; from < missing.size(); from += LOAD_CHUNK_SIZE) {
+            List<Long> chunk = missing.subList(from, Math.min(from + LOAD_CHUNK_SIZE, missing.size()));
+            found.putAll(transactionTemplate.execute(status -> calendars(propertyRepository.findAllById(chunk))));
+        }
+        return found;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        calendars.invalidate(event.getPropertyId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatePlanChanged(RatePlanChangedEvent event) {
+        calendars.invalidate(event.getPropertyId());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new BoundedCacheMetrics(calendars, "rate-calendars").bindTo(registry);
+    }
+
+    private Map<Long, PropertyRatePlan> loadPlans(List<Long> propertyIds) {
+        List<PropertyRatePlan> plans = propertyRatePlanRepository.findWithSeasons(propertyIds);
+        if (plans.isEmpty()) {
+            return Map.of();
+        }
+        propertyRatePlanRepository.findWithStayDiscounts(propertyIds); // Same managed instances
+        return plans.stream().collect(Collectors.toMap(PropertyRatePlan::getPropertyId, Function.identity()));
+    }
+
+    static RateCalendar compile(Property property, PropertyRatePlan plan) {
+        long baseMinor = RateCalendar.toMinor(property.getPricePerDay());
+        if (plan == null) {
+            return new RateCalendar(baseMinor, -1, property.getBedrooms(), List.of(), List.of(),
+                    LocalDate.now(), MAX_CALENDAR_DAYS);
+        }
+
+        List<RateCalendar.Season> seasons = plan.getSeasons().stream()
+                .map(season -> {
+                    long rate = RateCalendar.toMinor(season.getPricePerDay());
+                    long weekendRate = season.getWeekendPricePerDay() != null
+                            ? RateCalendar.toMinor(season.getWeekendPricePerDay()) : rate;
+                    return new RateCalendar.Season(season.getStartDate(), season.getEndDate(), rate, weekendRate);
+                })
+                .toList();
+        List<RateCalendar.Discount> discounts = plan.getStayDiscounts().stream()
+                .map(discount -> new RateCalendar.Discount(discount.getMinNights(),
+                        RateCalendar.toBasisPoints(discount.getPercentOff())))
+                .toList();
+        long weekendMinor = plan.getWeekendPricePerDay() != null ? RateCalendar.toMinor(plan.getWeekendPricePerDay()) : -1;
+        return new RateCalendar(baseMinor, weekendMinor, property.getBedrooms(), seasons, discounts,
+                LocalDate.now(), MAX_CALENDAR_DAYS);
+    }
+}
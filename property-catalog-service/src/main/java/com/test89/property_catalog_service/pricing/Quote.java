@@ -0,0 +1,30 @@
+package com.test89.property_catalog_service.pricing;
+
+import java.math.BigDecimal;
+
+/**
+ * The price of a stay, in minor units (cents).
+ *
+ * @param nightlyMinor sum of the nightly rates, before the length-of-stay discount
+ */
+public record Quote(int nights,
+                    long nightlyMinor,
+                    long discountMinor,
+                    long cleaningFeeMinor,
+                    long serviceFeeMinor,
+                    long taxMinor,
+                    long totalMinor) {
+
+    public long subtotalMinor() {
+        return nightlyMinor - discountMinor;
+    }
+
+    // Rounded half up; equals pricePerDay when every night has the same rate and there is no discount
+    public long averageNightlyMinor() {
+        return nights == 0 ? 0 : (subtotalMinor() * 2 + nights) / (nights * 2L);
+    }
+
+    public static BigDecimal money(long minor) {
+        return BigDecimal.valueOf(minor, 2);
+    }
+}
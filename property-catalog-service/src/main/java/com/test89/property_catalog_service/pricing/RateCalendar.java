@@ -0,0 +1,178 @@
+package com.test89.property_catalog_service.pricing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One property's pricing rules compiled to long minor units, so quoting a stay allocates nothing but the Quote.
+ * <p>
+ * Seasonal nights are laid out as a prefix-sum array over the days from the calendar's origin to the last
+ * season's end, making the nightly total of any stay two array reads. Nights outside that span are charged
+ * the base or weekend rate, counted in closed form. Fees follow the rules ReservationService always applied:
+ * a 10% service fee and 5% tax on the (discounted) nightly total, and a cleaning fee of 25.00 plus 25% per
+ * bedroom, 50% more for stays over a week, each rounded half up to the cent.
+ */
+public final class RateCalendar {
+
+    static final long SERVICE_FEE_BASIS_POINTS = 1_000; // 10%
+    static final long TAX_BASIS_POINTS = 500; // 5%
+    static final long CLEANING_FEE_BASE_MINOR = 2_500;
+    static final int LONG_STAY_NIGHTS = 7; // Longer stays pay 50% more cleaning
+
+    // Epoch day 0 (1970-01-01) was a Thursday: Friday nights are days congruent to 1, Saturdays to 2
+    private static final int FRIDAY = 1;
+    private static final int SATURDAY = 2;
+
+    private final long baseMinor;
+    private final long weekendMinor;
+    private final int bedrooms;
+    private final long originDay;
+    private final long[] prefix; // prefix[i] = nightly total of the nights origin .. origin + i - 1; null without seasons
+    private final int[] discountNights; // Ascending
+    private final long[] discountBasisPoints;
+
+    /**
+     * A season's nightly rates in minor units, from its first to its last night inclusive.
+     */
+    public record Season(LocalDate startDate, LocalDate endDate, long rateMinor, long weekendRateMinor) {
+    }
+
+    /**
+     * Stays of at least minNights get basisPoints / 100 percent off their nightly total.
+     */
+    public record Discount(int minNights, long basisPoints) {
+    }
+
+    /**
+     * @param weekendMinor the Friday and Saturday rate, or a negative value to charge baseMinor every night
+     * @param origin       first night that seasons are laid out from; earlier season nights are ignored
+     * @param maxDays      bound on the prefix array; season nights beyond it are charged the base rates
+     */
+    public RateCalendar(long baseMinor, long weekendMinor, Integer bedrooms, List<Season> seasons,
+                        List<Discount> discounts, LocalDate origin, int maxDays) {
+        this.baseMinor = baseMinor;
+        this.weekendMinor = weekendMinor < 0 ? baseMinor : weekendMinor;
+        this.bedrooms = bedrooms != null ? Math.max(bedrooms, 0) : 0;
+        this.originDay = origin.toEpochDay();
+
+        long lastDay = originDay - 1;
+        for (Season season : seasons) {
+            lastDay = Math.max(lastDay, season.endDate().toEpochDay());
+        }
+        int days = (int) Math.min(lastDay + 1 - originDay, maxDays);
+        if (days > 0) {
+            long[] nightly = new long[days];
+            for (int i = 0; i < days; i++) {
+                nightly[i] = isWeekend(originDay + i) ? this.weekendMinor : baseMinor;
+            }
+            // Later seasons win where seasons overlap
+            for (Season season : seasons) {
+                long from = Math.max(season.startDate().toEpochDay(), originDay);
+                long to = Math.min(season.endDate().toEpochDay() + 1, originDay + days);
+                for (long day = from; day < to; day++) {
+                    nightly[(int) (day - originDay)] = isWeekend(day) ? season.weekendRateMinor() : season.rateMinor();
+                }
+            }
+            this.prefix = new long[days + 1];
+            for (int i = 0; i < days; i++) {
+                prefix[i + 1] = prefix[i] + nightly[i];
+            }
+        } else {
+            this.prefix = null;
+        }
+
+        Discount[] sorted = discounts.toArray(new Discount[0]);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a.minNights(), b.minNights()));
+        this.discountNights = new int[sorted.length];
+        this.discountBasisPoints = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            discountNights[i] = sorted[i].minNights();
+            discountBasisPoints[i] = sorted[i].basisPoints();
+        }
+    }
+
+    public long baseMinor() {
+        return baseMinor;
+    }
+
+    public Quote quote(LocalDate checkInDate, LocalDate checkOutDate) {
+        return quote(checkInDate.toEpochDay(), checkOutDate.toEpochDay());
+    }
+
+    public Quote quote(long checkInDay, long checkOutDay) {
+        if (checkOutDay <= checkInDay) {
+            throw new IllegalArgumentException("Check-out date must be after check-in date");
+        }
+        int nights = (int) (checkOutDay - checkInDay);
+        long nightly = nightlyTotal(checkInDay, checkOutDay);
+        long discount = percentOf(nightly, discountBasisPoints(nights));
+        long subtotal = nightly - discount;
+        long cleaningFee = cleaningFee(nights);
+        long serviceFee = percentOf(subtotal, SERVICE_FEE_BASIS_POINTS);
+        long tax = percentOf(subtotal, TAX_BASIS_POINTS);
+        return new Quote(nights, nightly, discount, cleaningFee, serviceFee, tax, subtotal + cleaningFee + serviceFee + tax);
+    }
+
+    long nightlyTotal(long from, long to) {
+        if (prefix == null) {
+            return flatTotal(from, to);
+        }
+        long end = originDay + prefix.length - 1;
+        long lo = Math.max(from, originDay);
+        long hi = Math.min(to, end);
+        long total = flatTotal(from, Math.min(to, originDay)) + flatTotal(Math.max(from, end), to);
+        if (lo < hi) {
+            total += prefix[(int) (hi - originDay)] - prefix[(int) (lo - originDay)];
+        }
+        return total;
+    }
+
+    // Base and weekend rates only, for the nights from .. to - 1
+    private long flatTotal(long from, long to) {
+        if (from >= to) {
+            return 0;
+        }
+        long weekendNights = countCongruent(from, to, FRIDAY) + countCongruent(from, to, SATURDAY);
+        return baseMinor * (to - from) + (weekendMinor - baseMinor) * weekendNights;
+    }
+
+    private long discountBasisPoints(int nights) {
+        long basisPoints = 0;
+        for (int i = 0; i < discountNights.length && discountNights[i] <= nights; i++) {
+            basisPoints = discountBasisPoints[i];
+        }
+        return basisPoints;
+    }
+
+    // 25.00 * (1 + bedrooms / 4) * (3 / 2 for long stays), rounded half up
+    private long cleaningFee(int nights) {
+        long numerator = CLEANING_FEE_BASE_MINOR * (4 + bedrooms) * (nights > LONG_STAY_NIGHTS ? 3 : 2);
+        return (numerator + 4) / 8;
+    }
+
+    // Rounded half up, as BigDecimal.setScale(2, HALF_UP) did on non-negative amounts
+    static long percentOf(long amountMinor, long basisPoints) {
+        return (amountMinor * basisPoints + 5_000) / 10_000;
+    }
+
+    static boolean isWeekend(long epochDay) {
+        int dayOfWeek = (int) Math.floorMod(epochDay, 7);
+        return dayOfWeek == FRIDAY || dayOfWeek == SATURDAY;
+    }
+
+    // Days in [from, to) congruent to residue mod 7
+    private static long countCongruent(long from, long to, int residue) {
+        return Math.floorDiv(to - residue + 6, 7) - Math.floorDiv(from - residue + 6, 7);
+    }
+
+    public static long toMinor(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static long toBasisPoints(BigDecimal percent) {
+        return percent.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
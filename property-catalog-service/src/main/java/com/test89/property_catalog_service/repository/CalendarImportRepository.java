@@ -0,0 +1,28 @@
+package com.test89.property_catalog_service.repository;
+
+import com.test89.property_catalog_service.entity.CalendarImport;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface CalendarImportRepository extends JpaRepository<CalendarImport, Long> {
+
+    /**
+     * Feeds due for a sync, most overdue first. Rows locked by another instance are skipped rather than waited on
+     * (-2 is Hibernate's SKIP LOCKED timeout), so several instances can sync side by side.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT c FROM CalendarImport c WHERE c.nextSyncAt <= :now ORDER BY c.nextSyncAt, c.id")
+    List<CalendarImport> findDueForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+
+    List<CalendarImport> findByPropertyIdOrderById(Long propertyId);
+}
@@ -0,0 +1,34 @@
+package com.test89.property_catalog_service.repository;
+
+import com.test89.property_catalog_service.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+
+    // Store the response of a claimed key; 0 if the claim was taken over in the meantime
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.responseBody = :responseBody " +
+            "WHERE r.scopedKey = :scopedKey AND r.requestHash = :requestHash AND r.responseBody IS NULL")
+    int complete(@Param("scopedKey") String scopedKey,
+                 @Param("requestHash") String requestHash,
+                 @Param("responseBody") String responseBody);
+
+    // Drop a claim without a response made at or before the given time: the caller's own after a failure, or a stale one
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r " +
+            "WHERE r.scopedKey = :scopedKey AND r.responseBody IS NULL AND r.createdAt <= :claimedAt")
+    int releaseClaim(@Param("scopedKey") String scopedKey, @Param("claimedAt") LocalDateTime claimedAt);
+}
@@ -0,0 +1,11 @@
+package com.test89.property_catalog_service.repository;
+
+import com.test89.property_catalog_service.entity.ImportedBlock;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface ImportedBlockRepository extends JpaRepository<ImportedBlock, Long> {
+
+    List<ImportedBlock> findByImportId(Long importId);
+}
@@ -0,0 +1,36 @@
+package com.test89.property_catalog_service.repository;
+
+import com.test89.property_catalog_service.entity.OutboxEmail;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Long> {
+
+    /**
+     * Due emails, oldest first. Rows locked by another dispatcher are skipped rather than waited on (-2 is
+     * Hibernate's SKIP LOCKED timeout), so several instances can drain the outbox side by side.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEmail e WHERE e.status = 'PENDING' AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<OutboxEmail> findDueForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE OutboxEmail e SET e.status = 'SENT', e.sentAt = :now, e.lastError = NULL WHERE e.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEmail e WHERE e.status = 'SENT' AND e.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
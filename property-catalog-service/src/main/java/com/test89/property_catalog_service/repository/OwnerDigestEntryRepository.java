@@ -0,0 +1,37 @@
+package com.test89.property_catalog_service.repository;
+
+import com.test89.property_catalog_service.entity.OwnerDigestEntry;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OwnerDigestEntryRepository extends JpaRepository<OwnerDigestEntry, Long> {
+
+    // Owners whose oldest pending entry has waited a full digest interval
+    @Query("SELECT e.ownerId FROM OwnerDigestEntry e GROUP BY e.ownerId HAVING MIN(e.occurredAt) <= :cutoff " +
+            "ORDER BY MIN(e.occurredAt)")
+    List<Long> findOwnersDue(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * The owner's pending entries in order. Rows locked by another instance flushing the same owner are
+     * skipped (-2 is Hibernate's SKIP LOCKED timeout), so an entry goes out in exactly one digest.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OwnerDigestEntry e WHERE e.ownerId = :ownerId ORDER BY e.occurredAt, e.id")
+    List<OwnerDigestEntry> findByOwnerIdForUpdate(@Param("ownerId") Long ownerId);
+
+    @Modifying
+    @Query("DELETE FROM OwnerDigestEntry e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
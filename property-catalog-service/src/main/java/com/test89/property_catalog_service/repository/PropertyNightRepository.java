@@ -0,0 +1,59 @@
+package com.test89.property_catalog_service.repository;
+
+import com.test89.property_catalog_service.entity.PropertyNight;
+import com.test89.property_catalog_service.entity.PropertyNightId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public interface PropertyNightRepository extends JpaRepository<PropertyNight, PropertyNightId> {
+
+    @Modifying
+    @Query("DELETE FROM PropertyNight n WHERE n.reservationId = :reservationId")
+    int deleteByReservationId(@Param("reservationId") Long reservationId);
+
+    @Modifying
+    @Query("DELETE FROM PropertyNight n WHERE n.reservationId IN :reservationIds")
+    int deleteByReservationIdIn(@Param("reservationIds") Collection<Long> reservationIds);
+
+    boolean existsByReservationId(Long reservationId);
+
+    @Query("SELECT n.night FROM PropertyNight n WHERE " +
+            "n.propertyId = :propertyId AND " +
+            "n.night BETWEEN :from AND :to " +
+            "ORDER BY n.night")
+    List<LocalDate> findOccupiedNights(
+            @Param("propertyId") Long propertyId,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+
+    @Query("SELECT DISTINCT n.propertyId FROM PropertyNight n WHERE " +
+            "n.night BETWEEN :from AND :to")
+    Set<Long> findOccupiedPropertyIds(
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+
+    // (propertyId, night) pairs of the given properties in a date range, for per-property occupancy scans
+    @Query("SELECT n.propertyId, n.night FROM PropertyNight n WHERE " +
+            "n.propertyId IN :propertyIds AND " +
+            "n.night BETWEEN :from AND :to")
+    Stream<Object[]> streamOccupiedNights(
+            @Param("propertyIds") Collection<Long> propertyIds,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+
+    @Query("SELECT COUNT(n) FROM PropertyNight n WHERE " +
+            "n.propertyId = :propertyId AND " +
+            "n.night BETWEEN :from AND :to")
+    long countOccupiedNights(
+            @Param("propertyId") Long propertyId,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+}
@@ -0,0 +1,19 @@
+package com.test89.property_catalog_service.repository;
+
+import com.test89.property_catalog_service.entity.PropertyRatePlan;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface PropertyRatePlanRepository extends JpaRepository<PropertyRatePlan, Long> {
+
+    // Plans with their seasons; call findWithStayDiscounts in the same transaction to fill in the discounts
+    @Query("SELECT DISTINCT p FROM PropertyRatePlan p LEFT JOIN FETCH p.seasons WHERE p.propertyId IN :propertyIds")
+    List<PropertyRatePlan> findWithSeasons(@Param("propertyIds") Collection<Long> propertyIds);
+
+    @Query("SELECT DISTINCT p FROM PropertyRatePlan p LEFT JOIN FETCH p.stayDiscounts WHERE p.propertyId IN :propertyIds")
+    List<PropertyRatePlan> findWithStayDiscounts(@Param("propertyIds") Collection<Long> propertyIds);
+}
@@ -3,19 +3,56 @@ package com.test89.property_catalog_service.repository;
 import com.test89.property_catalog_service.entity.Property;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
-public interface PropertyRepository extends JpaRepository<Property, Long> {
+public interface PropertyRepository extends JpaRepository<Property, Long>, JpaSpecificationExecutor<Property> {
     Page<Property> findByStatus(String status, Pageable pageable);
 
     Page<Property> findByType(String type, Pageable pageable);
 
+    /**
+     * Keyword search used until the in-memory TextIndex is built: a case-insensitive substring match
+     * on title, description, type and city, combined with the findByBasicFilters filters.
+     */
+    @Query("SELECT p FROM Property p WHERE " +
+            "(LOWER(p.title) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "OR LOWER(p.type) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "OR LOWER(p.address.city) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
+            "AND p.pricePerDay BETWEEN :minPrice AND :maxPrice " +
+            "AND (:bedrooms IS NULL OR p.bedrooms >= :bedrooms) " +
+            "AND (:bathrooms IS NULL OR p.bathrooms >= :bathrooms) " +
+            "AND (:city IS NULL OR LOWER(p.address.city) = LOWER(:city)) " +
+            "AND (:maxGuests IS NULL OR p.maxGuests >= :maxGuests)")
+    Page<Property> searchByKeyword(
+            @Param("keyword") String keyword,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("bedrooms") Integer bedrooms,
+            @Param("bathrooms") Integer bathrooms,
+            @Param("city") String city,
+            @Param("maxGuests") Integer maxGuests,
+            Pageable pageable);
+
+    // Ids matching the searchByKeyword keyword condition alone, for facet counts
+    @Query("SELECT p.id FROM Property p WHERE " +
+            "LOWER(p.title) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "OR LOWER(p.type) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "OR LOWER(p.address.city) LIKE LOWER(CONCAT('%', :keyword, '%'))")
+    Set<Long> findIdsByKeyword(@Param("keyword") String keyword);
+
     @Query("SELECT p FROM Property p WHERE " +
             "p.pricePerDay BETWEEN :minPrice AND :maxPrice " +
             "AND (:bedrooms IS NULL OR p.bedrooms >= :bedrooms) " +
@@ -31,16 +68,34 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
             @Param("maxGuests") Integer maxGuests,
             Pageable pageable);
 
+    // Id-only variant of findByBasicFilters, for the search result cache
+    @Query("SELECT p.id FROM Property p WHERE " +
+            "p.pricePerDay BETWEEN :minPrice AND :maxPrice " +
+            "AND (:bedrooms IS NULL OR p.bedrooms >= :bedrooms) " +
+            "AND (:bathrooms IS NULL OR p.bathrooms >= :bathrooms) " +
+            "AND (:city IS NULL OR LOWER(p.address.city) = LOWER(:city)) " +
+            "AND (:maxGuests IS NULL OR p.maxGuests >= :maxGuests)")
+    Page<Long> findIdsByBasicFilters(
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("bedrooms") Integer bedrooms,
+            @Param("bathrooms") Integer bathrooms,
+            @Param("city") String city,
+            @Param("maxGuests") Integer maxGuests,
+            Pageable pageable);
+
     /**
      * Find properties that are available for the requested dates
-     * by filtering out properties that have conflicting reservations
+     * by filtering out properties with an occupied night in [firstNight, lastNight].
+     * Pass the night before check-in and the check-out date to keep the check-out day of
+     * an existing stay blocked, as findOverlappingReservations does.
      */
     @Query("SELECT p FROM Property p WHERE " +
             "p.status = 'Available' AND " +
-            "p.id NOT IN (" +
-            "SELECT r.property.id FROM Reservation r WHERE " +
-            "r.status IN ('PENDING', 'CONFIRMED') AND " +
-            "((r.checkInDate <= :checkOutDate AND r.checkOutDate >= :checkInDate))" +
+            "NOT EXISTS (" +
+            "SELECT 1 FROM PropertyNight n WHERE " +
+            "n.propertyId = p.id AND " +
+            "n.night BETWEEN :firstNight AND :lastNight" +
             ") AND " +
             "(:minPrice IS NULL OR p.pricePerDay >= :minPrice) AND " +
             "(:maxPrice IS NULL OR p.pricePerDay <= :maxPrice) AND " +
@@ -51,8 +106,8 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
             "(:minStayDays IS NULL OR p.minStayDays <= :stayDuration) AND " +
             "(:maxStayDays IS NULL OR p.maxStayDays >= :stayDuration OR p.maxStayDays IS NULL)")
     Page<Property> findAvailableProperties(
-            @Param("checkInDate") LocalDate checkInDate,
-            @Param("checkOutDate") LocalDate checkOutDate,
+            @Param("firstNight") LocalDate firstNight,
+            @Param("lastNight") LocalDate lastNight,
             @Param("minPrice") BigDecimal minPrice,
             @Param("maxPrice") BigDecimal maxPrice,
             @Param("bedrooms") Integer bedrooms,
@@ -65,23 +120,196 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
             Pageable pageable);
 
     /**
-     * Find available properties for specific dates with pet and guest requirements
+     * Find available properties for specific dates with pet and guest requirements,
+     * using the same [firstNight, lastNight] convention as findAvailableProperties
      */
     @Query("SELECT p FROM Property p WHERE " +
             "p.status = 'Available' AND " +
-            "p.id NOT IN (" +
-            "SELECT r.property.id FROM Reservation r WHERE " +
-            "r.status IN ('PENDING', 'CONFIRMED') AND " +
-            "((r.checkInDate <= :checkOutDate AND r.checkOutDate >= :checkInDate))" +
+            "NOT EXISTS (" +
+            "SELECT 1 FROM PropertyNight n WHERE " +
+            "n.propertyId = p.id AND " +
+            "n.night BETWEEN :firstNight AND :lastNight" +
             ") " +
             "AND (:petsAllowed IS NULL OR p.petsAllowed = :petsAllowed) " +
             "AND (:maxGuests IS NULL OR p.maxGuests >= :maxGuests)")
     Page<Property> findAvailablePropertiesForDates(
-            @Param("checkInDate") LocalDate checkInDate,
-            @Param("checkOutDate") LocalDate checkOutDate,
+            @Param("firstNight") LocalDate firstNight,
+            @Param("lastNight") LocalDate lastNight,
+            @Param("petsAllowed") Boolean petsAllowed,
+            @Param("maxGuests") Integer maxGuests,
+            Pageable pageable);
+
+    /**
+     * Same attribute filters as findAvailableProperties. Returns only ids so the date check can be done
+     * against the in-memory AvailabilityIndex; pass null nights to skip the occupancy anti-join.
+     */
+    @Query("SELECT p.id FROM Property p WHERE " +
+            "p.status = 'Available' AND " +
+            "(CAST(:firstNight AS LocalDate) IS NULL OR NOT EXISTS (" +
+            "SELECT 1 FROM PropertyNight n WHERE " +
+            "n.propertyId = p.id AND " +
+            "n.night BETWEEN :firstNight AND :lastNight" +
+            ")) AND " +
+            "(:minPrice IS NULL OR p.pricePerDay >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.pricePerDay <= :maxPrice) AND " +
+            "(:bedrooms IS NULL OR p.bedrooms >= :bedrooms) AND " +
+            "(:bathrooms IS NULL OR p.bathrooms >= :bathrooms) AND " +
+            "(:city IS NULL OR LOWER(p.address.city) = LOWER(:city)) AND " +
+            "(:guestCount IS NULL OR p.maxGuests >= :guestCount) AND " +
+            "(:minStayDays IS NULL OR p.minStayDays <= :stayDuration) AND " +
+            "(:maxStayDays IS NULL OR p.maxStayDays >= :stayDuration OR p.maxStayDays IS NULL)")
+    List<Long> findAvailableCandidateIds(
+            @Param("firstNight") LocalDate firstNight,
+            @Param("lastNight") LocalDate lastNight,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("bedrooms") Integer bedrooms,
+            @Param("bathrooms") Integer bathrooms,
+            @Param("city") String city,
+            @Param("guestCount") Integer guestCount,
+            @Param("minStayDays") Integer minStayDays,
+            @Param("maxStayDays") Integer maxStayDays,
+            @Param("stayDuration") Integer stayDuration,
+            Sort sort);
+
+    /**
+     * findAvailableCandidateIds restricted to the given ids, for searches that already know their candidates
+     * (the geo index hits) and should not scan the whole catalog. Callers pass the ids in bounded chunks.
+     */
+    @Query("SELECT p.id FROM Property p WHERE " +
+            "p.id IN :ids AND " +
+            "p.status = 'Available' AND " +
+            "(CAST(:firstNight AS LocalDate) IS NULL OR NOT EXISTS (" +
+            "SELECT 1 FROM PropertyNight n WHERE " +
+            "n.propertyId = p.id AND " +
+            "n.night BETWEEN :firstNight AND :lastNight" +
+            ")) AND " +
+            "(:minPrice IS NULL OR p.pricePerDay >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.pricePerDay <= :maxPrice) AND " +
+            "(:bedrooms IS NULL OR p.bedrooms >= :bedrooms) AND " +
+            "(:bathrooms IS NULL OR p.bathrooms >= :bathrooms) AND " +
+            "(:guestCount IS NULL OR p.maxGuests >= :guestCount)")
+    List<Long> findAvailableCandidateIdsIn(
+            @Param("ids") Collection<Long> ids,
+            @Param("firstNight") LocalDate firstNight,
+            @Param("lastNight") LocalDate lastNight,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("bedrooms") Integer bedrooms,
+            @Param("bathrooms") Integer bathrooms,
+            @Param("guestCount") Integer guestCount,
+            Sort sort);
+
+    /**
+     * Candidates for the flexible-date search: available properties passing the attribute filters whose own
+     * stay limits allow a stay of the given length, with the same rules as ReservationService.
+     */
+    @Query("SELECT p.id FROM Property p WHERE " +
+            "p.status = 'Available' AND " +
+            "(:minPrice IS NULL OR p.pricePerDay >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.pricePerDay <= :maxPrice) AND " +
+            "(:bedrooms IS NULL OR p.bedrooms >= :bedrooms) AND " +
+            "(:bathrooms IS NULL OR p.bathrooms >= :bathrooms) AND " +
+            "(:city IS NULL OR LOWER(p.address.city) = LOWER(:city)) AND " +
+            "(:guestCount IS NULL OR p.maxGuests >= :guestCount) AND " +
+            "(p.minStayDays IS NULL OR p.minStayDays <= :nights) AND " +
+            "(p.maxStayDays IS NULL OR p.maxStayDays >= :nights)")
+    List<Long> findFlexibleCandidateIds(
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("bedrooms") Integer bedrooms,
+            @Param("bathrooms") Integer bathrooms,
+            @Param("city") String city,
+            @Param("guestCount") Integer guestCount,
+            @Param("nights") int nights,
+            Sort sort);
+
+    /**
+     * Same attribute filters as findAvailablePropertiesForDates but without the reservation anti-join.
+     */
+    @Query("SELECT p.id FROM Property p WHERE " +
+            "p.status = 'Available' " +
+            "AND (:petsAllowed IS NULL OR p.petsAllowed = :petsAllowed) " +
+            "AND (:maxGuests IS NULL OR p.maxGuests >= :maxGuests)")
+    List<Long> findCandidateIdsForDates(
+            @Param("petsAllowed") Boolean petsAllowed,
+            @Param("maxGuests") Integer maxGuests,
+            Sort sort);
+
+    /**
+     * Database-side amenity search used until the in-memory AmenityIndex is built.
+     * A property matches when it has at least requiredMatches of the given (lower-cased) amenities,
+     * so pass 1 for "any of" and amenities.size() for "all of".
+     */
+    @Query("SELECT p FROM Property p WHERE " +
+            "p.status = 'Available' AND " +
+            "NOT EXISTS (" +
+            "SELECT 1 FROM PropertyNight n WHERE " +
+            "n.propertyId = p.id AND " +
+            "n.night BETWEEN :firstNight AND :lastNight" +
+            ") " +
+            "AND (:petsAllowed IS NULL OR p.petsAllowed = :petsAllowed) " +
+            "AND (:maxGuests IS NULL OR p.maxGuests >= :maxGuests) " +
+            "AND (SELECT COUNT(DISTINCT LOWER(a)) FROM Property p2 JOIN p2.amenities a " +
+            "WHERE p2.id = p.id AND LOWER(a) IN :amenities) >= :requiredMatches")
+    Page<Property> findAvailablePropertiesWithAmenities(
+            @Param("firstNight") LocalDate firstNight,
+            @Param("lastNight") LocalDate lastNight,
             @Param("petsAllowed") Boolean petsAllowed,
             @Param("maxGuests") Integer maxGuests,
+            @Param("amenities") Set<String> amenities,
+            @Param("requiredMatches") long requiredMatches,
             Pageable pageable);
 
+    // (propertyId, amenity) pairs for building the AmenityIndex
+    @Query("SELECT p.id, a FROM Property p JOIN p.amenities a")
+    Stream<Object[]> streamPropertyAmenities();
+
+    // (propertyId, latitude, longitude) rows for building the GeoIndex
+    @Query("SELECT p.id, p.address.latitude, p.address.longitude FROM Property p " +
+            "WHERE p.address.latitude IS NOT NULL AND p.address.longitude IS NOT NULL")
+    Stream<Object[]> streamCoordinates();
+
+    // Database-side bounding-box lookup used until the GeoIndex is built
+    @Query("SELECT p.id, p.address.latitude, p.address.longitude FROM Property p " +
+            "WHERE p.address.latitude BETWEEN :south AND :north " +
+            "AND p.address.longitude BETWEEN :west AND :east")
+    Stream<Object[]> streamCoordinatesInBox(
+            @Param("south") double south,
+            @Param("west") double west,
+            @Param("north") double north,
+            @Param("east") double east);
+
+    // (propertyId, latitude, longitude) rows of Available properties for building the ClusterIndex
+    @Query("SELECT p.id, p.address.latitude, p.address.longitude FROM Property p " +
+            "WHERE p.status = 'Available' " +
+            "AND p.address.latitude IS NOT NULL AND p.address.longitude IS NOT NULL")
+    Stream<Object[]> streamAvailableCoordinates();
+
+    // Database-side viewport lookup used until the ClusterIndex is built
+    @Query("SELECT p.id, p.address.latitude, p.address.longitude FROM Property p " +
+            "WHERE p.status = 'Available' " +
+            "AND p.address.latitude BETWEEN :south AND :north " +
+            "AND p.address.longitude BETWEEN :west AND :east")
+    Stream<Object[]> streamAvailableCoordinatesInBox(
+            @Param("south") double south,
+            @Param("west") double west,
+            @Param("north") double north,
+            @Param("east") double east);
+
+    // Searchable text columns for building the TextIndex; amenities come from streamPropertyAmenities
+    @Query("SELECT p.id, p.title, p.description, p.type, p.address.street, p.address.city, " +
+            "p.address.state, p.address.postalCode, p.address.country FROM Property p")
+    Stream<Object[]> streamTextFields();
+
+    // Filterable attributes for building the ListingSnapshot
+    @Query("SELECT p.id, p.status, p.type, p.pricePerDay, p.bedrooms, p.bathrooms, p.maxGuests, p.address.city, " +
+            "p.minStayDays, p.maxStayDays FROM Property p")
+    Stream<Object[]> streamListingAttributes();
+
+    // (id, status, minStayDays, maxStayDays) of several properties, for batch availability checks
+    @Query("SELECT p.id, p.status, p.minStayDays, p.maxStayDays FROM Property p WHERE p.id IN :ids")
+    List<Object[]> findStayRulesByIdIn(@Param("ids") Collection<Long> ids);
+
     Page<Property> findByOwnerId(Long ownerId, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.test89.property_catalog_service.repository;
+
+import com.test89.property_catalog_service.entity.Property;
+import com.test89.property_catalog_service.entity.PropertyNight;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria versions of the PropertyRepository search queries, for the keyset-scrolled (cursor) search mode.
+ * Null arguments mean "no restriction", as in the JPQL queries.
+ */
+public final class PropertySpecifications {
+
+    private PropertySpecifications() {
+    }
+
+    public static Specification<Property> hasStatus(String status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Property> hasType(String type) {
+        return (root, query, cb) -> cb.equal(root.get("type"), type);
+    }
+
+    /**
+     * Price range, minimum bedrooms/bathrooms/guests and case-insensitive city,
+     * as in findByBasicFilters and findAvailableProperties.
+     */
+    public static Specification<Property> matchesFilters(BigDecimal minPrice, BigDecimal maxPrice,
+                                                         Integer bedrooms, Integer bathrooms,
+                                                         String city, Integer guests) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (minPrice != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("pricePerDay"), minPrice));
+            }
+            if (maxPrice != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("pricePerDay"), maxPrice));
+            }
+            addAtLeast(predicates, cb, root.get("bedrooms"), bedrooms);
+            addAtLeast(predicates, cb, root.get("bathrooms"), bathrooms);
+            addAtLeast(predicates, cb, root.get("maxGuests"), guests);
+            if (city != null) {
+                predicates.add(cb.equal(cb.lower(root.get("address").get("city")), city.toLowerCase()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Minimum/maximum stay limits as applied by findAvailableProperties: each limit is only checked
+     * when the corresponding flag is non-null, and a missing maximum never excludes a property.
+     */
+    public static Specification<Property> allowsStay(Integer minStayDays, Integer maxStayDays, int stayDuration) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (minStayDays != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("minStayDays"), stayDuration));
+            }
+            if (maxStayDays != null) {
+                Expression<Integer> maxStay = root.get("maxStayDays");
+                predicates.add(cb.or(cb.greaterThanOrEqualTo(maxStay, stayDuration), cb.isNull(maxStay)));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * No occupied night in [firstNight, lastNight]; see PropertyRepository.findAvailableProperties.
+     */
+    public static Specification<Property> freeBetween(LocalDate firstNight, LocalDate lastNight) {
+        return (root, query, cb) -> {
+            Subquery<Integer> occupied = query.subquery(Integer.class);
+            Root<PropertyNight> night = occupied.from(PropertyNight.class);
+            occupied.select(cb.literal(1)).where(
+                    cb.equal(night.get("propertyId"), root.get("id")),
+                    cb.between(night.get("night"), firstNight, lastNight));
+            return cb.not(cb.exists(occupied));
+        };
+    }
+
+    private static void addAtLeast(List<Predicate> predicates, CriteriaBuilder cb,
+                                   Expression<Integer> attribute, Integer minimum) {
+        if (minimum != null) {
+            predicates.add(cb.greaterThanOrEqualTo(attribute, minimum));
+        }
+    }
+}
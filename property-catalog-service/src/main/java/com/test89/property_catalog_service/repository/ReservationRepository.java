@@ -1,14 +1,27 @@
 package com.test89.property_catalog_service.repository;
 
+import com.test89.property_catalog_service.dto.ReservationDto;
+import com.test89.property_catalog_service.dto.ReservationSpanDto;
 import com.test89.property_catalog_service.entity.Reservation;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
 
@@ -16,6 +29,32 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
 
     Page<Reservation> findByPropertyId(Long propertyId, Pageable pageable);
 
+    @Query("SELECT r.property.id FROM Reservation r WHERE r.id = :id")
+    Optional<Long> findPropertyIdById(@Param("id") Long id);
+
+    /**
+     * Write a status or payment change, but only if the reservation is still in the status and version it was
+     * read in. Returns 0 when another update got there first.
+     */
+    @Modifying
+    @Query("UPDATE Reservation r SET r.status = :status, r.cancellationReason = :cancellationReason, " +
+            "r.isPaid = :isPaid, r.paymentDate = :paymentDate, r.paymentMethod = :paymentMethod, " +
+            "r.paymentReference = :paymentReference, r.holdExpiresAt = :holdExpiresAt, " +
+            "r.updatedAt = :now, r.version = r.version + 1 " +
+            "WHERE r.id = :id AND r.status = :expectedStatus AND r.version = :expectedVersion")
+    int compareAndSet(
+            @Param("id") Long id,
+            @Param("expectedStatus") String expectedStatus,
+            @Param("expectedVersion") Long expectedVersion,
+            @Param("status") String status,
+            @Param("cancellationReason") String cancellationReason,
+            @Param("isPaid") Boolean isPaid,
+            @Param("paymentDate") LocalDateTime paymentDate,
+            @Param("paymentMethod") String paymentMethod,
+            @Param("paymentReference") String paymentReference,
+            @Param("holdExpiresAt") LocalDateTime holdExpiresAt,
+            @Param("now") LocalDateTime now);
+
     @Query("SELECT r FROM Reservation r WHERE r.user.id = :userId AND r.checkInDate >= CURRENT_DATE ORDER BY r.checkInDate ASC")
     Page<Reservation> findUpcomingReservationsByUser(@Param("userId") Long userId, Pageable pageable);
 
@@ -25,30 +64,40 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
     @Query("SELECT r FROM Reservation r WHERE r.user.id = :userId AND r.status = :status")
     Page<Reservation> findByUserIdAndStatus(@Param("userId") Long userId, @Param("status") String status, Pageable pageable);
 
+    /**
+     * Active reservations, imported blocks included, whose [checkInDate, checkOutDate] range touches [start, end].
+     * Hot paths go through ReservationIntervalIndex instead; this remains the source of truth.
+     */
     @Query("SELECT r FROM Reservation r WHERE r.property.id = :propertyId AND " +
-            "((r.checkInDate BETWEEN :start AND :end) OR " +
-            "(r.checkOutDate BETWEEN :start AND :end) OR " +
-            "(:start BETWEEN r.checkInDate AND r.checkOutDate) OR " +
-            "(:end BETWEEN r.checkInDate AND r.checkOutDate)) AND " +
-            "r.status IN ('PENDING', 'CONFIRMED')")
+            "r.checkInDate <= :end AND r.checkOutDate >= :start AND " +
+            "r.status IN ('PENDING', 'CONFIRMED', 'BLOCKED')")
     List<Reservation> findOverlappingReservations(
             @Param("propertyId") Long propertyId,
             @Param("start") LocalDate start,
             @Param("end") LocalDate end);
 
-    @Query("SELECT r FROM Reservation r WHERE " +
+    /**
+     * Active reservations of a property whose [checkInDate, checkOutDate] range touches [from, to], projected with
+     * their guest for the monthly calendar. The range predicate can use the (property_id, checkInDate) index.
+     */
+    @Query("SELECT new com.test89.property_catalog_service.dto.ReservationDto(" +
+            "r.id, r.checkInDate, r.checkOutDate, r.numberOfDays, r.pricePerDay, r.totalPrice, r.cleaningFee, " +
+            "r.serviceFee, r.taxAmount, r.guestCount, r.status, r.specialRequests, r.cancellationReason, " +
+            "r.isPaid, r.paymentDate, r.paymentMethod, r.paymentReference, r.createdAt, r.updatedAt, " +
+            "u.id, u.username, u.firstName, u.lastName) " +
+            "FROM Reservation r JOIN r.user u WHERE " +
             "r.property.id = :propertyId AND " +
-            "r.status IN ('PENDING', 'CONFIRMED') AND " +
-            "FUNCTION('YEAR', r.checkInDate) = :year AND " +
-            "FUNCTION('MONTH', r.checkInDate) = :month")
-    List<Reservation> findReservationsByPropertyAndMonth(
+            "r.status IN ('PENDING', 'CONFIRMED', 'BLOCKED') AND " +
+            "r.checkInDate <= :to AND r.checkOutDate >= :from " +
+            "ORDER BY r.checkInDate")
+    List<ReservationDto> findCalendar(
             @Param("propertyId") Long propertyId,
-            @Param("year") int year,
-            @Param("month") int month);
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
 
     @Query("SELECT COUNT(r) FROM Reservation r WHERE " +
             "r.property.id = :propertyId AND " +
-            "r.status NOT IN ('CANCELLED') AND " +
+            "r.status NOT IN ('CANCELLED', 'EXPIRED') AND " +
             "r.checkInDate <= CURRENT_DATE AND " +
             "r.checkOutDate >= CURRENT_DATE")
     long countCurrentReservationsByProperty(@Param("propertyId") Long propertyId);
@@ -61,4 +110,139 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
             @Param("ownerId") Long ownerId,
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate);
-}
\ No newline at end of file
+
+    /**
+     * Stream the date ranges of all active reservations that end on or after the given date.
+     * Used to (re)build the in-memory availability indexes; must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.test89.property_catalog_service.dto.ReservationSpanDto(" +
+            "r.id, r.property.id, r.checkInDate, r.checkOutDate) FROM Reservation r WHERE " +
+            "r.status IN ('PENDING', 'CONFIRMED', 'BLOCKED') AND " +
+            "r.checkOutDate >= :from")
+    Stream<ReservationSpanDto> streamActiveSpans(@Param("from") LocalDate from);
+
+    @Query("SELECT new com.test89.property_catalog_service.dto.ReservationSpanDto(" +
+            "r.id, r.property.id, r.checkInDate, r.checkOutDate) FROM Reservation r WHERE " +
+            "r.property.id = :propertyId AND " +
+            "r.status IN ('PENDING', 'CONFIRMED', 'BLOCKED') AND " +
+            "r.checkOutDate >= :from")
+    List<ReservationSpanDto> findActiveSpansByProperty(
+            @Param("propertyId") Long propertyId,
+            @Param("from") LocalDate from);
+
+    // Active spans of several properties touching [from, to], for batch availability checks
+    @Query("SELECT new com.test89.property_catalog_service.dto.ReservationSpanDto(" +
+            "r.id, r.property.id, r.checkInDate, r.checkOutDate) FROM Reservation r WHERE " +
+            "r.property.id IN :propertyIds AND " +
+            "r.checkInDate <= :to AND r.checkOutDate >= :from AND " +
+            "r.status IN ('PENDING', 'CONFIRMED', 'BLOCKED')")
+    List<ReservationSpanDto> findActiveSpansByPropertyIds(
+            @Param("propertyIds") Collection<Long> propertyIds,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+
+    /**
+     * Ids and deadlines of every unpaid hold that has not expired yet, to refill the expiry wheel after a restart.
+     * Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT r.id, r.holdExpiresAt FROM Reservation r WHERE " +
+            "r.status = 'PENDING' AND (r.isPaid IS NULL OR r.isPaid = false) AND r.holdExpiresAt IS NOT NULL")
+    Stream<Object[]> streamOutstandingHolds();
+
+    /**
+     * Stream one property's active stays in check-in order for its calendar feed; must be consumed inside a
+     * transaction. Imported blocks are left out so they do not echo back to the channel they came from.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.test89.property_catalog_service.dto.ReservationSpanDto(" +
+            "r.id, r.property.id, r.checkInDate, r.checkOutDate) FROM Reservation r WHERE " +
+            "r.property.id = :propertyId AND r.status IN ('PENDING', 'CONFIRMED') " +
+            "ORDER BY r.checkInDate, r.id")
+    Stream<ReservationSpanDto> streamActiveSpansByProperty(@Param("propertyId") Long propertyId);
+
+    // Row count and latest update of a property's reservations; every write bumps one or the other
+    @Query("SELECT COUNT(r), MAX(r.updatedAt) FROM Reservation r WHERE r.property.id = :propertyId")
+    List<Object[]> findChangeMarker(@Param("propertyId") Long propertyId);
+
+    /**
+     * The holds among ids that have run out unpaid, locked in id order. A hold being paid, cancelled or expired
+     * by another instance is waited for and then left out, so expireHolds flips every row returned and no other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.test89.property_catalog_service.dto.ReservationSpanDto(" +
+            "r.id, r.property.id, r.checkInDate, r.checkOutDate) FROM Reservation r WHERE " +
+            "r.id IN :ids AND r.status = 'PENDING' AND (r.isPaid IS NULL OR r.isPaid = false) AND " +
+            "r.holdExpiresAt <= :now ORDER BY r.id")
+    List<ReservationSpanDto> findLapsedHolds(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Re-checks the hold conditions, so a payment or cancellation written in between is left alone
+    @Modifying
+    @Query("UPDATE Reservation r SET r.status = 'EXPIRED', r.cancellationReason = 'Payment hold expired', " +
+            "r.updatedAt = :now, r.version = r.version + 1 WHERE r.id IN :ids AND r.status = 'PENDING' AND " +
+            "(r.isPaid IS NULL OR r.isPaid = false) AND r.holdExpiresAt <= :now")
+    int expireHolds(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * Next chunk of CONFIRMED stays that have checked out, in id order after afterId, locked so that
+     * completeStays flips every row returned.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.test89.property_catalog_service.dto.ReservationSpanDto(" +
+            "r.id, r.property.id, r.checkInDate, r.checkOutDate) FROM Reservation r WHERE " +
+            "r.status = 'CONFIRMED' AND r.checkOutDate < :today AND r.id > :afterId ORDER BY r.id")
+    List<ReservationSpanDto> findFinishedStays(@Param("today") LocalDate today, @Param("afterId") Long afterId,
+                                               Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Reservation r SET r.status = 'COMPLETED', r.updatedAt = :now, r.version = r.version + 1 " +
+            "WHERE r.id IN :ids AND r.status = 'CONFIRMED' AND r.checkOutDate < :today")
+    int completeStays(@Param("ids") Collection<Long> ids, @Param("today") LocalDate today,
+                      @Param("now") LocalDateTime now);
+
+    /**
+     * Next chunk of unpaid PENDING reservations that can no longer be paid: the hold has run out, or there never
+     * was one and check-in has passed. The expiry wheel normally gets to the first kind within a tick. Locked like
+     * findLapsedHolds, so a hold the wheel is expiring at the same time is waited for and then left out.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.test89.property_catalog_service.dto.ReservationSpanDto(" +
+            "r.id, r.property.id, r.checkInDate, r.checkOutDate) FROM Reservation r WHERE " +
+            "r.status = 'PENDING' AND (r.isPaid IS NULL OR r.isPaid = false) AND " +
+            "(r.holdExpiresAt <= :now OR (r.holdExpiresAt IS NULL AND r.checkInDate <= :today)) AND " +
+            "r.id > :afterId ORDER BY r.id")
+    List<ReservationSpanDto> findNeverPaid(@Param("now") LocalDateTime now, @Param("today") LocalDate today,
+                                           @Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Reservation r SET r.status = 'EXPIRED', r.cancellationReason = 'Never paid', " +
+            "r.updatedAt = :now, r.version = r.version + 1 WHERE r.id IN :ids AND r.status = 'PENDING' AND " +
+            "(r.isPaid IS NULL OR r.isPaid = false) AND " +
+            "(r.holdExpiresAt <= :now OR (r.holdExpiresAt IS NULL AND r.checkInDate <= :today))")
+    int expireNeverPaid(@Param("ids") Collection<Long> ids, @Param("today") LocalDate today,
+                        @Param("now") LocalDateTime now);
+
+    @Query("SELECT MIN(r.checkOutDate) FROM Reservation r WHERE r.status = 'CONFIRMED' AND r.checkOutDate < :today")
+    LocalDate findOldestFinishedCheckOut(@Param("today") LocalDate today);
+
+    // Imported blocks of a property touching [from, to], whose nights may have been claimed by someone else
+    @Query("SELECT r FROM Reservation r WHERE r.property.id = :propertyId AND r.status = 'BLOCKED' AND " +
+            "r.checkInDate <= :to AND r.checkOutDate >= :from")
+    List<Reservation> findBlocksOverlapping(@Param("propertyId") Long propertyId,
+                                            @Param("from") LocalDate from,
+                                            @Param("to") LocalDate to);
+
+    // Same for several properties at once, for nights released in bulk
+    @Query("SELECT r FROM Reservation r WHERE r.property.id IN :propertyIds AND r.status = 'BLOCKED' AND " +
+            "r.checkInDate <= :to AND r.checkOutDate >= :from")
+    List<Reservation> findBlocksOverlappingAny(@Param("propertyIds") Collection<Long> propertyIds,
+                                               @Param("from") LocalDate from,
+                                               @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("UPDATE Reservation r SET r.status = 'CANCELLED', r.cancellationReason = :reason, " +
+            "r.updatedAt = :now, r.version = r.version + 1 WHERE r.id IN :ids AND r.status = 'BLOCKED'")
+    int cancelBlocks(@Param("ids") Collection<Long> ids, @Param("reason") String reason,
+                     @Param("now") LocalDateTime now);
+}
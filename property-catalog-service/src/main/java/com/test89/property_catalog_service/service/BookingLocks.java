@@ -0,0 +1,66 @@
+package com.test89.property_catalog_service.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped in-process locks that serialize bookings of the same property, so the overlap check and the insert
+ * run as one step while bookings of unrelated properties proceed in parallel. Two properties may share a
+ * stripe; that only costs some parallelism, never correctness.
+ * <p>
+ * The locks only cover this instance. Across instances the reservations exclusion constraint (see
+ * {@code BookingConstraintInitializer}) and the property_nights primary key reject the losing booking.
+ */
+@Component
+public class BookingLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long timeoutNanos;
+
+    public BookingLocks(@Value("${app.booking-locks.stripes:1024}") int stripes,
+                        @Value("${app.booking-locks.timeout:5s}") Duration timeout) {
+        if (stripes < 1 || timeout.isNegative()) {
+            throw new IllegalArgumentException("Stripe count must be positive and the timeout not negative");
+        }
+        int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1; // Round up to a power of two
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * Run the action while holding the property's stripe. The action should include the whole transaction,
+     * so the lock is released only after the booking has committed.
+     */
+    public <T> T withLock(Long propertyId, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeOf(propertyId)];
+        try {
+            if (!lock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("The property is busy with other bookings, please try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to book the property");
+        }
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Spread the id bits so sequential ids land on different stripes
+    private int stripeOf(Long propertyId) {
+        long h = propertyId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
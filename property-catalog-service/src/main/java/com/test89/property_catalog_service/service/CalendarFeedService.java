@@ -0,0 +1,126 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.cache.BoundedCache;
+import com.test89.property_catalog_service.cache.BoundedCacheMetrics;
+import com.test89.property_catalog_service.dto.ReservationSpanDto;
+import com.test89.property_catalog_service.event.PropertyChangedEvent;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import com.test89.property_catalog_service.exception.ResourceNotFoundException;
+import com.test89.property_catalog_service.ical.IcsWriter;
+import com.test89.property_catalog_service.repository.PropertyRepository;
+import com.test89.property_catalog_service.repository.ReservationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * iCalendar export of each property's active stays, for channel managers that poll it every few minutes.
+ * <p>
+ * The feed's version is the count and latest update time of the property's reservations, kept in a bounded
+ * cache that reservation writes on this node invalidate; other nodes' writes show up once the entry's TTL runs
+ * out. So a poll that ends in 304 usually costs no query at all, and a miss costs one aggregate over the
+ * (property_id, updatedAt) index. The feed body is streamed from a forward-only cursor straight into the response.
+ */
+@Service
+public class CalendarFeedService implements MeterBinder {
+
+    private static final String PRODUCT_ID = "-//property-catalog-service//Calendar Feed//EN";
+
+    private final ReservationRepository reservationRepository;
+    private final PropertyRepository propertyRepository;
+    private final BoundedCache<Long, FeedVersion> versions;
+
+    public CalendarFeedService(ReservationRepository reservationRepository,
+                               PropertyRepository propertyRepository,
+                               @Value("${app.ics-feed.max-entries:100000}") int maxEntries,
+                               @Value("${app.ics-feed.etag-ttl:60s}") Duration etagTtl) {
+        this.reservationRepository = reservationRepository;
+        this.propertyRepository = propertyRepository;
+        this.versions = new BoundedCache<>(maxEntries, etagTtl);
+    }
+
+    /**
+     * @param lastModified latest update of any of the property's reservations; null when it has none
+     */
+    public record FeedVersion(long reservations, LocalDateTime lastModified) {
+
+        public String etag(Long propertyId) {
+            long millis = lastModified == null ? 0 : lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return "\"ics-" + propertyId + "-" + reservations + "-" + millis + "\"";
+        }
+    }
+
+    /**
+     * Strong ETag of the property's feed; the feed's bytes only change when it does.
+     */
+    @Transactional(readOnly = true)
+    public String etag(Long propertyId) {
+        return version(propertyId).etag(propertyId);
+    }
+
+    /**
+     * Write the feed, one VEVENT per active stay. The output stream is left open.
+     */
+    @Transactional(readOnly = true)
+    public void writeFeed(Long propertyId, OutputStream outputStream) throws IOException {
+        FeedVersion version = version(propertyId);
+
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        IcsWriter ics = new IcsWriter(writer, version.lastModified() != null
+                ? version.lastModified() : LocalDateTime.of(1970, 1, 1, 0, 0));
+        ics.begin(PRODUCT_ID, "Property " + propertyId);
+        try (Stream<ReservationSpanDto> spans = reservationRepository.streamActiveSpansByProperty(propertyId)) {
+            for (ReservationSpanDto span : (Iterable<ReservationSpanDto>) spans::iterator) {
+                ics.event("reservation-" + span.getReservationId() + "@property-catalog-service",
+                        span.getCheckInDate(), span.getCheckOutDate(), "Reserved");
+            }
+        }
+        ics.end();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationChanged(ReservationChangedEvent event) {
+        versions.invalidate(event.getPropertyId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        versions.invalidate(event.getPropertyId());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new BoundedCacheMetrics(versions, "calendar-feed-etags").bindTo(registry);
+    }
+
+    private FeedVersion version(Long propertyId) {
+        FeedVersion version = versions.get(propertyId);
+        if (version != null) {
+            return version;
+        }
+
+        long generation = versions.generation();
+        if (!propertyRepository.existsById(propertyId)) {
+            throw new ResourceNotFoundException("Property not found with id: " + propertyId);
+        }
+        List<Object[]> rows = reservationRepository.findChangeMarker(propertyId);
+        Object[] row = rows.isEmpty() ? new Object[]{0L, null} : rows.get(0);
+        version = new FeedVersion(((Number) row[0]).longValue(), (LocalDateTime) row[1]);
+        versions.put(propertyId, version, generation);
+        return version;
+    }
+}
@@ -0,0 +1,482 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.dto.CalendarImportDto;
+import com.test89.property_catalog_service.dto.CalendarImportRequestDto;
+import com.test89.property_catalog_service.entity.CalendarImport;
+import com.test89.property_catalog_service.entity.ImportedBlock;
+import com.test89.property_catalog_service.entity.Property;
+import com.test89.property_catalog_service.entity.Reservation;
+import com.test89.property_catalog_service.entity.ReservationStatus;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import com.test89.property_catalog_service.exception.ResourceNotFoundException;
+import com.test89.property_catalog_service.ical.IcsFeedFetcher;
+import com.test89.property_catalog_service.ical.IcsReader;
+import com.test89.property_catalog_service.pricing.PricingEngine;
+import com.test89.property_catalog_service.repository.CalendarImportRepository;
+import com.test89.property_catalog_service.repository.ImportedBlockRepository;
+import com.test89.property_catalog_service.repository.PropertyNightRepository;
+import com.test89.property_catalog_service.repository.PropertyRepository;
+import com.test89.property_catalog_service.repository.ReservationRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Blocks a property's dates with the stays listed in iCalendar feeds from the owner's other channels.
+ * <p>
+ * Due feeds are claimed in batches, as the email outbox claims its rows, and fetched and parsed on a fixed pool of
+ * workers, so thousands of feeds sync side by side without one thread per feed. A sync streams the feed through
+ * IcsReader while hashing it; a 304 or a byte-identical feed ends there. Otherwise each upcoming stay, cut to the
+ * nights from today to the booking horizon, is keyed by a hash of those dates and diffed against the previous
+ * snapshot (the feed's imported_blocks rows), so a feed whose DTSTAMPs change on every fetch only costs a
+ * comparison. Stays that disappeared cancel their BLOCKED reservation and new ones create one, in one transaction
+ * under the property's booking lock.
+ * <p>
+ * A block whose nights are already taken, by a stay booked here or another feed's block, is kept but only claims
+ * the free nights; that overlap is a double booking across channels and is counted as a conflict. A failed fetch
+ * or an unreadable feed keeps the existing blocks and retries with backoff.
+ */
+@Service
+public class CalendarImportService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CalendarImportService.class);
+
+    private static final int MAX_BATCHES_PER_RUN = 20;
+    private static final int MAX_STAYS_PER_FEED = 5000;
+    private static final Duration SYNC_LEASE = Duration.ofMinutes(10);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(12);
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final String REMOVED_REASON = "Removed from the external calendar";
+
+    private final CalendarImportRepository calendarImportRepository;
+    private final ImportedBlockRepository importedBlockRepository;
+    private final ReservationRepository reservationRepository;
+    private final PropertyRepository propertyRepository;
+    private final PropertyNightRepository propertyNightRepository;
+    private final PropertyNightService propertyNightService;
+    private final IcsFeedFetcher feedFetcher;
+    private final BookingLocks bookingLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration interval;
+    private final int batchSize;
+    private final ThreadPoolExecutor workers;
+
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+    public CalendarImportService(CalendarImportRepository calendarImportRepository,
+                                 ImportedBlockRepository importedBlockRepository,
+                                 ReservationRepository reservationRepository,
+                                 PropertyRepository propertyRepository,
+                                 PropertyNightRepository propertyNightRepository,
+                                 PropertyNightService propertyNightService,
+                                 IcsFeedFetcher feedFetcher,
+                                 BookingLocks bookingLocks,
+                                 TransactionTemplate transactionTemplate,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${app.calendar-import.interval:15m}") Duration interval,
+                                 @Value("${app.calendar-import.workers:16}") int workerCount,
+                                 @Value("${app.calendar-import.batch-size:200}") int batchSize) {
+        if (workerCount < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Calendar import workers and batch size must be positive");
+        }
+        this.calendarImportRepository = calendarImportRepository;
+        this.importedBlockRepository = importedBlockRepository;
+        this.reservationRepository = reservationRepository;
+        this.propertyRepository = propertyRepository;
+        this.propertyNightRepository = propertyNightRepository;
+        this.propertyNightService = propertyNightService;
+        this.feedFetcher = feedFetcher;
+        this.bookingLocks = bookingLocks;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.interval = interval;
+        this.batchSize = batchSize;
+
+        // A batch is submitted whole and awaited, so the queue never holds more than one batch
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchSize), runnable -> {
+                    Thread thread = new Thread(runnable, "calendar-import-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * What one sync changed: blocks created and cancelled, and nights of new blocks that were already taken.
+     */
+    public record SyncResult(int added, int removed, int conflictingNights) {
+
+        static final SyncResult UNCHANGED = new SyncResult(0, 0, 0);
+    }
+
+    @Transactional
+    public CalendarImportDto createImport(Long propertyId, CalendarImportRequestDto request) {
+        Property property = propertyRepository.findById(propertyId)
+                .orElseThrow(() -> new ResourceNotFoundException("Property not found with id: " + propertyId));
+        if (property.getOwner() == null) {
+            throw new IllegalStateException("Property has no owner to hold its blocked dates");
+        }
+        feedFetcher.validate(request.getUrl());
+
+        CalendarImport calendarImport = calendarImportRepository.save(CalendarImport.builder()
+                .propertyId(propertyId)
+                .url(request.getUrl().trim())
+                .blockCount(0)
+                .failures(0)
+                .nextSyncAt(LocalDateTime.now()) // First sync on the next poll
+                .build());
+        return toDto(calendarImport);
+    }
+
+    @Transactional(readOnly = true)
+    public List<CalendarImportDto> getImports(Long propertyId) {
+        if (!propertyRepository.existsById(propertyId)) {
+            throw new ResourceNotFoundException("Property not found with id: " + propertyId);
+        }
+        return calendarImportRepository.findByPropertyIdOrderById(propertyId).stream()
+                .map(CalendarImportService::toDto)
+                .toList();
+    }
+
+    /**
+     * Stop importing the feed and release every date it blocked.
+     */
+    public void deleteImport(Long propertyId, Long importId) {
+        bookingLocks.withLock(propertyId, () -> transactionTemplate.execute(status -> {
+            CalendarImport calendarImport = find(propertyId, importId);
+            removeBlocks(propertyId, importedBlockRepository.findByImportId(importId), LocalDateTime.now());
+            calendarImportRepository.delete(calendarImport);
+            return null;
+        }));
+    }
+
+    /**
+     * Sync one feed right away on the calling thread, whether or not it is due.
+     */
+    public CalendarImportDto syncNow(Long propertyId, Long importId) {
+        sync(find(propertyId, importId));
+        return calendarImportRepository.findById(importId)
+                .map(CalendarImportService::toDto)
+                .orElseThrow(() -> new ResourceNotFoundException("Calendar import not found with id: " + importId));
+    }
+
+    @Scheduled(fixedDelayString = "${app.calendar-import.poll-interval:PT30S}")
+    public void syncDue() {
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+            if (syncDueBatch() < batchSize) {
+                return; // Caught up
+            }
+        }
+    }
+
+    /**
+     * Claim one batch of due feeds, sync them on the worker pool and return how many were claimed.
+     */
+    public int syncDueBatch() {
+        List<CalendarImport> claimed = transactionTemplate.execute(status -> claim(LocalDateTime.now()));
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+        CompletableFuture<?>[] syncs = claimed.stream()
+                .map(calendarImport -> CompletableFuture.runAsync(() -> sync(calendarImport), workers))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(syncs).join();
+        return claimed.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("calendar.import.applied", applied, AtomicLong::get)
+                .description("Feed syncs that changed the property's blocked dates")
+                .register(registry);
+        FunctionCounter.builder("calendar.import.unchanged", unchanged, AtomicLong::get)
+                .description("Feed syncs that found the feed as it was last applied")
+                .register(registry);
+        FunctionCounter.builder("calendar.import.failed", failed, AtomicLong::get)
+                .description("Feed syncs that could not fetch or read the feed")
+                .register(registry);
+        FunctionCounter.builder("calendar.import.conflicts", conflicts, AtomicLong::get)
+                .description("Imported nights that were already taken on this property")
+                .register(registry);
+    }
+
+    private List<CalendarImport> claim(LocalDateTime now) {
+        List<CalendarImport> due = calendarImportRepository.findDueForUpdate(now, PageRequest.of(0, batchSize));
+        for (CalendarImport calendarImport : due) {
+            calendarImport.setNextSyncAt(now.plus(SYNC_LEASE));
+        }
+        return due;
+    }
+
+    // Never throws, so one broken feed cannot fail its batch
+    private void sync(CalendarImport calendarImport) {
+        try {
+            SyncResult result = fetchAndApply(calendarImport);
+            if (result == SyncResult.UNCHANGED) {
+                unchanged.incrementAndGet();
+            } else {
+                applied.incrementAndGet();
+                conflicts.addAndGet(result.conflictingNights());
+                if (result.conflictingNights() > 0) {
+                    logger.warn("Calendar import {} blocks {} nights already taken on property {}",
+                            calendarImport.getId(), result.conflictingNights(), calendarImport.getPropertyId());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            recordFailure(calendarImport.getId(), e);
+        }
+    }
+
+    private SyncResult fetchAndApply(CalendarImport calendarImport) throws IOException {
+        IcsFeedFetcher.Fetched fetched = feedFetcher.fetch(calendarImport.getUrl(), calendarImport.getEtag());
+        if (fetched.notModified()) {
+            recordUnchanged(calendarImport.getId(), calendarImport.getEtag());
+            return SyncResult.UNCHANGED;
+        }
+
+        MessageDigest digest = sha256();
+        Map<String, IcsReader.Event> stays = new LinkedHashMap<>();
+        LocalDate today = LocalDate.now();
+        try (InputStream body = new DigestInputStream(fetched.body(), digest)) {
+            IcsReader reader = new IcsReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            for (IcsReader.Event event = reader.next(); event != null; event = reader.next()) {
+                IcsReader.Event stay = withinHorizon(event, today);
+                if (stay == null) {
+                    continue; // Over, or too far ahead to be booked anyway
+                }
+                stays.putIfAbsent(contentHash(stay), stay);
+                if (stays.size() > MAX_STAYS_PER_FEED) {
+                    throw new IllegalArgumentException("Calendar feed lists more than " + MAX_STAYS_PER_FEED + " stays");
+                }
+            }
+            body.transferTo(OutputStream.nullOutputStream()); // Hash whatever follows END:VCALENDAR too
+        }
+
+        String feedHash = HexFormat.of().formatHex(digest.digest());
+        if (feedHash.equals(calendarImport.getFeedHash())) {
+            recordUnchanged(calendarImport.getId(), fetched.etag());
+            return SyncResult.UNCHANGED;
+        }
+
+        Long propertyId = calendarImport.getPropertyId();
+        return bookingLocks.withLock(propertyId, () -> transactionTemplate.execute(status ->
+                apply(calendarImport.getId(), propertyId, stays, feedHash, fetched.etag())));
+    }
+
+    private SyncResult apply(Long importId, Long propertyId, Map<String, IcsReader.Event> stays,
+                             String feedHash, String etag) {
+        CalendarImport calendarImport = calendarImportRepository.findById(importId).orElse(null);
+        if (calendarImport == null) {
+            return SyncResult.UNCHANGED; // Deleted while the feed was being fetched
+        }
+        LocalDateTime now = LocalDateTime.now();
+
+        Map<String, ImportedBlock> previous = importedBlockRepository.findByImportId(importId).stream()
+                .collect(Collectors.toMap(ImportedBlock::getContentHash, Function.identity()));
+        List<ImportedBlock> gone = previous.values().stream()
+                .filter(block -> !stays.containsKey(block.getContentHash()))
+                .toList();
+        // Release first, so a stay that moved can take back the nights it left
+        removeBlocks(propertyId, gone, now);
+
+        int added = 0;
+        int conflictingNights = 0;
+        Property property = null;
+        for (Map.Entry<String, IcsReader.Event> entry : stays.entrySet()) {
+            if (previous.containsKey(entry.getKey())) {
+                continue;
+            }
+            if (property == null) {
+                property = propertyRepository.findById(propertyId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Property not found with id: " + propertyId));
+                if (property.getOwner() == null) {
+                    throw new IllegalStateException("Property has no owner to hold its blocked dates");
+                }
+            }
+
+            IcsReader.Event stay = entry.getValue();
+            Reservation block = reservationRepository.save(Reservation.builder()
+                    .property(property)
+                    .user(property.getOwner())
+                    .checkInDate(stay.start())
+                    .checkOutDate(stay.end())
+                    .pricePerDay(BigDecimal.ZERO)
+                    .totalPrice(BigDecimal.ZERO)
+                    .guestCount(0)
+                    .status(ReservationStatus.BLOCKED)
+                    .isPaid(false)
+                    .specialRequests("Blocked by calendar import " + importId)
+                    .build());
+            conflictingNights += propertyNightService.occupyFree(block);
+            importedBlockRepository.save(ImportedBlock.builder()
+                    .importId(importId)
+                    .contentHash(entry.getKey())
+                    .reservationId(block.getId())
+                    .startDate(stay.start())
+                    .endDate(stay.end())
+                    .build());
+            publishChange(block.getId(), propertyId, stay.start(), stay.end(), null, ReservationStatus.BLOCKED);
+            added++;
+        }
+
+        calendarImport.setFeedHash(feedHash);
+        calendarImport.setEtag(etag);
+        calendarImport.setBlockCount(stays.size());
+        calendarImport.setFailures(0);
+        calendarImport.setLastError(null);
+        calendarImport.setLastSyncedAt(now);
+        calendarImport.setNextSyncAt(now.plus(interval));
+        return new SyncResult(added, gone.size(), conflictingNights);
+    }
+
+    // Cancel the blocks' reservations, free their nights, and let other blocks over the same dates claim them
+    private void removeBlocks(Long propertyId, List<ImportedBlock> blocks, LocalDateTime now) {
+        if (blocks.isEmpty()) {
+            return;
+        }
+        List<Long> reservationIds = blocks.stream().map(ImportedBlock::getReservationId).toList();
+        reservationRepository.cancelBlocks(reservationIds, REMOVED_REASON, now);
+        propertyNightRepository.deleteByReservationIdIn(reservationIds);
+        importedBlockRepository.deleteAllInBatch(blocks);
+
+        LocalDate from = blocks.stream().map(ImportedBlock::getStartDate).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDate to = blocks.stream().map(ImportedBlock::getEndDate).max(Comparator.naturalOrder()).orElseThrow();
+        propertyNightService.reclaimBlocked(propertyId, from, to);
+
+        for (ImportedBlock block : blocks) {
+            publishChange(block.getReservationId(), propertyId, block.getStartDate(), block.getEndDate(),
+                    ReservationStatus.BLOCKED, ReservationStatus.CANCELLED);
+        }
+    }
+
+    private void recordUnchanged(Long importId, String etag) {
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> calendarImportRepository.findById(importId)
+                .ifPresent(calendarImport -> {
+                    calendarImport.setEtag(etag);
+                    calendarImport.setFailures(0);
+                    calendarImport.setLastError(null);
+                    calendarImport.setLastSyncedAt(now);
+                    calendarImport.setNextSyncAt(now.plus(interval));
+                }));
+    }
+
+    private void recordFailure(Long importId, Exception e) {
+        failed.incrementAndGet();
+        // Owners see lastError: only the fetcher's and reader's own messages, never a transport or internal one
+        String message = (e instanceof IcsFeedFetcher.FeedException || e instanceof IllegalArgumentException)
+                && e.getMessage() != null ? e.getMessage() : "Calendar feed could not be read";
+        String error = message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+        LocalDateTime now = LocalDateTime.now();
+        Integer attempt = transactionTemplate.execute(status -> calendarImportRepository.findById(importId)
+                .map(calendarImport -> {
+                    calendarImport.setFailures(calendarImport.getFailures() + 1);
+                    calendarImport.setLastError(error);
+                    calendarImport.setNextSyncAt(now.plus(backoff(calendarImport.getFailures())));
+                    return calendarImport.getFailures();
+                })
+                .orElse(null));
+        logger.warn("Calendar import {} failed (attempt {}), keeping its blocks: {}", importId, attempt, e.toString());
+    }
+
+    // The sync interval, doubled per consecutive failure, capped at 12 hours
+    private Duration backoff(int failures) {
+        Duration delay = interval.multipliedBy(1L << Math.min(failures - 1, 20));
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+
+    private CalendarImport find(Long propertyId, Long importId) {
+        return calendarImportRepository.findById(importId)
+                .filter(calendarImport -> calendarImport.getPropertyId().equals(propertyId))
+                .orElseThrow(() -> new ResourceNotFoundException("Calendar import not found with id: " + importId));
+    }
+
+    // Let the availability index and other derived state catch up once the transaction commits
+    private void publishChange(Long reservationId, Long propertyId, LocalDate checkInDate, LocalDate checkOutDate,
+                               String previousStatus, String status) {
+        eventPublisher.publishEvent(new ReservationChangedEvent(
+                reservationId, propertyId, checkInDate, checkOutDate, previousStatus, status));
+    }
+
+    /**
+     * The part of the event from today up to the booking horizon, the same two years ahead that rate plans may be
+     * set up for, or null if nothing is left. Keeps a feed from blocking past nights or writing years of nights.
+     */
+    static IcsReader.Event withinHorizon(IcsReader.Event event, LocalDate today) {
+        LocalDate start = event.start().isBefore(today) ? today : event.start();
+        LocalDate horizon = today.plusDays(PricingEngine.MAX_CALENDAR_DAYS);
+        LocalDate end = event.end().isAfter(horizon) ? horizon : event.end();
+        return start.isBefore(end) ? new IcsReader.Event(event.uid(), start, end) : null;
+    }
+
+    private static String contentHash(IcsReader.Event stay) {
+        byte[] content = (stay.start() + "/" + stay.end()).getBytes(StandardCharsets.UTF_8);
+        return HexFormat.of().formatHex(sha256().digest(content));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CalendarImportDto toDto(CalendarImport calendarImport) {
+        return CalendarImportDto.builder()
+                .id(calendarImport.getId())
+                .propertyId(calendarImport.getPropertyId())
+                .url(calendarImport.getUrl())
+                .blockCount(calendarImport.getBlockCount())
+                .lastSyncedAt(calendarImport.getLastSyncedAt())
+                .nextSyncAt(calendarImport.getNextSyncAt())
+                .lastError(calendarImport.getLastError())
+                .build();
+    }
+}
@@ -0,0 +1,82 @@
+package com.test89.property_catalog_service.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Turns keyset scroll positions into opaque URL-safe continuation tokens and back.
+ * A token is the Base64 of the JSON map from sort property to the last row's value.
+ */
+@Component
+@RequiredArgsConstructor
+public class CursorCodec {
+
+    private static final String ID = "id";
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The requested sort with the id appended as a tie-breaker, so that every row has a unique position.
+     */
+    public Sort keysetSort(Sort sort) {
+        return sort.getOrderFor(ID) != null ? sort : sort.and(Sort.by(ID));
+    }
+
+    public String encode(ScrollPosition position) {
+        if (!(position instanceof KeysetScrollPosition keyset)) {
+            throw new IllegalArgumentException("Only keyset positions can be encoded");
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(keyset.getKeys()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode cursor", e);
+        }
+    }
+
+    /**
+     * The position after the row encoded in the cursor, or the start of the results for an empty cursor.
+     * The cursor must have been produced for the same sort.
+     */
+    public KeysetScrollPosition decode(String cursor, Sort sort, Class<?> domainType) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        Map<String, Object> values;
+        try {
+            values = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {
+                    })
+                    .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                    .readValue(Base64.getUrlDecoder().decode(cursor));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        Set<String> sortProperties = sort.stream().map(Sort.Order::getProperty).collect(Collectors.toSet());
+        if (values == null || !values.keySet().equals(sortProperties)) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (Sort.Order order : sort) {
+            Class<?> type = PropertyPath.from(order.getProperty(), domainType).getLeafType();
+            keys.put(order.getProperty(), objectMapper.convertValue(values.get(order.getProperty()), type));
+        }
+        return ScrollPosition.forward(keys);
+    }
+}
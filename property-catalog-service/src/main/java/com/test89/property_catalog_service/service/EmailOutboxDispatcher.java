@@ -0,0 +1,201 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.entity.OutboxEmail;
+import com.test89.property_catalog_service.repository.OutboxEmailRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the email outbox in batches. Each batch is claimed in a short transaction that pushes the rows'
+ * next attempt past the send lease, then sent outside any transaction over a single SMTP connection
+ * (JavaMailSender sends a message array through one transport), then recorded in a second short transaction.
+ * Failed rows back off exponentially and become DEAD after the configured number of attempts; a dispatcher
+ * that dies mid-batch leaves its rows to be picked up again once the lease runs out.
+ */
+@Component
+public class EmailOutboxDispatcher implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private static final int MAX_BATCHES_PER_RUN = 20;
+    private static final Duration SEND_LEASE = Duration.ofMinutes(5);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxEmailRepository outboxEmailRepository;
+    private final EmailService emailService;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration sentRetention;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+
+    public EmailOutboxDispatcher(OutboxEmailRepository outboxEmailRepository,
+                                 EmailService emailService,
+                                 JavaMailSender mailSender,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${app.email-outbox.batch-size:50}") int batchSize,
+                                 @Value("${app.email-outbox.max-attempts:8}") int maxAttempts,
+                                 @Value("${app.email-outbox.initial-backoff:30s}") Duration initialBackoff,
+                                 @Value("${app.email-outbox.sent-retention:7d}") Duration sentRetention) {
+        if (batchSize < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Outbox batch size and attempts must be positive");
+        }
+        this.outboxEmailRepository = outboxEmailRepository;
+        this.emailService = emailService;
+        this.mailSender = mailSender;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.sentRetention = sentRetention;
+    }
+
+    @Scheduled(fixedDelayString = "${app.email-outbox.poll-interval:PT1S}")
+    public void dispatch() {
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+            if (dispatchBatch() < batchSize) {
+                return; // Drained
+            }
+        }
+    }
+
+    /**
+     * Send one batch of due emails and return how many were claimed.
+     */
+    public int dispatchBatch() {
+        List<OutboxEmail> claimed = transactionTemplate.execute(status -> claim(LocalDateTime.now()));
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+
+        Map<MimeMessage, OutboxEmail> messages = new HashMap<>();
+        Map<Long, String> errors = new HashMap<>();
+        Set<Long> malformed = new HashSet<>();
+        for (OutboxEmail email : claimed) {
+            try {
+                messages.put(emailService.toMimeMessage(email), email);
+            } catch (IllegalArgumentException e) {
+                errors.put(email.getId(), e.getMessage());
+                malformed.add(email.getId()); // Bad address or content; retrying will not help
+            }
+        }
+
+        if (!messages.isEmpty()) {
+            try {
+                mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                // Some messages may have gone through; only the ones listed failed
+                e.getFailedMessages().forEach((message, cause) -> {
+                    OutboxEmail email = messages.get(message);
+                    if (email != null) {
+                        errors.put(email.getId(), cause.getMessage());
+                    }
+                });
+                if (e.getFailedMessages().isEmpty()) {
+                    messages.values().forEach(email -> errors.put(email.getId(), e.getMessage()));
+                }
+            } catch (MailException e) {
+                // Connection or authentication failure; nothing was sent
+                messages.values().forEach(email -> errors.put(email.getId(), e.getMessage()));
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> record(claimed, errors, malformed, LocalDateTime.now()));
+        return claimed.size();
+    }
+
+    @Scheduled(cron = "${app.email-outbox.cleanup-cron:0 45 3 * * *}")
+    public void deleteSent() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEmailRepository.deleteSentBefore(LocalDateTime.now().minus(sentRetention)));
+        if (deleted != null && deleted > 0) {
+            logger.info("Deleted {} sent emails from the outbox", deleted);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("email.outbox.sent", sent, AtomicLong::get)
+                .description("Emails delivered to the SMTP server")
+                .register(registry);
+        FunctionCounter.builder("email.outbox.failed", failed, AtomicLong::get)
+                .description("Failed delivery attempts, including ones retried later")
+                .register(registry);
+        FunctionCounter.builder("email.outbox.dead", dead, AtomicLong::get)
+                .description("Emails given up on after the maximum number of attempts")
+                .register(registry);
+    }
+
+    private List<OutboxEmail> claim(LocalDateTime now) {
+        List<OutboxEmail> due = outboxEmailRepository.findDueForUpdate(now, PageRequest.of(0, batchSize));
+        for (OutboxEmail email : due) {
+            email.setAttempts(email.getAttempts() + 1);
+            email.setNextAttemptAt(now.plus(SEND_LEASE));
+        }
+        return due;
+    }
+
+    private void record(List<OutboxEmail> claimed, Map<Long, String> errors, Set<Long> malformed, LocalDateTime now) {
+        List<Long> sentIds = new ArrayList<>();
+        for (OutboxEmail email : claimed) {
+            String error = errors.get(email.getId());
+            if (error == null) {
+                sentIds.add(email.getId());
+                continue;
+            }
+
+            failed.incrementAndGet();
+            email.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            if (email.getAttempts() >= maxAttempts || malformed.contains(email.getId())) {
+                email.setStatus(OutboxEmail.DEAD);
+                dead.incrementAndGet();
+                logger.error("Giving up on email {} to {} after {} attempts: {}",
+                        email.getId(), email.getRecipient(), email.getAttempts(), error);
+            } else {
+                email.setNextAttemptAt(now.plus(backoff(email.getAttempts())));
+                logger.warn("Email {} failed (attempt {}), retrying at {}: {}",
+                        email.getId(), email.getAttempts(), email.getNextAttemptAt(), error);
+            }
+            outboxEmailRepository.save(email);
+        }
+
+        if (!sentIds.isEmpty()) {
+            outboxEmailRepository.markSent(sentIds, now);
+            sent.addAndGet(sentIds.size());
+        }
+    }
+
+    // 30s, 1m, 2m, 4m ... capped at an hour
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+}
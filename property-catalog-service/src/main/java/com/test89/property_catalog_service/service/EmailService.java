@@ -1,42 +1,69 @@
 package com.test89.property_catalog_service.service;
 
+import com.test89.property_catalog_service.entity.OutboxEmail;
+import com.test89.property_catalog_service.repository.OutboxEmailRepository;
+import com.test89.property_catalog_service.template.EmailTemplate;
+import com.test89.property_catalog_service.template.EmailTemplates;
+import com.test89.property_catalog_service.template.RenderedEmail;
+import com.test89.property_catalog_service.template.TemplateBindings;
 import jakarta.mail.MessagingException;
-import lombok.RequiredArgsConstructor;
-import org.springframework.mail.MailAuthenticationException;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.mail.internet.MimeMessage;
 
+import java.time.LocalDateTime;
+
+/**
+ * Emails are queued in the outbox as part of the caller's transaction, so they are sent only if the change they
+ * report commits, and no request waits on SMTP. EmailOutboxDispatcher delivers them in batches.
+ */
 @Service
-@RequiredArgsConstructor
 public class EmailService {
 
     private final JavaMailSender mailSender;
+    private final OutboxEmailRepository outboxEmailRepository;
+    private final EmailTemplate<String> welcome;
+
+    public EmailService(JavaMailSender mailSender,
+                        OutboxEmailRepository outboxEmailRepository,
+                        EmailTemplates emailTemplates) {
+        this.mailSender = mailSender;
+        this.outboxEmailRepository = outboxEmailRepository;
+        this.welcome = emailTemplates.compile("welcome",
+                new TemplateBindings<String>().bind("username", username -> username));
+    }
 
     public void sendWelcomeEmail(String to, String username) {
-        String subject = "Welcome to Property Management System";
-        String body = "<h3>Hi " + username + ",</h3>" +
-                "<p>Welcome to our platform!</p>" +
-                "<p>You can now browse and book your dream property.</p>" +
-                "<br><p>Thanks,<br>Property Management / Catalog Team</p>";
+        RenderedEmail email = welcome.render(username, LocaleContextHolder.getLocale());
+        queueEmail(to, email.subject(), email.htmlBody());
+    }
 
-        sendEmail(to, subject, body);
+    @Transactional
+    public void queueEmail(String to, String subject, String htmlBody) {
+        outboxEmailRepository.save(OutboxEmail.builder()
+                .recipient(to)
+                .subject(subject)
+                .htmlBody(htmlBody)
+                .status(OutboxEmail.PENDING)
+                .attempts(0)
+                .nextAttemptAt(LocalDateTime.now())
+                .build());
     }
 
-    public void sendEmail(String to, String subject, String htmlBody) {
+    MimeMessage toMimeMessage(OutboxEmail email) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(message, true);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlBody, true); // true = HTML
-            mailSender.send(message);
-        } catch (MailAuthenticationException e) {
-            throw new RuntimeException("Email authentication failed. Check your credentials.", e);
+            helper.setTo(email.getRecipient());
+            helper.setSubject(email.getSubject());
+            helper.setText(email.getHtmlBody(), true); // true = HTML
+            return message;
         } catch (MessagingException e) {
-            throw new RuntimeException("Failed to send email: " + subject, e);
+            throw new IllegalArgumentException("Failed to build email: " + email.getSubject(), e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,126 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.dto.FacetCountDto;
+import com.test89.property_catalog_service.dto.SearchFacetsDto;
+import com.test89.property_catalog_service.index.ListingSnapshot.Listing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Accumulates every facet histogram in a single pass over the listings that passed the shared filters.
+ * A listing rejected only by the filter on a facet's own field still counts towards that facet, so
+ * selecting a city does not hide the other cities, and the same for bedrooms and price.
+ */
+final class FacetCounter {
+
+    private static final BigDecimal[] PRICE_BOUNDS = {BigDecimal.valueOf(50), BigDecimal.valueOf(100),
+            BigDecimal.valueOf(150), BigDecimal.valueOf(200), BigDecimal.valueOf(300), BigDecimal.valueOf(500),
+            BigDecimal.valueOf(1000)};
+    private static final int MAX_BEDROOMS_BUCKET = 5;
+    private static final int MAX_FACET_VALUES = 50;
+
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final Integer bedrooms;
+    private final String city;
+
+    private long total;
+    private final Map<String, long[]> cities = new HashMap<>();
+    private final Map<String, long[]> types = new HashMap<>();
+    private final Map<String, long[]> amenities = new HashMap<>();
+    private final long[] bedroomCounts = new long[MAX_BEDROOMS_BUCKET + 1];
+    private final long[] priceCounts = new long[PRICE_BOUNDS.length + 1];
+
+    FacetCounter(BigDecimal minPrice, BigDecimal maxPrice, Integer bedrooms, String city) {
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.bedrooms = bedrooms;
+        this.city = city;
+    }
+
+    void add(Listing listing) {
+        boolean priceMatches = listing.matchesBasicFilters(minPrice, maxPrice, null, null, null, null);
+        boolean bedroomsMatch = listing.matchesBasicFilters(null, null, bedrooms, null, null, null);
+        boolean cityMatches = listing.matchesBasicFilters(null, null, null, null, city, null);
+
+        if (priceMatches && bedroomsMatch && cityMatches) {
+            total++;
+            increment(types, listing.type());
+            for (String amenity : listing.amenities()) {
+                increment(amenities, amenity);
+            }
+        }
+        if (priceMatches && bedroomsMatch) {
+            increment(cities, listing.city());
+        }
+        if (priceMatches && cityMatches && listing.bedrooms() != null && listing.bedrooms() >= 0) {
+            bedroomCounts[Math.min(listing.bedrooms(), MAX_BEDROOMS_BUCKET)]++;
+        }
+        if (bedroomsMatch && cityMatches && listing.pricePerDay() != null) {
+            priceCounts[priceBucket(listing.pricePerDay())]++;
+        }
+    }
+
+    SearchFacetsDto toDto() {
+        List<FacetCountDto> bedroomFacet = new ArrayList<>();
+        for (int i = 0; i <= MAX_BEDROOMS_BUCKET; i++) {
+            bedroomFacet.add(new FacetCountDto(i == MAX_BEDROOMS_BUCKET ? i + "+" : String.valueOf(i), bedroomCounts[i]));
+        }
+
+        List<FacetCountDto> priceFacet = new ArrayList<>();
+        for (int i = 0; i <= PRICE_BOUNDS.length; i++) {
+            String label = i == PRICE_BOUNDS.length
+                    ? PRICE_BOUNDS[i - 1] + "+"
+                    : (i == 0 ? BigDecimal.ZERO : PRICE_BOUNDS[i - 1]) + "-" + PRICE_BOUNDS[i];
+            priceFacet.add(new FacetCountDto(label, priceCounts[i]));
+        }
+
+        return new SearchFacetsDto(total, topValues(mergeCase(cities)), topValues(types),
+                bedroomFacet, priceFacet, topValues(amenities));
+    }
+
+    private static int priceBucket(BigDecimal price) {
+        int bucket = 0;
+        while (bucket < PRICE_BOUNDS.length && price.compareTo(PRICE_BOUNDS[bucket]) >= 0) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static void increment(Map<String, long[]> counts, String value) {
+        if (value != null && !value.isBlank()) {
+            counts.computeIfAbsent(value, key -> new long[1])[0]++;
+        }
+    }
+
+    /**
+     * The city filter is case-insensitive, so count "Paris" and "paris" together under the most common spelling.
+     */
+    private static Map<String, long[]> mergeCase(Map<String, long[]> counts) {
+        Map<String, String> spellings = new HashMap<>();
+        Map<String, long[]> merged = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue(Comparator.comparingLong((long[] count) -> count[0]).reversed()))
+                .forEach(entry -> {
+                    String spelling = spellings.computeIfAbsent(entry.getKey().toLowerCase(Locale.ROOT), key -> entry.getKey());
+                    merged.computeIfAbsent(spelling, key -> new long[1])[0] += entry.getValue()[0];
+                });
+        return merged;
+    }
+
+    private static List<FacetCountDto> topValues(Map<String, long[]> counts) {
+        return counts.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, long[]> entry) -> entry.getValue()[0]).reversed()
+                        .thenComparing(Map.Entry::getKey))
+                .limit(MAX_FACET_VALUES)
+                .map(entry -> new FacetCountDto(entry.getKey(), entry.getValue()[0]))
+                .toList();
+    }
+}
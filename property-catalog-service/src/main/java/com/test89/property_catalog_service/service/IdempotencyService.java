@@ -0,0 +1,252 @@
+package com.test89.property_catalog_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test89.property_catalog_service.cache.BoundedCache;
+import com.test89.property_catalog_service.cache.BoundedCacheMetrics;
+import com.test89.property_catalog_service.entity.IdempotencyRecord;
+import com.test89.property_catalog_service.exception.ConflictException;
+import com.test89.property_catalog_service.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per Idempotency-Key and replays the stored response to retries.
+ * <p>
+ * Responses are kept in the idempotency_keys table, fronted by a bounded LRU so hot retries skip the database.
+ * Before the request runs its key is claimed by inserting a row without a response in a transaction of its own, so
+ * only one instance can run it. A duplicate on the same instance waits for the outcome; on another instance it gets
+ * a ConflictException (409) until the response is stored, then the replay. If the request fails, the claim is
+ * dropped and nothing is stored, so a later retry runs again. A claim left behind by a crashed instance is taken
+ * over once it is older than the claim timeout.
+ */
+@Service
+public class IdempotencyService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration retention;
+    private final Duration waitTimeout;
+    private final Duration claimTimeout;
+    private final TransactionTemplate claimTransaction;
+    private final BoundedCache<String, Stored> recent;
+    private final ConcurrentHashMap<String, CompletableFuture<Stored>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${app.idempotency.max-entries:10000}") int maxEntries,
+                              @Value("${app.idempotency.retention:24h}") Duration retention,
+                              @Value("${app.idempotency.wait-timeout:30s}") Duration waitTimeout,
+                              @Value("${app.idempotency.claim-timeout:5m}") Duration claimTimeout,
+                              TransactionTemplate transactionTemplate) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.retention = retention;
+        this.waitTimeout = waitTimeout;
+        this.claimTimeout = claimTimeout;
+        this.claimTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.claimTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.recent = new BoundedCache<>(maxEntries, retention);
+    }
+
+    /**
+     * The response, and whether it was replayed from an earlier request rather than produced now.
+     */
+    public record Outcome<T>(T response, boolean replayed) {
+    }
+
+    private record Stored(String requestHash, String responseBody) {
+    }
+
+    /**
+     * Run the action unless the key has been seen before for this user and endpoint, in which case the stored
+     * response is returned. A null key always runs the action.
+     *
+     * @param request everything that identifies the request; reusing a key for a different request is rejected
+     */
+    public <T> Outcome<T> execute(String key, String username, String endpoint, Object request,
+                                  Class<T> responseType, Supplier<T> action) {
+        if (key == null) {
+            return new Outcome<>(action.get(), false);
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String scopedKey = username + " " + endpoint + " " + key;
+        String requestHash = hash(toJson(request));
+
+        Stored stored = recent.get(scopedKey);
+        if (stored != null) {
+            return replay(stored, requestHash, responseType);
+        }
+
+        CompletableFuture<Stored> mine = new CompletableFuture<>();
+        CompletableFuture<Stored> first = inFlight.putIfAbsent(scopedKey, mine);
+        if (first != null) {
+            return replay(await(first), requestHash, responseType);
+        }
+
+        try {
+            // Millisecond precision survives the column as is, so releasing by claimedAt finds this claim again
+            LocalDateTime claimedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+            stored = claim(scopedKey, requestHash, claimedAt);
+            if (stored != null) {
+                recent.put(scopedKey, stored, recent.generation());
+                mine.complete(stored);
+                return replay(stored, requestHash, responseType);
+            }
+
+            T response;
+            try {
+                response = action.get();
+            } catch (RuntimeException e) {
+                release(scopedKey, claimedAt);
+                throw e;
+            }
+            stored = new Stored(requestHash, toJson(response));
+            record(scopedKey, stored);
+            mine.complete(stored);
+            return new Outcome<>(response, false);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scopedKey, mine);
+        }
+    }
+
+    @Scheduled(cron = "${app.idempotency.cleanup-cron:0 30 * * * *}")
+    public void deleteExpired() {
+        int deleted = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            logger.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new BoundedCacheMetrics(recent, "idempotency-keys").bindTo(registry);
+    }
+
+    /**
+     * Claim the key for this request, committed before the request runs so other instances see it. Returns the
+     * stored response when an earlier request with the key has completed.
+     */
+    private Stored claim(String scopedKey, String requestHash, LocalDateTime claimedAt) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            IdempotencyRecord existing = idempotencyRecordRepository.findById(scopedKey).orElse(null);
+            if (existing == null) {
+                try {
+                    claimTransaction.executeWithoutResult(status -> idempotencyRecordRepository.saveAndFlush(
+                            IdempotencyRecord.builder()
+                                    .scopedKey(scopedKey)
+                                    .requestHash(requestHash)
+                                    .createdAt(claimedAt)
+                                    .build()));
+                    return null;
+                } catch (DataIntegrityViolationException e) {
+                    continue; // Claimed by another instance in the meantime; read its row
+                }
+            }
+            if (existing.getResponseBody() != null) {
+                return new Stored(existing.getRequestHash(), existing.getResponseBody());
+            }
+            if (!existing.getRequestHash().equals(requestHash)) {
+                throw new IllegalArgumentException("Idempotency-Key was already used for a different request");
+            }
+            if (idempotencyRecordRepository.releaseClaim(scopedKey, claimedAt.minus(claimTimeout)) == 0) {
+                throw new ConflictException("A request with this Idempotency-Key is still in progress");
+            }
+            logger.warn("Took over an idempotency key claimed more than {} ago: {}", claimTimeout, scopedKey);
+        }
+        throw new ConflictException("A request with this Idempotency-Key is still in progress");
+    }
+
+    private void record(String scopedKey, Stored stored) {
+        if (idempotencyRecordRepository.complete(scopedKey, stored.requestHash(), stored.responseBody()) == 0) {
+            // The claim outlived the claim timeout and was taken over; the other request's response will stand
+            logger.warn("Idempotency key claim was taken over before the response was stored: {}", scopedKey);
+        }
+        recent.put(scopedKey, stored, recent.generation());
+    }
+
+    // Drop this request's claim after it failed, so a retry runs again
+    private void release(String scopedKey, LocalDateTime claimedAt) {
+        try {
+            idempotencyRecordRepository.releaseClaim(scopedKey, claimedAt);
+        } catch (RuntimeException e) {
+            logger.warn("Could not release idempotency key {}; retries get 409 until the claim times out", scopedKey, e);
+        }
+    }
+
+    private Stored await(CompletableFuture<Stored> first) {
+        try {
+            return first.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("The original request failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new ConflictException("A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request");
+        }
+    }
+
+    private <T> Outcome<T> replay(Stored stored, String requestHash, Class<T> responseType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IllegalArgumentException("Idempotency-Key was already used for a different request");
+        }
+        try {
+            return new Outcome<>(objectMapper.readValue(stored.responseBody(), responseType), true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response could not be read", e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Value could not be serialized", e);
+        }
+    }
+
+    private static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
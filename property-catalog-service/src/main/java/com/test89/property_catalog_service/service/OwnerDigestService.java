@@ -0,0 +1,201 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.entity.OwnerDigestEntry;
+import com.test89.property_catalog_service.entity.Property;
+import com.test89.property_catalog_service.entity.ReservationStatus;
+import com.test89.property_catalog_service.entity.User;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import com.test89.property_catalog_service.repository.OwnerDigestEntryRepository;
+import com.test89.property_catalog_service.repository.PropertyRepository;
+import com.test89.property_catalog_service.repository.UserRepository;
+import com.test89.property_catalog_service.template.EmailTemplate;
+import com.test89.property_catalog_service.template.EmailTemplates;
+import com.test89.property_catalog_service.template.RenderedEmail;
+import com.test89.property_catalog_service.template.TemplateBindings;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Tells property owners about reservation activity on their properties. Owners in DIGEST mode (the default)
+ * get at most one summary email per interval rather than one per booking, status change and payment.
+ * <p>
+ * Each change is buffered as a row written in the same transaction as the change itself, so a crash loses
+ * nothing and a rolled back change is never reported. Once an owner's oldest buffered row has waited a full
+ * interval, the rows are folded into one digest, queued in the email outbox and deleted in one transaction.
+ * IMMEDIATE owners get a one-entry digest per change instead; NONE turns the emails off.
+ */
+@Service
+public class OwnerDigestService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(OwnerDigestService.class);
+
+    private static final int OWNERS_PER_ROUND = 100;
+    private static final int MAX_ROUNDS_PER_RUN = 20;
+
+    private final OwnerDigestEntryRepository ownerDigestEntryRepository;
+    private final PropertyRepository propertyRepository;
+    private final UserRepository userRepository;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration interval;
+    private final EmailTemplate<Digest> template;
+
+    private final AtomicLong digestsQueued = new AtomicLong();
+    private final AtomicLong entriesDigested = new AtomicLong();
+
+    public OwnerDigestService(OwnerDigestEntryRepository ownerDigestEntryRepository,
+                              PropertyRepository propertyRepository,
+                              UserRepository userRepository,
+                              EmailService emailService,
+                              TransactionTemplate transactionTemplate,
+                              EmailTemplates emailTemplates,
+                              @Value("${app.owner-digest.interval:1h}") Duration interval) {
+        this.ownerDigestEntryRepository = ownerDigestEntryRepository;
+        this.propertyRepository = propertyRepository;
+        this.userRepository = userRepository;
+        this.emailService = emailService;
+        this.transactionTemplate = transactionTemplate;
+        this.interval = interval;
+        this.template = emailTemplates.compile("owner-digest", bindings());
+    }
+
+    record Digest(String firstName, List<Item> items) {
+
+        // Changes into one of the statuses, not counting new bookings
+        long count(Set<String> statuses) {
+            return items.stream().filter(item -> item.previousStatus() != null && statuses.contains(item.status())).count();
+        }
+    }
+
+    record Item(String propertyTitle, Long reservationId, LocalDate checkInDate, LocalDate checkOutDate,
+                String previousStatus, String status) {
+    }
+
+    // Runs inside the transaction that made the change, so the entry commits or rolls back with it
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onReservationChanged(ReservationChangedEvent event) {
+        if (ReservationStatus.BLOCKED.equals(event.getStatus())
+                || ReservationStatus.BLOCKED.equals(event.getPreviousStatus())) {
+            return; // Dates imported from the owner's other channels; nothing they do not already know
+        }
+        Property property = propertyRepository.findById(event.getPropertyId()).orElse(null);
+        if (property == null || property.getOwner() == null) {
+            return;
+        }
+        User owner = property.getOwner();
+        String mode = owner.getOwnerNotifications() != null ? owner.getOwnerNotifications() : User.NOTIFY_DIGEST;
+        if (User.NOTIFY_NONE.equals(mode)) {
+            return;
+        }
+
+        OwnerDigestEntry entry = OwnerDigestEntry.builder()
+                .ownerId(owner.getId())
+                .propertyId(property.getId())
+                .reservationId(event.getReservationId())
+                .checkInDate(event.getCheckInDate())
+                .checkOutDate(event.getCheckOutDate())
+                .previousStatus(event.getPreviousStatus())
+                .status(event.getStatus())
+                .occurredAt(LocalDateTime.now())
+                .build();
+        if (User.NOTIFY_IMMEDIATE.equals(mode)) {
+            queueDigest(owner, List.of(entry), Map.of(property.getId(), property.getTitle()));
+        } else {
+            ownerDigestEntryRepository.save(entry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.owner-digest.poll-interval:PT1M}")
+    public void flushDue() {
+        for (int round = 0; round < MAX_ROUNDS_PER_RUN; round++) {
+            List<Long> owners = ownerDigestEntryRepository.findOwnersDue(
+                    LocalDateTime.now().minus(interval), PageRequest.of(0, OWNERS_PER_ROUND));
+            for (Long ownerId : owners) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> flush(ownerId));
+                } catch (RuntimeException e) {
+                    // The entries stay buffered and are retried on the next run
+                    logger.warn("Failed to queue the digest for owner {}: {}", ownerId, e.getMessage());
+                }
+            }
+            if (owners.size() < OWNERS_PER_ROUND) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("owner.digest.queued", digestsQueued, AtomicLong::get)
+                .description("Owner digest emails queued")
+                .register(registry);
+        FunctionCounter.builder("owner.digest.entries", entriesDigested, AtomicLong::get)
+                .description("Reservation changes reported in owner digests")
+                .register(registry);
+    }
+
+    private void flush(Long ownerId) {
+        List<OwnerDigestEntry> entries = ownerDigestEntryRepository.findByOwnerIdForUpdate(ownerId);
+        if (entries.isEmpty()) {
+            return; // Flushed by another instance
+        }
+
+        User owner = userRepository.findById(ownerId).orElse(null);
+        if (owner != null) {
+            Set<Long> propertyIds = entries.stream().map(OwnerDigestEntry::getPropertyId).collect(Collectors.toSet());
+            Map<Long, String> titles = propertyRepository.findAllById(propertyIds).stream()
+                    .collect(Collectors.toMap(Property::getId, Property::getTitle));
+            queueDigest(owner, entries, titles);
+        }
+        ownerDigestEntryRepository.deleteByIdIn(entries.stream().map(OwnerDigestEntry::getId).toList());
+    }
+
+    private void queueDigest(User owner, List<OwnerDigestEntry> entries, Map<Long, String> titles) {
+        List<Item> items = entries.stream()
+                .map(entry -> new Item(titles.getOrDefault(entry.getPropertyId(), "Property #" + entry.getPropertyId()),
+                        entry.getReservationId(), entry.getCheckInDate(), entry.getCheckOutDate(),
+                        entry.getPreviousStatus(), entry.getStatus()))
+                .toList();
+        // The owner's own locale: in IMMEDIATE mode this runs in the guest's request, and a flush in no request at all
+        RenderedEmail email = template.render(new Digest(owner.getFirstName(), items), owner.locale());
+        emailService.queueEmail(owner.getEmail(), email.subject(), email.htmlBody());
+        digestsQueued.incrementAndGet();
+        entriesDigested.addAndGet(items.size());
+    }
+
+    private static TemplateBindings<Digest> bindings() {
+        TemplateBindings<Item> item = new TemplateBindings<Item>()
+                .bind("propertyTitle", Item::propertyTitle)
+                .bind("reservationId", Item::reservationId)
+                .bind("checkInDate", Item::checkInDate)
+                .bind("checkOutDate", Item::checkOutDate)
+                .bind("previousStatus", Item::previousStatus)
+                .bind("status", Item::status);
+        return new TemplateBindings<Digest>()
+                .bind("firstName", Digest::firstName)
+                .bind("changeCount", digest -> digest.items().size())
+                .bind("newBookings", digest -> digest.items().stream().filter(entry -> entry.previousStatus() == null).count())
+                .bind("confirmations", digest -> digest.count(Set.of("CONFIRMED")))
+                .bind("cancellations", digest -> digest.count(Set.of("CANCELLED", "EXPIRED")))
+                .bindList("items", Digest::items, item);
+    }
+}
@@ -0,0 +1,212 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.dto.OccupancyDto;
+import com.test89.property_catalog_service.dto.ReservationSpanDto;
+import com.test89.property_catalog_service.entity.PropertyNight;
+import com.test89.property_catalog_service.entity.Reservation;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import com.test89.property_catalog_service.repository.PropertyNightRepository;
+import com.test89.property_catalog_service.repository.ReservationRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the property_nights occupancy table. Every method joins the caller's transaction so the
+ * nights always match the reservation rows they were derived from.
+ */
+@Service
+@RequiredArgsConstructor
+public class PropertyNightService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PropertyNightService.class);
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final PropertyNightRepository propertyNightRepository;
+    private final ReservationRepository reservationRepository;
+    private final EntityManager entityManager;
+
+    /**
+     * Insert one row per night of the stay; fails if any night is already taken.
+     */
+    @Transactional
+    public void occupy(Reservation reservation) {
+        try {
+            propertyNightRepository.saveAllAndFlush(nightsOf(
+                    reservation.getId(), reservation.getProperty().getId(),
+                    reservation.getCheckInDate(), reservation.getCheckOutDate()));
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("The property is already booked for the selected dates");
+        }
+    }
+
+    /**
+     * Insert the nights of an imported block that nobody holds yet and return how many were already taken. Blocks
+     * from different channels may cover the same dates, and one may land on a stay booked here.
+     */
+    @Transactional
+    public int occupyFree(Reservation block) {
+        Long propertyId = block.getProperty().getId();
+        Set<LocalDate> taken = new HashSet<>(propertyNightRepository.findOccupiedNights(
+                propertyId, block.getCheckInDate(), block.getCheckOutDate().minusDays(1)));
+        List<PropertyNight> free = nightsOf(block.getId(), propertyId, block.getCheckInDate(), block.getCheckOutDate())
+                .stream()
+                .filter(night -> !taken.contains(night.getNight()))
+                .toList();
+        propertyNightRepository.saveAllAndFlush(free);
+        return taken.size();
+    }
+
+    /**
+     * Release the nights, handing any that an imported block also covers over to that block.
+     */
+    @Transactional
+    public void release(Reservation reservation) {
+        propertyNightRepository.deleteByReservationId(reservation.getId());
+        reclaimBlocked(reservation.getProperty().getId(), reservation.getCheckInDate(), reservation.getCheckOutDate());
+    }
+
+    @Transactional
+    public void reclaimBlocked(Long propertyId, LocalDate from, LocalDate to) {
+        for (Reservation block : reservationRepository.findBlocksOverlapping(propertyId, from, to)) {
+            occupyFree(block);
+        }
+    }
+
+    /**
+     * Release the nights of reservations ended in bulk (lapsed holds, finished stays), handing any that an imported
+     * block also covers over to that block as release does, with one lookup for the blocks of the whole batch.
+     */
+    @Transactional
+    public void releaseAll(List<ReservationSpanDto> spans) {
+        if (spans.isEmpty()) {
+            return;
+        }
+        propertyNightRepository.deleteByReservationIdIn(spans.stream().map(ReservationSpanDto::getReservationId).toList());
+
+        Map<Long, List<ReservationSpanDto>> byProperty = spans.stream()
+                .collect(Collectors.groupingBy(ReservationSpanDto::getPropertyId));
+        LocalDate from = spans.stream().map(ReservationSpanDto::getCheckInDate).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDate to = spans.stream().map(ReservationSpanDto::getCheckOutDate).max(Comparator.naturalOrder()).orElseThrow();
+        for (Reservation block : reservationRepository.findBlocksOverlappingAny(byProperty.keySet(), from, to)) {
+            boolean touched = byProperty.get(block.getProperty().getId()).stream().anyMatch(span ->
+                    !span.getCheckInDate().isAfter(block.getCheckOutDate())
+                            && !span.getCheckOutDate().isBefore(block.getCheckInDate()));
+            if (touched) {
+                occupyFree(block);
+            }
+        }
+    }
+
+    /**
+     * Occupy or release the nights when a status change moves the reservation in or out of the active set.
+     */
+    @Transactional
+    public void onStatusChange(Reservation reservation, String previousStatus) {
+        boolean wasActive = ReservationChangedEvent.ACTIVE_STATUSES.contains(previousStatus);
+        boolean isActive = ReservationChangedEvent.ACTIVE_STATUSES.contains(reservation.getStatus());
+
+        if (isActive && !wasActive) {
+            occupy(reservation);
+        } else if (wasActive && !isActive) {
+            release(reservation);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public OccupancyDto getOccupancy(Long propertyId, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Start date cannot be after end date");
+        }
+
+        long totalNights = ChronoUnit.DAYS.between(from, to) + 1;
+        long occupiedNights = propertyNightRepository.countOccupiedNights(propertyId, from, to);
+        BigDecimal occupancyRate = BigDecimal.valueOf(occupiedNights)
+                .divide(BigDecimal.valueOf(totalNights), 4, RoundingMode.HALF_UP);
+
+        return OccupancyDto.builder()
+                .propertyId(propertyId)
+                .from(from)
+                .to(to)
+                .totalNights(totalNights)
+                .occupiedNights(occupiedNights)
+                .occupancyRate(occupancyRate)
+                .build();
+    }
+
+    /**
+     * Populate the table from existing active reservations the first time the application runs with it.
+     * Nights already claimed by an earlier overlapping reservation are skipped and logged.
+     */
+    @Transactional
+    public void backfillIfEmpty() {
+        if (propertyNightRepository.count() > 0) {
+            return;
+        }
+
+        Set<String> claimed = new HashSet<>();
+        List<PropertyNight> batch = new ArrayList<>(BACKFILL_BATCH_SIZE);
+        long inserted = 0;
+        try (Stream<ReservationSpanDto> spans = reservationRepository.streamActiveSpans(LocalDate.EPOCH)) {
+            for (ReservationSpanDto span : (Iterable<ReservationSpanDto>) spans::iterator) {
+                for (PropertyNight night : nightsOf(span.getReservationId(), span.getPropertyId(),
+                        span.getCheckInDate(), span.getCheckOutDate())) {
+                    if (!claimed.add(night.getPropertyId() + ":" + night.getNight())) {
+                        logger.warn("Skipping night {} of reservation {}: already claimed for property {}",
+                                night.getNight(), night.getReservationId(), night.getPropertyId());
+                        continue;
+                    }
+                    batch.add(night);
+                    if (batch.size() == BACKFILL_BATCH_SIZE) {
+                        inserted += flush(batch);
+                    }
+                }
+            }
+        }
+        inserted += flush(batch);
+
+        if (inserted > 0) {
+            logger.info("Backfilled {} property nights from existing reservations", inserted);
+        }
+    }
+
+    private int flush(List<PropertyNight> batch) {
+        int size = batch.size();
+        propertyNightRepository.saveAllAndFlush(batch);
+        entityManager.clear();
+        batch.clear();
+        return size;
+    }
+
+    // A stay occupies the nights from check-in up to, but not including, check-out
+    private static List<PropertyNight> nightsOf(Long reservationId, Long propertyId,
+                                                LocalDate checkInDate, LocalDate checkOutDate) {
+        List<PropertyNight> nights = new ArrayList<>();
+        for (LocalDate night = checkInDate; night.isBefore(checkOutDate); night = night.plusDays(1)) {
+            nights.add(PropertyNight.builder()
+                    .propertyId(propertyId)
+                    .night(night)
+                    .reservationId(reservationId)
+                    .build());
+        }
+        return nights;
+    }
+}
@@ -1,16 +1,42 @@
 package com.test89.property_catalog_service.service;
 
+import com.test89.property_catalog_service.cache.PropertyDtoCache;
+import com.test89.property_catalog_service.cache.SearchResultCache;
+import com.test89.property_catalog_service.dto.AmenityMatch;
+import com.test89.property_catalog_service.dto.CursorPageDto;
+import com.test89.property_catalog_service.dto.FlexibleAvailabilityDto;
+import com.test89.property_catalog_service.dto.MapClusterDto;
+import com.test89.property_catalog_service.dto.PropertyDistanceDto;
 import com.test89.property_catalog_service.dto.PropertyDto;
+import com.test89.property_catalog_service.dto.SearchFacetsDto;
 import com.test89.property_catalog_service.entity.Property;
 import com.test89.property_catalog_service.entity.User;
+import com.test89.property_catalog_service.event.PropertyChangedEvent;
 import com.test89.property_catalog_service.exception.ResourceNotFoundException;
+import com.test89.property_catalog_service.exception.ServiceUnavailableException;
+import com.test89.property_catalog_service.index.AmenityIndex;
+import com.test89.property_catalog_service.index.AvailabilityIndex;
+import com.test89.property_catalog_service.index.ClusterIndex;
+import com.test89.property_catalog_service.index.GeoIndex;
+import com.test89.property_catalog_service.index.ListingSnapshot;
+import com.test89.property_catalog_service.index.TextIndex;
 import com.test89.property_catalog_service.mapper.PropertyMapper;
+import com.test89.property_catalog_service.pricing.PricingEngine;
+import com.test89.property_catalog_service.pricing.RateCalendar;
+import com.test89.property_catalog_service.repository.PropertyNightRepository;
 import com.test89.property_catalog_service.repository.PropertyRepository;
+import com.test89.property_catalog_service.repository.PropertySpecifications;
 import com.test89.property_catalog_service.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -19,18 +45,46 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class PropertyService {
 
+    private static final double MAX_SEARCH_RADIUS_KM = 500;
+    private static final int DEFAULT_SLICE_SIZE = 20;
+    private static final int MAX_FLEXIBLE_WINDOW_DAYS = 366;
+    static final int CACHED_IDS_STEP = 100;
+    private static final int ID_CHUNK_SIZE = 1000; // Ids bound per IN (...) query
+
     private final PropertyRepository propertyRepository;
     private final UserRepository userRepository;
     private final PropertyMapper propertyMapper;
+    private final AvailabilityIndex availabilityIndex;
+    private final AmenityIndex amenityIndex;
+    private final GeoIndex geoIndex;
+    private final ClusterIndex clusterIndex;
+    private final ListingSnapshot listingSnapshot;
+    private final TextIndex textIndex;
+    private final PropertyNightRepository propertyNightRepository;
+    private final SearchResultCache searchResultCache;
+    private final PropertyDtoCache propertyDtoCache;
+    private final CursorCodec cursorCodec;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PricingEngine pricingEngine;
 
     // Only authenticated users can access this
     @Transactional(readOnly = true)
@@ -54,9 +108,36 @@ public class PropertyService {
                 .map(propertyMapper::toDto);
     }
 
-    // Basic search with price, bedrooms, bathrooms, city
+    // Basic search with price, bedrooms, bathrooms, city and optional keywords
     @Transactional(readOnly = true)
     public Page<PropertyDto> searchProperties(
+            String query,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Integer bedrooms,
+            Integer bathrooms,
+            String city,
+            Integer maxGuests,
+            Pageable pageable) {
+        if (query != null && !query.isBlank()) {
+            return searchByKeywords(query, minPrice, maxPrice, bedrooms, bathrooms, city, maxGuests, pageable);
+        }
+
+        SearchResultCache.Key key = SearchResultCache.Key.basic(
+                null, minPrice, maxPrice, bedrooms, bathrooms, city, maxGuests, pageable.getSort());
+        return cachedSearch(key, pageable, limit -> {
+            Page<Long> ids = propertyRepository.findIdsByBasicFilters(
+                    minPrice, maxPrice, bedrooms, bathrooms, city, maxGuests,
+                    PageRequest.of(0, limit, pageable.getSort()));
+            return new SearchResultCache.Result(ids.getContent(), ids.getTotalElements());
+        });
+    }
+
+    /**
+     * Keyword search ranked by relevance; the pageable's sort is ignored.
+     */
+    private Page<PropertyDto> searchByKeywords(
+            String query,
             BigDecimal minPrice,
             BigDecimal maxPrice,
             Integer bedrooms,
@@ -64,11 +145,98 @@ public class PropertyService {
             String city,
             Integer maxGuests,
             Pageable pageable) {
-        return propertyRepository.findByBasicFilters(
-                        minPrice, maxPrice, bedrooms, bathrooms, city, maxGuests, pageable)
+
+        if (textIndex.isReady() && listingSnapshot.isReady()) {
+            SearchResultCache.Key key = SearchResultCache.Key.basic(
+                    query, minPrice, maxPrice, bedrooms, bathrooms, city, maxGuests, Sort.unsorted());
+            return cachedSearch(key, pageable, limit -> {
+                TextIndex.Hits hits = textIndex.search(query, id -> {
+                    ListingSnapshot.Listing listing = listingSnapshot.get(id);
+                    return listing != null
+                            && listing.matchesBasicFilters(minPrice, maxPrice, bedrooms, bathrooms, city, maxGuests);
+                }, limit);
+                return new SearchResultCache.Result(hits.ids(), hits.total());
+            });
+        }
+
+        return propertyRepository.searchByKeyword(
+                        query.trim(), minPrice, maxPrice, bedrooms, bathrooms, city, maxGuests, pageable)
                 .map(propertyMapper::toDto);
     }
 
+    // Cursor mode of getAvailableProperties
+    @Transactional(readOnly = true)
+    public CursorPageDto<PropertyDto> scrollAvailableProperties(String cursor, Pageable pageable) {
+        return scroll(PropertySpecifications.hasStatus("Available"), cursor, pageable);
+    }
+
+    // Cursor mode of getPropertiesByType
+    @Transactional(readOnly = true)
+    public CursorPageDto<PropertyDto> scrollPropertiesByType(String type, String cursor, Pageable pageable) {
+        return scroll(PropertySpecifications.hasType(type), cursor, pageable);
+    }
+
+    // Cursor mode of searchProperties without keywords
+    @Transactional(readOnly = true)
+    public CursorPageDto<PropertyDto> scrollProperties(
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Integer bedrooms,
+            Integer bathrooms,
+            String city,
+            Integer maxGuests,
+            String cursor,
+            Pageable pageable) {
+        return scroll(PropertySpecifications.matchesFilters(minPrice, maxPrice, bedrooms, bathrooms, city, maxGuests),
+                cursor, pageable);
+    }
+
+    // Cursor mode of searchAvailableProperties
+    @Transactional(readOnly = true)
+    public CursorPageDto<PropertyDto> scrollAvailableProperties(
+            LocalDate checkInDate,
+            LocalDate checkOutDate,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Integer bedrooms,
+            Integer bathrooms,
+            String city,
+            Integer guestCount,
+            Integer minStayDays,
+            Integer maxStayDays,
+            String cursor,
+            Pageable pageable) {
+
+        int stayDuration = validateStay(checkInDate, checkOutDate);
+        if (pageable.getSort().getOrderFor(PricingEngine.TOTAL_PRICE_SORT) != null) {
+            throw new IllegalArgumentException("Sorting by total price is not supported with a cursor");
+        }
+        Specification<Property> specification = PropertySpecifications.hasStatus("Available")
+                .and(PropertySpecifications.freeBetween(checkInDate.minusDays(1), checkOutDate))
+                .and(PropertySpecifications.matchesFilters(minPrice, maxPrice, bedrooms, bathrooms, city, guestCount))
+                .and(PropertySpecifications.allowsStay(minStayDays, maxStayDays, stayDuration));
+        return scroll(specification, cursor, pageable);
+    }
+
+    /**
+     * Fetch the slice following the cursor with a keyset predicate on the sort columns and id, so the cost
+     * does not grow with the depth of the slice and no count query is issued.
+     */
+    private CursorPageDto<PropertyDto> scroll(Specification<Property> specification, String cursor, Pageable pageable) {
+        Sort sort = cursorCodec.keysetSort(pageable.getSort());
+        int size = pageable.isPaged() ? pageable.getPageSize() : DEFAULT_SLICE_SIZE;
+        KeysetScrollPosition position = cursorCodec.decode(cursor, sort, Property.class);
+
+        Window<Property> window = propertyRepository.findBy(specification, query -> query
+                .sortBy(sort)
+                .limit(size)
+                .scroll(position));
+
+        String nextCursor = window.hasNext() ? cursorCodec.encode(window.positionAt(window.size() - 1)) : null;
+        return new CursorPageDto<>(window.map(propertyMapper::toDto).getContent(),
+                window.size(), window.hasNext(), nextCursor);
+    }
+
     // Advanced search with date availability
     @Transactional(readOnly = true)
     public Page<PropertyDto> searchAvailableProperties(
@@ -84,23 +252,48 @@ public class PropertyService {
             Integer maxStayDays,
             Pageable pageable) {
 
-        // Validate dates
-        if (checkInDate == null || checkOutDate == null) {
-            throw new IllegalArgumentException("Check-in and check-out dates are required");
-        }
+        int stayDuration = validateStay(checkInDate, checkOutDate);
+        Sort.Order totalPriceOrder = pageable.getSort().getOrderFor(PricingEngine.TOTAL_PRICE_SORT);
+        Sort attributeSort = Sort.by(pageable.getSort().stream()
+                .filter(order -> !order.getProperty().equals(PricingEngine.TOTAL_PRICE_SORT))
+                .toList());
 
-        if (checkInDate.isAfter(checkOutDate)) {
-            throw new IllegalArgumentException("Check-in date cannot be after check-out date");
+        // Filter on attributes in the database and on dates in memory when the index covers the range
+        if (availabilityIndex.covers(checkInDate, checkOutDate)) {
+            SearchResultCache.Key key = SearchResultCache.Key.available(checkInDate, checkOutDate, minPrice, maxPrice,
+                    bedrooms, bathrooms, city, guestCount, minStayDays, maxStayDays, pageable.getSort());
+            return cachedSearch(key, pageable, limit -> {
+                List<Long> candidateIds = propertyRepository.findAvailableCandidateIds(
+                        null, null,
+                        minPrice, maxPrice,
+                        bedrooms, bathrooms,
+                        city, guestCount,
+                        minStayDays, maxStayDays,
+                        stayDuration,
+                        attributeSort);
+                List<Long> ids = availabilityIndex.filterAvailable(candidateIds, checkInDate, checkOutDate);
+                if (totalPriceOrder != null) {
+                    ids = sortByTotalPrice(ids, checkInDate, checkOutDate, totalPriceOrder);
+                }
+                // Cache only the leading ids, like the other searches; the total still counts every match
+                return new SearchResultCache.Result(ids.size() > limit ? ids.subList(0, limit) : ids, ids.size());
+            });
         }
 
-        // Calculate stay duration
-        int stayDuration = (int) ChronoUnit.DAYS.between(checkInDate, checkOutDate);
-        if (stayDuration < 1) {
-            throw new IllegalArgumentException("Stay duration must be at least 1 day");
+        if (totalPriceOrder != null) {
+            List<Long> ids = propertyRepository.findAvailableCandidateIds(
+                    checkInDate.minusDays(1), checkOutDate,
+                    minPrice, maxPrice,
+                    bedrooms, bathrooms,
+                    city, guestCount,
+                    minStayDays, maxStayDays,
+                    stayDuration,
+                    attributeSort);
+            return toPage(sortByTotalPrice(ids, checkInDate, checkOutDate, totalPriceOrder), pageable);
         }
 
         return propertyRepository.findAvailableProperties(
-                        checkInDate, checkOutDate,
+                        checkInDate.minusDays(1), checkOutDate,
                         minPrice, maxPrice,
                         bedrooms, bathrooms,
                         city, guestCount,
@@ -110,44 +303,501 @@ public class PropertyService {
                 .map(propertyMapper::toDto);
     }
 
+    /**
+     * Order ids by the full price of the stay, keeping the incoming order between equal totals so the rest of
+     * the requested sort still applies. Ids whose stay cannot be priced go last.
+     */
+    private List<Long> sortByTotalPrice(List<Long> ids, LocalDate checkInDate, LocalDate checkOutDate,
+                                        Sort.Order order) {
+        Map<Long, RateCalendar> calendars = pricingEngine.calendarsById(ids);
+        Map<Long, Long> totals = new HashMap<>();
+        List<Long> priced = new ArrayList<>(ids.size());
+        List<Long> unpriced = new ArrayList<>();
+        for (Long id : ids) {
+            RateCalendar calendar = calendars.get(id);
+            try {
+                if (calendar != null) {
+                    totals.put(id, calendar.quote(checkInDate, checkOutDate).totalMinor());
+                    priced.add(id);
+                    continue;
+                }
+            } catch (IllegalArgumentException e) {
+                // Stay beyond the calendar's horizon
+            }
+            unpriced.add(id);
+        }
+
+        Comparator<Long> byTotal = Comparator.comparingLong(totals::get);
+        priced.sort(order.isDescending() ? byTotal.reversed() : byTotal);
+        priced.addAll(unpriced);
+        return priced;
+    }
+
+    /**
+     * Flexible-date search: available properties with at least one free stay of the given length between
+     * earliestCheckIn and latestCheckOut, with their earliest (or every) feasible check-in date. Ordered by
+     * earliest check-in unless the pageable sorts on property attributes; "checkIn" is accepted as a sort property.
+     */
+    @Transactional(readOnly = true)
+    public Page<FlexibleAvailabilityDto> searchFlexibleDates(
+            LocalDate earliestCheckIn,
+            LocalDate latestCheckOut,
+            int nights,
+            boolean allCheckInDates,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Integer bedrooms,
+            Integer bathrooms,
+            String city,
+            Integer guestCount,
+            Pageable pageable) {
+
+        if (earliestCheckIn == null || latestCheckOut == null) {
+            throw new IllegalArgumentException("Earliest check-in and latest check-out dates are required");
+        }
+        if (nights < 1) {
+            throw new IllegalArgumentException("Stay duration must be at least 1 day");
+        }
+        long windowLength = ChronoUnit.DAYS.between(earliestCheckIn, latestCheckOut);
+        if (windowLength < nights) {
+            throw new IllegalArgumentException("The date window is shorter than the requested stay");
+        }
+        if (windowLength > MAX_FLEXIBLE_WINDOW_DAYS) {
+            throw new IllegalArgumentException("The date window cannot exceed " + MAX_FLEXIBLE_WINDOW_DAYS + " days");
+        }
+
+        Sort.Order checkInOrder = pageable.getSort().getOrderFor("checkIn");
+        Sort attributeSort = Sort.by(pageable.getSort().stream()
+                .filter(order -> !order.getProperty().equals("checkIn"))
+                .toList());
+        boolean byCheckIn = checkInOrder != null || attributeSort.isUnsorted();
+
+        List<Long> candidateIds = propertyRepository.findFlexibleCandidateIds(
+                minPrice, maxPrice, bedrooms, bathrooms, city, guestCount, nights,
+                byCheckIn ? Sort.unsorted() : attributeSort);
+
+        // A stay occupies check-in through check-out inclusive, so the window spans windowLength + 1 days
+        int windowDays = (int) windowLength + 1;
+        Map<Long, BitSet> occupancy = occupiedDays(candidateIds, earliestCheckIn, latestCheckOut);
+
+        BitSet free = new BitSet();
+        Map<Long, List<LocalDate>> checkIns = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        for (Long id : candidateIds) {
+            List<LocalDate> dates = feasibleCheckIns(occupancy.getOrDefault(id, free),
+                    earliestCheckIn, windowDays, nights, allCheckInDates);
+            if (!dates.isEmpty()) {
+                checkIns.put(id, dates);
+                ids.add(id);
+            }
+        }
+        if (byCheckIn) {
+            Comparator<Long> earliestFirst = Comparator.comparing((Long id) -> checkIns.get(id).get(0));
+            ids.sort(checkInOrder != null && checkInOrder.isDescending() ? earliestFirst.reversed() : earliestFirst);
+        }
+
+        return toPage(ids, pageable)
+                .map(property -> new FlexibleAvailabilityDto(property, checkIns.get(property.getId())));
+    }
+
+    /**
+     * Occupied days of each candidate in [from, to], bit i standing for day from + i. Read from the availability
+     * index when it covers the window, otherwise from range scans over the candidates' property_nights, a chunk
+     * of candidates at a time.
+     */
+    private Map<Long, BitSet> occupiedDays(List<Long> candidateIds, LocalDate from, LocalDate to) {
+        Map<Long, BitSet> occupancy = new HashMap<>();
+        if (availabilityIndex.covers(from, to)) {
+            for (Long id : candidateIds) {
+                occupancy.put(id, availabilityIndex.occupiedDays(id, from, to));
+            }
+            return occupancy;
+        }
+
+        // A booked night also blocks the following day, which is the guest's check-out
+        int lastDay = (int) ChronoUnit.DAYS.between(from, to);
+        for (List<Long> chunk : chunks(candidateIds)) {
+            try (Stream<Object[]> nights = propertyNightRepository.streamOccupiedNights(chunk, from.minusDays(1), to)) {
+                nights.forEach(row -> {
+                    int day = (int) ChronoUnit.DAYS.between(from, (LocalDate) row[1]);
+                    occupancy.computeIfAbsent((Long) row[0], key -> new BitSet())
+                            .set(Math.max(day, 0), Math.min(day + 1, lastDay) + 1);
+                });
+            }
+        }
+        return occupancy;
+    }
+
+    /**
+     * Walk the free runs between occupied days; every check-in whose stay, check-out day included, fits inside
+     * a run is feasible.
+     */
+    private static List<LocalDate> feasibleCheckIns(BitSet occupied, LocalDate firstDay, int windowDays,
+                                                    int nights, boolean all) {
+        List<LocalDate> checkIns = new ArrayList<>();
+        int runStart = 0;
+        while (runStart < windowDays) {
+            int runEnd = occupied.nextSetBit(runStart);
+            if (runEnd < 0 || runEnd > windowDays) {
+                runEnd = windowDays;
+            }
+            for (int checkIn = runStart; checkIn + nights < runEnd; checkIn++) {
+                checkIns.add(firstDay.plusDays(checkIn));
+                if (!all) {
+                    return checkIns;
+                }
+            }
+            runStart = runEnd + 1;
+        }
+        return checkIns;
+    }
+
+    // Facet counts for the basic search; each facet ignores the filter on its own field
+    @Transactional(readOnly = true)
+    public SearchFacetsDto getSearchFacets(
+            String query,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Integer bedrooms,
+            Integer bathrooms,
+            String city,
+            Integer maxGuests) {
+
+        Set<Long> keywordMatches = null;
+        if (query != null && !query.isBlank()) {
+            keywordMatches = textIndex.isReady()
+                    ? textIndex.matchingIds(query)
+                    : propertyRepository.findIdsByKeyword(query.trim());
+        }
+
+        Set<Long> matches = keywordMatches;
+        return countFacets(minPrice, maxPrice, bedrooms, city, listing ->
+                listing.matchesBasicFilters(null, null, null, bathrooms, null, maxGuests)
+                        && (matches == null || matches.contains(listing.id())));
+    }
+
+    // Facet counts for the date availability search; each facet ignores the filter on its own field
+    @Transactional(readOnly = true)
+    public SearchFacetsDto getAvailableSearchFacets(
+            LocalDate checkInDate,
+            LocalDate checkOutDate,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Integer bedrooms,
+            Integer bathrooms,
+            String city,
+            Integer guestCount,
+            Integer minStayDays,
+            Integer maxStayDays) {
+
+        int stayDuration = validateStay(checkInDate, checkOutDate);
+
+        LongPredicate free;
+        if (availabilityIndex.covers(checkInDate, checkOutDate)) {
+            free = availabilityIndex.availableBetween(checkInDate, checkOutDate);
+        } else {
+            Set<Long> occupied = propertyNightRepository.findOccupiedPropertyIds(checkInDate.minusDays(1), checkOutDate);
+            free = id -> !occupied.contains(id);
+        }
+
+        return countFacets(minPrice, maxPrice, bedrooms, city, listing ->
+                "Available".equals(listing.status())
+                        && listing.matchesBasicFilters(null, null, null, bathrooms, null, guestCount)
+                        && listing.allowsStay(minStayDays, maxStayDays, stayDuration)
+                        && free.test(listing.id()));
+    }
+
+    /**
+     * One pass over the listing snapshot: listings failing the shared filters are skipped, the rest are
+     * counted into every facet whose own filter they pass. Until the snapshot is built this answers 503 rather
+     * than reading the whole catalog from the database on every request.
+     */
+    private SearchFacetsDto countFacets(BigDecimal minPrice, BigDecimal maxPrice, Integer bedrooms, String city,
+                                        Predicate<ListingSnapshot.Listing> sharedFilters) {
+        if (!listingSnapshot.isReady()) {
+            throw new ServiceUnavailableException("Search facets are not available yet, please retry shortly");
+        }
+        FacetCounter counter = new FacetCounter(minPrice, maxPrice, bedrooms, city);
+        listingSnapshot.forEach(listing -> {
+            if (sharedFilters.test(listing)) {
+                counter.add(listing);
+            }
+        });
+        return counter.toDto();
+    }
+
     // Search with amenities and other filters
     @Transactional(readOnly = true)
     public Page<PropertyDto> searchPropertiesWithAmenities(
             LocalDate checkInDate,
             LocalDate checkOutDate,
             Set<String> amenities,
+            AmenityMatch amenityMatch,
             Boolean petsAllowed,
             Integer maxGuests,
             Pageable pageable) {
 
-        // First, get properties based on availability, pets policy, and guest count
-        Page<Property> propertiesPage = propertyRepository.findAvailablePropertiesForDates(
-                checkInDate, checkOutDate, petsAllowed, maxGuests, pageable);
+        Set<String> requested = AmenityIndex.normalize(amenities);
+        AmenityMatch match = amenityMatch != null ? amenityMatch : AmenityMatch.ANY;
+
+        // Filter on attributes in the database, then on dates and amenities in memory when the indexes allow it
+        if (availabilityIndex.covers(checkInDate, checkOutDate) && (requested.isEmpty() || amenityIndex.isReady())) {
+            List<Long> candidateIds = propertyRepository.findCandidateIdsForDates(
+                    petsAllowed, maxGuests, pageable.getSort());
+            if (!requested.isEmpty()) {
+                candidateIds = amenityIndex.filter(candidateIds, requested, match);
+            }
+            return toPage(availabilityIndex.filterAvailable(candidateIds, checkInDate, checkOutDate), pageable);
+        }
 
-        // If no amenities were specified or the result is empty, return as is
-        if (amenities == null || amenities.isEmpty() || propertiesPage.isEmpty()) {
-            return propertiesPage.map(propertyMapper::toDto);
+        if (requested.isEmpty()) {
+            return propertyRepository.findAvailablePropertiesForDates(
+                            checkInDate.minusDays(1), checkOutDate, petsAllowed, maxGuests, pageable)
+                    .map(propertyMapper::toDto);
         }
 
-        // Filter properties that have the specified amenities
-        List<Property> filteredProperties = propertiesPage.getContent().stream()
-                .filter(property -> {
-                    if (property.getAmenities() == null || property.getAmenities().isEmpty()) {
-                        return false;
-                    }
+        return propertyRepository.findAvailablePropertiesWithAmenities(
+                        checkInDate.minusDays(1), checkOutDate, petsAllowed, maxGuests,
+                        requested, match == AmenityMatch.ALL ? requested.size() : 1,
+                        pageable)
+                .map(propertyMapper::toDto);
+    }
 
-                    // Check if the property has at least one of the requested amenities
-                    return property.getAmenities().stream()
-                            .anyMatch(amenities::contains);
-                })
+    // Properties within radiusKm of a point, optionally available for the given dates
+    @Transactional(readOnly = true)
+    public Page<PropertyDistanceDto> searchNearby(
+            double latitude,
+            double longitude,
+            double radiusKm,
+            LocalDate checkInDate,
+            LocalDate checkOutDate,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Integer bedrooms,
+            Integer bathrooms,
+            Integer guestCount,
+            Pageable pageable) {
+
+        validateCoordinates(latitude, longitude);
+        if (radiusKm <= 0 || radiusKm > MAX_SEARCH_RADIUS_KM) {
+            throw new IllegalArgumentException("Radius must be between 0 and " + MAX_SEARCH_RADIUS_KM + " km");
+        }
+
+        return searchWithDistances(geoIndex.withinRadius(latitude, longitude, radiusKm),
+                checkInDate, checkOutDate, minPrice, maxPrice, bedrooms, bathrooms, guestCount, pageable);
+    }
+
+    // Properties inside a map viewport, optionally available for the given dates
+    @Transactional(readOnly = true)
+    public Page<PropertyDistanceDto> searchInBoundingBox(
+            double south,
+            double west,
+            double north,
+            double east,
+            LocalDate checkInDate,
+            LocalDate checkOutDate,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Integer bedrooms,
+            Integer bathrooms,
+            Integer guestCount,
+            Pageable pageable) {
+
+        validateCoordinates(south, west);
+        validateCoordinates(north, east);
+        if (south > north) {
+            throw new IllegalArgumentException("South edge cannot be north of the north edge");
+        }
+
+        return searchWithDistances(geoIndex.withinBox(south, west, north, east),
+                checkInDate, checkOutDate, minPrice, maxPrice, bedrooms, bathrooms, guestCount, pageable);
+    }
+
+    // Marker clusters of Available properties for a map viewport
+    @Transactional(readOnly = true)
+    public List<MapClusterDto> getMapClusters(double south, double west, double north, double east, int zoom) {
+        validateCoordinates(south, west);
+        validateCoordinates(north, east);
+        if (south > north) {
+            throw new IllegalArgumentException("South edge cannot be north of the north edge");
+        }
+        return clusterIndex.clusters(south, west, north, east, zoom);
+    }
+
+    /**
+     * Apply the attribute and date filters to the properties found by the geo index.
+     * Results are ordered by distance unless the pageable sorts on property attributes;
+     * "distance" may also be requested explicitly, e.g. sort=distance,desc.
+     */
+    private Page<PropertyDistanceDto> searchWithDistances(
+            Map<Long, Double> distances,
+            LocalDate checkInDate,
+            LocalDate checkOutDate,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Integer bedrooms,
+            Integer bathrooms,
+            Integer guestCount,
+            Pageable pageable) {
+
+        boolean withDates = checkInDate != null || checkOutDate != null;
+        Integer stayDuration = null;
+        if (withDates) {
+            if (checkInDate == null || checkOutDate == null) {
+                throw new IllegalArgumentException("Check-in and check-out dates must be given together");
+            }
+            stayDuration = (int) ChronoUnit.DAYS.between(checkInDate, checkOutDate);
+            if (stayDuration < 1) {
+                throw new IllegalArgumentException("Stay duration must be at least 1 day");
+            }
+        }
+
+        Sort.Order distanceOrder = pageable.getSort().getOrderFor("distance");
+        Sort attributeSort = Sort.by(pageable.getSort().stream()
+                .filter(order -> !order.getProperty().equals("distance"))
+                .toList());
+        boolean byDistance = distanceOrder != null || attributeSort.isUnsorted();
+
+        // Let the database check dates only when the availability index cannot
+        boolean datesInMemory = withDates && availabilityIndex.covers(checkInDate, checkOutDate);
+        LocalDate firstNight = withDates && !datesInMemory ? checkInDate.minusDays(1) : null;
+        LocalDate lastNight = withDates && !datesInMemory ? checkOutDate : null;
+
+        List<Long> ids;
+        if (distances.isEmpty()) {
+            ids = new ArrayList<>();
+        } else if (byDistance && firstNight == null && listingSnapshot.isReady()) {
+            // Only the geo hits are candidates, and they are ordered by distance below: filter them in memory
+            ids = distances.keySet().stream()
+                    .filter(id -> {
+                        ListingSnapshot.Listing listing = listingSnapshot.get(id);
+                        return listing != null && "Available".equals(listing.status())
+                                && listing.matchesBasicFilters(minPrice, maxPrice, bedrooms, bathrooms, null, guestCount);
+                    })
+                    .collect(Collectors.toList());
+        } else if (byDistance || distances.size() <= ID_CHUNK_SIZE) {
+            ids = new ArrayList<>();
+            for (List<Long> chunk : chunks(distances.keySet())) {
+                ids.addAll(propertyRepository.findAvailableCandidateIdsIn(
+                        chunk, firstNight, lastNight,
+                        minPrice, maxPrice,
+                        bedrooms, bathrooms, guestCount,
+                        byDistance ? Sort.unsorted() : attributeSort));
+            }
+        } else {
+            // An attribute order over more hits than one query takes: let the database sort the whole result
+            ids = propertyRepository.findAvailableCandidateIds(
+                            firstNight, lastNight,
+                            minPrice, maxPrice,
+                            bedrooms, bathrooms,
+                            null, guestCount,
+                            null, null,
+                            stayDuration,
+                            attributeSort).stream()
+                    .filter(distances::containsKey)
+                    .collect(Collectors.toList());
+        }
+        if (datesInMemory) {
+            ids = availabilityIndex.filterAvailable(ids, checkInDate, checkOutDate);
+        }
+        if (byDistance) {
+            Comparator<Long> nearestFirst = Comparator.comparing(distances::get);
+            ids.sort(distanceOrder != null && distanceOrder.isDescending() ? nearestFirst.reversed() : nearestFirst);
+        }
+
+        return toPage(ids, pageable)
+                .map(property -> new PropertyDistanceDto(property, distances.get(property.getId())));
+    }
+
+    // Split ids into lists of at most ID_CHUNK_SIZE for IN (...) queries
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += ID_CHUNK_SIZE) {
+            chunks.add(all.subList(from, Math.min(from + ID_CHUNK_SIZE, all.size())));
+        }
+        return chunks;
+    }
+
+    // Validate the dates and return the stay duration in days
+    private static int validateStay(LocalDate checkInDate, LocalDate checkOutDate) {
+        if (checkInDate == null || checkOutDate == null) {
+            throw new IllegalArgumentException("Check-in and check-out dates are required");
+        }
+
+        if (checkInDate.isAfter(checkOutDate)) {
+            throw new IllegalArgumentException("Check-in date cannot be after check-out date");
+        }
+
+        int stayDuration = (int) ChronoUnit.DAYS.between(checkInDate, checkOutDate);
+        if (stayDuration < 1) {
+            throw new IllegalArgumentException("Stay duration must be at least 1 day");
+        }
+        return stayDuration;
+    }
+
+    private static void validateCoordinates(double latitude, double longitude) {
+        if (latitude < -90 || latitude > 90) {
+            throw new IllegalArgumentException("Latitude must be between -90 and 90");
+        }
+        if (longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Longitude must be between -180 and 180");
+        }
+    }
+
+    /**
+     * Serve a page from the search result cache. On a miss, or when the cached ids stop short of the page, the
+     * search is run for the leading ids up to the end of the page, rounded up so the next pages hit as well.
+     */
+    private Page<PropertyDto> cachedSearch(SearchResultCache.Key key, Pageable pageable,
+                                           IntFunction<SearchResultCache.Result> search) {
+        if (pageable.isUnpaged()) {
+            SearchResultCache.Result result = search.apply(Integer.MAX_VALUE);
+            return toPage(result.ids(), pageable, result.total());
+        }
+
+        SearchResultCache.Result result = searchResultCache.get(key);
+        if (result == null || !result.covers(pageable)) {
+            long generation = searchResultCache.generation();
+            long pageEnd = pageable.getOffset() + pageable.getPageSize();
+            int limit = (int) Math.min(Integer.MAX_VALUE,
+                    (pageEnd + CACHED_IDS_STEP - 1) / CACHED_IDS_STEP * CACHED_IDS_STEP);
+            SearchResultCache.Result computed = search.apply(limit);
+            result = new SearchResultCache.Result(List.copyOf(computed.ids()), computed.total());
+            searchResultCache.put(key, result, generation);
+        }
+        return toPage(result.ids(), pageable, result.total());
+    }
+
+    /**
+     * Build a page from an already filtered and ordered id list, loading only the ids on the requested page.
+     */
+    private Page<PropertyDto> toPage(List<Long> ids, Pageable pageable) {
+        return toPage(ids, pageable, ids.size());
+    }
+
+    /**
+     * Same as above when ids only holds the leading part of the result, up to the end of the requested page.
+     */
+    private Page<PropertyDto> toPage(List<Long> ids, Pageable pageable, long total) {
+        List<Long> pageIds = ids;
+        if (pageable.isPaged()) {
+            int from = (int) Math.min(pageable.getOffset(), ids.size());
+            int to = Math.min(from + pageable.getPageSize(), ids.size());
+            pageIds = ids.subList(from, to);
+        }
+
+        Map<Long, PropertyDto> properties = propertyDtoCache.getAll(pageIds, missing ->
+                propertyRepository.findAllById(missing).stream()
+                        .map(propertyMapper::toDto)
+                        .collect(Collectors.toList()));
+
+        List<PropertyDto> content = pageIds.stream()
+                .map(properties::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
 
-        // Create a new Page with the filtered properties
-        return new PageImpl<>(
-                filteredProperties,
-                pageable,
-                filteredProperties.size()
-        ).map(propertyMapper::toDto);
+        return new PageImpl<>(content, pageable, total);
     }
 
     // No restrictions, public method
@@ -173,7 +823,9 @@ public class PropertyService {
 
         Property property = propertyMapper.toEntity(propertyDto, owner);
         Property savedProperty = propertyRepository.save(property);
-        return propertyMapper.toDto(savedProperty);
+        PropertyDto savedDto = propertyMapper.toDto(savedProperty);
+        eventPublisher.publishEvent(new PropertyChangedEvent(savedProperty.getId(), savedDto));
+        return savedDto;
     }
 
     @Transactional
@@ -182,9 +834,12 @@ public class PropertyService {
         Property property = propertyRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Property not found with id: " + id));
 
+        String previousCity = cityOf(property);
         propertyMapper.updateEntityFromDto(propertyDto, property);
         Property updatedProperty = propertyRepository.save(property);
-        return propertyMapper.toDto(updatedProperty);
+        PropertyDto updatedDto = propertyMapper.toDto(updatedProperty);
+        eventPublisher.publishEvent(new PropertyChangedEvent(id, updatedDto, previousCity));
+        return updatedDto;
     }
 
     @Transactional
@@ -194,5 +849,10 @@ public class PropertyService {
                 .orElseThrow(() -> new ResourceNotFoundException("Property not found with id: " + id));
 
         propertyRepository.delete(property);
+        eventPublisher.publishEvent(new PropertyChangedEvent(id, null, cityOf(property)));
+    }
+
+    private static String cityOf(Property property) {
+        return property.getAddress() != null ? property.getAddress().getCity() : null;
     }
-}
\ No newline at end of file
+}
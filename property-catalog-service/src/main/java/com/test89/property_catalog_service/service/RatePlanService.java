@@ -0,0 +1,204 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.dto.AvailabilityCheckDto;
+import com.test89.property_catalog_service.dto.AvailabilityCheckResultDto;
+import com.test89.property_catalog_service.dto.AvailabilityReason;
+import com.test89.property_catalog_service.dto.PriceQuoteDto;
+import com.test89.property_catalog_service.dto.PriceQuoteRequestDto;
+import com.test89.property_catalog_service.dto.RatePlanDto;
+import com.test89.property_catalog_service.entity.Property;
+import com.test89.property_catalog_service.entity.PropertyRatePlan;
+import com.test89.property_catalog_service.entity.SeasonalRate;
+import com.test89.property_catalog_service.entity.StayDiscount;
+import com.test89.property_catalog_service.event.RatePlanChangedEvent;
+import com.test89.property_catalog_service.exception.ResourceNotFoundException;
+import com.test89.property_catalog_service.pricing.PricingEngine;
+import com.test89.property_catalog_service.pricing.Quote;
+import com.test89.property_catalog_service.pricing.RateCalendar;
+import com.test89.property_catalog_service.repository.PropertyRatePlanRepository;
+import com.test89.property_catalog_service.repository.PropertyRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class RatePlanService {
+
+    private final PropertyRatePlanRepository propertyRatePlanRepository;
+    private final PropertyRepository propertyRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PricingEngine pricingEngine;
+    private final ReservationService reservationService;
+
+    @Transactional(readOnly = true)
+    public RatePlanDto getRatePlan(Long propertyId) {
+        if (!propertyRepository.existsById(propertyId)) {
+            throw new ResourceNotFoundException("Property not found with id: " + propertyId);
+        }
+        return propertyRatePlanRepository.findById(propertyId)
+                .map(this::toDto)
+                .orElseGet(() -> RatePlanDto.builder()
+                        .propertyId(propertyId)
+                        .build());
+    }
+
+    /**
+     * Replace the property's pricing rules. Existing reservations keep the price they were booked at.
+     */
+    @Transactional
+    public RatePlanDto updateRatePlan(Long propertyId, RatePlanDto dto) {
+        if (!propertyRepository.existsById(propertyId)) {
+            throw new ResourceNotFoundException("Property not found with id: " + propertyId);
+        }
+        List<RatePlanDto.Season> seasons = dto.getSeasons() != null ? dto.getSeasons() : List.of();
+        List<RatePlanDto.Discount> discounts = dto.getStayDiscounts() != null ? dto.getStayDiscounts() : List.of();
+        validateSeasons(seasons);
+        validateDiscounts(discounts);
+
+        PropertyRatePlan plan = propertyRatePlanRepository.findById(propertyId)
+                .orElseGet(() -> PropertyRatePlan.builder()
+                        .propertyId(propertyId)
+                        .build());
+        plan.setWeekendPricePerDay(dto.getWeekendPricePerDay());
+        plan.getSeasons().clear();
+        seasons.stream()
+                .sorted(Comparator.comparing(RatePlanDto.Season::getStartDate))
+                .forEach(season -> plan.getSeasons().add(SeasonalRate.builder()
+                        .startDate(season.getStartDate())
+                        .endDate(season.getEndDate())
+                        .pricePerDay(season.getPricePerDay())
+                        .weekendPricePerDay(season.getWeekendPricePerDay())
+                        .build()));
+        plan.getStayDiscounts().clear();
+        discounts.stream()
+                .sorted(Comparator.comparing(RatePlanDto.Discount::getMinNights))
+                .forEach(discount -> plan.getStayDiscounts().add(StayDiscount.builder()
+                        .minNights(discount.getMinNights())
+                        .percentOff(discount.getPercentOff())
+                        .build()));
+
+        PropertyRatePlan saved = propertyRatePlanRepository.save(plan);
+        eventPublisher.publishEvent(new RatePlanChangedEvent(propertyId));
+        return toDto(saved);
+    }
+
+    /**
+     * Price the same stay at many properties, with the fees a reservation would be charged and whether it could
+     * be booked right now. Answered in request order; the properties are loaded with one query, their rate
+     * calendars from the pricing engine's cache.
+     */
+    @Transactional(readOnly = true)
+    public List<PriceQuoteDto> quoteStays(PriceQuoteRequestDto request) {
+        LocalDate checkInDate = request.getCheckInDate();
+        LocalDate checkOutDate = request.getCheckOutDate();
+        if (!checkInDate.isBefore(checkOutDate)) {
+            throw new IllegalArgumentException("Check-out date must be after check-in date");
+        }
+        if (checkInDate.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Check-in date cannot be in the past");
+        }
+
+        List<Long> propertyIds = request.getPropertyIds();
+        Map<Long, Property> properties = propertyRepository.findAllById(new HashSet<>(propertyIds)).stream()
+                .collect(Collectors.toMap(Property::getId, Function.identity()));
+        Map<Long, RateCalendar> calendars = pricingEngine.calendars(properties.values());
+        List<AvailabilityCheckResultDto> availability = reservationService.checkAvailabilityBatch(propertyIds.stream()
+                .map(id -> new AvailabilityCheckDto(id, checkInDate, checkOutDate))
+                .toList());
+
+        List<PriceQuoteDto> quotes = new ArrayList<>(propertyIds.size());
+        for (int i = 0; i < propertyIds.size(); i++) {
+            Long id = propertyIds.get(i);
+            Property property = properties.get(id);
+            AvailabilityReason reason = property == null
+                    ? AvailabilityReason.PROPERTY_NOT_FOUND
+                    : availability.get(i).getReason();
+            if (reason == AvailabilityReason.AVAILABLE && request.getGuestCount() != null
+                    && property.getMaxGuests() != null && request.getGuestCount() > property.getMaxGuests()) {
+                reason = AvailabilityReason.TOO_MANY_GUESTS;
+            }
+
+            PriceQuoteDto.PriceQuoteDtoBuilder quote = PriceQuoteDto.builder()
+                    .propertyId(id)
+                    .checkInDate(checkInDate)
+                    .checkOutDate(checkOutDate)
+                    .available(reason == AvailabilityReason.AVAILABLE)
+                    .reason(reason);
+            if (property != null) {
+                Quote price = calendars.get(id).quote(checkInDate, checkOutDate);
+                quote.nights(price.nights())
+                        .pricePerDay(Quote.money(price.averageNightlyMinor()))
+                        .nightlySubtotal(Quote.money(price.nightlyMinor()))
+                        .discount(Quote.money(price.discountMinor()))
+                        .cleaningFee(Quote.money(price.cleaningFeeMinor()))
+                        .serviceFee(Quote.money(price.serviceFeeMinor()))
+                        .taxAmount(Quote.money(price.taxMinor()))
+                        .totalPrice(Quote.money(price.totalMinor()));
+            }
+            quotes.add(quote.build());
+        }
+        return quotes;
+    }
+
+    private void validateSeasons(List<RatePlanDto.Season> seasons) {
+        LocalDate horizon = LocalDate.now().plusDays(PricingEngine.MAX_CALENDAR_DAYS - 1);
+        List<RatePlanDto.Season> sorted = seasons.stream()
+                .sorted(Comparator.comparing(RatePlanDto.Season::getStartDate))
+                .toList();
+        for (int i = 0; i < sorted.size(); i++) {
+            RatePlanDto.Season season = sorted.get(i);
+            if (season.getEndDate().isBefore(season.getStartDate())) {
+                throw new IllegalArgumentException("Season end date cannot be before its start date");
+            }
+            if (season.getEndDate().isAfter(horizon)) {
+                throw new IllegalArgumentException("Seasons can be set up to " + horizon + " at the latest");
+            }
+            if (i > 0 && !season.getStartDate().isAfter(sorted.get(i - 1).getEndDate())) {
+                throw new IllegalArgumentException("Seasons cannot overlap: " + sorted.get(i - 1).getStartDate()
+                        + " and " + season.getStartDate());
+            }
+        }
+    }
+
+    private void validateDiscounts(List<RatePlanDto.Discount> discounts) {
+        Set<Integer> minNights = new HashSet<>();
+        for (RatePlanDto.Discount discount : discounts) {
+            if (!minNights.add(discount.getMinNights())) {
+                throw new IllegalArgumentException("Duplicate length-of-stay discount for " + discount.getMinNights() + " nights");
+            }
+        }
+    }
+
+    private RatePlanDto toDto(PropertyRatePlan plan) {
+        return RatePlanDto.builder()
+                .propertyId(plan.getPropertyId())
+                .weekendPricePerDay(plan.getWeekendPricePerDay())
+                .seasons(plan.getSeasons().stream()
+                        .map(season -> RatePlanDto.Season.builder()
+                                .startDate(season.getStartDate())
+                                .endDate(season.getEndDate())
+                                .pricePerDay(season.getPricePerDay())
+                                .weekendPricePerDay(season.getWeekendPricePerDay())
+                                .build())
+                        .collect(Collectors.toCollection(ArrayList::new)))
+                .stayDiscounts(plan.getStayDiscounts().stream()
+                        .map(discount -> RatePlanDto.Discount.builder()
+                                .minNights(discount.getMinNights())
+                                .percentOff(discount.getPercentOff())
+                                .build())
+                        .collect(Collectors.toCollection(ArrayList::new)))
+                .build();
+    }
+}
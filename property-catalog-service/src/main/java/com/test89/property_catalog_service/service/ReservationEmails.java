@@ -0,0 +1,91 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.entity.Reservation;
+import com.test89.property_catalog_service.template.EmailTemplate;
+import com.test89.property_catalog_service.template.EmailTemplates;
+import com.test89.property_catalog_service.template.RenderedEmail;
+import com.test89.property_catalog_service.template.TemplateBindings;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * The emails sent to guests about their reservations, rendered from the precompiled templates in the guest's
+ * preferred locale and queued in the outbox. The change is often made by the owner or an admin, or by a
+ * scheduled job, so the locale of the current request is not the recipient's.
+ */
+@Component
+public class ReservationEmails {
+
+    private final EmailService emailService;
+    private final EmailTemplate<Reservation> confirmation;
+    private final EmailTemplate<Reservation> statusUpdate;
+    private final EmailTemplate<Reservation> cancellation;
+    private final EmailTemplate<Reservation> paymentConfirmation;
+
+    public ReservationEmails(EmailService emailService, EmailTemplates emailTemplates) {
+        this.emailService = emailService;
+        TemplateBindings<Reservation> bindings = bindings();
+        this.confirmation = emailTemplates.compile("reservation-confirmation", bindings);
+        this.statusUpdate = emailTemplates.compile("reservation-status-update", bindings);
+        this.cancellation = emailTemplates.compile("reservation-cancellation", bindings);
+        this.paymentConfirmation = emailTemplates.compile("payment-confirmation", bindings);
+    }
+
+    public void sendConfirmation(Reservation reservation) {
+        send(confirmation, reservation);
+    }
+
+    public void sendStatusUpdate(Reservation reservation) {
+        send(statusUpdate, reservation);
+    }
+
+    public void sendCancellation(Reservation reservation) {
+        send(cancellation, reservation);
+    }
+
+    public void sendPaymentConfirmation(Reservation reservation) {
+        send(paymentConfirmation, reservation);
+    }
+
+    private void send(EmailTemplate<Reservation> template, Reservation reservation) {
+        RenderedEmail email = template.render(reservation, reservation.getUser().locale());
+        emailService.queueEmail(reservation.getUser().getEmail(), email.subject(), email.htmlBody());
+    }
+
+    private static TemplateBindings<Reservation> bindings() {
+        return new TemplateBindings<Reservation>()
+                .bind("firstName", reservation -> reservation.getUser().getFirstName())
+                .bind("propertyTitle", reservation -> reservation.getProperty().getTitle())
+                .bind("checkInDate", Reservation::getCheckInDate)
+                .bind("checkInTime", reservation -> reservation.getProperty().getCheckInTime())
+                .bind("checkOutDate", Reservation::getCheckOutDate)
+                .bind("checkOutTime", reservation -> reservation.getProperty().getCheckOutTime())
+                .bind("numberOfDays", Reservation::getNumberOfDays)
+                .bind("guestCount", Reservation::getGuestCount)
+                .bind("pricePerDay", Reservation::getPricePerDay)
+                .bind("nightsSubtotal", ReservationEmails::nightsSubtotal)
+                .bind("cleaningFee", Reservation::getCleaningFee)
+                .bind("serviceFee", Reservation::getServiceFee)
+                .bind("taxAmount", Reservation::getTaxAmount)
+                .bind("totalPrice", Reservation::getTotalPrice)
+                .bind("status", Reservation::getStatus)
+                .bind("paid", reservation -> Boolean.TRUE.equals(reservation.getIsPaid()))
+                .bind("cancellationReason", Reservation::getCancellationReason)
+                .bind("paymentMethod", Reservation::getPaymentMethod)
+                .bind("paymentDate", Reservation::getPaymentDate)
+                .bind("paymentReference", Reservation::getPaymentReference);
+    }
+
+    // What the nights came to after any length-of-stay discount; pricePerDay is their average
+    private static BigDecimal nightsSubtotal(Reservation reservation) {
+        return reservation.getTotalPrice()
+                .subtract(orZero(reservation.getCleaningFee()))
+                .subtract(orZero(reservation.getServiceFee()))
+                .subtract(orZero(reservation.getTaxAmount()));
+    }
+
+    private static BigDecimal orZero(BigDecimal amount) {
+        return amount != null ? amount : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,233 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.dto.ReservationSpanDto;
+import com.test89.property_catalog_service.entity.ReservationStatus;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import com.test89.property_catalog_service.repository.ReservationRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves reservations out of the active set once they are over: CONFIRMED stays whose check-out has passed become
+ * COMPLETED, and unpaid PENDING reservations that can no longer be paid become EXPIRED. Both release their nights.
+ * <p>
+ * Candidates are read with row locks in id-ordered keyset chunks and flipped with one conditional UPDATE per chunk,
+ * each chunk in its own short transaction; rows changed in between drop out of the read, so the UPDATE flips every
+ * row read and the job never reports a change another transaction made. On
+ * PostgreSQL a run holds a session advisory lock, so only one node works at a time; other nodes skip the run.
+ */
+@Component
+public class ReservationLifecycleJob implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationLifecycleJob.class);
+
+    // Arbitrary, only needs to be unique among the application's advisory locks
+    private static final long ADVISORY_LOCK_KEY = 0x7265_7365_7276_6a62L;
+
+    private final ReservationRepository reservationRepository;
+    private final PropertyNightService propertyNightService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final int chunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private volatile double lastRunThroughput;
+    private volatile long lastRunLagSeconds;
+
+    public ReservationLifecycleJob(ReservationRepository reservationRepository,
+                                   PropertyNightService propertyNightService,
+                                   ApplicationEventPublisher eventPublisher,
+                                   TransactionTemplate transactionTemplate,
+                                   JdbcTemplate jdbcTemplate,
+                                   @Value("${app.reservation-lifecycle.chunk-size:500}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Lifecycle chunk size must be positive");
+        }
+        this.reservationRepository = reservationRepository;
+        this.propertyNightService = propertyNightService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * What one run did, and how far behind it started: the time since the oldest finished stay it found checked out.
+     */
+    public record RunStats(long completed, long expired, Duration elapsed, Duration lag) {
+
+        public double perSecond() {
+            long millis = Math.max(1, elapsed.toMillis());
+            return (completed + expired) * 1000.0 / millis;
+        }
+    }
+
+    @Scheduled(cron = "${app.reservation-lifecycle.cron:0 20 * * * *}")
+    public void completeAndExpire() {
+        run();
+    }
+
+    /**
+     * Run unless another node (or an earlier run on this one) is still at it; returns null when skipped.
+     */
+    public RunStats run() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            return jdbcTemplate.execute((ConnectionCallback<RunStats>) connection -> {
+                boolean postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+                if (postgres && !advisoryLock(connection, "pg_try_advisory_lock")) {
+                    logger.debug("Reservation lifecycle run skipped; another node holds the lock");
+                    return null;
+                }
+                try {
+                    return runChunks();
+                } finally {
+                    if (postgres) {
+                        advisoryLock(connection, "pg_advisory_unlock");
+                    }
+                }
+            });
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("reservation.lifecycle.completed", completed, AtomicLong::get)
+                .description("Checked-out stays moved from CONFIRMED to COMPLETED")
+                .register(registry);
+        FunctionCounter.builder("reservation.lifecycle.expired", expired, AtomicLong::get)
+                .description("Never-paid reservations moved from PENDING to EXPIRED")
+                .register(registry);
+        Gauge.builder("reservation.lifecycle.throughput", this, job -> job.lastRunThroughput)
+                .description("Reservations transitioned per second by the last run")
+                .register(registry);
+        Gauge.builder("reservation.lifecycle.lag", this, job -> job.lastRunLagSeconds)
+                .description("Seconds since the oldest finished stay found by the last run checked out")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    private RunStats runChunks() {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+
+        LocalDate oldestCheckOut = reservationRepository.findOldestFinishedCheckOut(today);
+        Duration lag = oldestCheckOut == null ? Duration.ZERO : Duration.between(oldestCheckOut.atStartOfDay(), now);
+
+        long completedCount = 0;
+        long afterId = 0;
+        while (true) {
+            long after = afterId;
+            Chunk chunk = transactionTemplate.execute(status -> complete(
+                    reservationRepository.findFinishedStays(today, after, PageRequest.of(0, chunkSize)), today));
+            completedCount += chunk.transitioned();
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            afterId = chunk.lastId();
+        }
+
+        long expiredCount = 0;
+        afterId = 0;
+        while (true) {
+            long after = afterId;
+            Chunk chunk = transactionTemplate.execute(status -> expire(
+                    reservationRepository.findNeverPaid(now, today, after, PageRequest.of(0, chunkSize)), today, now));
+            expiredCount += chunk.transitioned();
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            afterId = chunk.lastId();
+        }
+
+        RunStats stats = new RunStats(completedCount, expiredCount, Duration.ofNanos(System.nanoTime() - start), lag);
+        completed.addAndGet(completedCount);
+        expired.addAndGet(expiredCount);
+        lastRunThroughput = stats.perSecond();
+        lastRunLagSeconds = lag.toSeconds();
+        if (completedCount + expiredCount > 0) {
+            logger.info("Completed {} and expired {} reservations in {} ms ({} per second), {} behind",
+                    completedCount, expiredCount, stats.elapsed().toMillis(), Math.round(stats.perSecond()), lag);
+        }
+        return stats;
+    }
+
+    private record Chunk(int size, long lastId, int transitioned) {
+    }
+
+    private Chunk complete(List<ReservationSpanDto> stays, LocalDate today) {
+        if (stays.isEmpty()) {
+            return new Chunk(0, 0, 0);
+        }
+        List<Long> ids = stays.stream().map(ReservationSpanDto::getReservationId).toList();
+        int updated = reservationRepository.completeStays(ids, today, LocalDateTime.now());
+        int transitioned = release(stays, updated, ReservationStatus.CONFIRMED, ReservationStatus.COMPLETED);
+        return new Chunk(stays.size(), ids.get(ids.size() - 1), transitioned);
+    }
+
+    private Chunk expire(List<ReservationSpanDto> holds, LocalDate today, LocalDateTime now) {
+        if (holds.isEmpty()) {
+            return new Chunk(0, 0, 0);
+        }
+        List<Long> ids = holds.stream().map(ReservationSpanDto::getReservationId).toList();
+        int updated = reservationRepository.expireNeverPaid(ids, today, now);
+        int transitioned = release(holds, updated, ReservationStatus.PENDING, ReservationStatus.EXPIRED);
+        return new Chunk(holds.size(), ids.get(ids.size() - 1), transitioned);
+    }
+
+    // Release the nights of the rows the UPDATE flipped and tell the indexes and caches
+    private int release(List<ReservationSpanDto> spans, int updated, String from, String to) {
+        if (updated != spans.size()) {
+            // The rows are locked, so this would mean releasing nights of reservations the UPDATE did not flip
+            throw new IllegalStateException(
+                    "Moved " + updated + " of " + spans.size() + " locked reservations to " + to);
+        }
+
+        propertyNightService.releaseAll(spans);
+        for (ReservationSpanDto span : spans) {
+            eventPublisher.publishEvent(new ReservationChangedEvent(span.getReservationId(), span.getPropertyId(),
+                    span.getCheckInDate(), span.getCheckOutDate(), from, to));
+        }
+        return spans.size();
+    }
+
+    private static boolean advisoryLock(Connection connection, String function) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT " + function + "(?)")) {
+            statement.setLong(1, ADVISORY_LOCK_KEY);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
@@ -1,30 +1,59 @@
 package com.test89.property_catalog_service.service;
 
+import com.test89.property_catalog_service.cache.ReservationCalendarCache;
+import com.test89.property_catalog_service.config.BookingConstraintInitializer;
+import com.test89.property_catalog_service.dto.AvailabilityCheckDto;
+import com.test89.property_catalog_service.dto.AvailabilityCheckResultDto;
+import com.test89.property_catalog_service.dto.AvailabilityReason;
+import com.test89.property_catalog_service.dto.PropertySummaryDto;
 import com.test89.property_catalog_service.dto.ReservationCreateDto;
 import com.test89.property_catalog_service.dto.ReservationDto;
+import com.test89.property_catalog_service.dto.ReservationSpanDto;
 import com.test89.property_catalog_service.entity.Property;
 import com.test89.property_catalog_service.entity.Reservation;
+import com.test89.property_catalog_service.entity.ReservationStatus;
 import com.test89.property_catalog_service.entity.User;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
 import com.test89.property_catalog_service.exception.ResourceNotFoundException;
+import com.test89.property_catalog_service.hold.BookingHolds;
+import com.test89.property_catalog_service.index.ListingSnapshot;
+import com.test89.property_catalog_service.index.ReservationIntervalIndex;
 import com.test89.property_catalog_service.mapper.ReservationMapper;
+import com.test89.property_catalog_service.pricing.PricingEngine;
+import com.test89.property_catalog_service.pricing.Quote;
 import com.test89.property_catalog_service.repository.PropertyRepository;
 import com.test89.property_catalog_service.repository.ReservationRepository;
 import com.test89.property_catalog_service.repository.UserRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -34,15 +63,45 @@ public class ReservationService {
     private final PropertyRepository propertyRepository;
     private final UserRepository userRepository;
     private final ReservationMapper reservationMapper;
-    private final EmailService emailService;
+    private final ReservationEmails reservationEmails;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReservationIntervalIndex reservationIntervalIndex;
+    private final PropertyNightService propertyNightService;
+    private final ListingSnapshot listingSnapshot;
+    private final BookingLocks bookingLocks;
+    private final BookingHolds bookingHolds;
+    private final TransactionTemplate transactionTemplate;
+    private final PricingEngine pricingEngine;
+    private final EntityManager entityManager;
+    private final ReservationCalendarCache reservationCalendarCache;
+
+    private static final int MAX_AVAILABILITY_CHECKS = 500;
+    private static final int MAX_BOOKING_ATTEMPTS = 3;
+    private static final int MAX_TRANSITION_ATTEMPTS = 3;
+
+    /**
+     * Books the stay while holding the property's striped lock. The lock is released only after the transaction
+     * has committed and the interval index has caught up, so the next booking of the same property sees this one.
+     * Deadlocks and serialization failures against bookings made by other instances are retried.
+     */
+    public ReservationDto createReservation(ReservationCreateDto createDto, String username) {
+        return bookingLocks.withLock(createDto.getPropertyId(), () -> bookWithRetry(createDto, username));
+    }
 
-    // Fixed service fee percentage (can be moved to configuration)
-    private static final BigDecimal SERVICE_FEE_PERCENTAGE = new BigDecimal("0.10"); // 10%
-    private static final BigDecimal TAX_PERCENTAGE = new BigDecimal("0.05"); // 5%
-    private static final BigDecimal CLEANING_FEE_BASE = new BigDecimal("25.00"); // Base cleaning fee
+    private ReservationDto bookWithRetry(ReservationCreateDto createDto, String username) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> book(createDto, username));
+            } catch (ConcurrencyFailureException e) {
+                if (attempt == MAX_BOOKING_ATTEMPTS) {
+                    throw e;
+                }
+                // Lost a lock race on the database; the next attempt re-runs every check
+            }
+        }
+    }
 
-    @Transactional
-    public ReservationDto createReservation(ReservationCreateDto createDto, String username) {
+    private ReservationDto book(ReservationCreateDto createDto, String username) {
         // Find the user
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
@@ -69,24 +128,13 @@ public class ReservationService {
         validateGuestCount(property, createDto.getGuestCount());
 
         // Check for overlapping reservations
-        List<Reservation> overlappingReservations = reservationRepository.findOverlappingReservations(
-                property.getId(), createDto.getCheckInDate(), createDto.getCheckOutDate());
-
-        if (!overlappingReservations.isEmpty()) {
+        if (reservationIntervalIndex.hasOverlap(
+                property.getId(), createDto.getCheckInDate(), createDto.getCheckOutDate())) {
             throw new IllegalStateException("The property is already booked for the selected dates");
         }
 
-        // Calculate pricing
-        BigDecimal pricePerDay = property.getPricePerDay();
-        BigDecimal subtotal = pricePerDay.multiply(BigDecimal.valueOf(stayDuration));
-
-        // Calculate fees
-        BigDecimal cleaningFee = calculateCleaningFee(property, stayDuration);
-        BigDecimal serviceFee = subtotal.multiply(SERVICE_FEE_PERCENTAGE).setScale(2, RoundingMode.HALF_UP);
-        BigDecimal taxAmount = subtotal.multiply(TAX_PERCENTAGE).setScale(2, RoundingMode.HALF_UP);
-
-        // Calculate total price
-        BigDecimal totalPrice = subtotal.add(cleaningFee).add(serviceFee).add(taxAmount);
+        // Price the stay from the property's rate calendar
+        Quote quote = pricingEngine.quote(property, createDto.getCheckInDate(), createDto.getCheckOutDate());
 
         // Create reservation
         Reservation reservation = Reservation.builder()
@@ -95,45 +143,34 @@ public class ReservationService {
                 .checkInDate(createDto.getCheckInDate())
                 .checkOutDate(createDto.getCheckOutDate())
                 .numberOfDays(stayDuration)
-                .pricePerDay(pricePerDay)
-                .totalPrice(totalPrice)
-                .cleaningFee(cleaningFee)
-                .serviceFee(serviceFee)
-                .taxAmount(taxAmount)
+                .pricePerDay(Quote.money(quote.averageNightlyMinor()))
+                .totalPrice(Quote.money(quote.totalMinor()))
+                .cleaningFee(Quote.money(quote.cleaningFeeMinor()))
+                .serviceFee(Quote.money(quote.serviceFeeMinor()))
+                .taxAmount(Quote.money(quote.taxMinor()))
                 .status("PENDING") // Initial status
                 .specialRequests(createDto.getSpecialRequests())
                 .guestCount(createDto.getGuestCount())
                 .isPaid(false) // Initially not paid
                 .paymentMethod(createDto.getPaymentMethod())
+                .holdExpiresAt(bookingHolds.newDeadline()) // Released unless paid in time
                 .build();
 
-        Reservation savedReservation = reservationRepository.save(reservation);
-
-        // Send confirmation email
+        Reservation savedReservation;
         try {
-            sendReservationConfirmationEmail(savedReservation);
-        } catch (Exception e) {
-            // Log error but don't fail the reservation
-            System.err.println("Failed to send reservation confirmation email: " + e.getMessage());
-        }
-
-        return reservationMapper.toDto(savedReservation);
-    }
-
-    private BigDecimal calculateCleaningFee(Property property, int stayDuration) {
-        // Base fee plus additional based on property size and stay duration
-        BigDecimal sizeFactor = BigDecimal.ONE;
-        if (property.getBedrooms() != null) {
-            sizeFactor = sizeFactor.add(new BigDecimal("0.25").multiply(BigDecimal.valueOf(property.getBedrooms())));
+            savedReservation = reservationRepository.saveAndFlush(reservation);
+        } catch (DataIntegrityViolationException e) {
+            // Another instance booked overlapping dates and the exclusion constraint rejected this one
+            throw alreadyBookedOr(e);
         }
+        propertyNightService.occupy(savedReservation);
+        bookingHolds.track(savedReservation.getId(), savedReservation.getHoldExpiresAt());
+        publishChange(savedReservation, null);
 
-        // Longer stays may require more cleaning
-        BigDecimal durationFactor = BigDecimal.ONE;
-        if (stayDuration > 7) {
-            durationFactor = new BigDecimal("1.5"); // 50% more for longer stays
-        }
+        // Queue confirmation email; it is sent once the booking commits
+        reservationEmails.sendConfirmation(savedReservation);
 
-        return CLEANING_FEE_BASE.multiply(sizeFactor).multiply(durationFactor).setScale(2, RoundingMode.HALF_UP);
+        return reservationMapper.toDto(savedReservation);
     }
 
     private void validateReservationDates(LocalDate checkInDate, LocalDate checkOutDate) {
@@ -212,48 +249,82 @@ public class ReservationService {
                 .map(reservationMapper::toDto);
     }
 
-    @Transactional
+    /**
+     * Moving a reservation to PENDING may reopen an expired hold, which takes its dates again. That runs under the
+     * property's booking lock, with the same date and overlap checks as a new booking; other changes only need
+     * the conditional update.
+     */
     public ReservationDto updateReservationStatus(Long id, String status, String username) {
-        Reservation reservation = reservationRepository.findById(id)
+        if (!ReservationStatus.isKnown(status)) {
+            throw new IllegalArgumentException("Unknown reservation status: " + status);
+        }
+        if (!ReservationStatus.PENDING.equals(status)) {
+            return transactionTemplate.execute(transaction -> applyStatus(id, status, username));
+        }
+        Long propertyId = reservationRepository.findPropertyIdById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Reservation not found with id: " + id));
+        return bookingLocks.withLock(propertyId,
+                () -> transactionTemplate.execute(transaction -> applyStatus(id, status, username)));
+    }
 
+    private ReservationDto applyStatus(Long id, String status, String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
-
         boolean isAdmin = user.getRoles().contains("ROLE_ADMIN");
-        boolean isPropertyOwner = reservation.getProperty().getOwner().getId().equals(user.getId());
-
-        // Only admin, property owner, or the user who made the reservation (for cancellations only) can update status
-        boolean isReservationOwner = reservation.getUser().getId().equals(user.getId());
-        boolean isAllowedUpdate = isAdmin || isPropertyOwner || (isReservationOwner && "CANCELLED".equals(status));
-
-        if (!isAllowedUpdate) {
-            throw new AccessDeniedException("You don't have permission to update this reservation");
-        }
-
-        // Update the status
-        reservation.setStatus(status);
 
-        // If cancelling, record the cancellation time and reason
-        if ("CANCELLED".equals(status)) {
-            reservation.setCancellationReason("Cancelled by " + (isReservationOwner ? "guest" : "host"));
+        Transitioned transitioned = transition(id, reservation -> {
+            boolean isPropertyOwner = reservation.getProperty().getOwner().getId().equals(user.getId());
+
+            // Only admin, property owner, or the user who made the reservation (for cancellations only) can update status
+            boolean isReservationOwner = reservation.getUser().getId().equals(user.getId());
+            boolean isAllowedUpdate = isAdmin || isPropertyOwner
+                    || (isReservationOwner && ReservationStatus.CANCELLED.equals(status));
+
+            if (!isAllowedUpdate) {
+                throw new AccessDeniedException("You don't have permission to update this reservation");
+            }
+
+            String previousStatus = reservation.getStatus();
+            ReservationStatus.checkTransition(previousStatus, status);
+            if (!ReservationChangedEvent.ACTIVE_STATUSES.contains(previousStatus)
+                    && ReservationChangedEvent.ACTIVE_STATUSES.contains(status)) {
+                // Its dates were released when it expired; they may have been booked since
+                validateReservationDates(reservation.getCheckInDate(), reservation.getCheckOutDate());
+                if (reservationIntervalIndex.hasOverlap(reservation.getProperty().getId(),
+                        reservation.getCheckInDate(), reservation.getCheckOutDate())) {
+                    throw new IllegalStateException("The property is already booked for the selected dates");
+                }
+            }
+            reservation.setStatus(status);
+
+            // If cancelling, record the cancellation time and reason
+            if (ReservationStatus.CANCELLED.equals(status)) {
+                reservation.setCancellationReason("Cancelled by " + (isReservationOwner ? "guest" : "host"));
+            }
+
+            // If confirming, record payment if provided
+            if (ReservationStatus.CONFIRMED.equals(status) && !Boolean.TRUE.equals(reservation.getIsPaid())) {
+                reservation.setIsPaid(true);
+                reservation.setPaymentDate(LocalDateTime.now());
+            }
+
+            // Moving an unpaid reservation back to PENDING starts a fresh hold
+            if (ReservationStatus.PENDING.equals(status) && !ReservationStatus.PENDING.equals(previousStatus)
+                    && !Boolean.TRUE.equals(reservation.getIsPaid())) {
+                reservation.setHoldExpiresAt(bookingHolds.newDeadline());
+            }
+        });
+
+        Reservation updatedReservation = transitioned.reservation();
+        String previousStatus = transitioned.previousStatus();
+        propertyNightService.onStatusChange(updatedReservation, previousStatus);
+        if (ReservationStatus.PENDING.equals(status) && !Boolean.TRUE.equals(updatedReservation.getIsPaid())) {
+            bookingHolds.track(updatedReservation.getId(), updatedReservation.getHoldExpiresAt());
         }
+        publishChange(updatedReservation, previousStatus);
 
-        // If confirming, record payment if provided
-        if ("CONFIRMED".equals(status) && !Boolean.TRUE.equals(reservation.getIsPaid())) {
-            reservation.setIsPaid(true);
-            reservation.setPaymentDate(LocalDateTime.now());
-        }
-
-        Reservation updatedReservation = reservationRepository.save(reservation);
-
-        // Send status update email
-        try {
-            sendReservationStatusUpdateEmail(updatedReservation);
-        } catch (Exception e) {
-            // Log error but don't fail the update
-            System.err.println("Failed to send reservation status update email: " + e.getMessage());
-        }
+        // Queue reservation status update email; it is sent once the transaction commits
+        reservationEmails.sendStatusUpdate(updatedReservation);
 
         return reservationMapper.toDto(updatedReservation);
     }
@@ -308,186 +379,321 @@ public class ReservationService {
         }
 
         // Check for overlapping reservations
-        List<Reservation> overlappingReservations = reservationRepository.findOverlappingReservations(
-                propertyId, checkInDate, checkOutDate);
+        return !reservationIntervalIndex.hasOverlap(propertyId, checkInDate, checkOutDate);
+    }
+
+    /**
+     * Same rules as isPropertyAvailable for many (property, dates) tuples at once, answered in request order.
+     * Property rules come from the listing snapshot or one query, conflicts from the interval index or one
+     * query over all requested properties. Problems with a single tuple are reported as its reason, not thrown.
+     */
+    @Transactional(readOnly = true)
+    public List<AvailabilityCheckResultDto> checkAvailabilityBatch(List<AvailabilityCheckDto> checks) {
+        if (checks.size() > MAX_AVAILABILITY_CHECKS) {
+            throw new IllegalArgumentException("At most " + MAX_AVAILABILITY_CHECKS + " availability checks can be sent at once");
+        }
+
+        Set<Long> propertyIds = checks.stream()
+                .map(AvailabilityCheckDto::getPropertyId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, StayRules> rules = loadStayRules(propertyIds);
+        Map<Long, List<ReservationSpanDto>> spans = reservationIntervalIndex.isReady() ? null : loadActiveSpans(checks);
+
+        LocalDate today = LocalDate.now();
+        List<AvailabilityCheckResultDto> results = new ArrayList<>(checks.size());
+        for (AvailabilityCheckDto check : checks) {
+            AvailabilityReason reason = checkAvailability(check, rules, spans, today);
+            results.add(new AvailabilityCheckResultDto(check.getPropertyId(), check.getCheckInDate(),
+                    check.getCheckOutDate(), reason == AvailabilityReason.AVAILABLE, reason));
+        }
+        if (spans == null) {
+            confirmIndexConflicts(checks, results, rules, today);
+        }
+        return results;
+    }
+
+    private AvailabilityReason checkAvailability(AvailabilityCheckDto check, Map<Long, StayRules> rules,
+                                                 Map<Long, List<ReservationSpanDto>> spans, LocalDate today) {
+        LocalDate checkInDate = check.getCheckInDate();
+        LocalDate checkOutDate = check.getCheckOutDate();
+        if (checkInDate == null || checkOutDate == null
+                || !checkInDate.isBefore(checkOutDate) || checkInDate.isBefore(today)) {
+            return AvailabilityReason.INVALID_DATES;
+        }
+
+        StayRules property = rules.get(check.getPropertyId());
+        if (property == null) {
+            return AvailabilityReason.PROPERTY_NOT_FOUND;
+        }
+        if (!"Available".equals(property.status())) {
+            return AvailabilityReason.PROPERTY_UNAVAILABLE;
+        }
 
-        return overlappingReservations.isEmpty();
+        int stayDuration = (int) ChronoUnit.DAYS.between(checkInDate, checkOutDate);
+        if (property.minStayDays() != null && stayDuration < property.minStayDays()) {
+            return AvailabilityReason.BELOW_MIN_STAY;
+        }
+        if (property.maxStayDays() != null && stayDuration > property.maxStayDays()) {
+            return AvailabilityReason.ABOVE_MAX_STAY;
+        }
+
+        boolean conflict = spans == null
+                ? reservationIntervalIndex.findFirstConflict(check.getPropertyId(), checkInDate, checkOutDate).isPresent()
+                : spans.getOrDefault(check.getPropertyId(), List.of()).stream().anyMatch(span ->
+                        !span.getCheckInDate().isAfter(checkOutDate) && !span.getCheckOutDate().isBefore(checkInDate));
+        return conflict ? AvailabilityReason.CONFLICT : AvailabilityReason.AVAILABLE;
+    }
+
+    // The interval index only knows this node's changes: re-check its conflicts with one query, not one per check
+    private void confirmIndexConflicts(List<AvailabilityCheckDto> checks, List<AvailabilityCheckResultDto> results,
+                                       Map<Long, StayRules> rules, LocalDate today) {
+        List<AvailabilityCheckDto> conflicting = new ArrayList<>();
+        for (int i = 0; i < checks.size(); i++) {
+            if (results.get(i).getReason() == AvailabilityReason.CONFLICT) {
+                conflicting.add(checks.get(i));
+            }
+        }
+        if (conflicting.isEmpty()) {
+            return;
+        }
+
+        Map<Long, List<ReservationSpanDto>> confirmed = loadActiveSpans(conflicting);
+        Set<Long> stale = new HashSet<>();
+        for (int i = 0; i < checks.size(); i++) {
+            if (results.get(i).getReason() != AvailabilityReason.CONFLICT) {
+                continue;
+            }
+            AvailabilityCheckDto check = checks.get(i);
+            AvailabilityReason reason = checkAvailability(check, rules, confirmed, today);
+            if (reason != AvailabilityReason.CONFLICT) {
+                stale.add(check.getPropertyId());
+                results.set(i, new AvailabilityCheckResultDto(check.getPropertyId(), check.getCheckInDate(),
+                        check.getCheckOutDate(), reason == AvailabilityReason.AVAILABLE, reason));
+            }
+        }
+        stale.forEach(reservationIntervalIndex::refresh);
+    }
+
+    private record StayRules(String status, Integer minStayDays, Integer maxStayDays) {
+    }
+
+    private Map<Long, StayRules> loadStayRules(Set<Long> propertyIds) {
+        Map<Long, StayRules> rules = new HashMap<>();
+        if (listingSnapshot.isReady()) {
+            for (Long id : propertyIds) {
+                ListingSnapshot.Listing listing = listingSnapshot.get(id);
+                if (listing != null) {
+                    rules.put(id, new StayRules(listing.status(), listing.minStayDays(), listing.maxStayDays()));
+                }
+            }
+        } else if (!propertyIds.isEmpty()) {
+            for (Object[] row : propertyRepository.findStayRulesByIdIn(propertyIds)) {
+                rules.put((Long) row[0], new StayRules((String) row[1], (Integer) row[2], (Integer) row[3]));
+            }
+        }
+        return rules;
+    }
+
+    // Active spans of every requested property over the whole requested period, used until the interval index is built
+    private Map<Long, List<ReservationSpanDto>> loadActiveSpans(List<AvailabilityCheckDto> checks) {
+        List<AvailabilityCheckDto> dated = checks.stream()
+                .filter(check -> check.getPropertyId() != null
+                        && check.getCheckInDate() != null && check.getCheckOutDate() != null)
+                .toList();
+        if (dated.isEmpty()) {
+            return Map.of();
+        }
+
+        Set<Long> propertyIds = dated.stream().map(AvailabilityCheckDto::getPropertyId).collect(Collectors.toSet());
+        LocalDate from = dated.stream().map(AvailabilityCheckDto::getCheckInDate).min(Comparator.naturalOrder()).get();
+        LocalDate to = dated.stream().map(AvailabilityCheckDto::getCheckOutDate).max(Comparator.naturalOrder()).get();
+        return reservationRepository.findActiveSpansByPropertyIds(propertyIds, from, to).stream()
+                .collect(Collectors.groupingBy(ReservationSpanDto::getPropertyId));
     }
 
     @Transactional
     public void cancelReservation(Long id, String username) {
-        Reservation reservation = reservationRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Reservation not found with id: " + id));
-
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
-
         boolean isAdmin = user.getRoles().contains("ROLE_ADMIN");
-        boolean isPropertyOwner = reservation.getProperty().getOwner().getId().equals(user.getId());
-        boolean isReservationOwner = reservation.getUser().getId().equals(user.getId());
 
-        if (!isAdmin && !isPropertyOwner && !isReservationOwner) {
-            throw new AccessDeniedException("You don't have permission to cancel this reservation");
-        }
+        Transitioned transitioned = transition(id, reservation -> {
+            boolean isPropertyOwner = reservation.getProperty().getOwner().getId().equals(user.getId());
+            boolean isReservationOwner = reservation.getUser().getId().equals(user.getId());
 
-        // Check if cancellation is allowed (e.g., not too close to check-in date)
-        LocalDate today = LocalDate.now();
-        long daysUntilCheckIn = ChronoUnit.DAYS.between(today, reservation.getCheckInDate());
+            if (!isAdmin && !isPropertyOwner && !isReservationOwner) {
+                throw new AccessDeniedException("You don't have permission to cancel this reservation");
+            }
 
-        // For guest cancellations, apply cancellation policy (e.g., must be more than 2 days in advance)
-        if (isReservationOwner && !isAdmin && daysUntilCheckIn < 2) {
-            throw new IllegalStateException("Cancellations must be made at least 2 days before check-in");
-        }
+            // Check if cancellation is allowed (e.g., not too close to check-in date)
+            LocalDate today = LocalDate.now();
+            long daysUntilCheckIn = ChronoUnit.DAYS.between(today, reservation.getCheckInDate());
 
-        // Set status to cancelled
-        reservation.setStatus("CANCELLED");
-        reservation.setCancellationReason(isReservationOwner ? "Cancelled by guest" : "Cancelled by host");
-        reservationRepository.save(reservation);
+            // For guest cancellations, apply cancellation policy (e.g., must be more than 2 days in advance)
+            if (isReservationOwner && !isAdmin && daysUntilCheckIn < 2) {
+                throw new IllegalStateException("Cancellations must be made at least 2 days before check-in");
+            }
 
-        // Send cancellation email
-        try {
-            sendReservationCancellationEmail(reservation);
-        } catch (Exception e) {
-            // Log error but don't fail the cancellation
-            System.err.println("Failed to send reservation cancellation email: " + e.getMessage());
-        }
+            reservation.setStatus(ReservationStatus.CANCELLED);
+            reservation.setCancellationReason(isReservationOwner ? "Cancelled by guest" : "Cancelled by host");
+        });
+
+        Reservation reservation = transitioned.reservation();
+        propertyNightService.onStatusChange(reservation, transitioned.previousStatus());
+        publishChange(reservation, transitioned.previousStatus());
+
+        // Queue reservation cancellation email; it is sent once the transaction commits
+        reservationEmails.sendCancellation(reservation);
     }
 
     @Transactional
     public ReservationDto recordPayment(Long reservationId, String paymentMethod, String paymentReference, String username) {
-        Reservation reservation = reservationRepository.findById(reservationId)
-                .orElseThrow(() -> new ResourceNotFoundException("Reservation not found with id: " + reservationId));
-
         // Security check - only allow payment by the reservation owner or admin
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
-
         boolean isAdmin = user.getRoles().contains("ROLE_ADMIN");
-        boolean isReservationOwner = reservation.getUser().getId().equals(user.getId());
 
-        if (!isAdmin && !isReservationOwner) {
-            throw new AccessDeniedException("You don't have permission to record payment for this reservation");
-        }
+        Transitioned transitioned = transition(reservationId, reservation -> {
+            boolean isReservationOwner = reservation.getUser().getId().equals(user.getId());
+
+            if (!isAdmin && !isReservationOwner) {
+                throw new AccessDeniedException("You don't have permission to record payment for this reservation");
+            }
+
+            // Only allow payment if reservation is in pending or confirmed status. Not ACTIVE_STATUSES: that also
+            // holds BLOCKED, the imported dates of other channels, which are never paid here
+            if (ReservationStatus.BLOCKED.equals(reservation.getStatus())) {
+                throw new IllegalStateException("Payment cannot be recorded for dates blocked by an imported calendar");
+            }
+            if (!ReservationStatus.PENDING.equals(reservation.getStatus())
+                    && !ReservationStatus.CONFIRMED.equals(reservation.getStatus())) {
+                throw new IllegalStateException("Payment can only be recorded for pending or confirmed reservations, not "
+                        + reservation.getStatus().toLowerCase(Locale.ROOT) + " ones");
+            }
+
+            // Record payment details
+            reservation.setIsPaid(true);
+            reservation.setPaymentDate(LocalDateTime.now());
+            reservation.setPaymentMethod(paymentMethod);
+            reservation.setPaymentReference(paymentReference);
 
-        // Only allow payment if reservation is in pending or confirmed status
-        if (!("PENDING".equals(reservation.getStatus()) || "CONFIRMED".equals(reservation.getStatus()))) {
-            throw new IllegalStateException("Payment can only be recorded for pending or confirmed reservations");
-        }
+            // If reservation was pending, update to confirmed
+            reservation.setStatus(ReservationStatus.CONFIRMED);
+        });
 
-        // Record payment details
-        reservation.setIsPaid(true);
-        reservation.setPaymentDate(LocalDateTime.now());
-        reservation.setPaymentMethod(paymentMethod);
-        reservation.setPaymentReference(paymentReference);
+        Reservation updatedReservation = transitioned.reservation();
+        publishChange(updatedReservation, transitioned.previousStatus());
 
-        // If reservation was pending, update to confirmed
-        if ("PENDING".equals(reservation.getStatus())) {
-            reservation.setStatus("CONFIRMED");
-        }
+        // Queue payment confirmation email; it is sent once the transaction commits
+        reservationEmails.sendPaymentConfirmation(updatedReservation);
 
-        Reservation updatedReservation = reservationRepository.save(reservation);
+        return reservationMapper.toDto(updatedReservation);
+    }
 
-        // Send payment confirmation email
-        try {
-            sendPaymentConfirmationEmail(updatedReservation);
-        } catch (Exception e) {
-            // Log error but don't fail the payment recording
-            System.err.println("Failed to send payment confirmation email: " + e.getMessage());
+    // The overlap exclusion constraint's violation as the booking error callers get; anything else as it is
+    private static RuntimeException alreadyBookedOr(DataIntegrityViolationException e) {
+        if (String.valueOf(NestedExceptionUtils.getMostSpecificCause(e).getMessage())
+                .contains(BookingConstraintInitializer.OVERLAP_CONSTRAINT)) {
+            return new IllegalStateException("The property is already booked for the selected dates");
         }
+        return e;
+    }
 
-        return reservationMapper.toDto(updatedReservation);
+    private record Transitioned(Reservation reservation, String previousStatus) {
     }
 
-    // Get reservations for a month (for calendar view)
+    /**
+     * Apply a status or payment change with one conditional UPDATE on the reservation's id, status and version,
+     * without locking the row. The change is made to a detached copy; if another request or the hold expiry
+     * updated the reservation in between, it is read again and the change re-applied, so the permission and
+     * state checks inside the change always run against the state that is actually written over.
+     */
+    private Transitioned transition(Long id, Consumer<Reservation> change) {
+        for (int attempt = 1; ; attempt++) {
+            Reservation reservation = reservationRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Reservation not found with id: " + id));
+            entityManager.detach(reservation);
+            String previousStatus = reservation.getStatus();
+            Long version = reservation.getVersion();
+
+            change.accept(reservation);
+            if (!previousStatus.equals(reservation.getStatus())) {
+                ReservationStatus.checkTransition(previousStatus, reservation.getStatus());
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            int updated;
+            try {
+                updated = reservationRepository.compareAndSet(id, previousStatus, version,
+                        reservation.getStatus(), reservation.getCancellationReason(),
+                        reservation.getIsPaid(), reservation.getPaymentDate(),
+                        reservation.getPaymentMethod(), reservation.getPaymentReference(),
+                        reservation.getHoldExpiresAt(), now);
+            } catch (DataIntegrityViolationException e) {
+                // A reopened hold whose dates another instance booked in the meantime
+                throw alreadyBookedOr(e);
+            }
+            if (updated == 1) {
+                reservation.setVersion(version + 1);
+                reservation.setUpdatedAt(now);
+                return new Transitioned(reservation, previousStatus);
+            }
+            if (attempt == MAX_TRANSITION_ATTEMPTS) {
+                throw new OptimisticLockingFailureException("Reservation " + id + " kept changing while being updated");
+            }
+            // Lost the race; the next attempt re-reads the reservation and re-runs every check
+        }
+    }
+
+    /**
+     * Active reservations whose stay touches the month, for the owner's calendar view. Served from the calendar
+     * cache; a miss costs one query for the property and one projection query for the reservations and guests.
+     */
     @Transactional(readOnly = true)
-    public List<Reservation> getMonthlyReservations(Long propertyId, int year, int month, String username) {
-        // Verify property exists
-        Property property = propertyRepository.findById(propertyId)
-                .orElseThrow(() -> new ResourceNotFoundException("Property not found with id: " + propertyId));
+    public List<ReservationDto> getMonthlyCalendar(Long propertyId, int year, int month, String username) {
+        if (month < 1 || month > 12) {
+            throw new IllegalArgumentException("Month must be between 1 and 12");
+        }
+        YearMonth yearMonth = YearMonth.of(year, month);
 
         // Security check - only allow viewing by the property owner or admin
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
-        boolean isAdmin = user.getRoles().contains("ROLE_ADMIN");
-        boolean isPropertyOwner = property.getOwner().getId().equals(user.getId());
+        ReservationCalendarCache.Key key = new ReservationCalendarCache.Key(propertyId, yearMonth);
+        ReservationCalendarCache.Month calendar = reservationCalendarCache.get(key);
+        if (calendar == null) {
+            long generation = reservationCalendarCache.generation();
+            Property property = propertyRepository.findById(propertyId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Property not found with id: " + propertyId));
+
+            PropertySummaryDto summary = reservationMapper.toSummary(property);
+            List<ReservationDto> reservations = reservationRepository.findCalendar(
+                    propertyId, yearMonth.atDay(1), yearMonth.atEndOfMonth());
+            reservations.forEach(reservation -> reservation.setProperty(summary));
+
+            calendar = new ReservationCalendarCache.Month(
+                    property.getOwner() != null ? property.getOwner().getId() : null, List.copyOf(reservations));
+            reservationCalendarCache.put(key, calendar, generation);
+        }
 
+        boolean isAdmin = user.getRoles().contains("ROLE_ADMIN");
+        boolean isPropertyOwner = user.getId().equals(calendar.ownerId());
         if (!isAdmin && !isPropertyOwner) {
             throw new AccessDeniedException("You don't have permission to view this property's reservations");
         }
-
-        return reservationRepository.findReservationsByPropertyAndMonth(propertyId, year, month);
-    }
-
-    private void sendReservationConfirmationEmail(Reservation reservation) {
-        String subject = "Reservation Confirmation - Property Rental System";
-        String body = "<h3>Hi " + reservation.getUser().getFirstName() + ",</h3>" +
-                "<p>Your reservation has been confirmed with the following details:</p>" +
-                "<p><b>Property:</b> " + reservation.getProperty().getTitle() + "</p>" +
-                "<p><b>Check-in Date:</b> " + reservation.getCheckInDate() +
-                " at " + (reservation.getProperty().getCheckInTime() != null ?
-                reservation.getProperty().getCheckInTime() : "3:00 PM") + "</p>" +
-                "<p><b>Check-out Date:</b> " + reservation.getCheckOutDate() +
-                " at " + (reservation.getProperty().getCheckOutTime() != null ?
-                reservation.getProperty().getCheckOutTime() : "11:00 AM") + "</p>" +
-                "<p><b>Number of Days:</b> " + reservation.getNumberOfDays() + "</p>" +
-                "<p><b>Number of Guests:</b> " + reservation.getGuestCount() + "</p>" +
-                "<p><b>Price Breakdown:</b></p>" +
-                "<ul>" +
-                "<li>Daily Rate: $" + reservation.getPricePerDay() + " x " + reservation.getNumberOfDays() +
-                " days = $" + reservation.getPricePerDay().multiply(BigDecimal.valueOf(reservation.getNumberOfDays())) + "</li>" +
-                (reservation.getCleaningFee() != null ? "<li>Cleaning Fee: $" + reservation.getCleaningFee() + "</li>" : "") +
-                (reservation.getServiceFee() != null ? "<li>Service Fee: $" + reservation.getServiceFee() + "</li>" : "") +
-                (reservation.getTaxAmount() != null ? "<li>Taxes: $" + reservation.getTaxAmount() + "</li>" : "") +
-                "<li><strong>Total: $" + reservation.getTotalPrice() + "</strong></li>" +
-                "</ul>" +
-                "<p><b>Status:</b> " + reservation.getStatus() + "</p>" +
-                "<p><b>Payment Required:</b> " + (Boolean.TRUE.equals(reservation.getIsPaid()) ? "Paid" : "Payment Due") + "</p>" +
-                "<br><p>Thanks,<br>Property Rental Management Team</p>";
-
-        emailService.sendEmail(reservation.getUser().getEmail(), subject, body);
-    }
-
-    private void sendReservationStatusUpdateEmail(Reservation reservation) {
-        String subject = "Reservation Status Update - Property Rental System";
-        String body = "<h3>Hi " + reservation.getUser().getFirstName() + ",</h3>" +
-                "<p>Your reservation status has been updated to: <b>" + reservation.getStatus() + "</b></p>" +
-                "<p><b>Property:</b> " + reservation.getProperty().getTitle() + "</p>" +
-                "<p><b>Check-in Date:</b> " + reservation.getCheckInDate() + "</p>" +
-                "<p><b>Check-out Date:</b> " + reservation.getCheckOutDate() + "</p>" +
-                "<br><p>Thanks,<br>Property Rental Management Team</p>";
-
-        emailService.sendEmail(reservation.getUser().getEmail(), subject, body);
-    }
-
-    private void sendReservationCancellationEmail(Reservation reservation) {
-        String subject = "Reservation Cancellation - Property Rental System";
-        String body = "<h3>Hi " + reservation.getUser().getFirstName() + ",</h3>" +
-                "<p>Your reservation has been cancelled:</p>" +
-                "<p><b>Property:</b> " + reservation.getProperty().getTitle() + "</p>" +
-                "<p><b>Check-in Date:</b> " + reservation.getCheckInDate() + "</p>" +
-                "<p><b>Check-out Date:</b> " + reservation.getCheckOutDate() + "</p>" +
-                "<p><b>Reason:</b> " + (reservation.getCancellationReason() != null ?
-                reservation.getCancellationReason() : "Not specified") + "</p>" +
-                "<br><p>Thanks,<br>Property Rental Management Team</p>";
-
-        emailService.sendEmail(reservation.getUser().getEmail(), subject, body);
+        return calendar.reservations();
     }
 
-    private void sendPaymentConfirmationEmail(Reservation reservation) {
-        String subject = "Payment Confirmation - Property Rental System";
-        String body = "<h3>Hi " + reservation.getUser().getFirstName() + ",</h3>" +
-                "<p>We've received your payment for the following reservation:</p>" +
-                "<p><b>Property:</b> " + reservation.getProperty().getTitle() + "</p>" +
-                "<p><b>Check-in Date:</b> " + reservation.getCheckInDate() + "</p>" +
-                "<p><b>Check-out Date:</b> " + reservation.getCheckOutDate() + "</p>" +
-                "<p><b>Payment Amount:</b> $" + reservation.getTotalPrice() + "</p>" +
-                "<p><b>Payment Method:</b> " + reservation.getPaymentMethod() + "</p>" +
-                "<p><b>Payment Date:</b> " + reservation.getPaymentDate() + "</p>" +
-                "<p><b>Reference:</b> " + reservation.getPaymentReference() + "</p>" +
-                "<p>Your reservation is now confirmed. Thank you for your booking!</p>" +
-                "<br><p>Thanks,<br>Property Rental Management Team</p>";
-
-        emailService.sendEmail(reservation.getUser().getEmail(), subject, body);
+    // Let the availability index and other derived state catch up once the transaction commits
+    private void publishChange(Reservation reservation, String previousStatus) {
+        eventPublisher.publishEvent(new ReservationChangedEvent(
+                reservation.getId(),
+                reservation.getProperty().getId(),
+                reservation.getCheckInDate(),
+                reservation.getCheckOutDate(),
+                previousStatus,
+                reservation.getStatus()));
     }
-}
\ No newline at end of file
+}
@@ -12,12 +12,14 @@ import com.test89.property_catalog_service.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Locale;
 import java.util.Set;
 
 @Service
@@ -49,6 +51,10 @@ public class UserService {
             logger.debug("Converting DTO to entity");
             User user = userMapper.fromRegistrationDto(registrationDto);
 
+            // Emails sent later are rendered for the user, not for whoever triggers them, so keep the
+            // language they registered in
+            user.setPreferredLocale(LocaleContextHolder.getLocale().toLanguageTag());
+
             logger.debug("Setting default roles if needed");
             if (user.getRoles() == null || user.getRoles().isEmpty()) {
                 user.setRoles(Set.of("ROLE_USER"));
@@ -57,13 +63,8 @@ public class UserService {
             logger.debug("Saving user to database");
             User savedUser = userRepository.save(user);
 
-            logger.debug("Sending welcome email");
-            try {
-                emailService.sendWelcomeEmail(savedUser.getEmail(), savedUser.getFirstName());
-            } catch (Exception e) {
-                logger.warn("Failed to send welcome email", e);
-                // Continue with registration even if email fails
-            }
+            logger.debug("Queueing welcome email");
+            emailService.sendWelcomeEmail(savedUser.getEmail(), savedUser.getFirstName());
 
             logger.debug("Generating JWT token");
             String token = userMapper.generateToken(savedUser);
@@ -108,6 +109,12 @@ public class UserService {
         userToUpdate.setFirstName(userDto.getFirstName());
         userToUpdate.setLastName(userDto.getLastName());
         userToUpdate.setPhoneNumber(userDto.getPhoneNumber());
+        if (userDto.getOwnerNotifications() != null) {
+            userToUpdate.setOwnerNotifications(userDto.getOwnerNotifications());
+        }
+        if (userDto.getPreferredLocale() != null) {
+            userToUpdate.setPreferredLocale(Locale.forLanguageTag(userDto.getPreferredLocale().replace('_', '-')).toLanguageTag());
+        }
 
         // Only admins can modify roles and enabled status
         if (currentUser.getRoles().contains("ROLE_ADMIN")) {
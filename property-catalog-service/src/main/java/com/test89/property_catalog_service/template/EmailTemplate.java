@@ -0,0 +1,67 @@
+package com.test89.property_catalog_service.template;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compiled email template and its per-locale variants. Rendering walks the precompiled segments into a
+ * per-thread buffer that is reused across emails, so the only allocation left per email is the final Strings.
+ */
+public class EmailTemplate<T> {
+
+    private static final int INITIAL_BUFFER_CAPACITY = 4096;
+    private static final int RETAINED_BUFFER_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_BUFFER_CAPACITY));
+
+    private final String name;
+    private final Variant<T> base;
+    private final Map<String, Variant<T>> variants;
+    private final Map<Locale, Variant<T>> resolved = new ConcurrentHashMap<>();
+
+    record Variant<T>(TemplateCompiler.Segment<T>[] subject, TemplateCompiler.Segment<T>[] body) {
+    }
+
+    EmailTemplate(String name, Variant<T> base, Map<String, Variant<T>> variants) {
+        this.name = name;
+        this.base = base;
+        this.variants = variants;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public RenderedEmail render(T model, Locale locale) {
+        Variant<T> variant = locale == null ? base : resolved.computeIfAbsent(locale, this::resolve);
+        return new RenderedEmail(render(variant.subject(), model), render(variant.body(), model));
+    }
+
+    // fr_CA, then fr, then the default template
+    private Variant<T> resolve(Locale locale) {
+        Variant<T> variant = variants.get(locale.toString());
+        if (variant == null) {
+            variant = variants.get(locale.getLanguage());
+        }
+        return variant != null ? variant : base;
+    }
+
+    private static <T> String render(TemplateCompiler.Segment<T>[] segments, T model) {
+        StringBuilder out = BUFFER.get();
+        try {
+            for (TemplateCompiler.Segment<T> segment : segments) {
+                segment.render(model, out);
+            }
+            return out.toString();
+        } finally {
+            if (out.capacity() > RETAINED_BUFFER_CAPACITY) {
+                // Do not pin an oversized buffer to the thread for good
+                BUFFER.remove();
+            } else {
+                out.setLength(0);
+            }
+        }
+    }
+}
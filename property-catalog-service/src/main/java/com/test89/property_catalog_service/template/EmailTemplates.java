@@ -0,0 +1,84 @@
+package com.test89.property_catalog_service.template;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The email templates under classpath:templates/email, read once at startup. A template file starts with a
+ * {@code Subject:} line followed by the HTML body; {@code name_fr.html} or {@code name_fr_CA.html} are
+ * locale variants of {@code name.html}. Templates are compiled against their bindings when a service asks
+ * for them, which happens while the application context starts, so a template that does not compile
+ * fails startup.
+ */
+@Component
+public class EmailTemplates {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailTemplates.class);
+
+    private static final String LOCATION = "classpath:templates/email/*.html";
+    private static final String SUBJECT_PREFIX = "Subject:";
+    private static final Pattern FILE_NAME = Pattern.compile("([a-z0-9-]+?)(?:_([a-z]{2,3}(?:_[A-Z]{2})?))?\\.html");
+
+    // Template name -> locale ("" for the default) -> source
+    private final Map<String, Map<String, String>> sources = new HashMap<>();
+
+    public EmailTemplates() {
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+                Matcher matcher = FILE_NAME.matcher(String.valueOf(resource.getFilename()));
+                if (!matcher.matches()) {
+                    throw new IllegalArgumentException("Unexpected email template file name: " + resource.getFilename());
+                }
+                String locale = matcher.group(2) != null ? matcher.group(2) : "";
+                sources.computeIfAbsent(matcher.group(1), name -> new HashMap<>())
+                        .put(locale, resource.getContentAsString(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read email templates", e);
+        }
+        logger.info("Loaded email templates: {}", sources.keySet());
+    }
+
+    public <T> EmailTemplate<T> compile(String name, TemplateBindings<T> bindings) {
+        Map<String, String> localized = sources.get(name);
+        if (localized == null || !localized.containsKey("")) {
+            throw new IllegalArgumentException("Email template not found: " + name + ".html");
+        }
+
+        EmailTemplate.Variant<T> base = null;
+        Map<String, EmailTemplate.Variant<T>> variants = new HashMap<>();
+        for (Map.Entry<String, String> entry : localized.entrySet()) {
+            String fileName = entry.getKey().isEmpty() ? name + ".html" : name + "_" + entry.getKey() + ".html";
+            EmailTemplate.Variant<T> variant = compileVariant(entry.getValue(), bindings, fileName);
+            if (entry.getKey().isEmpty()) {
+                base = variant;
+            } else {
+                variants.put(entry.getKey(), variant);
+            }
+        }
+        return new EmailTemplate<>(name, base, variants);
+    }
+
+    private static <T> EmailTemplate.Variant<T> compileVariant(String source, TemplateBindings<T> bindings, String fileName) {
+        int lineEnd = source.indexOf('\n');
+        if (!source.startsWith(SUBJECT_PREFIX) || lineEnd < 0) {
+            throw new IllegalArgumentException(fileName + ": the first line must be the Subject: line");
+        }
+        String subject = source.substring(SUBJECT_PREFIX.length(), lineEnd).trim();
+        String body = source.substring(lineEnd + 1).strip();
+        return new EmailTemplate.Variant<>(
+                TemplateCompiler.compile(subject, bindings, fileName),
+                TemplateCompiler.compile(body, bindings, fileName));
+    }
+}
@@ -0,0 +1,4 @@
+package com.test89.property_catalog_service.template;
+
+public record RenderedEmail(String subject, String htmlBody) {
+}
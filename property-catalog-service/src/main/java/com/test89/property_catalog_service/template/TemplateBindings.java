@@ -0,0 +1,41 @@
+package com.test89.property_catalog_service.template;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The variables a template may reference, each read straight from the model when rendering.
+ * Resolving names at compile time means rendering never looks anything up by name. A list binding
+ * repeats its section once per element, with the element's own bindings in scope.
+ */
+public class TemplateBindings<T> {
+
+    private final Map<String, Function<T, ?>> accessors = new HashMap<>();
+    private final Map<String, ListBinding<T, ?>> lists = new HashMap<>();
+
+    record ListBinding<T, E>(Function<T, ? extends Iterable<E>> accessor, TemplateBindings<E> elements) {
+    }
+
+    public TemplateBindings<T> bind(String name, Function<T, ?> accessor) {
+        if (accessors.putIfAbsent(name, accessor) != null) {
+            throw new IllegalArgumentException("Template variable bound twice: " + name);
+        }
+        return this;
+    }
+
+    public <E> TemplateBindings<T> bindList(String name, Function<T, ? extends Iterable<E>> accessor,
+                                            TemplateBindings<E> elements) {
+        bind(name, accessor); // {{^name}} renders when the list is empty
+        lists.put(name, new ListBinding<>(accessor, elements));
+        return this;
+    }
+
+    Function<T, ?> accessor(String name) {
+        return accessors.get(name);
+    }
+
+    ListBinding<T, ?> list(String name) {
+        return lists.get(name);
+    }
+}
@@ -0,0 +1,144 @@
+package com.test89.property_catalog_service.template;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Parses the mustache-style subset used by the email templates into a flat segment list:
+ * <ul>
+ *     <li>{@code {{name}}} writes the value HTML-escaped, {@code {{{name}}}} writes it as is;</li>
+ *     <li>{@code {{#name}}...{{/name}}} renders its body when the value is present (not null, false or empty),
+ *     {@code {{^name}}...{{/name}}} when it is absent;</li>
+ *     <li>{@code {{#name}}...{{/name}}} on a list binding renders its body once per element.</li>
+ * </ul>
+ * Unknown variables and unbalanced sections fail compilation, so a broken template stops the application
+ * at startup rather than producing a broken email.
+ */
+final class TemplateCompiler {
+
+    private TemplateCompiler() {
+    }
+
+    interface Segment<T> {
+        void render(T model, StringBuilder out);
+    }
+
+    static <T> Segment<T>[] compile(String source, TemplateBindings<T> bindings, String templateName) {
+        Deque<Frame<T>> open = new ArrayDeque<>();
+        Frame<T> current = new Frame<>(null, null, false);
+
+        int position = 0;
+        while (position < source.length()) {
+            int start = source.indexOf("{{", position);
+            if (start < 0) {
+                current.segments.add(literal(source.substring(position)));
+                break;
+            }
+            if (start > position) {
+                current.segments.add(literal(source.substring(position, start)));
+            }
+
+            boolean raw = source.startsWith("{{{", start);
+            String close = raw ? "}}}" : "}}";
+            int end = source.indexOf(close, start);
+            if (end < 0) {
+                throw new IllegalArgumentException(templateName + ": unclosed tag at offset " + start);
+            }
+            String tag = source.substring(start + close.length(), end).trim();
+            position = end + close.length();
+
+            char kind = raw || tag.isEmpty() ? ' ' : tag.charAt(0);
+            TemplateBindings.ListBinding<T, ?> list = kind == '#' ? bindings.list(tag.substring(1).trim()) : null;
+            if (list != null) {
+                String endTag = "{{/" + tag.substring(1).trim() + "}}";
+                int bodyEnd = source.indexOf(endTag, position);
+                if (bodyEnd < 0) {
+                    throw new IllegalArgumentException(templateName + ": unclosed section {{" + tag + "}}");
+                }
+                current.segments.add(list(list, source.substring(position, bodyEnd), templateName));
+                position = bodyEnd + endTag.length();
+            } else if (kind == '#' || kind == '^') {
+                String name = tag.substring(1).trim();
+                open.push(current);
+                current = new Frame<>(name, accessor(bindings, name, templateName), kind == '^');
+            } else if (kind == '/') {
+                String name = tag.substring(1).trim();
+                if (!name.equals(current.name)) {
+                    throw new IllegalArgumentException(templateName + ": unexpected {{/" + name + "}}");
+                }
+                Segment<T> section = section(current.accessor, current.inverted, toArray(current.segments));
+                current = open.pop();
+                current.segments.add(section);
+            } else {
+                current.segments.add(value(accessor(bindings, tag, templateName), !raw));
+            }
+        }
+
+        if (!open.isEmpty()) {
+            throw new IllegalArgumentException(templateName + ": unclosed section {{#" + current.name + "}}");
+        }
+        return toArray(current.segments);
+    }
+
+    private static final class Frame<T> {
+        final String name;
+        final Function<T, ?> accessor;
+        final boolean inverted;
+        final List<Segment<T>> segments = new ArrayList<>();
+
+        Frame(String name, Function<T, ?> accessor, boolean inverted) {
+            this.name = name;
+            this.accessor = accessor;
+            this.inverted = inverted;
+        }
+    }
+
+    private static <T> Function<T, ?> accessor(TemplateBindings<T> bindings, String name, String templateName) {
+        Function<T, ?> accessor = bindings.accessor(name);
+        if (accessor == null) {
+            throw new IllegalArgumentException(templateName + ": unknown variable " + name);
+        }
+        return accessor;
+    }
+
+    private static <T> Segment<T> literal(String text) {
+        return (model, out) -> out.append(text);
+    }
+
+    private static <T> Segment<T> value(Function<T, ?> accessor, boolean escape) {
+        return (model, out) -> TemplateValues.write(accessor.apply(model), escape, out);
+    }
+
+    private static <T> Segment<T> section(Function<T, ?> accessor, boolean inverted, Segment<T>[] body) {
+        return (model, out) -> {
+            if (TemplateValues.isPresent(accessor.apply(model)) != inverted) {
+                for (Segment<T> segment : body) {
+                    segment.render(model, out);
+                }
+            }
+        };
+    }
+
+    private static <T, E> Segment<T> list(TemplateBindings.ListBinding<T, E> list, String body, String templateName) {
+        Segment<E>[] element = compile(body, list.elements(), templateName);
+        return (model, out) -> {
+            Iterable<E> items = list.accessor().apply(model);
+            if (items == null) {
+                return;
+            }
+            for (E item : items) {
+                for (Segment<E> segment : element) {
+                    segment.render(item, out);
+                }
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Segment<T>[] toArray(List<Segment<T>> segments) {
+        return segments.toArray(new Segment[0]);
+    }
+}
@@ -0,0 +1,81 @@
+package com.test89.property_catalog_service.template;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Writes template values straight into the render buffer. Common types are appended without creating an
+ * intermediate String; anything else goes through toString().
+ */
+final class TemplateValues {
+
+    private TemplateValues() {
+    }
+
+    static boolean isPresent(Object value) {
+        return value != null && !Boolean.FALSE.equals(value)
+                && !(value instanceof CharSequence text && text.isEmpty())
+                && !(value instanceof Collection<?> collection && collection.isEmpty());
+    }
+
+    static void write(Object value, boolean escape, StringBuilder out) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Integer number) {
+            out.append(number.intValue());
+        } else if (value instanceof Long number) {
+            out.append(number.longValue());
+        } else if (value instanceof LocalDate date) {
+            appendDate(date, out);
+        } else {
+            // BigDecimal caches its string form, so repeated renders of the same amount do not allocate
+            CharSequence text = value instanceof CharSequence chars ? chars : value.toString();
+            if (escape) {
+                appendEscaped(text, out);
+            } else {
+                out.append(text);
+            }
+        }
+    }
+
+    // Same output as LocalDate.toString() for four-digit years
+    private static void appendDate(LocalDate date, StringBuilder out) {
+        int year = date.getYear();
+        if (year < 1000 || year > 9999) {
+            out.append(date);
+            return;
+        }
+        out.append(year).append('-');
+        appendTwoDigits(date.getMonthValue(), out);
+        out.append('-');
+        appendTwoDigits(date.getDayOfMonth(), out);
+    }
+
+    private static void appendTwoDigits(int value, StringBuilder out) {
+        if (value < 10) {
+            out.append('0');
+        }
+        out.append(value);
+    }
+
+    private static void appendEscaped(CharSequence text, StringBuilder out) {
+        int copied = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String entity = switch (text.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (entity != null) {
+                out.append(text, copied, i).append(entity);
+                copied = i + 1;
+            }
+        }
+        // Most values need no escaping and are copied in one go
+        out.append(text, copied, text.length());
+    }
+}
@@ -0,0 +1,177 @@
+package com.test89.property_catalog_service.cache;
+
+import com.test89.property_catalog_service.dto.AddressDto;
+import com.test89.property_catalog_service.dto.PropertyDto;
+import com.test89.property_catalog_service.entity.ReservationStatus;
+import com.test89.property_catalog_service.event.PropertyChangedEvent;
+import com.test89.property_catalog_service.event.RatePlanChangedEvent;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import com.test89.property_catalog_service.index.ListingSnapshot;
+import com.test89.property_catalog_service.pricing.PricingEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Which cached searches each change drops: property changes by old and new city, reservation changes by city and
+ * overlapping dates, rate plan changes only the searches ordered by total price. Everything else stays cached.
+ */
+class SearchResultCacheTest {
+
+    private static final long LISBON_PROPERTY = 7L;
+    private static final long UNKNOWN_PROPERTY = 8L;
+
+    private final LocalDate stayStart = LocalDate.of(2026, 11, 10);
+    private final LocalDate stayEnd = LocalDate.of(2026, 11, 14);
+    private final Map<String, SearchResultCache.Key> keys = new LinkedHashMap<>();
+
+    private ListingSnapshot listingSnapshot;
+    private SearchResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        listingSnapshot = mock(ListingSnapshot.class);
+        when(listingSnapshot.isReady()).thenReturn(true);
+        when(listingSnapshot.get(LISBON_PROPERTY)).thenReturn(new ListingSnapshot.Listing(LISBON_PROPERTY, "ACTIVE",
+                "APARTMENT", null, 2, 1, 4, "Lisbon", null, null, Set.of()));
+        cache = new SearchResultCache(listingSnapshot, 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void propertyChangeDropsSearchesForItsOldAndNewCity() {
+        cacheBasic("lisbon", "Lisbon");
+        cacheBasic("porto", "porto");
+        cacheBasic("faro", "Faro");
+        cacheBasic("anywhere", null);
+        cacheDates("porto dates", "Porto", stayStart, stayEnd);
+        cacheDates("anywhere dates", null, stayStart, stayEnd);
+
+        // Moved from Lisbon to Porto; the event's spelling of either city does not matter
+        cache.onPropertyChanged(new PropertyChangedEvent(LISBON_PROPERTY, property("PORTO"), "lisbon"));
+
+        assertEquals(List.of("faro"), cached());
+    }
+
+    @Test
+    void deletedPropertyDropsSearchesForTheCityItWasIn() {
+        cacheBasic("lisbon", "Lisbon");
+        cacheBasic("faro", "Faro");
+        cacheBasic("anywhere", null);
+
+        cache.onPropertyChanged(new PropertyChangedEvent(LISBON_PROPERTY, null, "Lisbon"));
+
+        assertEquals(List.of("faro"), cached());
+    }
+
+    @Test
+    void newBookingDropsOverlappingDateSearchesInItsCity() {
+        cacheDates("lisbon overlapping", "Lisbon", stayStart.plusDays(2), stayEnd.plusDays(2));
+        cacheDates("lisbon from check-out day", "Lisbon", stayEnd, stayEnd.plusDays(3));
+        cacheDates("lisbon later", "Lisbon", stayEnd.plusDays(1), stayEnd.plusDays(3));
+        cacheDates("porto overlapping", "Porto", stayStart, stayEnd);
+        cacheDates("anywhere overlapping", null, stayStart.minusDays(3), stayStart);
+        cacheBasic("lisbon without dates", "Lisbon");
+
+        cache.onReservationChanged(booking(LISBON_PROPERTY, null, ReservationStatus.PENDING));
+
+        assertEquals(List.of("lisbon later", "porto overlapping", "lisbon without dates"), cached());
+    }
+
+    @Test
+    void changeThatKeepsTheNightsBlockedDropsNothing() {
+        cacheDates("lisbon overlapping", "Lisbon", stayStart, stayEnd);
+
+        cache.onReservationChanged(booking(LISBON_PROPERTY, ReservationStatus.PENDING, ReservationStatus.CONFIRMED));
+        cache.onReservationChanged(booking(LISBON_PROPERTY, ReservationStatus.CANCELLED, ReservationStatus.EXPIRED));
+
+        assertEquals(List.of("lisbon overlapping"), cached());
+    }
+
+    @Test
+    void bookingOnAListingMissingFromTheSnapshotDropsEveryOverlappingDateSearch() {
+        cacheDates("lisbon overlapping", "Lisbon", stayStart, stayEnd);
+        cacheDates("porto overlapping", "Porto", stayStart.plusDays(1), stayStart.plusDays(2));
+        cacheDates("anywhere overlapping", null, stayStart, stayEnd);
+        cacheDates("porto later", "Porto", stayEnd.plusDays(1), stayEnd.plusDays(4));
+        cacheBasic("porto without dates", "Porto");
+
+        cache.onReservationChanged(booking(UNKNOWN_PROPERTY, ReservationStatus.CONFIRMED, ReservationStatus.CANCELLED));
+
+        assertEquals(List.of("porto later", "porto without dates"), cached());
+    }
+
+    @Test
+    void bookingBeforeTheSnapshotIsBuiltDropsEveryOverlappingDateSearch() {
+        when(listingSnapshot.isReady()).thenReturn(false);
+        cacheDates("lisbon overlapping", "Lisbon", stayStart, stayEnd);
+        cacheDates("porto overlapping", "Porto", stayStart, stayEnd);
+        cacheDates("porto later", "Porto", stayEnd.plusDays(1), stayEnd.plusDays(4));
+
+        cache.onReservationChanged(booking(LISBON_PROPERTY, null, ReservationStatus.PENDING));
+
+        assertEquals(List.of("porto later"), cached());
+    }
+
+    @Test
+    void ratePlanChangeDropsOnlySearchesOrderedByTotalPriceInItsCity() {
+        cacheDates("lisbon by total", "Lisbon", stayStart, stayEnd, Sort.by(PricingEngine.TOTAL_PRICE_SORT));
+        cacheDates("lisbon by total then rating", "Lisbon", stayStart, stayEnd,
+                Sort.by(Sort.Order.desc(PricingEngine.TOTAL_PRICE_SORT), Sort.Order.desc("rating")));
+        cacheDates("lisbon by nightly price", "Lisbon", stayStart, stayEnd, Sort.by("pricePerDay"));
+        cacheDates("lisbon unsorted", "Lisbon", stayStart, stayEnd);
+        cacheDates("porto by total", "Porto", stayStart, stayEnd, Sort.by(PricingEngine.TOTAL_PRICE_SORT));
+        cacheDates("anywhere by total", null, stayStart, stayEnd, Sort.by(PricingEngine.TOTAL_PRICE_SORT));
+
+        cache.onRatePlanChanged(new RatePlanChangedEvent(LISBON_PROPERTY));
+
+        assertEquals(List.of("lisbon by nightly price", "lisbon unsorted", "porto by total"), cached());
+
+        // The city of an unknown listing could be any of them
+        cache.onRatePlanChanged(new RatePlanChangedEvent(UNKNOWN_PROPERTY));
+
+        assertEquals(List.of("lisbon by nightly price", "lisbon unsorted"), cached());
+    }
+
+    private void cacheBasic(String name, String city) {
+        cache(name, SearchResultCache.Key.basic(null, null, null, null, null, city, null, Sort.unsorted()));
+    }
+
+    private void cacheDates(String name, String city, LocalDate checkIn, LocalDate checkOut) {
+        cacheDates(name, city, checkIn, checkOut, Sort.unsorted());
+    }
+
+    private void cacheDates(String name, String city, LocalDate checkIn, LocalDate checkOut, Sort sort) {
+        cache(name, SearchResultCache.Key.available(checkIn, checkOut, null, null, null, null, city, null, null,
+                null, sort));
+    }
+
+    private void cache(String name, SearchResultCache.Key key) {
+        keys.put(name, key);
+        cache.put(key, new SearchResultCache.Result(List.of(1L, 2L, 3L), 3), cache.generation());
+    }
+
+    // Names of the searches still cached, in the order they were added
+    private List<String> cached() {
+        return keys.entrySet().stream().filter(entry -> cache.get(entry.getValue()) != null)
+                .map(Map.Entry::getKey).toList();
+    }
+
+    private ReservationChangedEvent booking(long propertyId, String previousStatus, String status) {
+        return new ReservationChangedEvent(1L, propertyId, stayStart, stayEnd, previousStatus, status);
+    }
+
+    private static PropertyDto property(String city) {
+        return PropertyDto.builder().id(LISBON_PROPERTY).address(AddressDto.builder().city(city).build()).build();
+    }
+}
@@ -0,0 +1,70 @@
+package com.test89.property_catalog_service.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The reservation state machine: every pair of statuses against the transitions it is meant to allow.
+ */
+class ReservationStatusTest {
+
+    private static final List<String> STATUSES = List.of(ReservationStatus.PENDING, ReservationStatus.CONFIRMED,
+            ReservationStatus.COMPLETED, ReservationStatus.CANCELLED, ReservationStatus.EXPIRED,
+            ReservationStatus.BLOCKED);
+
+    private static final Set<List<String>> ALLOWED = Set.of(
+            List.of(ReservationStatus.PENDING, ReservationStatus.CONFIRMED),
+            List.of(ReservationStatus.PENDING, ReservationStatus.CANCELLED),
+            List.of(ReservationStatus.PENDING, ReservationStatus.EXPIRED),
+            List.of(ReservationStatus.CONFIRMED, ReservationStatus.PENDING),
+            List.of(ReservationStatus.CONFIRMED, ReservationStatus.COMPLETED),
+            List.of(ReservationStatus.CONFIRMED, ReservationStatus.CANCELLED),
+            List.of(ReservationStatus.EXPIRED, ReservationStatus.PENDING));
+
+    @Test
+    void allowsExactlyTheIntendedTransitions() {
+        for (String from : STATUSES) {
+            for (String to : STATUSES) {
+                boolean allowed = ALLOWED.contains(List.of(from, to));
+                assertEquals(allowed, ReservationStatus.canTransition(from, to), from + " -> " + to);
+                if (allowed) {
+                    assertDoesNotThrow(() -> ReservationStatus.checkTransition(from, to));
+                } else {
+                    assertThrows(IllegalStateException.class, () -> ReservationStatus.checkTransition(from, to),
+                            from + " -> " + to);
+                }
+            }
+        }
+    }
+
+    @Test
+    void finalStatusesLeadNowhere() {
+        for (String to : STATUSES) {
+            assertFalse(ReservationStatus.canTransition(ReservationStatus.CANCELLED, to));
+            assertFalse(ReservationStatus.canTransition(ReservationStatus.COMPLETED, to));
+            assertFalse(ReservationStatus.canTransition(ReservationStatus.BLOCKED, to));
+            assertFalse(ReservationStatus.canTransition(to, ReservationStatus.BLOCKED));
+        }
+    }
+
+    @Test
+    void unknownStatusesAreRejected() {
+        assertTrue(STATUSES.stream().allMatch(ReservationStatus::isKnown));
+        assertFalse(ReservationStatus.isKnown("pending"));
+        assertFalse(ReservationStatus.isKnown(null));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> ReservationStatus.checkTransition(ReservationStatus.PENDING, "APPROVED"));
+        assertFalse(ReservationStatus.canTransition("APPROVED", ReservationStatus.PENDING));
+        assertThrows(IllegalStateException.class,
+                () -> ReservationStatus.checkTransition("APPROVED", ReservationStatus.PENDING));
+    }
+}
@@ -0,0 +1,136 @@
+package com.test89.property_catalog_service.hold;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HierarchicalTimingWheel with 1 ms ticks: entries filed in every level, and in the overflow bucket, must cascade
+ * down and expire on their own deadline tick, no earlier and no later.
+ */
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void entriesOfEveryLevelExpireExactlyOnTheirDeadline() {
+        // Level boundaries are 64, 64^2 = 4096 and 64^3 = 262144 ticks ahead
+        long[] deadlines = {1, 2, 63, 64, 65, 127, 128, 4095, 4096, 4097, 8191, 262143, 262144, 262145, 300_000};
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 0);
+        for (long deadline : deadlines) {
+            wheel.add(deadline, deadline);
+        }
+
+        Map<Long, Long> expiredAt = new HashMap<>();
+        for (long now = 1; now <= 300_000; now++) {
+            long tick = now;
+            wheel.advance(now, id -> expiredAt.put(id, tick));
+        }
+
+        for (long deadline : deadlines) {
+            assertEquals(deadline, expiredAt.get(deadline), "Entry due at " + deadline);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void overflowEntriesAreRefiledWhenTheTopLevelWraps() {
+        long topRange = 1L << 24; // 64^4 ticks
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 0);
+        wheel.add(1, topRange + 10);
+        wheel.add(2, 2 * topRange + 5);
+
+        Map<Long, Long> expiredAt = new HashMap<>();
+        long step = 4096; // Largest advance that still steps tick by tick
+        for (long now = step; now <= 2 * topRange + step; now += step) {
+            long at = now;
+            wheel.advance(now, id -> expiredAt.put(id, at));
+        }
+
+        // Expired in the first advance to reach the deadline
+        assertEquals(topRange + 10 - (topRange + 10) % step + step, expiredAt.get(1L));
+        assertEquals(2 * topRange + 5 - (2 * topRange + 5) % step + step, expiredAt.get(2L));
+    }
+
+    @Test
+    void matchesABruteForceScheduleUnderRandomAdvances() {
+        Random random = new Random(7);
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 1_000);
+        TreeSet<long[]> pending = new TreeSet<>((a, b) -> a[1] != b[1] ? Long.compare(a[1], b[1]) : Long.compare(a[0], b[0]));
+
+        long now = 1_000;
+        long nextId = 1;
+        for (int round = 0; round < 2_000; round++) {
+            for (int i = random.nextInt(20); i > 0; i--) {
+                // Mostly near deadlines, some far enough to start in the upper levels
+                long delay = random.nextInt(10) < 8 ? random.nextInt(5_000) : random.nextInt(400_000);
+                long deadline = now + 1 + delay;
+                wheel.add(nextId, deadline);
+                pending.add(new long[]{nextId++, deadline});
+            }
+
+            now += 1 + random.nextInt(300);
+            List<Long> expected = new ArrayList<>();
+            while (!pending.isEmpty() && pending.first()[1] <= now) {
+                expected.add(pending.pollFirst()[0]);
+            }
+            List<Long> expired = new ArrayList<>();
+            wheel.advance(now, expired::add);
+
+            expired.sort(null);
+            expected.sort(null);
+            assertEquals(expected, expired, "Expired at " + now);
+            assertEquals(pending.size(), wheel.size());
+        }
+    }
+
+    @Test
+    void pastDeadlinesExpireOnTheNextAdvance() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(10, 1_000);
+        wheel.add(1, 500);
+        wheel.add(2, 1_015); // Rounded up to the 1020 tick
+
+        List<Long> expired = new ArrayList<>();
+        wheel.advance(1_010, expired::add);
+        assertEquals(List.of(1L), expired);
+
+        wheel.advance(1_019, expired::add);
+        assertEquals(List.of(1L), expired);
+        wheel.advance(1_020, expired::add);
+        assertEquals(List.of(1L, 2L), expired);
+    }
+
+    @Test
+    void longPauseExpiresWhatIsDueAndKeepsTheRest() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 0);
+        wheel.add(1, 100);
+        wheel.add(2, 5_000);
+        wheel.add(3, 50_000);
+        wheel.add(4, 50_001);
+
+        List<Long> expired = new ArrayList<>();
+        wheel.advance(10_000, expired::add); // More than 64^2 ticks at once: everything is re-filed
+        assertEquals(List.of(1L, 2L), expired.stream().sorted().toList());
+        assertEquals(2, wheel.size());
+
+        wheel.advance(49_999, expired::add);
+        assertEquals(2, expired.size());
+        wheel.advance(50_000, expired::add);
+        assertTrue(expired.contains(3L));
+        assertEquals(1, wheel.size());
+        wheel.advance(50_001, expired::add);
+        assertEquals(List.of(1L, 2L, 3L, 4L), expired.stream().sorted().toList());
+    }
+
+    @Test
+    void rejectsNonPositiveTicks() {
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalTimingWheel(0, 0));
+    }
+}
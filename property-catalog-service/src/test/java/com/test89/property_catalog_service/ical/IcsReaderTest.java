@@ -0,0 +1,136 @@
+package com.test89.property_catalog_service.ical;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * IcsReader on the feeds other channels actually publish: folded lines, DURATION instead of DTEND, cancelled and
+ * free events, and feeds that must be rejected rather than read as a calendar with fewer bookings.
+ */
+class IcsReaderTest {
+
+    @Test
+    void readsAllDayAndTimedEvents() throws IOException {
+        List<IcsReader.Event> events = read(calendar(
+                "BEGIN:VEVENT", "UID:a@airbnb", "DTSTART;VALUE=DATE:20261101", "DTEND;VALUE=DATE:20261105", "END:VEVENT",
+                "BEGIN:VEVENT", "UID:b@vrbo", "DTSTART:20261110T150000Z", "DTEND:20261112T100000Z", "END:VEVENT"));
+
+        assertEquals(List.of(
+                new IcsReader.Event("a@airbnb", LocalDate.of(2026, 11, 1), LocalDate.of(2026, 11, 5)),
+                new IcsReader.Event("b@vrbo", LocalDate.of(2026, 11, 10), LocalDate.of(2026, 11, 12))), events);
+    }
+
+    @Test
+    void unfoldsContinuationLines() throws IOException {
+        List<IcsReader.Event> events = read(calendar(
+                "BEGIN:VEVENT",
+                "UID:a-very-long-identifier",
+                " -that-was-folded@example.com",
+                "SUMMARY:Reserved",
+                "DTST",
+                "\tART;VALUE=DATE:20261101",
+                "DTEND;VALUE=DATE:2026",
+                " 1103",
+                "END:VEVENT"));
+
+        assertEquals(List.of(new IcsReader.Event("a-very-long-identifier-that-was-folded@example.com",
+                LocalDate.of(2026, 11, 1), LocalDate.of(2026, 11, 3))), events);
+    }
+
+    @Test
+    void durationInDaysOrWeeksSetsTheEnd() throws IOException {
+        List<IcsReader.Event> events = read(calendar(
+                "BEGIN:VEVENT", "DTSTART;VALUE=DATE:20261101", "DURATION:P3D", "END:VEVENT",
+                "BEGIN:VEVENT", "DTSTART;VALUE=DATE:20261201", "DURATION:P2W", "END:VEVENT",
+                "BEGIN:VEVENT", "DTSTART:20261220T140000", "DURATION:PT3H", "END:VEVENT"));
+
+        assertEquals(LocalDate.of(2026, 11, 4), events.get(0).end());
+        assertEquals(LocalDate.of(2026, 12, 15), events.get(1).end());
+        // Shorter than a day, still blocks its start date
+        assertEquals(LocalDate.of(2026, 12, 21), events.get(2).end());
+    }
+
+    @Test
+    void eventWithoutAnEndBlocksItsStartDate() throws IOException {
+        List<IcsReader.Event> events = read(calendar(
+                "BEGIN:VEVENT", "DTSTART;VALUE=DATE:20261101", "END:VEVENT",
+                "BEGIN:VEVENT", "DTSTART;VALUE=DATE:20261110", "DTEND;VALUE=DATE:20261110", "END:VEVENT"));
+
+        assertEquals(LocalDate.of(2026, 11, 2), events.get(0).end());
+        assertEquals(LocalDate.of(2026, 11, 11), events.get(1).end());
+    }
+
+    @Test
+    void skipsCancelledAndTransparentEvents() throws IOException {
+        List<IcsReader.Event> events = read(calendar(
+                "BEGIN:VEVENT", "UID:cancelled", "STATUS:CANCELLED", "DTSTART;VALUE=DATE:20261101", "END:VEVENT",
+                "BEGIN:VEVENT", "UID:free", "DTSTART;VALUE=DATE:20261102", "transp:transparent", "END:VEVENT",
+                "BEGIN:VEVENT", "UID:booked", "DTSTART;VALUE=DATE:20261103", "STATUS:CONFIRMED",
+                "TRANSP:OPAQUE", "END:VEVENT"));
+
+        assertEquals(1, events.size());
+        assertEquals("booked", events.get(0).uid());
+    }
+
+    @Test
+    void ignoresComponentsOutsideEvents() throws IOException {
+        List<IcsReader.Event> events = read(calendar(
+                "BEGIN:VTIMEZONE", "TZID:Europe/Lisbon", "BEGIN:STANDARD", "DTSTART:19701025T020000",
+                "END:STANDARD", "END:VTIMEZONE",
+                "BEGIN:VEVENT", "DTSTART;VALUE=DATE:20261101", "DTEND;VALUE=DATE:20261102", "END:VEVENT"));
+
+        assertEquals(1, events.size());
+        assertEquals(LocalDate.of(2026, 11, 1), events.get(0).start());
+    }
+
+    @Test
+    void emptyCalendarHasNoEvents() throws IOException {
+        assertEquals(List.of(), read("\r\nBEGIN:VCALENDAR\r\nVERSION:2.0\r\nEND:VCALENDAR\r\n"));
+    }
+
+    @Test
+    void rejectsFeedsThatAreNotACompleteCalendar() {
+        assertRejected("<html><body>Sign in</body></html>");
+        assertRejected("");
+        assertRejected("BEGIN:VCALENDAR\r\nBEGIN:VEVENT\r\nDTSTART;VALUE=DATE:20261101\r\nEND:VEVENT\r\n");
+        assertRejected(calendar("BEGIN:VEVENT", "DTSTART;VALUE=DATE:2026-11-01", "END:VEVENT"));
+        assertRejected(calendar("BEGIN:VEVENT", "DTEND;VALUE=DATE:20261101", "END:VEVENT"));
+    }
+
+    @Test
+    void readerStopsAtTheEndOfTheCalendar() throws IOException {
+        IcsReader reader = new IcsReader(new StringReader(calendar(
+                "BEGIN:VEVENT", "DTSTART;VALUE=DATE:20261101", "END:VEVENT") + "trailing bytes\r\n"));
+
+        reader.next();
+        assertNull(reader.next());
+        assertNull(reader.next());
+    }
+
+    private static void assertRejected(String feed) {
+        assertThrows(IllegalArgumentException.class, () -> read(feed), feed);
+    }
+
+    private static List<IcsReader.Event> read(String feed) throws IOException {
+        IcsReader reader = new IcsReader(new StringReader(feed));
+        List<IcsReader.Event> events = new ArrayList<>();
+        for (IcsReader.Event event = reader.next(); event != null; event = reader.next()) {
+            events.add(event);
+        }
+        return events;
+    }
+
+    private static String calendar(String... lines) {
+        return "BEGIN:VCALENDAR\r\nVERSION:2.0\r\nPRODID:-//Test//EN\r\n"
+                + String.join("\r\n", lines) + "\r\nEND:VCALENDAR\r\n";
+    }
+}
@@ -0,0 +1,201 @@
+package com.test89.property_catalog_service.index;
+
+import com.test89.property_catalog_service.dto.ReservationSpanDto;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the NOT IN anti-join used by PropertyRepository.findAvailableProperties with the
+ * candidate-id query plus AvailabilityIndex path used by PropertyService, on an in-memory H2 catalog
+ * of 100k properties. Run manually via the main method; it is not part of the test suite.
+ */
+public class AvailabilityIndexBenchmark {
+
+    private static final int PROPERTIES = 100_000;
+    private static final int RESERVATIONS_PER_PROPERTY = 4;
+    private static final int CITIES = 50;
+    private static final int PAGE_SIZE = 20;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 50;
+
+    private static final String FILTERS =
+            "p.status = 'Available' AND (? IS NULL OR LOWER(p.city) = LOWER(?)) AND p.max_guests >= ?";
+
+    private static final String ANTI_JOIN =
+            " AND p.id NOT IN (SELECT r.property_id FROM reservations r WHERE " +
+                    "r.status IN ('PENDING', 'CONFIRMED') AND r.check_in_date <= ? AND r.check_out_date >= ?)";
+
+    public static void main(String[] args) throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:availability;DB_CLOSE_DELAY=-1")) {
+            LocalDate today = LocalDate.now();
+            long setupStart = System.currentTimeMillis();
+            populate(connection, today);
+            System.out.printf("Populated %d properties / %d reservations in %d ms%n",
+                    PROPERTIES, PROPERTIES * RESERVATIONS_PER_PROPERTY, System.currentTimeMillis() - setupStart);
+
+            AvailabilityIndex index = new AvailabilityIndex(null);
+            long indexStart = System.currentTimeMillis();
+            index.rebuildFrom(today, loadSpans(connection).stream());
+            System.out.printf("Built availability index in %d ms%n", System.currentTimeMillis() - indexStart);
+
+            for (String city : new String[]{"city-7", null}) {
+                Random random = new Random(42);
+                for (int i = 0; i < WARMUP; i++) {
+                    LocalDate checkIn = today.plusDays(random.nextInt(300));
+                    antiJoinSearch(connection, city, checkIn, checkIn.plusDays(5));
+                    indexSearch(connection, index, city, checkIn, checkIn.plusDays(5));
+                }
+
+                long antiJoinNanos = 0;
+                long indexNanos = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    LocalDate checkIn = today.plusDays(random.nextInt(300));
+                    LocalDate checkOut = checkIn.plusDays(2 + random.nextInt(8));
+
+                    long start = System.nanoTime();
+                    long expected = antiJoinSearch(connection, city, checkIn, checkOut);
+                    antiJoinNanos += System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    long actual = indexSearch(connection, index, city, checkIn, checkOut);
+                    indexNanos += System.nanoTime() - start;
+
+                    if (expected != actual) {
+                        throw new IllegalStateException("Result mismatch: " + expected + " vs " + actual);
+                    }
+                }
+
+                System.out.printf("city=%s  anti-join: %.2f ms/query  bitset index: %.2f ms/query%n",
+                        city == null ? "<any>" : city,
+                        antiJoinNanos / 1e6 / ITERATIONS,
+                        indexNanos / 1e6 / ITERATIONS);
+            }
+        }
+    }
+
+    // Page of results plus total count, as Spring Data does for a Page query
+    private static long antiJoinSearch(Connection connection, String city, LocalDate checkIn, LocalDate checkOut)
+            throws SQLException {
+        String where = " FROM properties p WHERE " + FILTERS + ANTI_JOIN;
+        try (PreparedStatement page = connection.prepareStatement(
+                "SELECT p.* " + where + " ORDER BY p.id LIMIT " + PAGE_SIZE);
+             PreparedStatement count = connection.prepareStatement("SELECT COUNT(*) " + where)) {
+            bind(page, city, checkIn, checkOut);
+            bind(count, city, checkIn, checkOut);
+            try (ResultSet rows = page.executeQuery()) {
+                while (rows.next()) {
+                    rows.getLong("id");
+                }
+            }
+            try (ResultSet total = count.executeQuery()) {
+                total.next();
+                return total.getLong(1);
+            }
+        }
+    }
+
+    private static long indexSearch(Connection connection, AvailabilityIndex index, String city,
+                                    LocalDate checkIn, LocalDate checkOut) throws SQLException {
+        List<Long> candidates = new ArrayList<>();
+        try (PreparedStatement ids = connection.prepareStatement(
+                "SELECT p.id FROM properties p WHERE " + FILTERS + " ORDER BY p.id")) {
+            ids.setString(1, city);
+            ids.setString(2, city);
+            ids.setInt(3, 2);
+            try (ResultSet rows = ids.executeQuery()) {
+                while (rows.next()) {
+                    candidates.add(rows.getLong(1));
+                }
+            }
+        }
+
+        List<Long> available = index.filterAvailable(candidates, checkIn, checkOut);
+        List<Long> pageIds = available.subList(0, Math.min(PAGE_SIZE, available.size()));
+        if (!pageIds.isEmpty()) {
+            String in = pageIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+            try (Statement page = connection.createStatement();
+                 ResultSet rows = page.executeQuery("SELECT p.* FROM properties p WHERE p.id IN (" + in + ")")) {
+                while (rows.next()) {
+                    rows.getLong("id");
+                }
+            }
+        }
+        return available.size();
+    }
+
+    private static void bind(PreparedStatement statement, String city, LocalDate checkIn, LocalDate checkOut)
+            throws SQLException {
+        statement.setString(1, city);
+        statement.setString(2, city);
+        statement.setInt(3, 2);
+        statement.setDate(4, Date.valueOf(checkOut));
+        statement.setDate(5, Date.valueOf(checkIn));
+    }
+
+    private static void populate(Connection connection, LocalDate today) throws SQLException {
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TABLE properties (id BIGINT PRIMARY KEY, status VARCHAR(32), " +
+                    "price_per_day DECIMAL(10,2), city VARCHAR(64), max_guests INT)");
+            ddl.execute("CREATE TABLE reservations (id BIGINT PRIMARY KEY, property_id BIGINT, " +
+                    "check_in_date DATE, check_out_date DATE, status VARCHAR(32))");
+            ddl.execute("CREATE INDEX idx_reservations_property ON reservations (property_id)");
+        }
+
+        Random random = new Random(7);
+        try (PreparedStatement property = connection.prepareStatement(
+                "INSERT INTO properties VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement reservation = connection.prepareStatement(
+                     "INSERT INTO reservations VALUES (?, ?, ?, ?, ?)")) {
+            long reservationId = 0;
+            for (long id = 1; id <= PROPERTIES; id++) {
+                property.setLong(1, id);
+                property.setString(2, random.nextInt(10) == 0 ? "Maintenance" : "Available");
+                property.setBigDecimal(3, java.math.BigDecimal.valueOf(50 + random.nextInt(450)));
+                property.setString(4, "city-" + random.nextInt(CITIES));
+                property.setInt(5, 1 + random.nextInt(8));
+                property.addBatch();
+
+                LocalDate cursor = today.plusDays(random.nextInt(30));
+                for (int i = 0; i < RESERVATIONS_PER_PROPERTY; i++) {
+                    LocalDate checkOut = cursor.plusDays(2 + random.nextInt(10));
+                    reservation.setLong(1, ++reservationId);
+                    reservation.setLong(2, id);
+                    reservation.setDate(3, Date.valueOf(cursor));
+                    reservation.setDate(4, Date.valueOf(checkOut));
+                    reservation.setString(5, random.nextInt(5) == 0 ? "CANCELLED" : "CONFIRMED");
+                    reservation.addBatch();
+                    cursor = checkOut.plusDays(1 + random.nextInt(60));
+                }
+
+                if (id % 5_000 == 0) {
+                    property.executeBatch();
+                    reservation.executeBatch();
+                }
+            }
+        }
+    }
+
+    private static List<ReservationSpanDto> loadSpans(Connection connection) throws SQLException {
+        List<ReservationSpanDto> spans = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT id, property_id, check_in_date, check_out_date " +
+                     "FROM reservations WHERE status IN ('PENDING', 'CONFIRMED')")) {
+            while (rows.next()) {
+                spans.add(new ReservationSpanDto(rows.getLong(1), rows.getLong(2),
+                        rows.getDate(3).toLocalDate(), rows.getDate(4).toLocalDate()));
+            }
+        }
+        return spans;
+    }
+}
@@ -0,0 +1,145 @@
+package com.test89.property_catalog_service.index;
+
+import com.test89.property_catalog_service.dto.AddressDto;
+import com.test89.property_catalog_service.dto.MapClusterDto;
+import com.test89.property_catalog_service.dto.PropertyDto;
+import com.test89.property_catalog_service.event.PropertyChangedEvent;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latency budget for ClusterIndex over one million points: 70% scattered around 200 "cities",
+ * the rest spread uniformly. Viewports are 1280x800 px at random zoom levels.
+ */
+class ClusterIndexLatencyTest {
+
+    private static final int POINTS = 1_000_000;
+    private static final int CITIES = 200;
+    private static final int WARMUP = 500;
+    private static final int QUERIES = 2_000;
+    private static final long P99_BUDGET_MICROS = 20_000;
+
+    private static ClusterIndex index;
+    private static double[][] cities;
+
+    @BeforeAll
+    static void buildIndex() {
+        Random random = new Random(42);
+        cities = new double[CITIES][];
+        for (int i = 0; i < CITIES; i++) {
+            cities[i] = new double[]{random.nextDouble() * 120 - 60, random.nextDouble() * 360 - 180};
+        }
+
+        Stream<Object[]> rows = IntStream.range(0, POINTS).mapToObj(i -> {
+            if (random.nextInt(10) < 7) {
+                double[] city = cities[random.nextInt(CITIES)];
+                return new Object[]{(long) i + 1,
+                        clamp(city[0] + random.nextGaussian() * 0.1, -85, 85),
+                        clamp(city[1] + random.nextGaussian() * 0.1, -180, 180)};
+            }
+            return new Object[]{(long) i + 1, random.nextDouble() * 120 - 60, random.nextDouble() * 360 - 180};
+        });
+
+        index = new ClusterIndex(null);
+        long start = System.currentTimeMillis();
+        index.rebuildFrom(rows);
+        System.out.printf("Built cluster index over %d points in %d ms%n", POINTS, System.currentTimeMillis() - start);
+    }
+
+    @Test
+    void clustersCoverEveryPointAtZoomZero() {
+        List<MapClusterDto> clusters = index.clusters(-90, -180, 90, 180, 0);
+        assertEquals(POINTS, clusters.stream().mapToInt(MapClusterDto::getCount).sum());
+        assertTrue(clusters.size() <= 16);
+    }
+
+    @Test
+    void viewportQueriesStayWithinLatencyBudget() {
+        Random random = new Random(7);
+        for (int i = 0; i < WARMUP; i++) {
+            randomViewport(random);
+        }
+
+        long[] micros = new long[QUERIES];
+        long clusters = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            clusters += randomViewport(random);
+            micros[i] = (System.nanoTime() - start) / 1_000;
+        }
+        Arrays.sort(micros);
+
+        long p50 = micros[QUERIES / 2];
+        long p99 = micros[QUERIES * 99 / 100];
+        System.out.printf("Cluster queries: p50 %d us, p99 %d us, max %d us, %.1f clusters/query%n",
+                p50, p99, micros[QUERIES - 1], clusters / (double) QUERIES);
+        assertTrue(p99 <= P99_BUDGET_MICROS, "p99 " + p99 + " us exceeds budget of " + P99_BUDGET_MICROS + " us");
+    }
+
+    @Test
+    void propertyChangesUpdateClustersIncrementally() {
+        double latitude = 12.345;
+        double longitude = 67.891;
+        int before = countAround(latitude, longitude);
+
+        index.onPropertyChanged(event(POINTS + 1L, latitude, longitude, "Available"));
+        assertEquals(before + 1, countAround(latitude, longitude));
+
+        index.onPropertyChanged(event(POINTS + 1L, latitude + 0.5, longitude, "Available"));
+        assertEquals(before, countAround(latitude, longitude));
+
+        index.onPropertyChanged(event(POINTS + 1L, latitude, longitude, "Unavailable"));
+        assertEquals(before, countAround(latitude, longitude));
+        assertEquals(POINTS, index.clusters(-90, -180, 90, 180, 0).stream().mapToInt(MapClusterDto::getCount).sum());
+    }
+
+    private static int countAround(double latitude, double longitude) {
+        return index.clusters(latitude - 0.01, longitude - 0.01, latitude + 0.01, longitude + 0.01, 16).stream()
+                .mapToInt(MapClusterDto::getCount).sum();
+    }
+
+    private static PropertyChangedEvent event(long id, double latitude, double longitude, String status) {
+        PropertyDto property = PropertyDto.builder()
+                .id(id)
+                .status(status)
+                .address(AddressDto.builder().latitude(latitude).longitude(longitude).build())
+                .build();
+        return new PropertyChangedEvent(id, property);
+    }
+
+    private static int randomViewport(Random random) {
+        int zoom = 3 + random.nextInt(14);
+        double[] city = cities[random.nextInt(CITIES)];
+        double tiles = Math.pow(2, zoom);
+
+        double halfWidth = 640 / 256.0 / tiles * 360;
+        double centreY = mercatorY(city[0]);
+        double north = latitude(Math.max(0, centreY - 400 / 256.0 / tiles));
+        double south = latitude(Math.min(1, centreY + 400 / 256.0 / tiles));
+        double west = Math.max(-180, city[1] - halfWidth);
+        double east = Math.min(180, city[1] + halfWidth);
+        return index.clusters(south, west, north, east, zoom).size();
+    }
+
+    private static double mercatorY(double latitude) {
+        double sin = Math.sin(Math.toRadians(latitude));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    private static double latitude(double mercatorY) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * mercatorY))));
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
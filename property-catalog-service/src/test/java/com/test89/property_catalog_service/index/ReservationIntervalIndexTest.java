@@ -0,0 +1,156 @@
+package com.test89.property_catalog_service.index;
+
+import com.test89.property_catalog_service.dto.ReservationSpanDto;
+import com.test89.property_catalog_service.entity.Reservation;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import com.test89.property_catalog_service.repository.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * ReservationIntervalIndex against the closed-interval overlap of ReservationRepository.findOverlappingReservations,
+ * and its fallbacks to the database before the build and when a conflict turns out to be stale.
+ */
+class ReservationIntervalIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2027, 3, 1);
+
+    private ReservationRepository reservationRepository;
+    private ReservationIntervalIndex index;
+
+    @BeforeEach
+    void setUp() {
+        reservationRepository = mock(ReservationRepository.class);
+        index = new ReservationIntervalIndex(reservationRepository);
+    }
+
+    @Test
+    void touchingDatesCountAsOverlapLikeTheRepositoryQuery() {
+        index.rebuildFrom(Stream.of(span(1, 7, 10, 13)));
+
+        assertTrue(index.findFirstConflict(7L, day(13), day(15)).isPresent()); // Check-in on the check-out day
+        assertTrue(index.findFirstConflict(7L, day(8), day(10)).isPresent()); // Check-out on the check-in day
+        assertTrue(index.findFirstConflict(7L, day(11), day(12)).isPresent());
+        assertFalse(index.findFirstConflict(7L, day(14), day(16)).isPresent());
+        assertFalse(index.findFirstConflict(7L, day(5), day(9)).isPresent());
+        assertFalse(index.findFirstConflict(8L, day(10), day(13)).isPresent());
+    }
+
+    @Test
+    void longEarlierStayIsFoundBehindShorterLaterOnes() {
+        index.rebuildFrom(Stream.of(span(1, 7, 0, 30), span(2, 7, 2, 3), span(3, 7, 5, 6), span(4, 7, 40, 45)));
+
+        Optional<ReservationSpanDto> conflict = index.findFirstConflict(7L, day(20), day(25));
+        assertEquals(1L, conflict.orElseThrow().getReservationId());
+        assertEquals(4L, index.findFirstConflict(7L, day(31), day(41)).orElseThrow().getReservationId());
+        assertFalse(index.findFirstConflict(7L, day(32), day(38)).isPresent());
+    }
+
+    @Test
+    void matchesABruteForceOverlapCheck() {
+        Random random = new Random(11);
+        List<ReservationSpanDto> spans = new ArrayList<>();
+        for (long id = 1; id <= 300; id++) {
+            int start = random.nextInt(700);
+            spans.add(span(id, 1 + random.nextInt(5), start, start + 1 + random.nextInt(random.nextInt(10) == 0 ? 60 : 7)));
+        }
+        index.rebuildFrom(spans.stream());
+
+        for (int i = 0; i < 5_000; i++) {
+            long propertyId = 1 + random.nextInt(5);
+            int from = random.nextInt(720);
+            LocalDate checkIn = day(from);
+            LocalDate checkOut = day(from + 1 + random.nextInt(14));
+
+            Optional<ReservationSpanDto> expected = spans.stream()
+                    .filter(span -> span.getPropertyId() == propertyId)
+                    .filter(span -> !span.getCheckInDate().isAfter(checkOut) && !span.getCheckOutDate().isBefore(checkIn))
+                    .min((a, b) -> a.getCheckInDate().compareTo(b.getCheckInDate()));
+            Optional<ReservationSpanDto> actual = index.findFirstConflict(propertyId, checkIn, checkOut);
+
+            assertEquals(expected.isPresent(), actual.isPresent(), "Property " + propertyId + " " + checkIn + " - " + checkOut);
+            expected.ifPresent(span -> assertEquals(span.getCheckInDate(), actual.get().getCheckInDate()));
+        }
+    }
+
+    @Test
+    void followsReservationChanges() {
+        index.rebuildFrom(Stream.empty());
+
+        index.onReservationChanged(new ReservationChangedEvent(1L, 7L, day(10), day(13), null, "PENDING"));
+        assertTrue(index.findFirstConflict(7L, day(12), day(14)).isPresent());
+
+        // Moved dates replace the earlier ones
+        index.onReservationChanged(new ReservationChangedEvent(1L, 7L, day(20), day(22), "PENDING", "CONFIRMED"));
+        assertFalse(index.findFirstConflict(7L, day(12), day(14)).isPresent());
+        assertTrue(index.findFirstConflict(7L, day(21), day(21)).isPresent());
+
+        index.onReservationChanged(new ReservationChangedEvent(1L, 7L, day(20), day(22), "CONFIRMED", "CANCELLED"));
+        assertFalse(index.findFirstConflict(7L, day(21), day(21)).isPresent());
+    }
+
+    @Test
+    void asksTheDatabaseUntilBuilt() {
+        Reservation stay = Reservation.builder().id(5L).checkInDate(day(3)).checkOutDate(day(6)).build();
+        when(reservationRepository.findOverlappingReservations(7L, day(4), day(5))).thenReturn(List.of(stay));
+
+        assertFalse(index.isReady());
+        assertEquals(5L, index.findFirstConflict(7L, day(4), day(5)).orElseThrow().getReservationId());
+        assertTrue(index.hasOverlap(7L, day(4), day(5)));
+    }
+
+    @Test
+    void conflictIsConfirmedAgainstTheDatabase() {
+        index.rebuildFrom(Stream.of(span(1, 7, 10, 13)));
+        Reservation stay = Reservation.builder().id(1L).checkInDate(day(10)).checkOutDate(day(13)).build();
+        when(reservationRepository.findOverlappingReservations(7L, day(11), day(12))).thenReturn(List.of(stay));
+
+        assertTrue(index.hasOverlap(7L, day(11), day(12)));
+        verify(reservationRepository, never()).findActiveSpansByProperty(any(), any());
+    }
+
+    @Test
+    void staleConflictIsDroppedAfterTheDatabaseDisagrees() {
+        // Cancelled on another node: the database no longer has it, this node's index still does
+        index.rebuildFrom(Stream.of(span(1, 7, 10, 13), span(2, 7, 30, 32)));
+        when(reservationRepository.findOverlappingReservations(7L, day(11), day(12))).thenReturn(List.of());
+        when(reservationRepository.findActiveSpansByProperty(eq(7L), any())).thenReturn(List.of(span(2, 7, 30, 32)));
+
+        assertFalse(index.hasOverlap(7L, day(11), day(12)));
+        assertFalse(index.findFirstConflict(7L, day(11), day(12)).isPresent());
+        assertTrue(index.findFirstConflict(7L, day(31), day(31)).isPresent());
+    }
+
+    @Test
+    void noIndexHitNeedsNoQuery() {
+        index.rebuildFrom(Stream.of(span(1, 7, 10, 13)));
+
+        assertFalse(index.hasOverlap(7L, day(20), day(25)));
+        verify(reservationRepository, never()).findOverlappingReservations(any(), any(), any());
+    }
+
+    private static ReservationSpanDto span(long reservationId, long propertyId, int checkIn, int checkOut) {
+        return new ReservationSpanDto(reservationId, propertyId, day(checkIn), day(checkOut));
+    }
+
+    private static LocalDate day(int offset) {
+        return DAY.plusDays(offset);
+    }
+}
@@ -0,0 +1,111 @@
+package com.test89.property_catalog_service.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Measures TextIndex query latency on a synthetic catalog of 500k listings whose descriptions draw from a
+ * Zipf-distributed vocabulary. Covers plain, prefix and misspelled queries, with and without a filter.
+ * Run manually via the main method; it is not part of the test suite.
+ */
+public class TextIndexBenchmark {
+
+    private static final int LISTINGS = 500_000;
+    private static final int VOCABULARY = 30_000;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 500;
+
+    private static final String[] TYPES = {"Apartment", "House", "Villa", "Studio", "Cabin", "Loft", "Cottage"};
+    private static final String[] ADJECTIVES = {"Cozy", "Spacious", "Modern", "Charming", "Sunny", "Quiet",
+            "Luxury", "Rustic", "Bright", "Elegant"};
+    private static final String[] FEATURES = {"beach", "mountain", "garden", "downtown", "lake", "river",
+            "harbour", "forest", "vineyard", "old town"};
+    private static final String[] AMENITIES = {"WiFi", "Pool", "Parking", "Kitchen", "Washer", "Air conditioning",
+            "Fireplace", "Hot tub", "Gym", "Balcony"};
+    private static final String[] CITIES = {"Paris", "Lisbon", "Barcelona", "Berlin", "Rome", "Vienna", "Prague",
+            "Amsterdam", "Copenhagen", "Dublin", "Edinburgh", "Athens", "Seville", "Porto", "Munich"};
+
+    private static final String[][] QUERIES = {
+            {"cozy apartment", "plain"},
+            {"beach villa lisbon", "plain"},
+            {"modern lo", "prefix"},
+            {"garden cottage wi", "prefix"},
+            {"apartmnet barcelona", "typo"},
+            {"spacoius house", "typo"},
+    };
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = randomWord(random);
+        }
+        double[] zipf = new double[VOCABULARY];
+        double sum = 0;
+        for (int i = 0; i < VOCABULARY; i++) {
+            sum += 1.0 / (i + 1);
+            zipf[i] = sum;
+        }
+        final double total = sum;
+
+        List<TextIndex.Document> documents = IntStream.range(0, LISTINGS).mapToObj(i -> {
+            String type = TYPES[random.nextInt(TYPES.length)];
+            String city = CITIES[random.nextInt(CITIES.length)];
+            String title = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + type + " near the "
+                    + FEATURES[random.nextInt(FEATURES.length)];
+            StringBuilder description = new StringBuilder();
+            for (int w = 40 + random.nextInt(40); w > 0; w--) {
+                int rank = Arrays.binarySearch(zipf, random.nextDouble() * total);
+                description.append(words[Math.min(VOCABULARY - 1, rank < 0 ? -rank - 1 : rank)]).append(' ');
+            }
+            List<String> amenities = new ArrayList<>();
+            for (String amenity : AMENITIES) {
+                if (random.nextInt(3) == 0) {
+                    amenities.add(amenity);
+                }
+            }
+            return new TextIndex.Document(i + 1, title, description.toString(), type, amenities,
+                    random.nextInt(200) + " Main Street", city, null, String.valueOf(10000 + random.nextInt(90000)),
+                    "Europe");
+        }).toList();
+
+        TextIndex index = new TextIndex(null);
+        long start = System.currentTimeMillis();
+        index.rebuildFrom(documents.stream());
+        System.out.printf("Indexed %d listings in %d ms%n", LISTINGS, System.currentTimeMillis() - start);
+
+        for (boolean filtered : new boolean[]{false, true}) {
+            for (String[] query : QUERIES) {
+                for (int i = 0; i < WARMUP; i++) {
+                    search(index, query[0], filtered);
+                }
+                long[] nanos = new long[ITERATIONS];
+                int hits = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    long queryStart = System.nanoTime();
+                    hits = search(index, query[0], filtered);
+                    nanos[i] = System.nanoTime() - queryStart;
+                }
+                Arrays.sort(nanos);
+                System.out.printf("%-22s %-6s filtered=%-5s hits=%-7d p50 %.2f ms  p99 %.2f ms%n",
+                        "\"" + query[0] + "\"", query[1], filtered, hits,
+                        nanos[ITERATIONS / 2] / 1e6, nanos[ITERATIONS * 99 / 100] / 1e6);
+            }
+        }
+    }
+
+    private static int search(TextIndex index, String query, boolean filtered) {
+        return index.search(query, filtered ? id -> id % 3 == 0 : null, 20).total();
+    }
+
+    private static String randomWord(Random random) {
+        char[] letters = new char[4 + random.nextInt(7)];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+}
@@ -0,0 +1,150 @@
+package com.test89.property_catalog_service.pricing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that flat-rate quotes match the BigDecimal arithmetic ReservationService used before the pricing engine,
+ * and that seasonal quotes match a night-by-night walk over the rules. It then measures quotes per second for
+ * the old flat arithmetic, a night-by-night BigDecimal walk and the prefix-sum calendar. Run manually via the
+ * main method; it is not part of the test suite.
+ */
+public class PricingBenchmark {
+
+    private static final int QUOTES = 2_000_000;
+    private static final LocalDate TODAY = LocalDate.of(2026, 1, 1);
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        verifyFlatRates(random);
+
+        List<RateCalendar.Season> seasons = List.of(
+                new RateCalendar.Season(LocalDate.of(2026, 6, 15), LocalDate.of(2026, 9, 1), 24_900, 29_900),
+                new RateCalendar.Season(LocalDate.of(2026, 12, 18), LocalDate.of(2027, 1, 3), 31_000, 31_000));
+        List<RateCalendar.Discount> discounts = List.of(new RateCalendar.Discount(7, 1_000), new RateCalendar.Discount(28, 2_500));
+        RateCalendar calendar = new RateCalendar(15_000, 18_000, 3, seasons, discounts, TODAY, 2 * 366 + 1);
+        verifySeasonalRates(calendar, seasons, discounts, random);
+
+        long[] checkIns = new long[QUOTES];
+        int[] nights = new int[QUOTES];
+        for (int i = 0; i < QUOTES; i++) {
+            checkIns[i] = TODAY.toEpochDay() + random.nextInt(540);
+            nights[i] = 1 + random.nextInt(30);
+        }
+
+        for (int round = 0; round < 3; round++) {
+            measure("BigDecimal flat", () -> {
+                long sink = 0;
+                for (int i = 0; i < QUOTES; i++) {
+                    sink += legacyTotal(new BigDecimal("150.00"), 3, nights[i]).unscaledValue().longValue();
+                }
+                return sink;
+            });
+            measure("BigDecimal nightly", () -> {
+                long sink = 0;
+                for (int i = 0; i < QUOTES / 10; i++) {
+                    sink += nightByNight(seasons, discounts, checkIns[i], nights[i]);
+                }
+                return sink;
+            }, QUOTES / 10);
+            measure("prefix sums", () -> {
+                long sink = 0;
+                for (int i = 0; i < QUOTES; i++) {
+                    sink += calendar.quote(checkIns[i], checkIns[i] + nights[i]).totalMinor();
+                }
+                return sink;
+            });
+        }
+    }
+
+    private interface Run {
+        long run();
+    }
+
+    private static void measure(String label, Run run) {
+        measure(label, run, QUOTES);
+    }
+
+    private static void measure(String label, Run run, int quotes) {
+        long start = System.nanoTime();
+        long sink = run.run();
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-20s %,12.0f quotes/s  (%d)%n", label, quotes / (elapsed / 1e9), sink % 10);
+    }
+
+    private static void verifyFlatRates(Random random) {
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(100_000), 2);
+            int bedrooms = random.nextInt(8);
+            int stay = 1 + random.nextInt(60);
+            Quote quote = new RateCalendar(RateCalendar.toMinor(price), -1, bedrooms, List.of(), List.of(), TODAY, 0)
+                    .quote(TODAY, TODAY.plusDays(stay));
+            BigDecimal expected = legacyTotal(price, bedrooms, stay);
+            if (!Quote.money(quote.totalMinor()).equals(expected) || !Quote.money(quote.averageNightlyMinor()).equals(price)) {
+                throw new IllegalStateException("Mismatch for " + price + " x " + stay + ": " + quote + " vs " + expected);
+            }
+        }
+        System.out.println("flat quotes match the BigDecimal arithmetic");
+    }
+
+    private static void verifySeasonalRates(RateCalendar calendar, List<RateCalendar.Season> seasons,
+                                            List<RateCalendar.Discount> discounts, Random random) {
+        for (int i = 0; i < 100_000; i++) {
+            long checkIn = TODAY.toEpochDay() - 30 + random.nextInt(800);
+            int stay = 1 + random.nextInt(40);
+            Quote quote = calendar.quote(checkIn, checkIn + stay);
+            long subtotal = quote.subtotalMinor();
+            if (subtotal != nightByNightSubtotal(seasons, discounts, checkIn, stay)) {
+                throw new IllegalStateException("Seasonal mismatch at " + LocalDate.ofEpochDay(checkIn) + " + " + stay);
+            }
+        }
+        System.out.println("seasonal quotes match the night-by-night walk");
+    }
+
+    // ReservationService's arithmetic before the pricing engine
+    private static BigDecimal legacyTotal(BigDecimal pricePerDay, int bedrooms, int stayDuration) {
+        BigDecimal subtotal = pricePerDay.multiply(BigDecimal.valueOf(stayDuration));
+        BigDecimal sizeFactor = BigDecimal.ONE.add(new BigDecimal("0.25").multiply(BigDecimal.valueOf(bedrooms)));
+        BigDecimal durationFactor = stayDuration > 7 ? new BigDecimal("1.5") : BigDecimal.ONE;
+        BigDecimal cleaningFee = new BigDecimal("25.00").multiply(sizeFactor).multiply(durationFactor).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal serviceFee = subtotal.multiply(new BigDecimal("0.10")).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal taxAmount = subtotal.multiply(new BigDecimal("0.05")).setScale(2, RoundingMode.HALF_UP);
+        return subtotal.add(cleaningFee).add(serviceFee).add(taxAmount);
+    }
+
+    // The straightforward alternative: look up every night's rate and sum BigDecimals
+    private static long nightByNight(List<RateCalendar.Season> seasons, List<RateCalendar.Discount> discounts,
+                                     long checkIn, int stay) {
+        BigDecimal subtotal = BigDecimal.valueOf(nightByNightSubtotal(seasons, discounts, checkIn, stay), 2);
+        BigDecimal fees = subtotal.multiply(new BigDecimal("0.15")).setScale(2, RoundingMode.HALF_UP);
+        return subtotal.add(fees).unscaledValue().longValue();
+    }
+
+    private static long nightByNightSubtotal(List<RateCalendar.Season> seasons, List<RateCalendar.Discount> discounts,
+                                             long checkIn, int stay) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (long day = checkIn; day < checkIn + stay; day++) {
+            LocalDate night = LocalDate.ofEpochDay(day);
+            boolean weekend = night.getDayOfWeek() == DayOfWeek.FRIDAY || night.getDayOfWeek() == DayOfWeek.SATURDAY;
+            long rate = weekend ? 18_000 : 15_000;
+            for (RateCalendar.Season season : seasons) {
+                if (!night.isBefore(season.startDate()) && !night.isAfter(season.endDate()) && !night.isBefore(TODAY)) {
+                    rate = weekend ? season.weekendRateMinor() : season.rateMinor();
+                }
+            }
+            total = total.add(BigDecimal.valueOf(rate, 2));
+        }
+        long basisPoints = 0;
+        for (RateCalendar.Discount discount : discounts) {
+            if (discount.minNights() <= stay) {
+                basisPoints = Math.max(basisPoints, discount.basisPoints());
+            }
+        }
+        BigDecimal discount = total.multiply(BigDecimal.valueOf(basisPoints, 4)).setScale(2, RoundingMode.HALF_UP);
+        return total.subtract(discount).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,163 @@
+package com.test89.property_catalog_service.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * RateCalendar quotes against the BigDecimal fee math ReservationService used before it, and its prefix sums and
+ * closed-form weekend counts against a night-by-night walk of the same rates.
+ */
+class RateCalendarTest {
+
+    private static final LocalDate ORIGIN = LocalDate.of(2026, 10, 18);
+
+    @Test
+    void flatRateMatchesTheOldBigDecimalFees() {
+        Random random = new Random(19);
+        for (int i = 0; i < 5_000; i++) {
+            BigDecimal pricePerDay = BigDecimal.valueOf(1 + random.nextInt(200_000), 2);
+            Integer bedrooms = random.nextInt(8) == 0 ? null : random.nextInt(9);
+            int nights = 1 + random.nextInt(30);
+            LocalDate checkIn = ORIGIN.plusDays(random.nextInt(800) - 50);
+
+            RateCalendar calendar = new RateCalendar(RateCalendar.toMinor(pricePerDay), -1, bedrooms, List.of(),
+                    List.of(), ORIGIN, PricingEngine.MAX_CALENDAR_DAYS);
+            Quote quote = calendar.quote(checkIn, checkIn.plusDays(nights));
+            OldFees expected = OldFees.of(pricePerDay, bedrooms, nights);
+
+            String stay = pricePerDay + " x " + nights + ", " + bedrooms + " bedrooms";
+            assertEquals(expected.subtotal, Quote.money(quote.subtotalMinor()), stay);
+            assertEquals(expected.cleaningFee, Quote.money(quote.cleaningFeeMinor()), stay);
+            assertEquals(expected.serviceFee, Quote.money(quote.serviceFeeMinor()), stay);
+            assertEquals(expected.tax, Quote.money(quote.taxMinor()), stay);
+            assertEquals(expected.total, Quote.money(quote.totalMinor()), stay);
+            assertEquals(pricePerDay, Quote.money(quote.averageNightlyMinor()), stay);
+        }
+    }
+
+    @Test
+    void halfCentsRoundUpLikeTheOldFees() {
+        // 10% of 0.05 and 5% of 0.10 are both exactly half a cent
+        RateCalendar calendar = new RateCalendar(5, -1, 0, List.of(), List.of(), ORIGIN, 10);
+        assertEquals(1, calendar.quote(ORIGIN, ORIGIN.plusDays(1)).serviceFeeMinor());
+        assertEquals(1, calendar.quote(ORIGIN, ORIGIN.plusDays(2)).taxMinor());
+        // 25.00 * 1.25 * 1.5 = 46.875
+        assertEquals(4_688, new RateCalendar(100, -1, 1, List.of(), List.of(), ORIGIN, 10)
+                .quote(ORIGIN, ORIGIN.plusDays(8)).cleaningFeeMinor());
+    }
+
+    @Test
+    void nightlyTotalMatchesANightByNightWalk() {
+        Random random = new Random(23);
+        for (int round = 0; round < 200; round++) {
+            long baseMinor = 5_000 + random.nextInt(10_000);
+            long weekendMinor = random.nextBoolean() ? -1 : 8_000 + random.nextInt(10_000);
+            List<RateCalendar.Season> seasons = new ArrayList<>();
+            for (int i = random.nextInt(4); i > 0; i--) {
+                LocalDate start = ORIGIN.plusDays(random.nextInt(400) - 30);
+                seasons.add(new RateCalendar.Season(start, start.plusDays(random.nextInt(90)),
+                        10_000 + random.nextInt(10_000), 15_000 + random.nextInt(10_000)));
+            }
+            RateCalendar calendar = new RateCalendar(baseMinor, weekendMinor, 2, seasons, List.of(), ORIGIN,
+                    PricingEngine.MAX_CALENDAR_DAYS);
+
+            for (int i = 0; i < 50; i++) {
+                LocalDate checkIn = ORIGIN.plusDays(random.nextInt(500) - 60);
+                LocalDate checkOut = checkIn.plusDays(1 + random.nextInt(40));
+                long expected = 0;
+                for (LocalDate night = checkIn; night.isBefore(checkOut); night = night.plusDays(1)) {
+                    expected += rate(night, baseMinor, weekendMinor, seasons);
+                }
+                assertEquals(expected, calendar.quote(checkIn, checkOut).nightlyMinor(), checkIn + " - " + checkOut);
+            }
+        }
+    }
+
+    @Test
+    void seasonNightsPastTheCalendarBoundAreChargedTheBaseRates() {
+        RateCalendar.Season season = new RateCalendar.Season(ORIGIN, ORIGIN.plusDays(100), 20_000, 20_000);
+        RateCalendar calendar = new RateCalendar(10_000, -1, 0, List.of(season), List.of(), ORIGIN, 10);
+
+        LocalDate checkIn = ORIGIN.plusDays(8);
+        assertEquals(2 * 20_000 + 3 * 10_000, calendar.quote(checkIn, checkIn.plusDays(5)).nightlyMinor());
+        assertEquals(20_000, calendar.quote(ORIGIN, ORIGIN.plusDays(1)).nightlyMinor());
+    }
+
+    @Test
+    void longestQualifyingDiscountApplies() {
+        List<RateCalendar.Discount> discounts = List.of(new RateCalendar.Discount(28, 2_000),
+                new RateCalendar.Discount(7, 1_050));
+        RateCalendar calendar = new RateCalendar(10_000, -1, 0, List.of(), discounts, ORIGIN, 10);
+
+        assertEquals(0, calendar.quote(ORIGIN, ORIGIN.plusDays(6)).discountMinor());
+        Quote week = calendar.quote(ORIGIN, ORIGIN.plusDays(7));
+        assertEquals(7_350, week.discountMinor()); // 10.5% of 700.00
+        assertEquals(62_650, week.subtotalMinor());
+        assertEquals(RateCalendar.percentOf(62_650, RateCalendar.SERVICE_FEE_BASIS_POINTS), week.serviceFeeMinor());
+        assertEquals(56_000, calendar.quote(ORIGIN, ORIGIN.plusDays(28)).discountMinor());
+    }
+
+    @Test
+    void weekendNightsAreFridaysAndSaturdays() {
+        for (int i = 0; i < 14; i++) {
+            LocalDate day = ORIGIN.plusDays(i);
+            boolean weekend = day.getDayOfWeek() == DayOfWeek.FRIDAY || day.getDayOfWeek() == DayOfWeek.SATURDAY;
+            assertEquals(weekend, RateCalendar.isWeekend(day.toEpochDay()), day.toString());
+        }
+        assertTrue(RateCalendar.isWeekend(LocalDate.of(1969, 12, 26).toEpochDay())); // Negative epoch day
+    }
+
+    @Test
+    void rejectsEmptyStays() {
+        RateCalendar calendar = new RateCalendar(10_000, -1, 0, List.of(), List.of(), ORIGIN, 10);
+        assertThrows(IllegalArgumentException.class, () -> calendar.quote(ORIGIN, ORIGIN));
+        assertThrows(IllegalArgumentException.class, () -> calendar.quote(ORIGIN, ORIGIN.minusDays(1)));
+    }
+
+    private static long rate(LocalDate night, long baseMinor, long weekendMinor, List<RateCalendar.Season> seasons) {
+        boolean weekend = night.getDayOfWeek() == DayOfWeek.FRIDAY || night.getDayOfWeek() == DayOfWeek.SATURDAY;
+        long rate = weekend && weekendMinor >= 0 ? weekendMinor : baseMinor;
+        if (night.isBefore(ORIGIN)) {
+            return rate;
+        }
+        for (RateCalendar.Season season : seasons) {
+            if (!night.isBefore(season.startDate()) && !night.isAfter(season.endDate())) {
+                rate = weekend ? season.weekendRateMinor() : season.rateMinor();
+            }
+        }
+        return rate;
+    }
+
+    // The fee calculation ReservationService.createReservation did before quotes came from RateCalendar
+    private record OldFees(BigDecimal subtotal, BigDecimal cleaningFee, BigDecimal serviceFee, BigDecimal tax,
+                           BigDecimal total) {
+
+        static OldFees of(BigDecimal pricePerDay, Integer bedrooms, int stayDuration) {
+            BigDecimal subtotal = pricePerDay.multiply(BigDecimal.valueOf(stayDuration));
+
+            BigDecimal sizeFactor = BigDecimal.ONE;
+            if (bedrooms != null) {
+                sizeFactor = sizeFactor.add(new BigDecimal("0.25").multiply(BigDecimal.valueOf(bedrooms)));
+            }
+            BigDecimal durationFactor = stayDuration > 7 ? new BigDecimal("1.5") : BigDecimal.ONE;
+            BigDecimal cleaningFee = new BigDecimal("25.00").multiply(sizeFactor).multiply(durationFactor)
+                    .setScale(2, RoundingMode.HALF_UP);
+
+            BigDecimal serviceFee = subtotal.multiply(new BigDecimal("0.10")).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal tax = subtotal.multiply(new BigDecimal("0.05")).setScale(2, RoundingMode.HALF_UP);
+            return new OldFees(subtotal, cleaningFee, serviceFee, tax,
+                    subtotal.add(cleaningFee).add(serviceFee).add(tax));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.test89.property_catalog_service.service;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Measures check-then-insert bookings per second on an in-memory H2 database while worker threads book random
+ * stays on 1, 10 and 10k hot properties, with no lock, one global lock (what raising the isolation level amounts
+ * to) and the striped {@link BookingLocks}. Each run reports the double bookings left behind, which must be zero
+ * for both locked modes. Run manually via the main method; it is not part of the test suite.
+ */
+public class BookingContentionBenchmark {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 1_500;
+    private static final int HORIZON_DAYS = 365;
+    private static final int[] HOT_PROPERTIES = {1, 10, 10_000};
+
+    private static final String OVERLAP_CHECK = "SELECT COUNT(*) FROM reservations WHERE property_id = ? " +
+            "AND status IN ('PENDING', 'CONFIRMED') AND check_in_date <= ? AND check_out_date >= ?";
+
+    private enum Mode { NONE, GLOBAL, STRIPED }
+
+    public static void main(String[] args) throws Exception {
+        String url = "jdbc:h2:mem:booking;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE reservations (id BIGINT AUTO_INCREMENT PRIMARY KEY, property_id BIGINT, " +
+                    "check_in_date DATE, check_out_date DATE, status VARCHAR(20))");
+            statement.execute("CREATE INDEX idx_reservations_property_dates ON reservations (property_id, check_in_date, check_out_date)");
+
+            for (int hotProperties : HOT_PROPERTIES) {
+                for (Mode mode : Mode.values()) {
+                    statement.execute("TRUNCATE TABLE reservations");
+                    run(url, connection, hotProperties, mode);
+                }
+            }
+        }
+    }
+
+    private static void run(String url, Connection connection, int hotProperties, Mode mode) throws Exception {
+        BookingLocks stripes = new BookingLocks(1024, Duration.ofSeconds(30));
+        ReentrantLock global = new ReentrantLock();
+        LocalDate today = LocalDate.now();
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(new Thread(() -> {
+                try (Connection worker = DriverManager.getConnection(url)) {
+                    worker.setAutoCommit(false);
+                    worker.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        long propertyId = 1 + random.nextInt(hotProperties);
+                        LocalDate checkIn = today.plusDays(random.nextInt(HORIZON_DAYS));
+                        LocalDate checkOut = checkIn.plusDays(1 + random.nextInt(7));
+
+                        boolean success = switch (mode) {
+                            case NONE -> book(worker, propertyId, checkIn, checkOut);
+                            case GLOBAL -> {
+                                global.lock();
+                                try {
+                                    yield book(worker, propertyId, checkIn, checkOut);
+                                } finally {
+                                    global.unlock();
+                                }
+                            }
+                            case STRIPED -> stripes.withLock(propertyId, () -> book(worker, propertyId, checkIn, checkOut));
+                        };
+                        (success ? booked : rejected).incrementAndGet();
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+
+        long start = System.nanoTime();
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("hot=%-6d %-8s %8.0f attempts/s  %8.0f bookings/s  booked=%-6d rejected=%-6d double-booked=%d%n",
+                hotProperties, mode, (booked.get() + rejected.get()) / seconds, booked.get() / seconds,
+                booked.get(), rejected.get(), countOverlaps(connection));
+    }
+
+    // The same check-then-insert that ReservationService runs, as one READ COMMITTED transaction
+    private static boolean book(Connection connection, long propertyId, LocalDate checkIn, LocalDate checkOut) {
+        try {
+            try (PreparedStatement check = connection.prepareStatement(OVERLAP_CHECK)) {
+                check.setLong(1, propertyId);
+                check.setDate(2, Date.valueOf(checkOut));
+                check.setDate(3, Date.valueOf(checkIn));
+                try (ResultSet rs = check.executeQuery()) {
+                    rs.next();
+                    if (rs.getLong(1) > 0) {
+                        connection.rollback();
+                        return false;
+                    }
+                }
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO reservations " +
+                    "(property_id, check_in_date, check_out_date, status) VALUES (?, ?, ?, 'PENDING')")) {
+                insert.setLong(1, propertyId);
+                insert.setDate(2, Date.valueOf(checkIn));
+                insert.setDate(3, Date.valueOf(checkOut));
+                insert.executeUpdate();
+            }
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long countOverlaps(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM reservations a JOIN reservations b " +
+                     "ON a.property_id = b.property_id AND a.id < b.id " +
+                     "AND a.check_in_date <= b.check_out_date AND b.check_in_date <= a.check_out_date")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
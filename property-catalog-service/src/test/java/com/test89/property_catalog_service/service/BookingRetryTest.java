@@ -0,0 +1,191 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.cache.ReservationCalendarCache;
+import com.test89.property_catalog_service.config.BookingConstraintInitializer;
+import com.test89.property_catalog_service.dto.ReservationCreateDto;
+import com.test89.property_catalog_service.dto.ReservationDto;
+import com.test89.property_catalog_service.entity.Property;
+import com.test89.property_catalog_service.entity.Reservation;
+import com.test89.property_catalog_service.entity.User;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import com.test89.property_catalog_service.hold.BookingHolds;
+import com.test89.property_catalog_service.index.ListingSnapshot;
+import com.test89.property_catalog_service.index.ReservationIntervalIndex;
+import com.test89.property_catalog_service.mapper.ReservationMapper;
+import com.test89.property_catalog_service.pricing.PricingEngine;
+import com.test89.property_catalog_service.pricing.Quote;
+import com.test89.property_catalog_service.repository.PropertyRepository;
+import com.test89.property_catalog_service.repository.ReservationRepository;
+import com.test89.property_catalog_service.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * createReservation under the property's booking lock: database lock races are retried in a fresh transaction,
+ * a booking rejected by the overlap constraint reaches the caller as "already booked", and a property busy with
+ * another booking is reported rather than waited on forever.
+ */
+class BookingRetryTest {
+
+    private static final long PROPERTY_ID = 7L;
+    private static final String ALREADY_BOOKED = "The property is already booked for the selected dates";
+
+    private final User guest = User.builder().id(10L).username("guest").roles(Set.of("ROLE_USER")).build();
+    private final Property property = Property.builder().id(PROPERTY_ID).status("Available").build();
+    private final ReservationCreateDto request = ReservationCreateDto.builder()
+            .propertyId(PROPERTY_ID)
+            .checkInDate(LocalDate.now().plusDays(10))
+            .checkOutDate(LocalDate.now().plusDays(13))
+            .guestCount(2)
+            .build();
+    private final ReservationDto booked = new ReservationDto();
+
+    private ReservationRepository reservationRepository;
+    private PlatformTransactionManager transactionManager;
+    private ApplicationEventPublisher eventPublisher;
+    private PropertyNightService propertyNightService;
+    private BookingLocks bookingLocks;
+    private ReservationService reservationService;
+
+    @BeforeEach
+    void setUp() {
+        reservationRepository = mock(ReservationRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByUsername("guest")).thenReturn(Optional.of(guest));
+        PropertyRepository propertyRepository = mock(PropertyRepository.class);
+        when(propertyRepository.findById(PROPERTY_ID)).thenReturn(Optional.of(property));
+        ReservationIntervalIndex reservationIntervalIndex = mock(ReservationIntervalIndex.class);
+        when(reservationIntervalIndex.hasOverlap(anyLong(), any(), any())).thenReturn(false);
+        PricingEngine pricingEngine = mock(PricingEngine.class);
+        when(pricingEngine.quote(any(), any(), any())).thenReturn(new Quote(3, 30000, 0, 5000, 3500, 3850, 42350));
+        ReservationMapper reservationMapper = mock(ReservationMapper.class);
+        when(reservationMapper.toDto(any(Reservation.class))).thenReturn(booked);
+
+        transactionManager = mock(PlatformTransactionManager.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        propertyNightService = mock(PropertyNightService.class);
+        bookingLocks = new BookingLocks(16, Duration.ofMillis(200));
+        reservationService = new ReservationService(reservationRepository, propertyRepository, userRepository,
+                reservationMapper, mock(ReservationEmails.class), eventPublisher, reservationIntervalIndex,
+                propertyNightService, mock(ListingSnapshot.class), bookingLocks, mock(BookingHolds.class),
+                new TransactionTemplate(transactionManager), pricingEngine, mock(EntityManager.class),
+                mock(ReservationCalendarCache.class));
+    }
+
+    @Test
+    void lostLockRaceIsRetriedInAFreshTransaction() {
+        when(reservationRepository.saveAndFlush(any(Reservation.class)))
+                .thenThrow(new CannotAcquireLockException("could not obtain lock"))
+                .thenAnswer(call -> saved(call.getArgument(0)));
+
+        assertSame(booked, reservationService.createReservation(request, "guest"));
+
+        verify(reservationRepository, times(2)).saveAndFlush(any(Reservation.class));
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+        verify(propertyNightService, times(1)).occupy(any());
+        verify(eventPublisher, times(1)).publishEvent(any(ReservationChangedEvent.class));
+    }
+
+    @Test
+    void givesUpAfterThreeLostRaces() {
+        DeadlockLoserDataAccessException deadlock = new DeadlockLoserDataAccessException("deadlock detected", null);
+        when(reservationRepository.saveAndFlush(any(Reservation.class))).thenThrow(deadlock);
+
+        ConcurrencyFailureException thrown = assertThrows(ConcurrencyFailureException.class,
+                () -> reservationService.createReservation(request, "guest"));
+
+        assertSame(deadlock, thrown);
+        verify(reservationRepository, times(3)).saveAndFlush(any(Reservation.class));
+        verify(transactionManager, times(3)).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void overlapConstraintViolationReachesTheCallerAsAlreadyBooked() {
+        when(reservationRepository.saveAndFlush(any(Reservation.class))).thenThrow(new DataIntegrityViolationException(
+                "could not execute statement", new SQLException("ERROR: conflicting key value violates exclusion " +
+                "constraint \"" + BookingConstraintInitializer.OVERLAP_CONSTRAINT + "\"")));
+
+        IllegalStateException rejected = assertThrows(IllegalStateException.class,
+                () -> reservationService.createReservation(request, "guest"));
+
+        assertEquals(ALREADY_BOOKED, rejected.getMessage());
+        // Another instance holds those dates; trying again cannot help
+        verify(reservationRepository, times(1)).saveAndFlush(any(Reservation.class));
+        verify(transactionManager, times(1)).rollback(any());
+        verify(propertyNightService, never()).occupy(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void otherIntegrityViolationsAreNotReportedAsAlreadyBooked() {
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("could not execute statement",
+                new SQLException("ERROR: null value in column \"user_id\" violates not-null constraint"));
+        when(reservationRepository.saveAndFlush(any(Reservation.class))).thenThrow(violation);
+
+        assertSame(violation, assertThrows(DataIntegrityViolationException.class,
+                () -> reservationService.createReservation(request, "guest")));
+        verify(reservationRepository, times(1)).saveAndFlush(any(Reservation.class));
+    }
+
+    @Test
+    void bookingOfABusyPropertyTimesOutAndTheLockIsFreedAfterwards() throws Exception {
+        when(reservationRepository.saveAndFlush(any(Reservation.class))).thenAnswer(call -> saved(call.getArgument(0)));
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> otherBooking = CompletableFuture.supplyAsync(() ->
+                bookingLocks.withLock(PROPERTY_ID, () -> {
+                    held.countDown();
+                    try {
+                        return release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+        held.await(5, TimeUnit.SECONDS);
+
+        IllegalStateException busy = assertThrows(IllegalStateException.class,
+                () -> reservationService.createReservation(request, "guest"));
+        assertEquals("The property is busy with other bookings, please try again", busy.getMessage());
+        verify(reservationRepository, never()).saveAndFlush(any(Reservation.class));
+
+        release.countDown();
+        otherBooking.get(5, TimeUnit.SECONDS);
+        assertSame(booked, reservationService.createReservation(request, "guest"));
+    }
+
+    private static Reservation saved(Reservation reservation) {
+        reservation.setId(100L);
+        return reservation;
+    }
+}
@@ -0,0 +1,261 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.entity.CalendarImport;
+import com.test89.property_catalog_service.entity.ImportedBlock;
+import com.test89.property_catalog_service.entity.Property;
+import com.test89.property_catalog_service.entity.Reservation;
+import com.test89.property_catalog_service.entity.ReservationStatus;
+import com.test89.property_catalog_service.entity.User;
+import com.test89.property_catalog_service.ical.IcsFeedFetcher;
+import com.test89.property_catalog_service.ical.IcsReader;
+import com.test89.property_catalog_service.pricing.PricingEngine;
+import com.test89.property_catalog_service.repository.CalendarImportRepository;
+import com.test89.property_catalog_service.repository.ImportedBlockRepository;
+import com.test89.property_catalog_service.repository.PropertyNightRepository;
+import com.test89.property_catalog_service.repository.PropertyRepository;
+import com.test89.property_catalog_service.repository.ReservationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * CalendarImportService syncs against in-memory blocks: only stays whose dates changed create or cancel BLOCKED
+ * reservations, whatever else changes in the feed, and a feed that cannot be fetched or read keeps what it blocked.
+ */
+class CalendarImportServiceTest {
+
+    private static final long PROPERTY_ID = 7L;
+    private static final long IMPORT_ID = 1L;
+    private static final DateTimeFormatter ICS_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final LocalDate today = LocalDate.now();
+    private final List<ImportedBlock> blocks = new ArrayList<>();
+    private final List<Reservation> saved = new ArrayList<>();
+    private final List<Long> cancelled = new ArrayList<>();
+    private final AtomicLong reservationIds = new AtomicLong(100);
+
+    private CalendarImport calendarImport;
+    private IcsFeedFetcher feedFetcher;
+    private ReservationRepository reservationRepository;
+    private PropertyNightService propertyNightService;
+    private CalendarImportService calendarImportService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        calendarImport = CalendarImport.builder()
+                .id(IMPORT_ID)
+                .propertyId(PROPERTY_ID)
+                .url("https://example.com/calendar.ics")
+                .blockCount(0)
+                .failures(0)
+                .build();
+        CalendarImportRepository calendarImportRepository = mock(CalendarImportRepository.class);
+        when(calendarImportRepository.findById(IMPORT_ID)).thenAnswer(call -> Optional.of(calendarImport));
+
+        ImportedBlockRepository importedBlockRepository = mock(ImportedBlockRepository.class);
+        when(importedBlockRepository.findByImportId(IMPORT_ID)).thenAnswer(call -> List.copyOf(blocks));
+        when(importedBlockRepository.save(any(ImportedBlock.class))).thenAnswer(call -> {
+            blocks.add(call.getArgument(0));
+            return call.getArgument(0);
+        });
+        doAnswer(call -> {
+            Collection<ImportedBlock> removed = call.getArgument(0);
+            blocks.removeAll(removed);
+            return null;
+        }).when(importedBlockRepository).deleteAllInBatch(any());
+
+        reservationRepository = mock(ReservationRepository.class);
+        when(reservationRepository.save(any(Reservation.class))).thenAnswer(call -> {
+            Reservation reservation = call.getArgument(0);
+            reservation.setId(reservationIds.incrementAndGet());
+            saved.add(reservation);
+            return reservation;
+        });
+        when(reservationRepository.cancelBlocks(anyCollection(), anyString(), any())).thenAnswer(call -> {
+            Collection<Long> ids = call.getArgument(0);
+            cancelled.addAll(ids);
+            return ids.size();
+        });
+
+        User owner = User.builder().id(30L).username("host").build();
+        PropertyRepository propertyRepository = mock(PropertyRepository.class);
+        when(propertyRepository.findById(PROPERTY_ID))
+                .thenReturn(Optional.of(Property.builder().id(PROPERTY_ID).owner(owner).build()));
+
+        BookingLocks bookingLocks = mock(BookingLocks.class);
+        when(bookingLocks.withLock(anyLong(), any())).thenAnswer(call -> ((Supplier<?>) call.getArgument(1)).get());
+
+        feedFetcher = mock(IcsFeedFetcher.class);
+        propertyNightService = mock(PropertyNightService.class);
+        calendarImportService = new CalendarImportService(calendarImportRepository, importedBlockRepository,
+                reservationRepository, propertyRepository, mock(PropertyNightRepository.class), propertyNightService,
+                feedFetcher, bookingLocks, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                mock(ApplicationEventPublisher.class), Duration.ofMinutes(15), 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        calendarImportService.shutdown();
+    }
+
+    @Test
+    void firstSyncBlocksEachUpcomingStayOnce() throws IOException {
+        serve(feed("1",
+                event("past", -10, -5),
+                event("current", -2, 3),
+                event("future", 20, 25),
+                event("same-dates-other-uid", 20, 25)));
+
+        calendarImportService.syncNow(PROPERTY_ID, IMPORT_ID);
+
+        assertEquals(2, saved.size());
+        assertEquals(List.of(today, today.plusDays(3)), List.of(saved.get(0).getCheckInDate(), saved.get(0).getCheckOutDate()));
+        assertEquals(List.of(today.plusDays(20), today.plusDays(25)),
+                List.of(saved.get(1).getCheckInDate(), saved.get(1).getCheckOutDate()));
+        assertEquals(ReservationStatus.BLOCKED, saved.get(0).getStatus());
+        assertEquals(2, blocks.size());
+        assertEquals(2, calendarImport.getBlockCount());
+        assertNull(calendarImport.getLastError());
+    }
+
+    @Test
+    void refetchWithNewTimestampsChangesNoBlocks() throws IOException {
+        serve(feed("1", event("a", 5, 8), event("b", 20, 25)));
+        calendarImportService.syncNow(PROPERTY_ID, IMPORT_ID);
+        String firstHash = calendarImport.getFeedHash();
+
+        serve(feed("2", event("a", 5, 8), event("b", 20, 25)));
+        calendarImportService.syncNow(PROPERTY_ID, IMPORT_ID);
+
+        assertNotEquals(firstHash, calendarImport.getFeedHash());
+        assertEquals(2, saved.size());
+        assertEquals(List.of(), cancelled);
+        assertEquals(2, blocks.size());
+    }
+
+    @Test
+    void movedStayReplacesOnlyItsOwnBlock() throws IOException {
+        serve(feed("1", event("a", 5, 8), event("b", 20, 25)));
+        calendarImportService.syncNow(PROPERTY_ID, IMPORT_ID);
+        long keptId = saved.get(0).getId();
+        long movedId = saved.get(1).getId();
+
+        serve(feed("2", event("a", 5, 8), event("b", 21, 26)));
+        calendarImportService.syncNow(PROPERTY_ID, IMPORT_ID);
+
+        assertEquals(List.of(movedId), cancelled);
+        assertEquals(3, saved.size());
+        assertEquals(today.plusDays(21), saved.get(2).getCheckInDate());
+        assertEquals(List.of(keptId, saved.get(2).getId()), blocks.stream().map(ImportedBlock::getReservationId).toList());
+        verify(propertyNightService).reclaimBlocked(PROPERTY_ID, today.plusDays(20), today.plusDays(25));
+    }
+
+    @Test
+    void stayRemovedFromTheFeedIsCancelled() throws IOException {
+        serve(feed("1", event("a", 5, 8), event("b", 20, 25)));
+        calendarImportService.syncNow(PROPERTY_ID, IMPORT_ID);
+
+        serve(feed("2", event("b", 20, 25), cancelledEvent("a", 5, 8)));
+        calendarImportService.syncNow(PROPERTY_ID, IMPORT_ID);
+
+        assertEquals(List.of(saved.get(0).getId()), cancelled);
+        assertEquals(1, blocks.size());
+        assertEquals(1, calendarImport.getBlockCount());
+    }
+
+    @Test
+    void unreadableFeedKeepsTheBlocksAndBacksOff() throws IOException {
+        serve(feed("1", event("a", 5, 8)));
+        calendarImportService.syncNow(PROPERTY_ID, IMPORT_ID);
+
+        serve("BEGIN:VCALENDAR\r\nBEGIN:VEVENT\r\nDTSTART;VALUE=DATE:20261101\r\n");
+        calendarImportService.syncNow(PROPERTY_ID, IMPORT_ID);
+
+        assertEquals(List.of(), cancelled);
+        assertEquals(1, blocks.size());
+        assertEquals(1, calendarImport.getFailures());
+        assertEquals("Calendar feed ended before END:VCALENDAR", calendarImport.getLastError());
+    }
+
+    @Test
+    void transportErrorsAreNotShownToTheOwner() throws IOException {
+        when(feedFetcher.fetch(anyString(), any())).thenThrow(new IOException("Connection refused: 10.0.0.5:8080"));
+
+        calendarImportService.syncNow(PROPERTY_ID, IMPORT_ID);
+        calendarImportService.syncNow(PROPERTY_ID, IMPORT_ID);
+
+        assertEquals(2, calendarImport.getFailures());
+        assertEquals("Calendar feed could not be read", calendarImport.getLastError());
+    }
+
+    @Test
+    void notModifiedFeedIsNotParsed() throws IOException {
+        when(feedFetcher.fetch(anyString(), any())).thenReturn(new IcsFeedFetcher.Fetched(null, "\"v1\""));
+
+        calendarImportService.syncNow(PROPERTY_ID, IMPORT_ID);
+
+        verify(reservationRepository, never()).save(any());
+        assertEquals(0, calendarImport.getFailures());
+    }
+
+    @Test
+    void horizonCutsStaysToTheBookableNights() {
+        LocalDate horizon = today.plusDays(PricingEngine.MAX_CALENDAR_DAYS);
+
+        assertEquals(new IcsReader.Event("a", today, today.plusDays(2)),
+                CalendarImportService.withinHorizon(new IcsReader.Event("a", today.minusDays(3), today.plusDays(2)), today));
+        assertEquals(new IcsReader.Event("a", horizon.minusDays(1), horizon),
+                CalendarImportService.withinHorizon(new IcsReader.Event("a", horizon.minusDays(1), horizon.plusYears(5)), today));
+        assertNull(CalendarImportService.withinHorizon(new IcsReader.Event("a", today.minusDays(3), today), today));
+        assertNull(CalendarImportService.withinHorizon(new IcsReader.Event("a", horizon, horizon.plusDays(3)), today));
+    }
+
+    private void serve(String feed) throws IOException {
+        when(feedFetcher.fetch(anyString(), any())).thenAnswer(call -> new IcsFeedFetcher.Fetched(
+                new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)), null));
+    }
+
+    private String feed(String stamp, String... events) {
+        return "BEGIN:VCALENDAR\r\nVERSION:2.0\r\n" + String.join("", events).replace("{stamp}", stamp)
+                + "END:VCALENDAR\r\n";
+    }
+
+    private String event(String uid, int startOffset, int endOffset) {
+        return "BEGIN:VEVENT\r\nUID:" + uid + "\r\nDTSTAMP:2026010{stamp}T000000Z\r\n"
+                + "DTSTART;VALUE=DATE:" + today.plusDays(startOffset).format(ICS_DATE) + "\r\n"
+                + "DTEND;VALUE=DATE:" + today.plusDays(endOffset).format(ICS_DATE) + "\r\nEND:VEVENT\r\n";
+    }
+
+    private String cancelledEvent(String uid, int startOffset, int endOffset) {
+        return event(uid, startOffset, endOffset).replace("END:VEVENT", "STATUS:CANCELLED\r\nEND:VEVENT");
+    }
+}
@@ -0,0 +1,101 @@
+package com.test89.property_catalog_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test89.property_catalog_service.entity.Property;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CursorCodec tokens decode back to the keys they were made from, typed like the sorted properties, and anything
+ * that is not such a token for the requested sort is rejected as a bad request.
+ */
+class CursorCodecTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final CursorCodec codec = new CursorCodec(objectMapper);
+
+    @Test
+    void keysetSortAppendsTheIdOnce() {
+        assertEquals(Sort.by("pricePerDay").and(Sort.by("id")), codec.keysetSort(Sort.by("pricePerDay")));
+        Sort withId = Sort.by(Sort.Order.desc("id"));
+        assertEquals(withId, codec.keysetSort(withId));
+    }
+
+    @Test
+    void roundTripsKeysWithTheirPropertyTypes() {
+        Sort sort = codec.keysetSort(Sort.by(Sort.Order.desc("pricePerDay"), Sort.Order.asc("createdAt"),
+                Sort.Order.asc("title")));
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("pricePerDay", new BigDecimal("120.50"));
+        keys.put("createdAt", LocalDateTime.of(2026, 5, 4, 10, 15, 30));
+        keys.put("title", "Flat with a view");
+        keys.put("id", 42L);
+
+        String cursor = codec.encode(ScrollPosition.forward(keys));
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), "URL-safe without padding: " + cursor);
+
+        KeysetScrollPosition position = codec.decode(cursor, sort, Property.class);
+        assertEquals(List.of("pricePerDay", "createdAt", "title", "id"), List.copyOf(position.getKeys().keySet()));
+        assertEquals(0, new BigDecimal("120.50").compareTo((BigDecimal) position.getKeys().get("pricePerDay")));
+        assertEquals(LocalDateTime.of(2026, 5, 4, 10, 15, 30), position.getKeys().get("createdAt"));
+        assertEquals("Flat with a view", position.getKeys().get("title"));
+        assertEquals(42L, position.getKeys().get("id"));
+    }
+
+    @Test
+    void blankCursorStartsAtTheBeginning() {
+        assertTrue(codec.decode(null, Sort.by("id"), Property.class).isInitial());
+        assertTrue(codec.decode(" ", Sort.by("id"), Property.class).isInitial());
+    }
+
+    @Test
+    void rejectsTokensThatAreNotCursors() {
+        Sort sort = Sort.by("id");
+        assertInvalid("not base64!", sort);
+        assertInvalid(encode("not json"), sort);
+        assertInvalid(encode("[1, 2]"), sort);
+        assertInvalid(encode("null"), sort);
+    }
+
+    @Test
+    void rejectsCursorsForADifferentSort() {
+        String cursor = codec.encode(ScrollPosition.forward(Map.of("id", 7L)));
+
+        assertInvalid(cursor, codec.keysetSort(Sort.by("pricePerDay")));
+        assertInvalid(encode("{\"id\": 7, \"title\": \"x\"}"), Sort.by("id"));
+    }
+
+    @Test
+    void rejectsValuesOfTheWrongType() {
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.decode(encode("{\"id\": \"seven\"}"), Sort.by("id"), Property.class));
+    }
+
+    @Test
+    void encodesOnlyKeysetPositions() {
+        assertThrows(IllegalArgumentException.class, () -> codec.encode(ScrollPosition.offset(10)));
+    }
+
+    private void assertInvalid(String cursor, Sort sort) {
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(cursor, sort, Property.class), cursor);
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
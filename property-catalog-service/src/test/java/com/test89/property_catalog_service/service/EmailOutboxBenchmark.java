@@ -0,0 +1,258 @@
+package com.test89.property_catalog_service.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compares request latency of a reservation-style write transaction that sends its email synchronously (the old
+ * createReservation path) with one that only writes an outbox row, while a background dispatcher drains the outbox
+ * in batches over one SMTP connection. The SMTP server is a local fake that answers each command after a fixed
+ * delay, standing in for a slow remote handshake. Run manually via the main method; it is not part of the test suite.
+ */
+public class EmailOutboxBenchmark {
+
+    private static final int SMTP_REPLY_DELAY_MS = 20;
+    private static final int THREADS = 4;
+    private static final int REQUESTS_PER_THREAD = 50;
+    private static final int DISPATCH_BATCH_SIZE = 50;
+    private static final String BODY = "<h3>Hi Guest,</h3><p>Your reservation has been confirmed.</p>".repeat(20);
+
+    public static void main(String[] args) throws Exception {
+        try (FakeSmtpServer smtp = new FakeSmtpServer(SMTP_REPLY_DELAY_MS)) {
+            JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+            mailSender.setHost("localhost");
+            mailSender.setPort(smtp.port());
+
+            String url = "jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1";
+            try (Connection connection = DriverManager.getConnection(url); Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE reservations (id BIGINT AUTO_INCREMENT PRIMARY KEY, guest VARCHAR(100))");
+                statement.execute("CREATE TABLE email_outbox (id BIGINT AUTO_INCREMENT PRIMARY KEY, recipient VARCHAR(255), " +
+                        "subject VARCHAR(255), html_body VARCHAR(65535), status VARCHAR(20))");
+            }
+
+            long[] synchronous = run(url, (connection, guest) -> {
+                insertReservation(connection, guest);
+                mailSender.send(message(mailSender, guest));
+            });
+            System.out.printf("%d ms SMTP replies, %d requests (%d messages sent)%n",
+                    SMTP_REPLY_DELAY_MS, synchronous.length, smtp.messages());
+            report("synchronous send", synchronous);
+
+            AtomicBoolean running = new AtomicBoolean(true);
+            Thread dispatcher = new Thread(() -> dispatchUntilStopped(url, mailSender, running));
+            dispatcher.start();
+            long[] outbox = run(url, (connection, guest) -> {
+                insertReservation(connection, guest);
+                try (PreparedStatement insert = connection.prepareStatement("INSERT INTO email_outbox " +
+                        "(recipient, subject, html_body, status) VALUES (?, 'Reservation Confirmation', ?, 'PENDING')")) {
+                    insert.setString(1, guest + "@example.com");
+                    insert.setString(2, BODY);
+                    insert.executeUpdate();
+                }
+            });
+            long drainStart = System.nanoTime();
+            running.set(false);
+            dispatcher.join();
+            report("outbox", outbox);
+            System.out.printf("outbox drained %.0f ms after the last request; %d messages sent in total%n",
+                    (System.nanoTime() - drainStart) / 1e6, smtp.messages());
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        void run(Connection connection, String guest) throws Exception;
+    }
+
+    // Latency of every request, each run as one transaction
+    private static long[] run(String url, Request request) throws InterruptedException {
+        long[] latencies = new long[THREADS * REQUESTS_PER_THREAD];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int worker = t;
+            workers.add(new Thread(() -> {
+                try (Connection connection = DriverManager.getConnection(url)) {
+                    connection.setAutoCommit(false);
+                    for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                        long start = System.nanoTime();
+                        request.run(connection, "guest" + worker + "-" + i);
+                        connection.commit();
+                        latencies[worker * REQUESTS_PER_THREAD + i] = System.nanoTime() - start;
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return latencies;
+    }
+
+    // Poll the outbox and send each batch over one connection until stopped and drained
+    private static void dispatchUntilStopped(String url, JavaMailSenderImpl mailSender, AtomicBoolean running) {
+        try (Connection connection = DriverManager.getConnection(url)) {
+            while (true) {
+                List<Long> ids = new ArrayList<>();
+                List<MimeMessage> messages = new ArrayList<>();
+                try (PreparedStatement select = connection.prepareStatement("SELECT id, recipient FROM email_outbox " +
+                        "WHERE status = 'PENDING' ORDER BY id LIMIT " + DISPATCH_BATCH_SIZE);
+                     ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong(1));
+                        messages.add(message(mailSender, rs.getString(2)));
+                    }
+                }
+                if (ids.isEmpty()) {
+                    if (!running.get()) {
+                        return;
+                    }
+                    Thread.sleep(100);
+                    continue;
+                }
+                mailSender.send(messages.toArray(new MimeMessage[0]));
+                try (Statement update = connection.createStatement()) {
+                    update.executeUpdate("UPDATE email_outbox SET status = 'SENT' WHERE id IN (" +
+                            String.join(",", ids.stream().map(String::valueOf).toList()) + ")");
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void insertReservation(Connection connection, String guest) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO reservations (guest) VALUES (?)")) {
+            insert.setString(1, guest);
+            insert.executeUpdate();
+        }
+    }
+
+    private static MimeMessage message(JavaMailSenderImpl mailSender, String guest) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+        helper.setFrom("noreply@example.com");
+        helper.setTo(guest.contains("@") ? guest : guest + "@example.com");
+        helper.setSubject("Reservation Confirmation");
+        helper.setText(BODY, true);
+        return message;
+    }
+
+    private static void report(String label, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-17s p50 %7.2f ms  p99 %7.2f ms  max %7.2f ms%n", label,
+                sorted[sorted.length / 2] / 1e6, sorted[(int) Math.ceil(sorted.length * 0.99) - 1] / 1e6,
+                sorted[sorted.length - 1] / 1e6);
+    }
+
+    /**
+     * Minimal SMTP server that accepts everything, replying to each command after a fixed delay.
+     */
+    private static final class FakeSmtpServer implements AutoCloseable {
+
+        private final ServerSocket serverSocket;
+        private final int replyDelayMs;
+        private final Thread acceptor;
+        private volatile int messages;
+
+        FakeSmtpServer(int replyDelayMs) throws IOException {
+            this.serverSocket = new ServerSocket(0);
+            this.replyDelayMs = replyDelayMs;
+            this.acceptor = new Thread(this::accept);
+            this.acceptor.setDaemon(true);
+            this.acceptor.start();
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        int messages() {
+            return messages;
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    Thread session = new Thread(() -> serve(socket));
+                    session.setDaemon(true);
+                    session.start();
+                } catch (IOException e) {
+                    return; // Closed
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                 OutputStream out = socket.getOutputStream()) {
+                reply(out, "220 fake ESMTP");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                    switch (command) {
+                        case "EHLO" -> reply(out, "250-fake\r\n250 8BITMIME");
+                        case "DATA" -> {
+                            reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                            while ((line = in.readLine()) != null && !line.equals(".")) {
+                                // Discard the message content
+                            }
+                            synchronized (this) {
+                                messages++;
+                            }
+                            reply(out, "250 OK queued");
+                        }
+                        case "QUIT" -> {
+                            reply(out, "221 Bye");
+                            return;
+                        }
+                        default -> reply(out, "250 OK");
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void reply(OutputStream out, String response) throws IOException {
+            try {
+                Thread.sleep(replyDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            out.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.entity.OutboxEmail;
+import com.test89.property_catalog_service.repository.OutboxEmailRepository;
+import com.test89.property_catalog_service.template.EmailTemplates;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * EmailOutboxDispatcher over an in-memory outbox and a stub mail sender that fails the way JavaMailSenderImpl
+ * does: per message, for the whole connection, or before anything is sent. Only the failed rows are retried,
+ * with exponential backoff, until they are given up on.
+ */
+class EmailOutboxDispatcherTest {
+
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(30);
+
+    private final List<OutboxEmail> outbox = new ArrayList<>();
+    private final StubMailSender mailSender = new StubMailSender();
+    private OutboxEmailRepository outboxEmailRepository;
+    private EmailService emailService;
+
+    @BeforeEach
+    void setUp() {
+        outboxEmailRepository = mock(OutboxEmailRepository.class);
+        when(outboxEmailRepository.findDueForUpdate(any(), any())).thenAnswer(call -> {
+            LocalDateTime now = call.getArgument(0);
+            Pageable pageable = call.getArgument(1);
+            return outbox.stream()
+                    .filter(email -> OutboxEmail.PENDING.equals(email.getStatus()) && !email.getNextAttemptAt().isAfter(now))
+                    .sorted(Comparator.comparing(OutboxEmail::getId))
+                    .limit(pageable.getPageSize())
+                    .toList();
+        });
+        when(outboxEmailRepository.markSent(any(), any())).thenAnswer(call -> {
+            Collection<Long> ids = call.getArgument(0);
+            List<OutboxEmail> marked = outbox.stream().filter(email -> ids.contains(email.getId())).toList();
+            marked.forEach(email -> {
+                email.setStatus(OutboxEmail.SENT);
+                email.setSentAt(call.getArgument(1));
+                email.setLastError(null);
+            });
+            return marked.size();
+        });
+        when(outboxEmailRepository.save(any(OutboxEmail.class))).thenAnswer(call -> call.getArgument(0));
+        emailService = new EmailService(mailSender, outboxEmailRepository, mock(EmailTemplates.class));
+    }
+
+    @Test
+    void partialFailureRetriesOnlyTheListedMessages() {
+        OutboxEmail first = queue("first@example.com");
+        OutboxEmail rejected = queue("rejected@example.com");
+        OutboxEmail third = queue("third@example.com");
+        mailSender.failWith(messages -> partialFailure(messages, "rejected@example.com", "550 Mailbox unavailable"));
+
+        LocalDateTime before = LocalDateTime.now();
+        assertEquals(3, dispatcher(50, 8).dispatchBatch());
+        LocalDateTime after = LocalDateTime.now();
+
+        assertEquals(List.of(List.of("first@example.com", "rejected@example.com", "third@example.com")),
+                mailSender.batches);
+        assertEquals(OutboxEmail.SENT, first.getStatus());
+        assertEquals(OutboxEmail.SENT, third.getStatus());
+        assertEquals(OutboxEmail.PENDING, rejected.getStatus());
+        assertEquals("550 Mailbox unavailable", rejected.getLastError());
+        assertRetryAfter(rejected, INITIAL_BACKOFF, before, after);
+
+        // Once the backoff has passed, only the rejected message is sent again
+        mailSender.failWith(null);
+        rejected.setNextAttemptAt(LocalDateTime.now());
+        assertEquals(1, dispatcher(50, 8).dispatchBatch());
+        assertEquals(List.of("rejected@example.com"), mailSender.batches.get(1));
+        assertEquals(OutboxEmail.SENT, rejected.getStatus());
+        assertEquals(2, rejected.getAttempts());
+        assertNull(rejected.getLastError());
+    }
+
+    @Test
+    void connectionFailureRetriesTheWholeBatch() {
+        List<OutboxEmail> emails = List.of(queue("a@example.com"), queue("b@example.com"), queue("c@example.com"));
+        // JavaMailSenderImpl lists every message of the batch when it cannot connect
+        mailSender.failWith(messages -> {
+            MessagingException cause = new MessagingException("Connection refused");
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            Arrays.stream(messages).forEach(message -> failed.put(message, cause));
+            return new MailSendException("Mail server connection failed", cause, failed);
+        });
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher(50, 8).dispatchBatch();
+        LocalDateTime after = LocalDateTime.now();
+
+        for (OutboxEmail email : emails) {
+            assertEquals(OutboxEmail.PENDING, email.getStatus());
+            assertEquals("Connection refused", email.getLastError());
+            assertRetryAfter(email, INITIAL_BACKOFF, before, after);
+        }
+
+        // An authentication failure sends nothing either
+        mailSender.failWith(messages -> new MailAuthenticationException("535 Authentication failed"));
+        emails.forEach(email -> email.setNextAttemptAt(LocalDateTime.now()));
+        dispatcher(50, 8).dispatchBatch();
+        for (OutboxEmail email : emails) {
+            assertEquals(OutboxEmail.PENDING, email.getStatus());
+            assertEquals(2, email.getAttempts());
+            assertEquals("535 Authentication failed", email.getLastError());
+        }
+    }
+
+    @Test
+    void backoffDoublesFromTheInitialDelayUpToAnHour() {
+        OutboxEmail email = queue("guest@example.com");
+        mailSender.failWith(messages -> new MailSendException("Mail server connection failed"));
+        EmailOutboxDispatcher dispatcher = dispatcher(50, 20);
+
+        List<Duration> expected = List.of(Duration.ofSeconds(30), Duration.ofMinutes(1), Duration.ofMinutes(2),
+                Duration.ofMinutes(4), Duration.ofMinutes(8), Duration.ofMinutes(16), Duration.ofMinutes(32),
+                Duration.ofHours(1), Duration.ofHours(1), Duration.ofHours(1));
+        for (int attempt = 1; attempt <= expected.size(); attempt++) {
+            email.setNextAttemptAt(LocalDateTime.now());
+            LocalDateTime before = LocalDateTime.now();
+            assertEquals(1, dispatcher.dispatchBatch());
+            LocalDateTime after = LocalDateTime.now();
+
+            assertEquals(attempt, email.getAttempts());
+            assertRetryAfter(email, expected.get(attempt - 1), before, after);
+        }
+    }
+
+    @Test
+    void emailIsGivenUpOnAfterMaxAttempts() {
+        OutboxEmail email = queue("guest@example.com");
+        mailSender.failWith(messages -> partialFailure(messages, "guest@example.com", "452 Mailbox full"));
+        EmailOutboxDispatcher dispatcher = dispatcher(50, 3);
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            email.setNextAttemptAt(LocalDateTime.now());
+            dispatcher.dispatchBatch();
+            assertEquals(attempt < 3 ? OutboxEmail.PENDING : OutboxEmail.DEAD, email.getStatus());
+        }
+        assertEquals(3, email.getAttempts());
+        assertEquals("452 Mailbox full", email.getLastError());
+
+        // Never claimed again
+        email.setNextAttemptAt(LocalDateTime.now());
+        assertEquals(0, dispatcher.dispatchBatch());
+        assertEquals(3, mailSender.batches.size());
+    }
+
+    @Test
+    void malformedEmailIsGivenUpOnAtOnceAndTheRestAreSent() {
+        OutboxEmail good = queue("guest@example.com");
+        OutboxEmail malformed = queue("first@example.com, second@example.com");
+
+        dispatcher(50, 8).dispatchBatch();
+
+        assertEquals(List.of(List.of("guest@example.com")), mailSender.batches);
+        assertEquals(OutboxEmail.SENT, good.getStatus());
+        assertEquals(OutboxEmail.DEAD, malformed.getStatus());
+        assertEquals(1, malformed.getAttempts());
+        assertTrue(malformed.getLastError().startsWith("Failed to build email"));
+    }
+
+    @Test
+    void drainsTheOutboxInBatches() {
+        for (int i = 0; i < 7; i++) {
+            queue("guest" + i + "@example.com");
+        }
+
+        dispatcher(3, 8).dispatch();
+
+        assertEquals(List.of(3, 3, 1), mailSender.batches.stream().map(List::size).toList());
+        assertTrue(outbox.stream().allMatch(email -> OutboxEmail.SENT.equals(email.getStatus())));
+    }
+
+    private EmailOutboxDispatcher dispatcher(int batchSize, int maxAttempts) {
+        return new EmailOutboxDispatcher(outboxEmailRepository, emailService, mailSender,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), batchSize, maxAttempts,
+                INITIAL_BACKOFF, Duration.ofDays(7));
+    }
+
+    private OutboxEmail queue(String recipient) {
+        OutboxEmail email = OutboxEmail.builder()
+                .id((long) outbox.size() + 1)
+                .recipient(recipient)
+                .subject("Your reservation")
+                .htmlBody("<p>Hi</p>")
+                .status(OutboxEmail.PENDING)
+                .attempts(0)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+        outbox.add(email);
+        return email;
+    }
+
+    private static void assertRetryAfter(OutboxEmail email, Duration delay, LocalDateTime before, LocalDateTime after) {
+        LocalDateTime next = email.getNextAttemptAt();
+        assertTrue(!next.isBefore(before.plus(delay)) && !next.isAfter(after.plus(delay)),
+                "expected a retry " + delay + " after the attempt, got " + next + " for an attempt at " + before);
+    }
+
+    private static MailSendException partialFailure(MimeMessage[] messages, String recipient, String error) {
+        Map<Object, Exception> failed = new LinkedHashMap<>();
+        Arrays.stream(messages).filter(message -> recipient.equals(StubMailSender.recipient(message)))
+                .forEach(message -> failed.put(message, new MessagingException(error)));
+        return new MailSendException(failed);
+    }
+
+    /**
+     * Records the recipients of each batch instead of connecting, then fails it if told to.
+     */
+    private static class StubMailSender extends JavaMailSenderImpl {
+
+        final List<List<String>> batches = new ArrayList<>();
+        private Function<MimeMessage[], MailException> failure;
+
+        void failWith(Function<MimeMessage[], MailException> failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public void send(MimeMessage... messages) {
+            batches.add(Arrays.stream(messages).map(StubMailSender::recipient).sorted().toList());
+            if (failure != null) {
+                throw failure.apply(messages);
+            }
+        }
+
+        static String recipient(MimeMessage message) {
+            try {
+                return message.getRecipients(Message.RecipientType.TO)[0].toString();
+            } catch (MessagingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.entity.Property;
+import com.test89.property_catalog_service.entity.Reservation;
+import com.test89.property_catalog_service.entity.User;
+import com.test89.property_catalog_service.template.EmailTemplates;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Compares heap allocated per rendered reservation confirmation email by the old string concatenation with the
+ * precompiled templates, measured with the per-thread allocation counter. Rendering is the only work measured:
+ * queueing is stubbed out. Run manually via the main method; it is not part of the test suite.
+ */
+public class EmailTemplateBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 200_000;
+    private static final int MEASURED_ITERATIONS = 200_000;
+
+    private static int renderedChars;
+
+    public static void main(String[] args) {
+        Reservation reservation = reservation();
+
+        EmailService emailService = new EmailService(null, null, new EmailTemplates()) {
+            @Override
+            public void queueEmail(String to, String subject, String htmlBody) {
+                renderedChars += subject.length() + htmlBody.length();
+            }
+        };
+        ReservationEmails reservationEmails = new ReservationEmails(emailService, new EmailTemplates());
+
+        measure("concatenation", () -> {
+            String body = concatenatedConfirmation(reservation);
+            renderedChars += body.length();
+        });
+        measure("templates", () -> reservationEmails.sendConfirmation(reservation));
+        Locale.setDefault(Locale.FRENCH);
+        measure("templates (fr)", () -> reservationEmails.sendConfirmation(reservation));
+    }
+
+    private static void measure(String label, Runnable render) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            render.run();
+        }
+        renderedChars = 0;
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            render.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        System.out.printf("%-15s %6d bytes/email  %6.0f ns/email  (%d chars/email)%n", label,
+                allocated / MEASURED_ITERATIONS, (double) elapsed / MEASURED_ITERATIONS,
+                renderedChars / MEASURED_ITERATIONS);
+    }
+
+    private static Reservation reservation() {
+        Property property = Property.builder()
+                .id(1L)
+                .title("Seaside Cottage & Garden")
+                .checkInTime("4:00 PM")
+                .build();
+        User user = User.builder()
+                .id(1L)
+                .firstName("Alex")
+                .email("alex@example.com")
+                .build();
+        return Reservation.builder()
+                .id(1L)
+                .property(property)
+                .user(user)
+                .checkInDate(LocalDate.of(2026, 7, 3))
+                .checkOutDate(LocalDate.of(2026, 7, 10))
+                .numberOfDays(7)
+                .guestCount(4)
+                .pricePerDay(new BigDecimal("189.00"))
+                .cleaningFee(new BigDecimal("45.00"))
+                .serviceFee(new BigDecimal("132.30"))
+                .taxAmount(new BigDecimal("66.15"))
+                .totalPrice(new BigDecimal("1566.45"))
+                .status("PENDING")
+                .isPaid(false)
+                .paymentDate(LocalDateTime.of(2026, 6, 1, 12, 0))
+                .build();
+    }
+
+    // The confirmation email as ReservationService built it before templates
+    private static String concatenatedConfirmation(Reservation reservation) {
+        return "<h3>Hi " + reservation.getUser().getFirstName() + ",</h3>" +
+                "<p>Your reservation has been confirmed with the following details:</p>" +
+                "<p><b>Property:</b> " + reservation.getProperty().getTitle() + "</p>" +
+                "<p><b>Check-in Date:</b> " + reservation.getCheckInDate() +
+                " at " + (reservation.getProperty().getCheckInTime() != null ?
+                reservation.getProperty().getCheckInTime() : "3:00 PM") + "</p>" +
+                "<p><b>Check-out Date:</b> " + reservation.getCheckOutDate() +
+                " at " + (reservation.getProperty().getCheckOutTime() != null ?
+                reservation.getProperty().getCheckOutTime() : "11:00 AM") + "</p>" +
+                "<p><b>Number of Days:</b> " + reservation.getNumberOfDays() + "</p>" +
+                "<p><b>Number of Guests:</b> " + reservation.getGuestCount() + "</p>" +
+                "<p><b>Price Breakdown:</b></p>" +
+                "<ul>" +
+                "<li>Daily Rate: $" + reservation.getPricePerDay() + " x " + reservation.getNumberOfDays() +
+                " days = $" + reservation.getPricePerDay().multiply(BigDecimal.valueOf(reservation.getNumberOfDays())) + "</li>" +
+                (reservation.getCleaningFee() != null ? "<li>Cleaning Fee: $" + reservation.getCleaningFee() + "</li>" : "") +
+                (reservation.getServiceFee() != null ? "<li>Service Fee: $" + reservation.getServiceFee() + "</li>" : "") +
+                (reservation.getTaxAmount() != null ? "<li>Taxes: $" + reservation.getTaxAmount() + "</li>" : "") +
+                "<li><strong>Total: $" + reservation.getTotalPrice() + "</strong></li>" +
+                "</ul>" +
+                "<p><b>Status:</b> " + reservation.getStatus() + "</p>" +
+                "<p><b>Payment Required:</b> " + (Boolean.TRUE.equals(reservation.getIsPaid()) ? "Paid" : "Payment Due") + "</p>" +
+                "<br><p>Thanks,<br>Property Rental Management Team</p>";
+    }
+}
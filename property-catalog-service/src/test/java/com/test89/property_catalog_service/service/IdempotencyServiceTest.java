@@ -0,0 +1,253 @@
+package com.test89.property_catalog_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test89.property_catalog_service.entity.IdempotencyRecord;
+import com.test89.property_catalog_service.exception.ConflictException;
+import com.test89.property_catalog_service.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * IdempotencyService over an in-memory idempotency_keys table shared by several service instances, standing in
+ * for the nodes of a cluster: a key runs once, duplicates replay or get a conflict, failures free the key again.
+ */
+class IdempotencyServiceTest {
+
+    private static final String ENDPOINT = "POST /reservations";
+
+    record Booking(long id, String note) {
+    }
+
+    private final Map<String, IdempotencyRecord> table = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private IdempotencyRecordRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(IdempotencyRecordRepository.class);
+        when(repository.findById(anyString())).thenAnswer(call -> Optional.ofNullable(table.get((String) call.getArgument(0))));
+        when(repository.saveAndFlush(any(IdempotencyRecord.class))).thenAnswer(call -> {
+            IdempotencyRecord record = call.getArgument(0);
+            if (table.putIfAbsent(record.getScopedKey(), record) != null) {
+                throw new DataIntegrityViolationException("duplicate key " + record.getScopedKey());
+            }
+            return record;
+        });
+        when(repository.complete(anyString(), anyString(), anyString())).thenAnswer(call -> {
+            IdempotencyRecord record = table.get((String) call.getArgument(0));
+            if (record == null || record.getResponseBody() != null || !record.getRequestHash().equals(call.getArgument(1))) {
+                return 0;
+            }
+            record.setResponseBody(call.getArgument(2));
+            return 1;
+        });
+        when(repository.releaseClaim(anyString(), any(LocalDateTime.class))).thenAnswer(call -> {
+            LocalDateTime claimedAt = call.getArgument(1);
+            boolean removed = table.computeIfPresent(call.getArgument(0), (key, record) ->
+                    record.getResponseBody() == null && !record.getCreatedAt().isAfter(claimedAt) ? null : record) == null;
+            return removed ? 1 : 0;
+        });
+    }
+
+    @Test
+    void retryReplaysTheStoredResponseOnAnyInstance() {
+        IdempotencyService first = newInstance();
+        AtomicInteger runs = new AtomicInteger();
+
+        IdempotencyService.Outcome<Booking> original = first.execute("k1", "guest", ENDPOINT, "request", Booking.class,
+                () -> new Booking(runs.incrementAndGet(), "created"));
+        IdempotencyService.Outcome<Booking> retry = first.execute("k1", "guest", ENDPOINT, "request", Booking.class,
+                () -> new Booking(runs.incrementAndGet(), "created"));
+        IdempotencyService.Outcome<Booking> elsewhere = newInstance().execute("k1", "guest", ENDPOINT, "request",
+                Booking.class, () -> new Booking(runs.incrementAndGet(), "created"));
+
+        assertFalse(original.replayed());
+        assertTrue(retry.replayed());
+        assertTrue(elsewhere.replayed());
+        assertEquals(new Booking(1, "created"), retry.response());
+        assertEquals(new Booking(1, "created"), elsewhere.response());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRejected() {
+        IdempotencyService service = newInstance();
+        service.execute("k1", "guest", ENDPOINT, "request", Booking.class, () -> new Booking(1, "created"));
+
+        assertThrows(IllegalArgumentException.class, () -> service.execute("k1", "guest", ENDPOINT, "other request",
+                Booking.class, () -> new Booking(2, "created")));
+        assertThrows(IllegalArgumentException.class, () -> newInstance().execute("k1", "guest", ENDPOINT,
+                "other request", Booking.class, () -> new Booking(2, "created")));
+    }
+
+    @Test
+    void keysAreScopedToUserAndEndpoint() {
+        IdempotencyService service = newInstance();
+        AtomicInteger runs = new AtomicInteger();
+
+        service.execute("k1", "guest", ENDPOINT, "request", Booking.class, () -> new Booking(runs.incrementAndGet(), "a"));
+        assertFalse(service.execute("k1", "owner", ENDPOINT, "request", Booking.class,
+                () -> new Booking(runs.incrementAndGet(), "b")).replayed());
+        assertFalse(service.execute("k1", "guest", "POST /reservations/1/payment", "request", Booking.class,
+                () -> new Booking(runs.incrementAndGet(), "c")).replayed());
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    void duplicatesOnTheSameInstanceWaitForTheFirstRequest() throws Exception {
+        IdempotencyService service = newInstance();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<IdempotencyService.Outcome<Booking>> first = executor.submit(() -> service.execute("k1", "guest",
+                    ENDPOINT, "request", Booking.class, () -> {
+                        started.countDown();
+                        await(release);
+                        return new Booking(runs.incrementAndGet(), "created");
+                    }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            List<Future<IdempotencyService.Outcome<Booking>>> duplicates = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                duplicates.add(executor.submit(() -> service.execute("k1", "guest", ENDPOINT, "request", Booking.class,
+                        () -> new Booking(runs.incrementAndGet(), "duplicate"))));
+            }
+            release.countDown();
+
+            assertFalse(first.get(5, TimeUnit.SECONDS).replayed());
+            for (Future<IdempotencyService.Outcome<Booking>> duplicate : duplicates) {
+                IdempotencyService.Outcome<Booking> outcome = duplicate.get(5, TimeUnit.SECONDS);
+                assertTrue(outcome.replayed());
+                assertEquals(new Booking(1, "created"), outcome.response());
+            }
+            assertEquals(1, runs.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void duplicateOnAnotherInstanceConflictsWhileTheFirstIsRunning() throws Exception {
+        IdempotencyService first = newInstance();
+        IdempotencyService second = newInstance();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<IdempotencyService.Outcome<Booking>> running = executor.submit(() -> first.execute("k1", "guest",
+                    ENDPOINT, "request", Booking.class, () -> {
+                        started.countDown();
+                        await(release);
+                        return new Booking(1, "created");
+                    }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertThrows(ConflictException.class, () -> second.execute("k1", "guest", ENDPOINT, "request",
+                    Booking.class, () -> new Booking(2, "duplicate")));
+
+            release.countDown();
+            running.get(5, TimeUnit.SECONDS);
+            IdempotencyService.Outcome<Booking> replay = second.execute("k1", "guest", ENDPOINT, "request",
+                    Booking.class, () -> new Booking(2, "duplicate"));
+            assertTrue(replay.replayed());
+            assertEquals(new Booking(1, "created"), replay.response());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedRequestFreesTheKeyForARetry() {
+        IdempotencyService service = newInstance();
+
+        assertThrows(IllegalStateException.class, () -> service.execute("k1", "guest", ENDPOINT, "request",
+                Booking.class, () -> {
+                    throw new IllegalStateException("The property is already booked for the selected dates");
+                }));
+        assertTrue(table.isEmpty());
+
+        IdempotencyService.Outcome<Booking> retry = service.execute("k1", "guest", ENDPOINT, "request", Booking.class,
+                () -> new Booking(1, "created"));
+        assertFalse(retry.replayed());
+    }
+
+    @Test
+    void claimAbandonedByACrashedInstanceIsTakenOver() {
+        IdempotencyService service = newInstance();
+        service.execute("k0", "guest", ENDPOINT, "request", Booking.class, () -> new Booking(0, "seed"));
+        String requestHash = table.get("guest " + ENDPOINT + " k0").getRequestHash();
+
+        table.put("guest " + ENDPOINT + " k1", IdempotencyRecord.builder()
+                .scopedKey("guest " + ENDPOINT + " k1")
+                .requestHash(requestHash)
+                .createdAt(LocalDateTime.now().minusMinutes(1))
+                .build());
+        assertThrows(ConflictException.class, () -> service.execute("k1", "guest", ENDPOINT, "request", Booking.class,
+                () -> new Booking(1, "created")));
+
+        table.get("guest " + ENDPOINT + " k1").setCreatedAt(LocalDateTime.now().minusMinutes(10));
+        IdempotencyService.Outcome<Booking> outcome = service.execute("k1", "guest", ENDPOINT, "request",
+                Booking.class, () -> new Booking(1, "created"));
+        assertFalse(outcome.replayed());
+        assertEquals("{\"id\":1,\"note\":\"created\"}", table.get("guest " + ENDPOINT + " k1").getResponseBody());
+    }
+
+    @Test
+    void missingKeyAlwaysRunsAndBlankKeyIsRejected() {
+        IdempotencyService service = newInstance();
+        AtomicInteger runs = new AtomicInteger();
+
+        service.execute(null, "guest", ENDPOINT, "request", Booking.class, () -> new Booking(runs.incrementAndGet(), "a"));
+        service.execute(null, "guest", ENDPOINT, "request", Booking.class, () -> new Booking(runs.incrementAndGet(), "a"));
+
+        assertEquals(2, runs.get());
+        assertTrue(table.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> service.execute(" ", "guest", ENDPOINT, "request",
+                Booking.class, () -> new Booking(3, "a")));
+    }
+
+    private IdempotencyService newInstance() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        return new IdempotencyService(repository, objectMapper, 100, Duration.ofHours(24), Duration.ofSeconds(5),
+                Duration.ofMinutes(5), transactionTemplate);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
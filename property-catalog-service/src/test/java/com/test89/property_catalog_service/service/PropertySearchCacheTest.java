@@ -0,0 +1,114 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.cache.PropertyDtoCache;
+import com.test89.property_catalog_service.cache.SearchResultCache;
+import com.test89.property_catalog_service.dto.PropertyDto;
+import com.test89.property_catalog_service.index.AmenityIndex;
+import com.test89.property_catalog_service.index.AvailabilityIndex;
+import com.test89.property_catalog_service.index.ClusterIndex;
+import com.test89.property_catalog_service.index.GeoIndex;
+import com.test89.property_catalog_service.index.ListingSnapshot;
+import com.test89.property_catalog_service.index.TextIndex;
+import com.test89.property_catalog_service.mapper.PropertyMapper;
+import com.test89.property_catalog_service.pricing.PricingEngine;
+import com.test89.property_catalog_service.repository.PropertyNightRepository;
+import com.test89.property_catalog_service.repository.PropertyRepository;
+import com.test89.property_catalog_service.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Date searches served from the search result cache keep only the leading ids, rounded up to
+ * CACHED_IDS_STEP past the requested page, while the page total still counts every available property.
+ */
+class PropertySearchCacheTest {
+
+    private static final int CATALOG_SIZE = 2_500;
+
+    private final LocalDate checkIn = LocalDate.now().plusDays(10);
+    private final LocalDate checkOut = checkIn.plusDays(3);
+
+    private PropertyRepository propertyRepository;
+    private SearchResultCache searchResultCache;
+    private PropertyService propertyService;
+
+    @BeforeEach
+    void setUp() {
+        List<Long> catalog = LongStream.rangeClosed(1, CATALOG_SIZE).boxed().toList();
+        propertyRepository = mock(PropertyRepository.class);
+        when(propertyRepository.findAvailableCandidateIds(any(), any(), any(), any(), any(), any(), any(), any(),
+                any(), any(), anyInt(), any())).thenReturn(catalog);
+
+        AvailabilityIndex availabilityIndex = mock(AvailabilityIndex.class);
+        when(availabilityIndex.covers(any(), any())).thenReturn(true);
+        when(availabilityIndex.filterAvailable(any(), any(), any()))
+                .thenAnswer(call -> List.copyOf((Collection<Long>) call.getArgument(0)));
+
+        PropertyDtoCache propertyDtoCache = mock(PropertyDtoCache.class);
+        when(propertyDtoCache.getAll(any(), any())).thenAnswer(call -> ((Collection<Long>) call.getArgument(0)).stream()
+                .collect(Collectors.toMap(Function.identity(), id -> PropertyDto.builder().id(id).build())));
+
+        searchResultCache = new SearchResultCache(mock(ListingSnapshot.class), 100, Duration.ofMinutes(1));
+        propertyService = new PropertyService(propertyRepository, mock(UserRepository.class), mock(PropertyMapper.class),
+                availabilityIndex, mock(AmenityIndex.class), mock(GeoIndex.class), mock(ClusterIndex.class),
+                mock(ListingSnapshot.class), mock(TextIndex.class), mock(PropertyNightRepository.class),
+                searchResultCache, propertyDtoCache, mock(CursorCodec.class), mock(ApplicationEventPublisher.class),
+                mock(PricingEngine.class));
+    }
+
+    @Test
+    void cachedDateSearchHoldsOnlyTheLeadingIds() {
+        Page<PropertyDto> first = search(PageRequest.of(0, 20));
+
+        assertEquals(CATALOG_SIZE, first.getTotalElements());
+        assertEquals(List.of(1L, 20L), List.of(first.getContent().get(0).getId(), first.getContent().get(19).getId()));
+        SearchResultCache.Result cached = searchResultCache.get(key());
+        assertEquals(PropertyService.CACHED_IDS_STEP, cached.ids().size());
+        assertEquals(CATALOG_SIZE, cached.total());
+    }
+
+    @Test
+    void laterPagesExtendTheCachedIdsStepByStep() {
+        search(PageRequest.of(0, 20));
+        Page<PropertyDto> fourth = search(PageRequest.of(4, 20)); // Ends at 100: still covered
+        verify(propertyRepository, times(1)).findAvailableCandidateIds(any(), any(), any(), any(), any(), any(),
+                any(), any(), any(), any(), anyInt(), any());
+        assertEquals(81L, fourth.getContent().get(0).getId());
+
+        Page<PropertyDto> sixth = search(PageRequest.of(6, 20)); // Ends at 140: rounded up to 200
+        assertEquals(121L, sixth.getContent().get(0).getId());
+        assertEquals(2 * PropertyService.CACHED_IDS_STEP, searchResultCache.get(key()).ids().size());
+        assertEquals(CATALOG_SIZE, sixth.getTotalElements());
+    }
+
+    private Page<PropertyDto> search(Pageable pageable) {
+        return propertyService.searchAvailableProperties(checkIn, checkOut, null, null, null, null, "Lisbon", null,
+                null, null, pageable);
+    }
+
+    private SearchResultCache.Key key() {
+        return SearchResultCache.Key.available(checkIn, checkOut, null, null, null, null, "Lisbon", null, null, null,
+                Sort.unsorted());
+    }
+}
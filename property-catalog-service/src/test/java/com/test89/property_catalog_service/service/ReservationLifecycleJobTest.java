@@ -0,0 +1,240 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.dto.ReservationSpanDto;
+import com.test89.property_catalog_service.entity.ReservationStatus;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import com.test89.property_catalog_service.repository.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * ReservationLifecycleJob over an in-memory reservations table: finished stays and never-paid reservations are
+ * read in keyset chunks, flipped, released and published exactly once, and nothing else is touched.
+ */
+class ReservationLifecycleJobTest {
+
+    private static final int CHUNK_SIZE = 3;
+
+    private final LocalDate today = LocalDate.now();
+    private final Map<Long, Row> table = new TreeMap<>();
+    private final List<Long> finishedStaysAfter = new ArrayList<>();
+    private final List<Long> neverPaidAfter = new ArrayList<>();
+    private final List<List<Long>> released = new ArrayList<>();
+    private final List<ReservationChangedEvent> events = new ArrayList<>();
+
+    private ReservationRepository reservationRepository;
+    private ReservationLifecycleJob job;
+
+    private static final class Row {
+        final ReservationSpanDto span;
+        String status;
+        boolean paid;
+        LocalDateTime holdExpiresAt;
+
+        Row(ReservationSpanDto span, String status) {
+            this.span = span;
+            this.status = status;
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        reservationRepository = mock(ReservationRepository.class);
+        when(reservationRepository.findFinishedStays(any(), anyLong(), any())).thenAnswer(call -> {
+            finishedStaysAfter.add(call.getArgument(1));
+            return chunk(this::finished, call.getArgument(1), call.getArgument(2));
+        });
+        when(reservationRepository.completeStays(any(), any(), any())).thenAnswer(call ->
+                flip(call.getArgument(0), this::finished, ReservationStatus.COMPLETED));
+        when(reservationRepository.findNeverPaid(any(), any(), anyLong(), any())).thenAnswer(call -> {
+            neverPaidAfter.add(call.getArgument(2));
+            LocalDateTime now = call.getArgument(0);
+            return chunk(row -> neverPaid(row, now), call.getArgument(2), call.getArgument(3));
+        });
+        when(reservationRepository.expireNeverPaid(any(), any(), any())).thenAnswer(call -> {
+            LocalDateTime now = call.getArgument(2);
+            return flip(call.getArgument(0), row -> neverPaid(row, now), ReservationStatus.EXPIRED);
+        });
+        when(reservationRepository.findOldestFinishedCheckOut(any())).thenAnswer(call -> table.values().stream()
+                .filter(this::finished).map(row -> row.span.getCheckOutDate()).min(LocalDate::compareTo).orElse(null));
+
+        PropertyNightService propertyNightService = mock(PropertyNightService.class);
+        doAnswer(call -> released.add(((List<ReservationSpanDto>) call.getArgument(0)).stream()
+                .map(ReservationSpanDto::getReservationId).toList())).when(propertyNightService).releaseAll(any());
+
+        // Not PostgreSQL, so the run takes no advisory lock
+        Connection connection = mock(Connection.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.getDatabaseProductName()).thenReturn("H2");
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenAnswer(call ->
+                ((ConnectionCallback<?>) call.getArgument(0)).doInConnection(connection));
+
+        job = new ReservationLifecycleJob(reservationRepository, propertyNightService,
+                event -> events.add((ReservationChangedEvent) event),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), jdbcTemplate, CHUNK_SIZE);
+    }
+
+    @Test
+    void completesFinishedStaysChunkByChunk() {
+        for (long id = 1; id <= 7; id++) {
+            insert(id, today.minusDays(10 + id), today.minusDays(id), ReservationStatus.CONFIRMED);
+        }
+        insert(8, today.minusDays(2), today, ReservationStatus.CONFIRMED); // Checks out today
+        insert(9, today.minusDays(9), today.minusDays(5), ReservationStatus.CANCELLED);
+
+        ReservationLifecycleJob.RunStats stats = job.run();
+
+        assertEquals(7, stats.completed());
+        assertEquals(0, stats.expired());
+        assertEquals(7, stats.lag().toDays()); // Since the start of the oldest check-out day
+        assertEquals(List.of(0L, 3L, 6L), finishedStaysAfter);
+        assertEquals(List.of(List.of(1L, 2L, 3L), List.of(4L, 5L, 6L), List.of(7L)), released);
+        assertEquals(7, events.size());
+        assertTrue(events.stream().allMatch(event -> ReservationStatus.CONFIRMED.equals(event.getPreviousStatus())
+                && ReservationStatus.COMPLETED.equals(event.getStatus())));
+        assertEquals(Map.of(ReservationStatus.COMPLETED, 7L, ReservationStatus.CONFIRMED, 1L,
+                ReservationStatus.CANCELLED, 1L), statusCounts());
+    }
+
+    @Test
+    void expiresOnlyReservationsThatCanNoLongerBePaid() {
+        LocalDateTime now = LocalDateTime.now();
+        insert(1, today.plusDays(5), today.plusDays(8), ReservationStatus.PENDING).holdExpiresAt = now.minusMinutes(1);
+        insert(2, today.plusDays(5), today.plusDays(8), ReservationStatus.PENDING).holdExpiresAt = now.plusMinutes(10);
+        insert(3, today, today.plusDays(2), ReservationStatus.PENDING); // No hold and check-in has come
+        insert(4, today.plusDays(1), today.plusDays(2), ReservationStatus.PENDING); // No hold, check-in ahead
+        Row paid = insert(5, today.plusDays(5), today.plusDays(8), ReservationStatus.PENDING);
+        paid.holdExpiresAt = now.minusMinutes(1);
+        paid.paid = true;
+        insert(6, today.minusDays(3), today.minusDays(1), ReservationStatus.CANCELLED);
+
+        ReservationLifecycleJob.RunStats stats = job.run();
+
+        assertEquals(2, stats.expired());
+        assertEquals(List.of(List.of(1L, 3L)), released);
+        assertEquals(List.of(1L, 3L), events.stream().map(ReservationChangedEvent::getReservationId).toList());
+        assertTrue(events.stream().allMatch(event -> ReservationStatus.PENDING.equals(event.getPreviousStatus())
+                && ReservationStatus.EXPIRED.equals(event.getStatus()) && !event.isActive()));
+        assertEquals(ReservationStatus.PENDING, table.get(2L).status);
+        assertEquals(ReservationStatus.PENDING, table.get(4L).status);
+        assertEquals(ReservationStatus.PENDING, table.get(5L).status);
+    }
+
+    @Test
+    void fullLastChunkIsFollowedByOneEmptyRead() {
+        for (long id = 1; id <= 6; id++) {
+            insert(id, today.minusDays(10), today.minusDays(1), ReservationStatus.PENDING);
+        }
+
+        assertEquals(6, job.run().expired());
+        assertEquals(List.of(0L, 3L, 6L), neverPaidAfter);
+        assertEquals(List.of(List.of(1L, 2L, 3L), List.of(4L, 5L, 6L)), released);
+    }
+
+    @Test
+    void updateThatMissesALockedRowFailsTheChunkWithoutReleasingIt() {
+        insert(1, today.minusDays(5), today.minusDays(2), ReservationStatus.CONFIRMED);
+        insert(2, today.minusDays(5), today.minusDays(2), ReservationStatus.CONFIRMED);
+        // Another transaction changed a row despite the lock
+        doAnswer(call -> {
+            table.get(2L).status = ReservationStatus.CANCELLED;
+            return flip(call.getArgument(0), this::finished, ReservationStatus.COMPLETED);
+        }).when(reservationRepository).completeStays(any(), any(), any());
+
+        assertThrows(IllegalStateException.class, job::run);
+        assertEquals(List.of(), released);
+        assertEquals(List.of(), events);
+
+        // The failed run does not leave the job marked as running
+        assertNotNull(job.run());
+    }
+
+    @Test
+    void runWithNothingDueChangesNothing() {
+        insert(1, today.plusDays(3), today.plusDays(6), ReservationStatus.CONFIRMED);
+        insert(2, today.plusDays(3), today.plusDays(6), ReservationStatus.PENDING).holdExpiresAt =
+                LocalDateTime.now().plusMinutes(10);
+
+        ReservationLifecycleJob.RunStats stats = job.run();
+
+        assertEquals(0, stats.completed() + stats.expired());
+        assertEquals(Duration.ZERO, stats.lag());
+        assertEquals(List.of(0L), finishedStaysAfter);
+        assertEquals(List.of(0L), neverPaidAfter);
+        verify(reservationRepository, never()).completeStays(any(), any(), any());
+        verify(reservationRepository, never()).expireNeverPaid(any(), any(), any());
+        assertEquals(List.of(), released);
+        assertEquals(List.of(), events);
+    }
+
+    private Row insert(long id, LocalDate checkIn, LocalDate checkOut, String status) {
+        Row row = new Row(new ReservationSpanDto(id, 100 + id % 2, checkIn, checkOut), status);
+        table.put(id, row);
+        return row;
+    }
+
+    private boolean finished(Row row) {
+        return ReservationStatus.CONFIRMED.equals(row.status) && row.span.getCheckOutDate().isBefore(today);
+    }
+
+    private boolean neverPaid(Row row, LocalDateTime now) {
+        return ReservationStatus.PENDING.equals(row.status) && !row.paid && (row.holdExpiresAt != null
+                ? !row.holdExpiresAt.isAfter(now) : !row.span.getCheckInDate().isAfter(today));
+    }
+
+    private List<ReservationSpanDto> chunk(Predicate<Row> due, long afterId, Pageable pageable) {
+        return table.values().stream()
+                .filter(row -> row.span.getReservationId() > afterId && due.test(row))
+                .limit(pageable.getPageSize())
+                .map(row -> row.span)
+                .toList();
+    }
+
+    private int flip(Collection<Long> ids, Predicate<Row> due, String status) {
+        int flipped = 0;
+        for (Long id : ids) {
+            Row row = table.get(id);
+            if (due.test(row)) {
+                row.status = status;
+                flipped++;
+            }
+        }
+        return flipped;
+    }
+
+    private Map<String, Long> statusCounts() {
+        return table.values().stream().collect(Collectors.groupingBy(row -> row.status, Collectors.counting()));
+    }
+}
@@ -0,0 +1,231 @@
+package com.test89.property_catalog_service.service;
+
+import com.test89.property_catalog_service.cache.ReservationCalendarCache;
+import com.test89.property_catalog_service.entity.Property;
+import com.test89.property_catalog_service.entity.Reservation;
+import com.test89.property_catalog_service.entity.ReservationStatus;
+import com.test89.property_catalog_service.entity.User;
+import com.test89.property_catalog_service.event.ReservationChangedEvent;
+import com.test89.property_catalog_service.hold.BookingHolds;
+import com.test89.property_catalog_service.index.ListingSnapshot;
+import com.test89.property_catalog_service.index.ReservationIntervalIndex;
+import com.test89.property_catalog_service.mapper.ReservationMapper;
+import com.test89.property_catalog_service.pricing.PricingEngine;
+import com.test89.property_catalog_service.repository.PropertyRepository;
+import com.test89.property_catalog_service.repository.ReservationRepository;
+import com.test89.property_catalog_service.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * ReservationService status and payment changes written with ReservationRepository.compareAndSet: a lost race
+ * re-reads the reservation and re-runs every check against what is actually there now.
+ */
+class ReservationTransitionTest {
+
+    private static final long RESERVATION_ID = 1L;
+    private static final long PROPERTY_ID = 7L;
+
+    private final User guest = User.builder().id(10L).username("guest").roles(Set.of("ROLE_USER")).build();
+    private final User admin = User.builder().id(20L).username("admin").roles(Set.of("ROLE_ADMIN")).build();
+    private final Property property = Property.builder().id(PROPERTY_ID)
+            .owner(User.builder().id(30L).username("host").roles(Set.of("ROLE_USER")).build())
+            .build();
+
+    private ReservationRepository reservationRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private ReservationEmails reservationEmails;
+    private BookingLocks bookingLocks;
+    private PropertyNightService propertyNightService;
+    private ReservationService reservationService;
+
+    @BeforeEach
+    void setUp() {
+        reservationRepository = mock(ReservationRepository.class);
+        when(reservationRepository.findPropertyIdById(RESERVATION_ID)).thenReturn(Optional.of(PROPERTY_ID));
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        reservationEmails = mock(ReservationEmails.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByUsername("guest")).thenReturn(Optional.of(guest));
+        when(userRepository.findByUsername("admin")).thenReturn(Optional.of(admin));
+
+        bookingLocks = mock(BookingLocks.class);
+        when(bookingLocks.withLock(anyLong(), any())).thenAnswer(call -> ((Supplier<?>) call.getArgument(1)).get());
+        propertyNightService = mock(PropertyNightService.class);
+
+        // Not built yet, so overlap checks go to reservationRepository.findOverlappingReservations
+        reservationService = new ReservationService(reservationRepository, mock(PropertyRepository.class),
+                userRepository, mock(ReservationMapper.class), reservationEmails, eventPublisher,
+                new ReservationIntervalIndex(reservationRepository), propertyNightService, mock(ListingSnapshot.class),
+                bookingLocks, mock(BookingHolds.class), new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                mock(PricingEngine.class), mock(EntityManager.class), mock(ReservationCalendarCache.class));
+    }
+
+    @Test
+    void lostRaceIsRetriedAgainstTheNewVersion() {
+        when(reservationRepository.findById(RESERVATION_ID))
+                .thenReturn(Optional.of(reservation(ReservationStatus.PENDING, 3L)))
+                .thenReturn(Optional.of(reservation(ReservationStatus.PENDING, 4L)));
+        when(compareAndSet(ReservationStatus.PENDING, 3L)).thenReturn(0);
+        when(compareAndSet(ReservationStatus.PENDING, 4L)).thenReturn(1);
+
+        reservationService.recordPayment(RESERVATION_ID, "card", "ref-1", "guest");
+
+        verify(reservationRepository, times(2)).findById(RESERVATION_ID);
+        verify(reservationRepository).compareAndSet(eq(RESERVATION_ID), eq(ReservationStatus.PENDING), eq(4L),
+                eq(ReservationStatus.CONFIRMED), any(), eq(true), any(), eq("card"), eq("ref-1"), any(), any());
+        ArgumentCaptor<ReservationChangedEvent> event = ArgumentCaptor.forClass(ReservationChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(ReservationStatus.PENDING, event.getValue().getPreviousStatus());
+        assertEquals(ReservationStatus.CONFIRMED, event.getValue().getStatus());
+        verify(reservationEmails).sendPaymentConfirmation(any());
+    }
+
+    @Test
+    void checksRunAgainAgainstTheStatusThatWon() {
+        // Cancelled by the host between the payment's read and its write
+        when(reservationRepository.findById(RESERVATION_ID))
+                .thenReturn(Optional.of(reservation(ReservationStatus.PENDING, 3L)))
+                .thenReturn(Optional.of(reservation(ReservationStatus.CANCELLED, 4L)));
+        when(compareAndSet(ReservationStatus.PENDING, 3L)).thenReturn(0);
+
+        IllegalStateException rejected = assertThrows(IllegalStateException.class,
+                () -> reservationService.recordPayment(RESERVATION_ID, "card", "ref-1", "guest"));
+
+        assertTrue(rejected.getMessage().endsWith("not cancelled ones"), rejected.getMessage());
+        verify(reservationRepository, times(1)).compareAndSet(any(), any(), any(), any(), any(), any(), any(),
+                any(), any(), any(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+        verify(reservationEmails, never()).sendPaymentConfirmation(any());
+    }
+
+    @Test
+    void givesUpWhenTheReservationKeepsChanging() {
+        when(reservationRepository.findById(RESERVATION_ID))
+                .thenReturn(Optional.of(reservation(ReservationStatus.CONFIRMED, 3L)))
+                .thenReturn(Optional.of(reservation(ReservationStatus.CONFIRMED, 4L)))
+                .thenReturn(Optional.of(reservation(ReservationStatus.CONFIRMED, 5L)));
+        when(reservationRepository.compareAndSet(anyLong(), anyString(), anyLong(), any(), any(), any(), any(),
+                any(), any(), any(), any())).thenReturn(0);
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> reservationService.cancelReservation(RESERVATION_ID, "admin"));
+
+        verify(reservationRepository, times(3)).findById(RESERVATION_ID);
+        verify(eventPublisher, never()).publishEvent(any());
+        verify(reservationEmails, never()).sendCancellation(any());
+    }
+
+    @Test
+    void forbiddenTransitionIsNeverWritten() {
+        when(reservationRepository.findById(RESERVATION_ID))
+                .thenReturn(Optional.of(reservation(ReservationStatus.COMPLETED, 3L)));
+
+        assertThrows(IllegalStateException.class, () -> reservationService.updateReservationStatus(
+                RESERVATION_ID, ReservationStatus.PENDING, "admin"));
+        assertThrows(IllegalStateException.class,
+                () -> reservationService.cancelReservation(RESERVATION_ID, "admin"));
+        assertThrows(IllegalArgumentException.class, () -> reservationService.updateReservationStatus(
+                RESERVATION_ID, "APPROVED", "admin"));
+
+        verify(reservationRepository, never()).compareAndSet(any(), any(), any(), any(), any(), any(), any(),
+                any(), any(), any(), any());
+    }
+
+    @Test
+    void reopeningAnExpiredHoldChecksItsDatesUnderTheBookingLock() {
+        Reservation expired = reservation(ReservationStatus.EXPIRED, 3L);
+        when(reservationRepository.findById(RESERVATION_ID)).thenReturn(Optional.of(expired));
+        // Booked while the hold was expired, checking out on the hold's check-in day
+        Reservation booked = Reservation.builder().id(2L).property(property).status(ReservationStatus.CONFIRMED)
+                .checkInDate(expired.getCheckInDate().minusDays(4)).checkOutDate(expired.getCheckInDate()).build();
+        when(reservationRepository.findOverlappingReservations(PROPERTY_ID, expired.getCheckInDate(),
+                expired.getCheckOutDate())).thenReturn(List.of(booked));
+
+        IllegalStateException rejected = assertThrows(IllegalStateException.class,
+                () -> reservationService.updateReservationStatus(RESERVATION_ID, ReservationStatus.PENDING, "admin"));
+
+        assertEquals("The property is already booked for the selected dates", rejected.getMessage());
+        verify(bookingLocks).withLock(eq(PROPERTY_ID), any());
+        verify(reservationRepository, never()).compareAndSet(any(), any(), any(), any(), any(), any(), any(),
+                any(), any(), any(), any());
+        verify(propertyNightService, never()).onStatusChange(any(), any());
+    }
+
+    @Test
+    void reopeningAnExpiredHoldWithFreeDatesTakesThemAgain() {
+        when(reservationRepository.findById(RESERVATION_ID))
+                .thenReturn(Optional.of(reservation(ReservationStatus.EXPIRED, 3L)));
+        when(reservationRepository.findOverlappingReservations(any(), any(), any())).thenReturn(List.of());
+        when(compareAndSet(ReservationStatus.EXPIRED, 3L)).thenReturn(1);
+
+        reservationService.updateReservationStatus(RESERVATION_ID, ReservationStatus.PENDING, "admin");
+
+        verify(propertyNightService).onStatusChange(any(), eq(ReservationStatus.EXPIRED));
+    }
+
+    @Test
+    void expiredHoldWhoseCheckInHasPassedCannotBeReopened() {
+        Reservation expired = reservation(ReservationStatus.EXPIRED, 3L);
+        expired.setCheckInDate(LocalDate.now().minusDays(1));
+        when(reservationRepository.findById(RESERVATION_ID)).thenReturn(Optional.of(expired));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> reservationService.updateReservationStatus(RESERVATION_ID, ReservationStatus.PENDING, "admin"));
+    }
+
+    @Test
+    void confirmingNeedsNoBookingLock() {
+        when(reservationRepository.findById(RESERVATION_ID))
+                .thenReturn(Optional.of(reservation(ReservationStatus.PENDING, 3L)));
+        when(compareAndSet(ReservationStatus.PENDING, 3L)).thenReturn(1);
+
+        reservationService.updateReservationStatus(RESERVATION_ID, ReservationStatus.CONFIRMED, "admin");
+
+        verify(bookingLocks, never()).withLock(any(), any());
+        verify(reservationRepository, never()).findOverlappingReservations(any(), any(), any());
+    }
+
+    private int compareAndSet(String expectedStatus, long expectedVersion) {
+        return reservationRepository.compareAndSet(eq(RESERVATION_ID), eq(expectedStatus), eq(expectedVersion),
+                any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    private Reservation reservation(String status, long version) {
+        return Reservation.builder()
+                .id(RESERVATION_ID)
+                .property(property)
+                .user(guest)
+                .checkInDate(LocalDate.now().plusDays(30))
+                .checkOutDate(LocalDate.now().plusDays(33))
+                .status(status)
+                .isPaid(false)
+                .version(version)
+                .build();
+    }
+}